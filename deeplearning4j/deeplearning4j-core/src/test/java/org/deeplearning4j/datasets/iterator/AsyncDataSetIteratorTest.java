@@ -10,13 +10,18 @@ import org.junit.Test;
 import org.nd4j.linalg.dataset.DataSet;
 import org.nd4j.linalg.factory.Nd4j;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author raver119@gmail.com
@@ -203,4 +208,101 @@ public class AsyncDataSetIteratorTest extends BaseDL4JTest {
             log.info("Epoch {} finished...", e);
         }
     }
+
+    @Test
+    public void testAdaptivePrefetchController() throws Exception {
+        AdaptivePrefetchController controller = new AdaptivePrefetchController(2, 4, 3);
+        assertEquals(2, controller.getDepth());
+
+        //Consumer starving: grow up to the max depth
+        for (int i = 0; i < 5; i++) {
+            controller.onTake(0);
+        }
+        assertEquals(4, controller.getDepth());
+
+        //Queue full for the whole window: shrink by one
+        controller.onTake(3);
+        controller.onTake(4);
+        assertEquals(4, controller.getDepth());
+        controller.onTake(3);
+        assertEquals(3, controller.getDepth());
+
+        //Window is reset by takes with a partially filled queue
+        controller.onTake(2);
+        controller.onTake(1);
+        controller.onTake(2);
+        controller.onTake(2);
+        assertEquals(3, controller.getDepth());
+        controller.onTake(2);
+        assertEquals(2, controller.getDepth());
+        for (int i = 0; i < 10; i++) {
+            controller.onTake(2);
+        }
+        assertEquals(2, controller.getDepth());
+
+        //Queue below current depth: producer shouldn't block
+        controller.awaitCapacity(new ArrayDeque<>(Collections.singletonList(1)));
+    }
+
+    @Test
+    public void testAdaptivePrefetchSlowProducer() throws Exception {
+        VariableTimeseriesGenerator slow = new VariableTimeseriesGenerator(1192, 30, 8, 16, 10, 20, 10) {
+            @Override
+            public DataSet next(int num) {
+                try {
+                    Thread.sleep(EXECUTION_TIME);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return super.next(num);
+            }
+        };
+        AsyncDataSetIterator adsi = new AsyncDataSetIterator(slow, 2, 5, true);
+        assertEquals(2, adsi.getPrefetchDepth());
+
+        for (int e = 0; e < 2; e++) {
+            int cnt = 0;
+            while (adsi.hasNext()) {
+                DataSet ds = adsi.next();
+                assertEquals((double) cnt, ds.getFeatures().meanNumber().doubleValue(), 1e-10);
+                cnt++;
+            }
+            assertEquals(30, cnt);
+            adsi.reset();
+        }
+
+        //Consumer is faster than producer: depth should have grown, and the consumer should have been waiting
+        AsyncPrefetchStats stats = adsi.getStats();
+        assertEquals(5, adsi.getPrefetchDepth());
+        assertEquals(60, stats.getNumTaken());
+        assertTrue(stats.getNumStarved() > 0);
+        assertTrue(stats.getConsumerWaitTime(TimeUnit.NANOSECONDS) > 0);
+        long sum = 0;
+        for (long l : stats.getOccupancyHistogram()) {
+            sum += l;
+        }
+        assertEquals(60, sum);
+
+        stats.reset();
+        assertEquals(0, stats.getNumTaken());
+        assertArrayEquals(new long[6], stats.getOccupancyHistogram());
+        adsi.shutdown();
+    }
+
+    @Test
+    public void testStatsSlowConsumer() throws Exception {
+        AsyncDataSetIterator adsi = new AsyncDataSetIterator(backIterator, 4);
+        TestDataSetConsumer consumer = new TestDataSetConsumer(adsi, EXECUTION_SMALL);
+        consumer.consumeWhileHasNext(true);
+        assertEquals(TEST_SIZE, consumer.getCount());
+
+        //Producer is faster than consumer: queue should be mostly full, and producer should have been waiting
+        AsyncPrefetchStats stats = adsi.getStats();
+        assertEquals(4, adsi.getPrefetchDepth());
+        assertEquals(TEST_SIZE, stats.getNumTaken());
+        assertEquals(TEST_SIZE, stats.getNumPut());
+        assertTrue(stats.getProducerWaitTime(TimeUnit.NANOSECONDS) > 0);
+        assertTrue(stats.toString(), stats.getMeanOccupancy() > 2.0);
+        adsi.shutdown();
+    }
 }
@@ -19,6 +19,7 @@ import org.nd4j.linalg.dataset.api.preprocessor.MultiNormalizerStandardize;
 import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author raver119@gmail.com
@@ -144,4 +145,30 @@ public class AsyncMultiDataSetIteratorTest extends BaseDL4JTest {
         }
     }
     */
+
+    @Test
+    public void testAdaptivePrefetch() throws Exception {
+        val iterator = new VariableMultiTimeseriesGenerator(1192, 100, 32, 128, 10, 100, 10);
+        val amdsi = new AsyncMultiDataSetIterator(iterator, 2, 6, true);
+
+        for (int e = 0; e < 3; e++) {
+            int cnt = 0;
+            while (amdsi.hasNext()) {
+                MultiDataSet mds = amdsi.next();
+                assertEquals("Failed on epoch " + e + "; iteration: " + cnt + ";", (double) cnt,
+                                mds.getFeatures()[0].meanNumber().doubleValue(), 1e-10);
+                assertEquals("Failed on epoch " + e + "; iteration: " + cnt + ";", (double) cnt + 0.75,
+                                mds.getLabelsMaskArrays()[0].meanNumber().doubleValue(), 1e-10);
+                int depth = amdsi.getPrefetchDepth();
+                assertTrue(depth >= 2 && depth <= 6);
+                cnt++;
+            }
+            assertEquals(100, cnt);
+            amdsi.reset();
+        }
+
+        assertEquals(300, amdsi.getStats().getNumTaken());
+        assertEquals(7, amdsi.getStats().getOccupancyHistogram().length);
+        amdsi.shutdown();
+    }
 }
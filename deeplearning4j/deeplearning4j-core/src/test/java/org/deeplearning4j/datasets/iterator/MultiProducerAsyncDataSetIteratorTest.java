@@ -0,0 +1,244 @@
+package org.deeplearning4j.datasets.iterator;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.junit.Test;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class MultiProducerAsyncDataSetIteratorTest extends BaseDL4JTest {
+
+    private static List<DataSet> getData(int from, int to, int step) {
+        List<DataSet> list = new ArrayList<>();
+        for (int i = from; i < to; i += step) {
+            list.add(new DataSet(Nd4j.valueArrayOf(new int[] {4, 10}, i), Nd4j.valueArrayOf(new int[] {4, 3}, i)));
+        }
+        return list;
+    }
+
+    /**
+     * Source returning new DataSets on each epoch, as preprocessors modify them in-place
+     */
+    private static DataSetIterator getSource(final int from, final int to, final int step) {
+        return new ExistingDataSetIterator(new Iterable<DataSet>() {
+            @Override
+            public Iterator<DataSet> iterator() {
+                return getData(from, to, step).iterator();
+            }
+        });
+    }
+
+    private static List<Integer> collect(DataSetIterator iter, boolean checkPreProcessed) {
+        List<Integer> out = new ArrayList<>();
+        while (iter.hasNext()) {
+            DataSet ds = iter.next();
+            int value = ds.getLabels().getInt(0, 0);
+            double exp = checkPreProcessed ? 2 * value : value;
+            assertEquals(exp, ds.getFeatures().minNumber().doubleValue(), 0.0);
+            assertEquals(exp, ds.getFeatures().maxNumber().doubleValue(), 0.0);
+            out.add(value);
+        }
+        return out;
+    }
+
+    private static List<Integer> range(int n) {
+        List<Integer> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            out.add(i);
+        }
+        return out;
+    }
+
+    /**
+     * Slow preprocessor, recording the threads it was called from
+     */
+    private static class SlowPreProcessor implements DataSetPreProcessor {
+        private final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+
+        @Override
+        public void preProcess(org.nd4j.linalg.dataset.api.DataSet toPreProcess) {
+            threads.add(Thread.currentThread().getName());
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            toPreProcess.setFeatures(toPreProcess.getFeatures().mul(2));
+        }
+    }
+
+    @Test
+    public void testSharedSourceOrdered() {
+        for (boolean useWorkspace : new boolean[] {false, true}) {
+            MultiProducerAsyncDataSetIterator iter = new MultiProducerAsyncDataSetIterator(
+                            getSource(0, 50, 1), 3, 2, true, useWorkspace);
+            SlowPreProcessor pp = new SlowPreProcessor();
+            iter.setPreProcessor(pp);
+            iter.reset();
+
+            for (int epoch = 0; epoch < 3; epoch++) {
+                assertEquals(range(50), collect(iter, true));
+                assertFalse(iter.hasNext());
+                iter.reset();
+            }
+            assertEquals(3, pp.threads.size());
+            assertEquals(150, iter.getStats().getNumTaken());
+            iter.shutdown();
+        }
+    }
+
+    @Test
+    public void testSharedSourceUnordered() {
+        MultiProducerAsyncDataSetIterator iter = new MultiProducerAsyncDataSetIterator(
+                        new ExistingDataSetIterator(getData(0, 40, 1)), 4, 2, false, true);
+        for (int epoch = 0; epoch < 2; epoch++) {
+            List<Integer> out = collect(iter, false);
+            Collections.sort(out);
+            assertEquals(range(40), out);
+            iter.reset();
+        }
+        iter.shutdown();
+    }
+
+    @Test
+    public void testAdaptiveProducerController() {
+        AsyncPrefetchStats stats = new AsyncPrefetchStats(4);
+        AdaptiveProducerController controller = new AdaptiveProducerController(stats, 4, 1, 3, 4, 0.1);
+        assertEquals(1, controller.getActiveProducers());
+
+        //Consumer starving: one more producer per window, up to the max
+        for (int i = 0; i < 12; i++) {
+            stats.recordTake(0, 0);
+            assertEquals((i + 1) % 4 == 0 && i < 8, controller.update());
+        }
+        assertEquals(3, controller.getActiveProducers());
+
+        //Queue (almost) full for a whole window: one less producer
+        for (int i = 0; i < 4; i++) {
+            stats.recordTake(0, 3 + i % 2);
+            controller.update();
+        }
+        assertEquals(2, controller.getActiveProducers());
+
+        //Partially filled queue, no starvation: no change
+        for (int i = 0; i < 8; i++) {
+            stats.recordTake(0, i % 4 == 0 ? 1 : 4);
+            assertFalse(controller.update());
+        }
+        assertEquals(2, controller.getActiveProducers());
+
+        //Stats reset: new window
+        stats.reset();
+        stats.recordTake(0, 0);
+        assertFalse(controller.update());
+        assertEquals(2, controller.getActiveProducers());
+    }
+
+    @Test
+    public void testAdaptiveProducers() throws Exception {
+        MultiProducerAsyncDataSetIterator iter = new MultiProducerAsyncDataSetIterator(getSource(0, 200, 1), 1, 4, 2,
+                        true);
+        assertFalse(iter.isOrdered());
+        assertEquals(4, iter.getNumProducers());
+        assertEquals(1, iter.getActiveProducers());
+
+        //Slow producers, fast consumer: number of active producers should grow
+        SlowPreProcessor pp = new SlowPreProcessor();
+        iter.setPreProcessor(pp);
+        iter.reset();
+        List<Integer> out = collect(iter, true);
+        Collections.sort(out);
+        assertEquals(range(200), out);
+        assertEquals(4, iter.getActiveProducers());
+        assertEquals(4, pp.threads.size());
+
+        //Fast producers, slow consumer: queue is always full, number of active producers should shrink
+        iter.setPreProcessor(null);
+        iter.reset();
+        out = new ArrayList<>();
+        while (iter.hasNext()) {
+            out.add(iter.next().getLabels().getInt(0, 0));
+            Thread.sleep(3);
+        }
+        Collections.sort(out);
+        assertEquals(range(200), out);
+        assertEquals(1, iter.getActiveProducers());
+        assertEquals(400, iter.getStats().getNumTaken());
+        iter.shutdown();
+    }
+
+    @Test
+    public void testSplits() {
+        for (boolean ordered : new boolean[] {true, false}) {
+            //Strided splits, of different lengths
+            List<DataSetIterator> splits = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                splits.add(new ExistingDataSetIterator(getData(i, 11, 3)));
+            }
+
+            MultiProducerAsyncDataSetIterator iter = new MultiProducerAsyncDataSetIterator(splits, 2, ordered, true);
+            assertEquals(3, iter.getNumProducers());
+            for (int epoch = 0; epoch < 2; epoch++) {
+                List<Integer> out = collect(iter, false);
+                if (!ordered)
+                    Collections.sort(out);
+                assertEquals(range(11), out);
+                iter.reset();
+            }
+            iter.shutdown();
+        }
+    }
+
+    @Test
+    public void testException() {
+        Iterable<DataSet> crashing = new Iterable<DataSet>() {
+            @Override
+            public Iterator<DataSet> iterator() {
+                final Iterator<DataSet> iter = getData(0, 20, 1).iterator();
+                return new Iterator<DataSet>() {
+                    private int count = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return iter.hasNext();
+                    }
+
+                    @Override
+                    public DataSet next() {
+                        if (count++ == 10)
+                            throw new ArrayIndexOutOfBoundsException("Thrown as expected");
+                        return iter.next();
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+
+        for (boolean ordered : new boolean[] {true, false}) {
+            MultiProducerAsyncDataSetIterator iter =
+                            new MultiProducerAsyncDataSetIterator(new ExistingDataSetIterator(crashing), 3, 2, ordered,
+                                            false);
+            try {
+                collect(iter, false);
+                fail("Expected exception");
+            } catch (ArrayIndexOutOfBoundsException e) {
+                //Expected
+            }
+            iter.shutdown();
+        }
+    }
+}
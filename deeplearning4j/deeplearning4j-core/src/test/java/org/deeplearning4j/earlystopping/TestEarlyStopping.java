@@ -467,6 +467,73 @@ public class TestEarlyStopping extends BaseDL4JTest {
         assertEquals(bl.getIUpdater(), ((BaseLayer) mln.conf().getLayer()).getIUpdater());
     }
 
+    @Test
+    public void testAsyncScoringAndSaving() throws Exception {
+        //Training is not affected by asynchronous scoring: scores and best model should match synchronous scoring
+        Map<Integer, Double> expScores = null;
+        INDArray expBestParams = null;
+        INDArray expFinalParams = null;
+        int expEpochCount = -1;
+        for (int i = 0; i < 4; i++) {
+            boolean asyncScoring = (i == 1 || i == 3);
+            boolean asyncSaving = (i >= 2);
+            Nd4j.getRandom().setSeed(12345);
+            MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345)
+                            .updater(new Sgd(0.5)).weightInit(WeightInit.XAVIER).list()
+                            .layer(new DenseLayer.Builder().nIn(4).nOut(4).activation(Activation.TANH).build())
+                            .layer(new OutputLayer.Builder().nIn(4).nOut(3).activation(Activation.SOFTMAX)
+                                            .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                            .build();
+            MultiLayerNetwork net = new MultiLayerNetwork(conf);
+            net.init();
+
+            //Score calculator must not share the training iterator when scoring asynchronously
+            DataSetIterator trainIter = new IrisDataSetIterator(50, 150);
+            DataSetIterator testIter = new IrisDataSetIterator(150, 150);
+            EarlyStoppingConfiguration<MultiLayerNetwork> esConf =
+                            new EarlyStoppingConfiguration.Builder<MultiLayerNetwork>()
+                                            .epochTerminationConditions(new MaxEpochsTerminationCondition(5))
+                                            .scoreCalculator(new DataSetLossCalculator(testIter, true))
+                                            .modelSaver(new InMemoryModelSaver<MultiLayerNetwork>())
+                                            .saveLastModel(true).asyncScoring(asyncScoring)
+                                            .asyncModelSaving(asyncSaving).build();
+
+            LoggingEarlyStoppingListener listener = new LoggingEarlyStoppingListener();
+            EarlyStoppingResult<MultiLayerNetwork> result =
+                            new EarlyStoppingTrainer(esConf, net, trainIter, listener).fit();
+
+            String msg = "asyncScoring=" + asyncScoring + ", asyncSaving=" + asyncSaving;
+            assertEquals(msg, EarlyStoppingResult.TerminationReason.EpochTerminationCondition,
+                            result.getTerminationReason());
+            assertEquals(msg, 5, result.getTotalEpochs());
+            assertEquals(msg, 5, result.getScoreVsEpoch().size());
+            assertEquals(msg, 1, listener.onStartCallCount);
+            assertEquals(msg, 5, listener.onEpochCallCount);
+            assertEquals(msg, 1, listener.onCompletionCallCount);
+
+            MultiLayerNetwork best = result.getBestModel();
+            testIter.reset();
+            assertEquals(msg, result.getBestModelScore(), best.score(testIter.next()), 1e-5);
+            assertEquals(msg, result.getBestModelEpoch(), best.getEpochCount());
+            assertNotNull(msg, esConf.getModelSaver().getLatestModel());
+
+            if (expScores == null) {
+                expScores = result.getScoreVsEpoch();
+                expBestParams = best.params();
+                expFinalParams = net.params();
+                expEpochCount = net.getEpochCount();
+            } else {
+                for (int j = 0; j < 5; j++) {
+                    assertEquals(msg, expScores.get(j), result.getScoreVsEpoch().get(j), 1e-6);
+                }
+                assertTrue(msg, expBestParams.equalsWithEps(best.params(), 1e-6));
+                //No extra epoch is trained while waiting for the score of the last epoch
+                assertEquals(msg, expEpochCount, net.getEpochCount());
+                assertTrue(msg, expFinalParams.equalsWithEps(net.params(), 1e-6));
+            }
+        }
+    }
+
     @Test
     public void testListeners() {
         MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
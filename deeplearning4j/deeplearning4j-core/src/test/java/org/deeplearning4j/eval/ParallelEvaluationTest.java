@@ -0,0 +1,178 @@
+package org.deeplearning4j.eval;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.datasets.iterator.ExistingDataSetIterator;
+import org.deeplearning4j.datasets.iterator.impl.IrisDataSetIterator;
+import org.deeplearning4j.nn.conf.BackpropType;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.LSTM;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.conf.layers.RnnOutputLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ParallelEvaluationTest extends BaseDL4JTest {
+
+    @Test
+    public void testMultiLayerNetworkParallelEvaluation() {
+        Nd4j.getRandom().setSeed(12345);
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345).list()
+                        .layer(new DenseLayer.Builder().nIn(4).nOut(10).activation(Activation.TANH).build())
+                        .layer(new OutputLayer.Builder().nIn(10).nOut(3).activation(Activation.SOFTMAX)
+                                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                        .build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        net.fit(new IrisDataSetIterator(150, 150));
+
+        DataSetIterator iter = new IrisDataSetIterator(7, 150);
+        IEvaluation[] serial = net.doEvaluation(iter, new Evaluation(3), new ROCMultiClass(0),
+                        new RegressionEvaluation(3), new EvaluationCalibration());
+        iter.reset();
+
+        INDArray paramsBefore = net.params().dup();
+        for (int numThreads : new int[] {1, 2, 4}) {
+            iter.reset();
+            IEvaluation[] parallel = net.doEvaluationParallel(iter, numThreads, new Evaluation(3),
+                            new ROCMultiClass(0), new RegressionEvaluation(3), new EvaluationCalibration());
+
+            Evaluation e1 = (Evaluation) serial[0];
+            Evaluation e2 = (Evaluation) parallel[0];
+            assertEquals(150, e2.getNumRowCounter(), 0.0);
+            assertEquals(e1.getConfusionMatrix(), e2.getConfusionMatrix());
+            assertEquals(e1.accuracy(), e2.accuracy(), 0.0);
+
+            for (int c = 0; c < 3; c++) {
+                assertEquals(((ROCMultiClass) serial[1]).calculateAUC(c), ((ROCMultiClass) parallel[1]).calculateAUC(c),
+                                1e-6);
+                assertEquals(((RegressionEvaluation) serial[2]).meanSquaredError(c),
+                                ((RegressionEvaluation) parallel[2]).meanSquaredError(c), 1e-5);
+            }
+            EvaluationCalibration c1 = (EvaluationCalibration) serial[3];
+            EvaluationCalibration c2 = (EvaluationCalibration) parallel[3];
+            assertArrayEquals(c1.getResidualPlotAllClasses().getBinCounts(), c2.getResidualPlotAllClasses().getBinCounts());
+            assertArrayEquals(c1.getProbabilityHistogramAllClasses().getBinCounts(),
+                            c2.getProbabilityHistogramAllClasses().getBinCounts());
+            assertEquals(c1.getRDiagBinTotalCount(), c2.getRDiagBinTotalCount());
+        }
+        assertEquals(paramsBefore, net.params());
+    }
+
+    @Test
+    public void testParallelEvaluationMergesIntoExisting() {
+        Nd4j.getRandom().setSeed(12345);
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345).list()
+                        .layer(new OutputLayer.Builder().nIn(4).nOut(3).activation(Activation.SOFTMAX)
+                                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                        .build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+
+        //Fewer batches than threads: some workers get no data
+        DataSetIterator iter = new IrisDataSetIterator(50, 150);
+        Evaluation e = net.doEvaluation(iter, new Evaluation(3))[0];
+        iter.reset();
+        net.doEvaluationParallel(iter, 8, e);
+        assertEquals(300, e.getNumRowCounter(), 0.0);
+
+        iter.reset();
+        Evaluation exp = new Evaluation(3);
+        net.doEvaluation(iter, exp);
+        iter.reset();
+        net.doEvaluation(iter, exp);
+        assertEquals(exp.getConfusionMatrix(), e.getConfusionMatrix());
+    }
+
+    @Test
+    public void testComputationGraphStreamingROC() {
+        Nd4j.getRandom().setSeed(12345);
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345).graphBuilder()
+                        .addInputs("in")
+                        .addLayer("0", new DenseLayer.Builder().nIn(5).nOut(8).activation(Activation.TANH).build(), "in")
+                        .addLayer("out", new OutputLayer.Builder().nIn(8).nOut(2).activation(Activation.SOFTMAX)
+                                        .lossFunction(LossFunctions.LossFunction.MCXENT).build(), "0")
+                        .setOutputs("out").build();
+        ComputationGraph cg = new ComputationGraph(conf);
+        cg.init();
+
+        List<DataSet> list = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            INDArray f = Nd4j.rand(16, 5);
+            INDArray l = Nd4j.zeros(16, 2);
+            for (int j = 0; j < 16; j++) {
+                l.putScalar(j, f.getDouble(j, 0) > 0.5 ? 1 : 0, 1.0);
+            }
+            list.add(new DataSet(f, l));
+        }
+
+        StreamingROC serial = cg.doEvaluation(new ExistingDataSetIterator(list), new StreamingROC(1000))[0];
+        StreamingROC parallel = cg.doEvaluationParallel(new ExistingDataSetIterator(list), 3, new StreamingROC(1000))[0];
+
+        assertEquals(320, parallel.getExampleCount());
+        assertEquals(serial, parallel);
+        assertEquals(serial.calculateAUC(), parallel.calculateAUC(), 0.0);
+    }
+
+    @Test
+    public void testTbpttParallelEvaluation() {
+        Nd4j.getRandom().setSeed(12345);
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345).list()
+                        .layer(new LSTM.Builder().nIn(3).nOut(6).activation(Activation.TANH).build())
+                        .layer(new RnnOutputLayer.Builder().nIn(6).nOut(2).activation(Activation.SOFTMAX)
+                                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                        .backpropType(BackpropType.TruncatedBPTT).tBPTTLength(4).build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+
+        List<DataSet> list = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            INDArray f = Nd4j.rand(new int[] {3, 3, 10});
+            INDArray l = Nd4j.zeros(3, 2, 10);
+            for (int j = 0; j < 3; j++) {
+                for (int t = 0; t < 10; t++) {
+                    l.putScalar(j, (i + j + t) % 2, t, 1.0);
+                }
+            }
+            list.add(new DataSet(f, l));
+        }
+
+        Evaluation parallel = net.doEvaluationParallel(new ExistingDataSetIterator(list), 3, new Evaluation())[0];
+        //Workers have their own state: this network's state is not modified
+        assertTrue(net.rnnGetPreviousState(0).isEmpty());
+        Evaluation serial = net.doEvaluation(new ExistingDataSetIterator(list), new Evaluation())[0];
+        assertEquals(serial.getConfusionMatrix(), parallel.getConfusionMatrix());
+    }
+
+    @Test
+    public void testErrorPropagation() {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().list()
+                        .layer(new OutputLayer.Builder().nIn(4).nOut(3).activation(Activation.SOFTMAX)
+                                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                        .build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+
+        try {
+            //ROC requires binary output
+            net.doEvaluationParallel(new IrisDataSetIterator(10, 150), 2, new ROC(0));
+            fail("Expected exception");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package org.deeplearning4j.eval;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.junit.Test;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.random.impl.BernoulliDistribution;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import static org.junit.Assert.*;
+
+public class StreamingROCTest extends BaseDL4JTest {
+
+    private static INDArray[] getData(int n) {
+        //Probabilities correlated with the labels, but not perfectly
+        INDArray labels = Nd4j.getExecutioner().exec(new BernoulliDistribution(Nd4j.createUninitialized(n, 1), 0.3),
+                        Nd4j.getRandom());
+        INDArray prob = labels.mul(0.3).addi(Nd4j.rand(n, 1).muli(0.7));
+        return new INDArray[] {labels, prob};
+    }
+
+    @Test
+    public void testWithinErrorBoundOfExact() {
+        Nd4j.getRandom().setSeed(12345);
+        INDArray[] d = getData(5000);
+
+        ROC exact = new ROC(0);
+        exact.eval(d[0], d[1]);
+
+        for (int numBins : new int[] {10, 100, 1000, 100000}) {
+            StreamingROC s = new StreamingROC(numBins);
+            s.eval(d[0], d[1]);
+            assertEquals(5000, s.getExampleCount());
+
+            double aucBound = s.getAucErrorBound();
+            double auprcBound = s.getAuprcErrorBound();
+            assertTrue(aucBound >= 0.0);
+            assertEquals("bins=" + numBins, exact.calculateAUC(), s.calculateAUC(), aucBound + 1e-6);
+            assertEquals("bins=" + numBins, exact.calculateAUCPR(), s.calculateAUCPR(), auprcBound + 1e-6);
+            if (numBins == 10) {
+                //Coarse bins: bound is loose, but must not be trivially zero
+                assertTrue(aucBound > 1e-3);
+            }
+            if (numBins == 100000) {
+                assertTrue(aucBound < 1e-3);
+                assertTrue(auprcBound < 1e-2);
+            }
+        }
+    }
+
+    @Test
+    public void testSeparatedBinsExact() {
+        //One example per bin: no ties, so the result is exact and the AUC bound is 0
+        INDArray prob = Nd4j.create(new double[] {0.05, 0.15, 0.25, 0.35, 0.45, 0.55, 0.65, 0.75, 0.85, 0.95}, new int[] {10, 1});
+        INDArray labels = Nd4j.create(new double[] {0, 0, 1, 0, 1, 0, 1, 1, 0, 1}, new int[] {10, 1});
+
+        ROC exact = new ROC(0);
+        exact.eval(labels, prob);
+        StreamingROC s = new StreamingROC(10);
+        s.eval(labels, prob);
+
+        assertEquals(0.0, s.getAucErrorBound(), 0.0);
+        assertEquals(exact.calculateAUC(), s.calculateAUC(), 1e-6);
+        assertEquals(exact.calculateAUCPR(), s.calculateAUCPR(), 1e-6);
+        assertEquals(11, s.getRocCurve().numPoints());
+    }
+
+    @Test
+    public void testSingleAndTwoColumns() {
+        Nd4j.getRandom().setSeed(12345);
+        INDArray[] d = getData(500);
+
+        StreamingROC s1 = new StreamingROC(200);
+        s1.eval(d[0], d[1]);
+
+        StreamingROC s2 = new StreamingROC(200);
+        s2.eval(Nd4j.hstack(d[0].rsub(1.0), d[0]), Nd4j.hstack(d[1].rsub(1.0), d[1]));
+
+        assertEquals(s1, s2);
+        assertEquals(s1.calculateAUC(), s2.calculateAUC(), 0.0);
+    }
+
+    @Test
+    public void testMerge() {
+        Nd4j.getRandom().setSeed(12345);
+        INDArray[] d = getData(1000);
+
+        StreamingROC all = new StreamingROC(500);
+        all.eval(d[0], d[1]);
+
+        StreamingROC merged = new StreamingROC(500);
+        for (int i = 0; i < 4; i++) {
+            StreamingROC part = new StreamingROC(500);
+            part.eval(d[0].get(NDArrayIndex.interval(i * 250, (i + 1) * 250), NDArrayIndex.all()),
+                            d[1].get(NDArrayIndex.interval(i * 250, (i + 1) * 250), NDArrayIndex.all()));
+            merged.merge(part);
+        }
+
+        assertEquals(all, merged);
+        assertEquals(all.calculateAUC(), merged.calculateAUC(), 0.0);
+        assertEquals(all.calculateAUCPR(), merged.calculateAUCPR(), 0.0);
+
+        try {
+            merged.merge(new StreamingROC(10));
+            fail("Expected exception");
+        } catch (UnsupportedOperationException e) {
+            assertTrue(e.getMessage().contains("bins"));
+        }
+    }
+
+    @Test
+    public void testTimeSeriesMasking() {
+        Nd4j.getRandom().setSeed(12345);
+        int mb = 4;
+        int tsLength = 5;
+        INDArray labels = Nd4j.zeros(mb, 2, tsLength);
+        INDArray prob = Nd4j.rand(new int[] {mb, 2, tsLength});
+        for (int i = 0; i < mb; i++) {
+            for (int j = 0; j < tsLength; j++) {
+                labels.putScalar(i, (i + j) % 2, j, 1.0);
+            }
+        }
+        INDArray mask = Nd4j.ones(mb, tsLength);
+        mask.putScalar(0, 4, 0.0);
+        mask.putScalar(3, 0, 0.0);
+
+        StreamingROC s = new StreamingROC(100);
+        s.eval(labels, prob, mask);
+        assertEquals(mb * tsLength - 2, s.getExampleCount());
+
+        ROC exact = new ROC(0);
+        exact.evalTimeSeries(labels, prob, mask);
+        assertEquals(exact.calculateAUC(), s.calculateAUC(), s.getAucErrorBound() + 1e-6);
+    }
+
+    @Test
+    public void testResetAndSerialization() {
+        Nd4j.getRandom().setSeed(12345);
+        INDArray[] d = getData(100);
+
+        StreamingROC s = new StreamingROC(50);
+        s.eval(d[0], d[1]);
+        double auc = s.calculateAUC();
+
+        StreamingROC fromJson = StreamingROC.fromJson(s.toJson(), StreamingROC.class);
+        assertEquals(s, fromJson);
+        assertEquals(auc, fromJson.calculateAUC(), 0.0);
+
+        StreamingROC fromYaml = StreamingROC.fromYaml(s.toYaml(), StreamingROC.class);
+        assertEquals(s, fromYaml);
+
+        s.reset();
+        assertEquals(0, s.getExampleCount());
+        assertTrue(Double.isNaN(s.calculateAUC()));
+        assertEquals(new StreamingROC(50), s);
+    }
+}
@@ -0,0 +1,207 @@
+package org.deeplearning4j.nn.graph;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.ConvolutionMode;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.WorkspaceMode;
+import org.deeplearning4j.nn.conf.graph.ElementWiseVertex;
+import org.deeplearning4j.nn.conf.graph.MergeVertex;
+import org.deeplearning4j.nn.conf.inputs.InputType;
+import org.deeplearning4j.nn.conf.layers.*;
+import org.deeplearning4j.nn.gradient.Gradient;
+import org.deeplearning4j.nn.graph.util.ParallelVertexExecutor;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.MultiDataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TestParallelVertexExecution extends BaseDL4JTest {
+
+    /**
+     * Inception-style graph: several independent convolution branches, merged, plus a residual (element-wise add)
+     * connection and two outputs
+     */
+    private static ComputationGraph getGraph(WorkspaceMode wsm) {
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .updater(new Adam(0.01))
+                .activation(Activation.TANH)
+                .convolutionMode(ConvolutionMode.Same)
+                .trainingWorkspaceMode(wsm)
+                .inferenceWorkspaceMode(wsm)
+                .graphBuilder()
+                .addInputs("in")
+                .addLayer("b0", new ConvolutionLayer.Builder().kernelSize(1, 1).nOut(4).build(), "in")
+                .addLayer("b1a", new ConvolutionLayer.Builder().kernelSize(1, 1).nOut(3).build(), "in")
+                .addLayer("b1b", new ConvolutionLayer.Builder().kernelSize(3, 3).nOut(4).build(), "b1a")
+                .addLayer("b2", new SubsamplingLayer.Builder().kernelSize(3, 3).stride(1, 1).build(), "in")
+                .addLayer("b2b", new ConvolutionLayer.Builder().kernelSize(1, 1).nOut(4).build(), "b2")
+                .addVertex("merge", new MergeVertex(), "b0", "b1b", "b2b")
+                .addVertex("add", new ElementWiseVertex(ElementWiseVertex.Op.Add), "b0", "b1b")
+                .addLayer("dense", new DenseLayer.Builder().nOut(10).build(), "merge")
+                .addLayer("out0", new OutputLayer.Builder().nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build(), "dense")
+                .addLayer("out1", new OutputLayer.Builder().nOut(2).activation(Activation.IDENTITY)
+                        .lossFunction(LossFunctions.LossFunction.MSE).build(), "add")
+                .setOutputs("out0", "out1")
+                .setInputTypes(InputType.convolutional(6, 6, 2))
+                .build();
+
+        ComputationGraph net = new ComputationGraph(conf);
+        net.init();
+        return net;
+    }
+
+    private static MultiDataSet getData() {
+        Nd4j.getRandom().setSeed(12345);
+        INDArray in = Nd4j.rand(new int[]{3, 2, 6, 6});
+        INDArray l0 = Nd4j.zeros(3, 3);
+        for (int i = 0; i < 3; i++) {
+            l0.putScalar(i, i % 3, 1.0);
+        }
+        INDArray l1 = Nd4j.rand(3, 2);
+        return new MultiDataSet(new INDArray[]{in}, new INDArray[]{l0, l1});
+    }
+
+    @Test
+    public void testParallelForwardBackward() {
+        DataBuffer.Type initialType = Nd4j.dataType();
+        Nd4j.setDataType(DataBuffer.Type.DOUBLE);
+        try {
+            MultiDataSet ds = getData();
+            for (WorkspaceMode wsm : new WorkspaceMode[]{WorkspaceMode.NONE, WorkspaceMode.ENABLED}) {
+                ComputationGraph sequential = getGraph(wsm);
+                ComputationGraph parallel = getGraph(wsm);
+                parallel.setVertexParallelism(4);
+                assertEquals(4, parallel.getVertexParallelism());
+                assertEquals(sequential.params(), parallel.params());
+
+                //Inference
+                INDArray[] expOut = sequential.output(ds.getFeatures());
+                INDArray[] actOut = parallel.output(ds.getFeatures());
+                assertArrayEquals(expOut, actOut);
+
+                Map<String, INDArray> expFF = sequential.feedForward(ds.getFeatures(), true);
+                Map<String, INDArray> actFF = parallel.feedForward(ds.getFeatures(), true);
+                assertEquals(expFF.keySet(), actFF.keySet());
+                for (String s : expFF.keySet()) {
+                    assertEquals(s, expFF.get(s), actFF.get(s));
+                }
+
+                //Gradients and score
+                sequential.setInputs(ds.getFeatures());
+                sequential.setLabels(ds.getLabels());
+                sequential.computeGradientAndScore();
+                parallel.setInputs(ds.getFeatures());
+                parallel.setLabels(ds.getLabels());
+                parallel.computeGradientAndScore();
+
+                assertEquals(sequential.score(), parallel.score(), 1e-10);
+                Gradient expGrad = sequential.gradient();
+                Gradient actGrad = parallel.gradient();
+                assertEquals(expGrad.gradientForVariable().keySet(), actGrad.gradientForVariable().keySet());
+                for (String s : expGrad.gradientForVariable().keySet()) {
+                    INDArray exp = expGrad.getGradientFor(s);
+                    INDArray act = actGrad.getGradientFor(s);
+                    assertTrue(s, exp.equalsWithEps(act, 1e-10));
+                }
+                assertTrue(sequential.getFlattenedGradients().equalsWithEps(parallel.getFlattenedGradients(), 1e-10));
+
+                //Training
+                for (int i = 0; i < 3; i++) {
+                    sequential.fit(ds);
+                    parallel.fit(ds);
+                }
+                assertTrue(sequential.params().equalsWithEps(parallel.params(), 1e-8));
+
+                //Back to sequential execution
+                parallel.setVertexParallelism(1);
+                assertArrayEquals(sequential.output(ds.getFeatures()), parallel.output(ds.getFeatures()));
+            }
+        } finally {
+            Nd4j.setDataType(initialType);
+        }
+    }
+
+    @Test
+    public void testParallelExternalErrors() {
+        DataBuffer.Type initialType = Nd4j.dataType();
+        Nd4j.setDataType(DataBuffer.Type.DOUBLE);
+        try {
+            ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder()
+                    .seed(12345)
+                    .activation(Activation.TANH)
+                    .graphBuilder()
+                    .addInputs("in")
+                    .addLayer("a", new DenseLayer.Builder().nIn(4).nOut(5).build(), "in")
+                    .addLayer("b", new DenseLayer.Builder().nIn(4).nOut(5).build(), "in")
+                    .addLayer("c", new DenseLayer.Builder().nIn(4).nOut(5).build(), "in")
+                    .addVertex("sum", new ElementWiseVertex(ElementWiseVertex.Op.Add), "a", "b", "c")
+                    .addLayer("out", new DenseLayer.Builder().nIn(5).nOut(3).build(), "sum")
+                    .setOutputs("out")
+                    .build();
+
+            ComputationGraph sequential = new ComputationGraph(conf);
+            sequential.init();
+            ComputationGraph parallel = sequential.clone();
+            parallel.setVertexParallelism(3);
+            assertEquals(3, parallel.getVertexParallelism());
+
+            INDArray in = Nd4j.rand(5, 4);
+            INDArray externalError = Nd4j.rand(5, 3);
+
+            sequential.feedForward(new INDArray[]{in}, true, false); //FF without clearing inputs as we need them later
+            Gradient expGrad = sequential.backpropGradient(externalError);
+
+            parallel.feedForward(new INDArray[]{in}, true, false);
+            Gradient actGrad = parallel.backpropGradient(externalError);
+
+            for (String s : expGrad.gradientForVariable().keySet()) {
+                assertTrue(s, expGrad.getGradientFor(s).equalsWithEps(actGrad.getGradientFor(s), 1e-10));
+            }
+        } finally {
+            Nd4j.setDataType(initialType);
+        }
+    }
+
+    @Test
+    public void testSharedExecutor() {
+        //Graphs (including clones) with the same vertex parallelism share their worker threads
+        MultiDataSet ds = getData();
+        ComputationGraph g1 = getGraph(WorkspaceMode.ENABLED);
+        g1.setVertexParallelism(3);
+        ComputationGraph g2 = g1.clone();
+        assertEquals(3, g2.getVertexParallelism());
+        ComputationGraph g3 = getGraph(WorkspaceMode.ENABLED);
+        g3.setVertexParallelism(2);
+
+        INDArray[] out1 = g1.output(ds.getFeatures());
+        INDArray[] out2 = g2.output(ds.getFeatures());
+        assertArrayEquals(out1, out2);
+        g3.output(ds.getFeatures());
+
+        ParallelVertexExecutor e = g1.getVertexExecutor();
+        assertTrue(e.isShared());
+        assertSame(e, g2.getVertexExecutor());
+        assertSame(e, ParallelVertexExecutor.getShared(3));
+        assertNotSame(e, g3.getVertexExecutor());
+        assertTrue(e.getPoolSize() <= 3);
+
+        try {
+            e.shutdown();
+            fail("Expected exception");
+        } catch (IllegalStateException ex) {
+            //OK
+        }
+        assertArrayEquals(out1, g1.output(ds.getFeatures()));
+    }
+}
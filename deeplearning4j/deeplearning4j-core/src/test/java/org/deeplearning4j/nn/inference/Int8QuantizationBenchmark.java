@@ -0,0 +1,140 @@
+package org.deeplearning4j.nn.inference;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.conf.ConvolutionMode;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.inputs.InputType;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+/**
+ * Benchmark for int8 quantized inference ({@link Int8Calibrator}): measures the inference time of a network of dense
+ * layers and of a network of convolution layers for:
+ * - the float network ({@link MultiLayerNetwork#output(INDArray)})
+ * - the folded float model ({@link InferenceModel#compile(MultiLayerNetwork)})
+ * - the quantized model, with the converted weights cached (default)
+ * - the quantized model, keeping only the int8 weights<br>
+ * {@link #main(String[])} runs both networks and logs the results.
+ */
+@Slf4j
+public class Int8QuantizationBenchmark {
+
+    private Int8QuantizationBenchmark() {
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Result {
+        private double floatMs;
+        private double foldedMs;
+        private double int8CachedMs;
+        private double int8OnlyMs;
+        /** Weight memory of the quantized layers, float vs. int8 - see {@link QuantizationReport} */
+        private double compressionRatio;
+    }
+
+    /**
+     * Run the benchmark for the given network
+     *
+     * @param net        Network to benchmark. Calibrated using the input
+     * @param input      Network input
+     * @param warmup     Number of warmup iterations (not timed)
+     * @param iterations Number of timed iterations
+     * @return Average inference time for each model
+     */
+    public static Result benchmark(MultiLayerNetwork net, INDArray input, int warmup, int iterations) {
+        Int8Calibrator calibrator = new Int8Calibrator(net);
+        calibrator.calibrate(input);
+        InferenceModel cached = calibrator.quantize();
+        calibrator.setCacheWeights(false);
+        InferenceModel int8Only = calibrator.quantize();
+        InferenceModel folded = InferenceModel.compile(net);
+
+        long tFloat = 0;
+        long tFolded = 0;
+        long tCached = 0;
+        long tInt8Only = 0;
+        for (int i = 0; i < warmup + iterations; i++) {
+            long t0 = System.nanoTime();
+            net.output(input, false);
+            long t1 = System.nanoTime();
+            folded.output(input);
+            long t2 = System.nanoTime();
+            cached.output(input);
+            long t3 = System.nanoTime();
+            int8Only.output(input);
+            long t4 = System.nanoTime();
+            if (i >= warmup) {
+                tFloat += t1 - t0;
+                tFolded += t2 - t1;
+                tCached += t3 - t2;
+                tInt8Only += t4 - t3;
+            }
+        }
+        double ratio = compressionRatio(int8Only);
+        return new Result(tFloat / 1e6 / iterations, tFolded / 1e6 / iterations, tCached / 1e6 / iterations,
+                tInt8Only / 1e6 / iterations, ratio);
+    }
+
+    private static double compressionRatio(InferenceModel model) {
+        long floatBytes = 0;
+        long int8Bytes = 0;
+        for (Int8LinearOp op : model.getInt8Ops().values()) {
+            floatBytes += ((long) op.getNIn() * op.getNOut() + op.getNOut()) * Nd4j.sizeOfDataType();
+            int8Bytes += op.sizeInBytes();
+        }
+        return int8Bytes == 0 ? 1.0 : floatBytes / (double) int8Bytes;
+    }
+
+    /**
+     * Run the benchmark for a dense and a convolutional network, and log the results
+     */
+    public static void main(String[] args) {
+        int miniBatch = (args.length > 0 ? Integer.parseInt(args[0]) : 32);
+        int iterations = (args.length > 1 ? Integer.parseInt(args[1]) : 20);
+
+        MultiLayerConfiguration dense = new NeuralNetConfiguration.Builder().seed(12345)
+                .activation(Activation.RELU)
+                .list()
+                .layer(new DenseLayer.Builder().nIn(784).nOut(1024).build())
+                .layer(new DenseLayer.Builder().nOut(1024).build())
+                .layer(new DenseLayer.Builder().nOut(512).build())
+                .layer(new OutputLayer.Builder().nOut(10).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                .setInputType(InputType.feedForward(784))
+                .build();
+
+        MultiLayerConfiguration conv = new NeuralNetConfiguration.Builder().seed(12345)
+                .activation(Activation.RELU)
+                .convolutionMode(ConvolutionMode.Same)
+                .list()
+                .layer(new ConvolutionLayer.Builder().kernelSize(3, 3).nOut(32).build())
+                .layer(new ConvolutionLayer.Builder().kernelSize(3, 3).nOut(64).build())
+                .layer(new ConvolutionLayer.Builder().kernelSize(3, 3).stride(2, 2).nOut(64).build())
+                .layer(new OutputLayer.Builder().nOut(10).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                .setInputType(InputType.convolutional(32, 32, 3))
+                .build();
+
+        String[] names = {"dense", "conv"};
+        MultiLayerConfiguration[] confs = {dense, conv};
+        int[][] shapes = {{miniBatch, 784}, {miniBatch, 3, 32, 32}};
+        for (int i = 0; i < confs.length; i++) {
+            MultiLayerNetwork net = new MultiLayerNetwork(confs[i]);
+            net.init();
+            Result r = benchmark(net, Nd4j.rand(shapes[i]), 3, iterations);
+            log.info(String.format("%s (minibatch %d): float %.2f ms, folded %.2f ms, int8 (cached) %.2f ms, "
+                            + "int8 (int8 weights only) %.2f ms; weight memory ratio %.2f", names[i], miniBatch,
+                    r.getFloatMs(), r.getFoldedMs(), r.getInt8CachedMs(), r.getInt8OnlyMs(), r.getCompressionRatio()));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package org.deeplearning4j.nn.inference;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.ConvolutionMode;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.WorkspaceMode;
+import org.deeplearning4j.nn.conf.inputs.InputType;
+import org.deeplearning4j.nn.conf.layers.*;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.params.BatchNormalizationParamInitializer;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import static org.junit.Assert.*;
+
+public class TestInferenceModel extends BaseDL4JTest {
+
+    /**
+     * Set non-trivial global mean/variance (and gamma/beta) for all batch norm layers, as would be the case after
+     * training
+     */
+    private static void randomizeBatchNorm(org.deeplearning4j.nn.api.Layer[] layers) {
+        for (org.deeplearning4j.nn.api.Layer l : layers) {
+            if (l instanceof org.deeplearning4j.nn.layers.normalization.BatchNormalization) {
+                for (String s : l.paramTable().keySet()) {
+                    INDArray p = l.getParam(s);
+                    if (BatchNormalizationParamInitializer.GLOBAL_VAR.equals(s)) {
+                        p.assign(Nd4j.rand(p.shape()).addi(0.5));
+                    } else {
+                        p.assign(Nd4j.randn(p.shape()));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testInferenceModelMLN() {
+        DataBuffer.Type initialType = Nd4j.dataType();
+        Nd4j.setDataType(DataBuffer.Type.DOUBLE);
+        try {
+            for (WorkspaceMode wsm : new WorkspaceMode[]{WorkspaceMode.NONE, WorkspaceMode.ENABLED}) {
+                MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                        .seed(12345)
+                        .inferenceWorkspaceMode(wsm)
+                        .convolutionMode(ConvolutionMode.Same)
+                        .dropOut(0.5)
+                        .list()
+                        .layer(new ConvolutionLayer.Builder().kernelSize(3, 3).nOut(4).activation(Activation.IDENTITY).build())
+                        .layer(new BatchNormalization.Builder().build())
+                        .layer(new ActivationLayer.Builder().activation(Activation.RELU).build())
+                        .layer(new DropoutLayer.Builder(0.5).build())
+                        .layer(new SubsamplingLayer.Builder().kernelSize(2, 2).stride(2, 2).build())
+                        .layer(new DenseLayer.Builder().nOut(10).hasBias(false).activation(Activation.IDENTITY).build())
+                        .layer(new BatchNormalization.Builder().build())
+                        .layer(new DenseLayer.Builder().nOut(8).activation(Activation.TANH).build())
+                        .layer(new BatchNormalization.Builder().build())
+                        .layer(new OutputLayer.Builder().nOut(3).activation(Activation.SOFTMAX)
+                                .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                        .setInputType(InputType.convolutional(8, 8, 2))
+                        .build();
+
+                MultiLayerNetwork net = new MultiLayerNetwork(conf);
+                net.init();
+                randomizeBatchNorm(net.getLayers());
+                INDArray paramsBefore = net.params().dup();
+
+                InferenceModel model = net.compileForInference();
+                assertEquals(paramsBefore, net.params());
+                assertEquals(2, model.numFoldedBatchNorm());       //Last BN follows tanh - not folded
+                assertEquals(1, model.numFusedActivations());
+                assertEquals(1, model.numRemovedDropout());
+                assertEquals(6, model.numOps());
+
+                INDArray in = Nd4j.rand(new int[]{5, 2, 8, 8});
+                INDArray exp = net.output(in, false);
+                INDArray[] out = model.output(in);
+                assertEquals(1, out.length);
+                assertTrue(exp.equalsWithEps(out[0], 1e-10));
+
+                //Output arrays should be reused for the same minibatch size
+                INDArray in2 = Nd4j.rand(new int[]{5, 2, 8, 8});
+                INDArray[] out2 = model.output(in2);
+                assertSame(out[0], out2[0]);
+                assertTrue(net.output(in2, false).equalsWithEps(out2[0], 1e-10));
+
+                INDArray in3 = Nd4j.rand(new int[]{3, 2, 8, 8});
+                INDArray[] out3 = model.output(in3);
+                assertNotSame(out[0], out3[0]);
+                assertTrue(net.output(in3, false).equalsWithEps(out3[0], 1e-10));
+
+                InferenceModel noReuse = InferenceModel.compile(net, false);
+                INDArray[] o1 = noReuse.output(in);
+                INDArray[] o2 = noReuse.output(in);
+                assertNotSame(o1[0], o2[0]);
+                assertEquals(o1[0], o2[0]);
+            }
+        } finally {
+            Nd4j.setDataType(initialType);
+        }
+    }
+
+    @Test
+    public void testInferenceModelGraph() {
+        DataBuffer.Type initialType = Nd4j.dataType();
+        Nd4j.setDataType(DataBuffer.Type.DOUBLE);
+        try {
+            ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder()
+                    .seed(12345)
+                    .activation(Activation.IDENTITY)
+                    .convolutionMode(ConvolutionMode.Same)
+                    .graphBuilder()
+                    .addInputs("in1", "in2")
+                    .addLayer("c0", new ConvolutionLayer.Builder().kernelSize(3, 3).nOut(3).build(), "in1")
+                    .addLayer("bn0", new BatchNormalization.Builder().build(), "c0")
+                    .addLayer("a0", new ActivationLayer.Builder().activation(Activation.RELU).build(), "bn0")
+                    //c1 has two consumers: can't be folded
+                    .addLayer("c1", new ConvolutionLayer.Builder().kernelSize(1, 1).nOut(3).build(), "a0")
+                    .addLayer("bn1", new BatchNormalization.Builder().build(), "c1")
+                    .addLayer("p1", new SubsamplingLayer.Builder().kernelSize(2, 2).stride(1, 1).build(), "c1")
+                    .addVertex("merge", new org.deeplearning4j.nn.conf.graph.MergeVertex(), "bn1", "p1")
+                    .addLayer("d0", new DenseLayer.Builder().nOut(6).build(), "in2")
+                    .addLayer("drop", new DropoutLayer.Builder(0.5).build(), "d0")
+                    .addLayer("bn2", new BatchNormalization.Builder().build(), "drop")
+                    .addLayer("out1", new OutputLayer.Builder().nOut(3).activation(Activation.SOFTMAX)
+                            .lossFunction(LossFunctions.LossFunction.MCXENT).build(), "merge")
+                    .addLayer("out2", new OutputLayer.Builder().nOut(2).lossFunction(LossFunctions.LossFunction.MSE)
+                            .build(), "bn2")
+                    .setOutputs("out1", "out2")
+                    .setInputTypes(InputType.convolutional(6, 6, 2), InputType.feedForward(4))
+                    .build();
+
+            ComputationGraph net = new ComputationGraph(conf);
+            net.init();
+            randomizeBatchNorm(net.getLayers());
+
+            InferenceModel model = net.compileForInference();
+            assertEquals(2, model.numInputs());
+            assertEquals(2, model.numOutputs());
+            assertEquals(2, model.numFoldedBatchNorm());
+            assertEquals(1, model.numFusedActivations());
+            assertEquals(1, model.numRemovedDropout());
+
+            INDArray in1 = Nd4j.rand(new int[]{4, 2, 6, 6});
+            INDArray in2 = Nd4j.rand(4, 4);
+            INDArray[] exp = net.output(in1, in2);
+            INDArray[] act = model.output(in1, in2);
+            assertEquals(2, act.length);
+            for (int i = 0; i < exp.length; i++) {
+                assertTrue(exp[i].equalsWithEps(act[i], 1e-10));
+            }
+        } finally {
+            Nd4j.setDataType(initialType);
+        }
+    }
+}
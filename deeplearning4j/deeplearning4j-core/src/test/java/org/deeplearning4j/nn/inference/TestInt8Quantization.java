@@ -0,0 +1,194 @@
+package org.deeplearning4j.nn.inference;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.datasets.iterator.impl.ListDataSetIterator;
+import org.deeplearning4j.datasets.iterator.impl.MultiDataSetIteratorAdapter;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.ConvolutionMode;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.inputs.InputType;
+import org.deeplearning4j.nn.conf.layers.*;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import static org.junit.Assert.*;
+import static org.nd4j.linalg.indexing.NDArrayIndex.all;
+import static org.nd4j.linalg.indexing.NDArrayIndex.interval;
+import static org.nd4j.linalg.indexing.NDArrayIndex.point;
+
+public class TestInt8Quantization extends BaseDL4JTest {
+
+    /**
+     * Simple learnable data: class is the index of the quadrant (of 3) with the largest sum
+     */
+    private static DataSet getData(int n, int seed) {
+        Nd4j.getRandom().setSeed(seed);
+        INDArray f = Nd4j.rand(new int[]{n, 1, 6, 6});
+        INDArray l = Nd4j.zeros(n, 3);
+        for (int i = 0; i < n; i++) {
+            double s0 = f.get(point(i), all(), interval(0, 3), interval(0, 3)).sumNumber().doubleValue();
+            double s1 = f.get(point(i), all(), interval(0, 3), interval(3, 6)).sumNumber().doubleValue();
+            double s2 = f.get(point(i), all(), interval(3, 6), all()).sumNumber().doubleValue() / 2;
+            int c = (s0 > s1 && s0 > s2) ? 0 : (s1 > s2 ? 1 : 2);
+            l.putScalar(i, c, 1.0);
+        }
+        return new DataSet(f, l);
+    }
+
+    @Test
+    public void testInt8DenseOp() {
+        //Compare with a reference implementation of the int8 dense layer, with exact integer accumulation
+        DataBuffer.Type initialType = Nd4j.dataType();
+        try {
+            for (DataBuffer.Type type : new DataBuffer.Type[] {DataBuffer.Type.FLOAT, DataBuffer.Type.DOUBLE}) {
+                Nd4j.setDataType(type);
+                Nd4j.getRandom().setSeed(12345);
+                int nIn = 7;
+                int nOut = 5;
+                INDArray w = Nd4j.rand(nIn, nOut).subi(0.5);
+                w.getColumn(2).assign(0);
+                INDArray b = Nd4j.rand(1, nOut);
+                INDArray x = Nd4j.rand(4, nIn).muli(2);   //Inputs above 1.0 are clipped
+
+                for (boolean cacheWeights : new boolean[] {false, true}) {
+                    Int8DenseOp op = new Int8DenseOp(w, b, 1.0, cacheWeights);
+                    assertEquals(DataBuffer.Type.COMPRESSED, op.weights.data().dataType());
+                    //Second pass: uses cached weights, if any
+                    for (int pass = 0; pass < 2; pass++) {
+                        INDArray out = op.preOutput(x, LayerWorkspaceMgr.noWorkspaces());
+
+                        for (int r = 0; r < 4; r++) {
+                            for (int c = 0; c < nOut; c++) {
+                                double scaleW = Math.max(1e-300, w.getColumn(c).amaxNumber().doubleValue() / 127);
+                                long acc = 0;
+                                for (int k = 0; k < nIn; k++) {
+                                    long xq = Math.min(127, Math.round(x.getDouble(r, k) * 127));
+                                    acc += xq * Math.round(w.getDouble(k, c) / scaleW);
+                                }
+                                double exp = acc * scaleW / 127 + b.getDouble(c);
+                                String msg = type + ", " + cacheWeights + ", " + pass + ", " + r + ", " + c;
+                                assertEquals(msg, exp, out.getDouble(r, c), 1e-5);
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            Nd4j.setDataType(initialType);
+        }
+    }
+
+    @Test
+    public void testQuantizeMLN() {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .updater(new Adam(0.01))
+                .convolutionMode(ConvolutionMode.Same)
+                .list()
+                .layer(new ConvolutionLayer.Builder().kernelSize(3, 3).nOut(8).activation(Activation.IDENTITY).build())
+                .layer(new BatchNormalization.Builder().build())
+                .layer(new ActivationLayer.Builder().activation(Activation.RELU).build())
+                .layer(new SubsamplingLayer.Builder().kernelSize(2, 2).stride(2, 2).build())
+                .layer(new DenseLayer.Builder().nOut(20).activation(Activation.RELU).build())
+                .layer(new OutputLayer.Builder().nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                .setInputType(InputType.convolutional(6, 6, 1))
+                .build();
+
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+
+        DataSet train = getData(64, 12345);
+        for (int i = 0; i < 30; i++) {
+            net.fit(train);
+        }
+
+        Int8Calibrator calibrator = new Int8Calibrator(net);
+        try {
+            calibrator.quantize();
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            //OK - no calibration data
+        }
+
+        calibrator.calibrate(new ListDataSetIterator<>(train.asList(), 16));
+        assertEquals(64, calibrator.getNumCalibrationExamples());
+
+        InferenceModel quantized = calibrator.quantize();
+        assertEquals(2, quantized.numQuantizedLayers());      //Conv (with BN folded) and dense; not output layer
+        assertEquals(1, quantized.numFoldedBatchNorm());
+
+        DataSet test = getData(32, 67890);
+        INDArray exp = net.output(test.getFeatures(), false);
+        INDArray act = quantized.output(test.getFeatures())[0].dup();
+        assertArrayEquals(exp.shape(), act.shape());
+        assertTrue(exp.distance2(act) < 0.2);
+
+        //Same results when keeping only the int8 weights
+        calibrator.setCacheWeights(false);
+        InferenceModel int8Only = calibrator.quantize();
+        assertEquals(act, int8Only.output(test.getFeatures())[0]);
+        assertEquals(act, quantized.output(test.getFeatures())[0]);
+
+        DataSetIterator testIter = new ListDataSetIterator<>(test.asList(), 8);
+        QuantizationReport report = calibrator.evaluate(quantized, testIter);
+        assertEquals(2, report.getNumQuantizedLayers());
+        assertEquals(32, report.getNumExamples());
+        assertTrue(report.compressionRatio() > 3.0);
+        assertTrue(report.getMaxAbsError() < 0.1);
+        assertTrue(report.getTop1Agreement() >= 0.9);
+        assertFalse(Double.isNaN(report.getFloatAccuracy()));
+        assertEquals(report.getFloatAccuracy(), report.getQuantizedAccuracy(), 0.1);
+        assertNotNull(report.stats());
+    }
+
+    @Test
+    public void testQuantizeGraph() {
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .updater(new Adam(0.01))
+                .activation(Activation.TANH)
+                .graphBuilder()
+                .addInputs("in")
+                .addLayer("d0", new DenseLayer.Builder().nIn(36).nOut(16).build(), "in")
+                .addLayer("d1", new DenseLayer.Builder().nIn(36).nOut(16).build(), "in")
+                .addVertex("merge", new org.deeplearning4j.nn.conf.graph.MergeVertex(), "d0", "d1")
+                .addLayer("out", new OutputLayer.Builder().nIn(32).nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build(), "merge")
+                .setOutputs("out")
+                .build();
+
+        ComputationGraph net = new ComputationGraph(conf);
+        net.init();
+
+        DataSet train = getData(64, 12345);
+        train.setFeatures(train.getFeatures().reshape(64, 36));
+        for (int i = 0; i < 30; i++) {
+            net.fit(train);
+        }
+
+        Int8Calibrator calibrator = new Int8Calibrator(net);
+        calibrator.calibrate(train.getFeatures());
+        InferenceModel quantized = calibrator.quantize();
+        assertEquals(2, quantized.numQuantizedLayers());
+
+        DataSet test = getData(32, 67890);
+        test.setFeatures(test.getFeatures().reshape(32, 36));
+        QuantizationReport report = calibrator.evaluate(quantized,
+                new MultiDataSetIteratorAdapter(new ListDataSetIterator<>(test.asList(), 8)));
+        assertEquals(32, report.getNumExamples());
+        assertTrue(report.getMaxAbsError() < 0.1);
+        assertTrue(report.getTop1Agreement() >= 0.9);
+    }
+}
@@ -552,4 +552,48 @@ public class OutputLayerTest extends BaseDL4JTest {
         assertEquals(Nd4j.ones(2,4,5), sum);
 
     }
+
+    @Test
+    public void testScoreFromBackprop(){
+        //Score calculated during backprop is reused by computeScore - but only for the same input, labels and mask
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345L).l2(0.01)
+                .updater(new NoOp())
+                .list()
+                .layer(new DenseLayer.Builder().nIn(4).nOut(5).activation(Activation.TANH).build())
+                .layer(new org.deeplearning4j.nn.conf.layers.OutputLayer.Builder(LossFunction.MCXENT).nIn(5).nOut(3)
+                        .activation(Activation.SOFTMAX).build())
+                .build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+
+        INDArray in = Nd4j.rand(6, 4);
+        INDArray labels1 = Nd4j.create(new double[][]{{1,0,0},{0,1,0},{0,0,1},{1,0,0},{0,1,0},{0,0,1}});
+        INDArray labels2 = Nd4j.create(new double[][]{{0,0,1},{0,0,1},{0,1,0},{0,1,0},{1,0,0},{1,0,0}});
+
+        net.setInput(in);
+        net.setLabels(labels1);
+        net.computeGradientAndScore();
+        double s1 = net.score();
+
+        org.deeplearning4j.nn.layers.OutputLayer ol = (org.deeplearning4j.nn.layers.OutputLayer) net.getOutputLayer();
+        LayerWorkspaceMgr mgr = LayerWorkspaceMgr.noWorkspaces();
+        ol.setInput(net.feedForward(in, true).get(1), mgr);
+        ol.setLabels(labels1);
+        ol.backpropGradient(null, mgr);
+        ol.setLabels(labels2);
+        double s2 = ol.computeScore(0.0, 0.0, true, mgr);
+
+        ol.backpropGradient(null, mgr);
+        assertEquals(s2, ol.computeScore(0.0, 0.0, true, mgr), 1e-6);
+
+        ol.setMaskArray(Nd4j.create(new double[]{1, 0, 1, 0, 1, 0}, new int[]{6, 1}));
+        double masked = ol.computeScore(0.0, 0.0, true, mgr);
+        assertNotEquals(s2, masked, 1e-6);
+        ol.backpropGradient(null, mgr);
+        assertEquals(masked, ol.computeScore(0.0, 0.0, true, mgr), 1e-6);
+        ol.setMaskArray(null);
+
+        assertEquals(net.score(new DataSet(in, labels1), true), s1, 1e-6);
+        assertEquals(net.score(new DataSet(in, labels2), true) - net.calcL2(true) / 6, s2, 1e-6);
+    }
 }
@@ -0,0 +1,284 @@
+package org.deeplearning4j.nn.layers;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.gradientcheck.GradientCheckUtil;
+import org.deeplearning4j.nn.api.layers.IOutputLayer;
+import org.deeplearning4j.nn.api.layers.SparseGradientLayer;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.distribution.NormalDistribution;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.conf.layers.SampledSoftmaxOutputLayer;
+import org.deeplearning4j.nn.conf.sampling.LogUniformSampler;
+import org.deeplearning4j.nn.conf.sampling.SampledCandidates;
+import org.deeplearning4j.nn.gradient.Gradient;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.weights.WeightInit;
+import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.buffer.util.DataTypeUtil;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.learning.config.IUpdater;
+import org.nd4j.linalg.learning.config.NoOp;
+import org.nd4j.linalg.learning.config.Sgd;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SampledSoftmaxOutputLayerTest extends BaseDL4JTest {
+
+    static {
+        DataTypeUtil.setDTypeForContext(DataBuffer.Type.DOUBLE);
+    }
+
+    private static MultiLayerNetwork getNet(org.deeplearning4j.nn.conf.layers.BaseOutputLayer outputLayer, int nIn) {
+        return getNet(outputLayer, nIn, new NoOp());
+    }
+
+    private static MultiLayerNetwork getNet(org.deeplearning4j.nn.conf.layers.BaseOutputLayer outputLayer, int nIn,
+                    IUpdater updater) {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345).updater(updater)
+                        .weightInit(WeightInit.DISTRIBUTION).dist(new NormalDistribution(0, 1)).list()
+                        .layer(new DenseLayer.Builder().nIn(nIn).nOut(6).activation(Activation.TANH).build())
+                        .layer(outputLayer).build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        return net;
+    }
+
+    private static DataSet getData(int minibatch, int nIn, int nOut, long seed) {
+        Random r = new Random(seed);
+        INDArray features = Nd4j.rand(minibatch, nIn);
+        INDArray labels = Nd4j.create(minibatch, nOut);
+        for (int i = 0; i < minibatch; i++) {
+            labels.putScalar(i, r.nextInt(nOut), 1.0);
+        }
+        return new DataSet(features, labels);
+    }
+
+    @Test
+    public void testLogUniformSampler() {
+        LogUniformSampler sampler = new LogUniformSampler();
+        int numClasses = 1000;
+
+        double sumP = 0.0;
+        for (int i = 0; i < numClasses; i++) {
+            sumP += sampler.probability(i, numClasses);
+        }
+        assertEquals(1.0, sumP, 1e-6);
+        assertTrue(sampler.probability(0, numClasses) > sampler.probability(10, numClasses));
+
+        Random r = new Random(12345);
+        int[] counts = new int[numClasses];
+        for (int iter = 0; iter < 100; iter++) {
+            SampledCandidates c = sampler.sample(20, numClasses, r);
+            assertEquals(20, c.getSampled().length);
+            assertTrue(c.getNumTries() >= 20);
+            assertFalse(c.isAllClasses());
+            Set<Integer> unique = new HashSet<>();
+            for (int k : c.getSampled()) {
+                assertTrue(k >= 0 && k < numClasses);
+                unique.add(k);
+                counts[k]++;
+            }
+            assertEquals(20, unique.size());
+
+            double p = sampler.probability(0, numClasses);
+            assertEquals(1.0 - Math.pow(1.0 - p, c.getNumTries()), c.expectedCount(p), 1e-10);
+        }
+        //Frequent (low index) classes should be sampled most often
+        assertTrue(counts[0] > counts[500]);
+
+        SampledCandidates all = sampler.sample(10, 10, r);
+        assertTrue(all.isAllClasses());
+        assertArrayEquals(new int[] {0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, all.getSampled());
+        assertEquals(1.0, all.expectedCount(0.01), 0.0);
+    }
+
+    @Test
+    public void testAllClassesSampledEqualsOutputLayer() {
+        //When numSampled >= nOut, all classes are used and sampled softmax is equivalent to the full softmax
+        int nIn = 4;
+        int nOut = 7;
+        for (boolean hasBias : new boolean[] {true, false}) {
+            MultiLayerNetwork full = getNet(new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT).nIn(6)
+                            .nOut(nOut).activation(Activation.SOFTMAX).hasBias(hasBias).build(), nIn);
+            MultiLayerNetwork sampled = getNet(new SampledSoftmaxOutputLayer.Builder(nOut).nIn(6).nOut(nOut)
+                            .hasBias(hasBias).build(), nIn);
+            sampled.params().assign(full.params());
+
+            DataSet ds = getData(5, nIn, nOut, 12345);
+            full.setInput(ds.getFeatures());
+            full.setLabels(ds.getLabels());
+            full.computeGradientAndScore();
+            sampled.setInput(ds.getFeatures());
+            sampled.setLabels(ds.getLabels());
+            sampled.computeGradientAndScore();
+
+            assertEquals(full.score(), sampled.score(), 1e-8);
+            assertEquals(full.gradient().gradient(), sampled.gradient().gradient());
+            assertEquals(full.output(ds.getFeatures()), sampled.output(ds.getFeatures()));
+            assertEquals(full.score(ds), sampled.score(ds), 1e-8);
+
+            boolean gradOK = GradientCheckUtil.checkGradients(sampled, 1e-6, 1e-3, 1e-8, true, false,
+                            ds.getFeatures(), ds.getLabels());
+            assertTrue(gradOK);
+        }
+    }
+
+    @Test
+    public void testSampledGradients() {
+        int nIn = 4;
+        int nOut = 200;
+        int numSampled = 10;
+        MultiLayerNetwork net = getNet(new SampledSoftmaxOutputLayer.Builder(numSampled).nIn(6).nOut(nOut).build(),
+                        nIn);
+        DataSet ds = getData(3, nIn, nOut, 12345);
+        net.setInput(ds.getFeatures());
+        net.setLabels(ds.getLabels());
+        net.computeGradientAndScore();
+
+        //Only the weight columns for the true and sampled classes should have non-zero gradients
+        Gradient g = net.gradient();
+        INDArray wGrad = g.getGradientFor("1_W");
+        INDArray bGrad = g.getGradientFor("1_b");
+        int nonZeroColumns = 0;
+        for (int i = 0; i < nOut; i++) {
+            boolean nonZero = wGrad.getColumn(i).norm2Number().doubleValue() > 0;
+            assertEquals(nonZero, bGrad.getDouble(i) != 0.0);
+            if (nonZero)
+                nonZeroColumns++;
+        }
+        for (int i = 0; i < 3; i++) {
+            int trueClass = Nd4j.argMax(ds.getLabels().getRow(i), 1).getInt(0);
+            assertTrue(wGrad.getColumn(trueClass).norm2Number().doubleValue() > 0);
+        }
+        assertTrue(nonZeroColumns > 0 && nonZeroColumns <= numSampled + 3);
+
+        //Score at training time: sampled loss, consistent with the gradient calculation. Test time: full softmax loss
+        double trainScore = net.score();
+        assertEquals(trainScore, ((IOutputLayer) net.getOutputLayer()).computeScore(0.0, 0.0, true,
+                        LayerWorkspaceMgr.noWorkspaces()), 1e-10);
+        assertNotEquals(trainScore, net.score(ds, false), 1e-6);
+    }
+
+    @Test
+    public void testSparseUpdates() {
+        int nIn = 4;
+        int nOut = 200;
+        List<DataSet> data = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            data.add(getData(3, nIn, nOut, 12345 + i));
+        }
+
+        //SGD: sparse updates (updater and step for the candidate columns only) should equal dense updates
+        MultiLayerNetwork dense = getNet(new SampledSoftmaxOutputLayer.Builder(10).nIn(6).nOut(nOut)
+                        .sparseUpdates(false).build(), nIn, new Sgd(0.1));
+        MultiLayerNetwork sparse = getNet(new SampledSoftmaxOutputLayer.Builder(10).nIn(6).nOut(nOut).build(), nIn,
+                        new Sgd(0.1));
+        for (DataSet ds : data) {
+            dense.fit(ds);
+            sparse.fit(ds);
+            assertEquals(dense.score(), sparse.score(), 1e-10);
+            assertEquals(dense.params(), sparse.params());
+            assertEquals(dense.getGradientsViewArray(), sparse.getGradientsViewArray());
+        }
+
+        //Adam: weight and bias columns of classes never sampled are not modified
+        MultiLayerNetwork adam = getNet(new SampledSoftmaxOutputLayer.Builder(10).nIn(6).nOut(nOut).build(), nIn,
+                        new Adam(0.1));
+        INDArray wBefore = adam.getParam("1_W").dup();
+        INDArray bBefore = adam.getParam("1_b").dup();
+        for (DataSet ds : data) {
+            adam.fit(ds);
+        }
+        SparseGradientLayer l = (SparseGradientLayer) adam.getLayer(1);
+        assertTrue(l.isSparseGradientParam("W") && l.isSparseGradientParam("b"));
+        int[] modified = l.getRowsModifiedSinceSync("W");
+        assertArrayEquals(modified, l.getRowsModifiedSinceSync("b"));
+        assertTrue(modified.length > 0 && modified.length < nOut);
+        Set<Integer> modifiedSet = new HashSet<>();
+        for (int c : modified) {
+            modifiedSet.add(c);
+        }
+        for (int c = 0; c < nOut; c++) {
+            boolean changed = !wBefore.getColumn(c).equals(adam.getParam("1_W").getColumn(c));
+            assertEquals(String.valueOf(c), modifiedSet.contains(c), changed);
+            assertEquals(String.valueOf(c), modifiedSet.contains(c), bBefore.getDouble(c) != adam.getParam("1_b").getDouble(c));
+        }
+    }
+
+    @Test
+    public void testIndexLabels() {
+        int nIn = 4;
+        int nOut = 50;
+        DataSet ds = getData(5, nIn, nOut, 12345);
+        INDArray indexLabels = Nd4j.argMax(ds.getLabels(), 1);
+
+        MultiLayerNetwork oneHot = getNet(new SampledSoftmaxOutputLayer.Builder(8).nIn(6).nOut(nOut).build(), nIn);
+        MultiLayerNetwork index = getNet(new SampledSoftmaxOutputLayer.Builder(8).nIn(6).nOut(nOut).build(), nIn);
+
+        oneHot.setInput(ds.getFeatures());
+        oneHot.setLabels(ds.getLabels());
+        oneHot.computeGradientAndScore();
+        index.setInput(ds.getFeatures());
+        index.setLabels(indexLabels);
+        index.computeGradientAndScore();
+
+        assertEquals(oneHot.score(), index.score(), 1e-10);
+        assertEquals(oneHot.gradient().gradient(), index.gradient().gradient());
+        assertEquals(oneHot.score(ds, false), index.score(new DataSet(ds.getFeatures(), indexLabels), false), 1e-10);
+    }
+
+    @Test
+    public void testTrainingComputationGraph() {
+        int nIn = 5;
+        int nOut = 100;
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345)
+                        .updater(new Adam(0.05)).weightInit(WeightInit.XAVIER).graphBuilder().addInputs("in")
+                        .addLayer("dense", new DenseLayer.Builder().nIn(nIn).nOut(16).activation(Activation.TANH)
+                                        .build(), "in")
+                        .addLayer("out", new SampledSoftmaxOutputLayer.Builder(10).nIn(16).nOut(nOut).build(), "dense")
+                        .setOutputs("out").build();
+
+        String json = conf.toJson();
+        assertEquals(conf, ComputationGraphConfiguration.fromJson(json));
+
+        ComputationGraph cg = new ComputationGraph(conf);
+        cg.init();
+
+        //Label is a deterministic function of the input
+        Nd4j.getRandom().setSeed(12345);
+        INDArray features = Nd4j.rand(20, nIn);
+        INDArray labels = Nd4j.create(20, nOut);
+        for (int i = 0; i < 20; i++) {
+            labels.putScalar(i, Nd4j.argMax(features.getRow(i), 1).getInt(0) * 7, 1.0);
+        }
+        DataSet ds = new DataSet(features, labels);
+
+        double scoreBefore = cg.score(ds, false);
+        for (int i = 0; i < 200; i++) {
+            cg.fit(ds);
+        }
+        double scoreAfter = cg.score(ds, false);
+        assertTrue(scoreBefore + " vs. " + scoreAfter, scoreAfter < 0.5 * scoreBefore);
+
+        INDArray out = cg.outputSingle(features);
+        assertArrayEquals(new long[] {20, nOut}, out.shape());
+        assertEquals(20.0, out.sumNumber().doubleValue(), 1e-6);
+    }
+}
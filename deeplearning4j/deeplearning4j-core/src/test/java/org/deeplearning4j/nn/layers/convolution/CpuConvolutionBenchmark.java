@@ -0,0 +1,155 @@
+package org.deeplearning4j.nn.layers.convolution;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.conf.ConvolutionMode;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer.CpuAlgo;
+import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
+import org.deeplearning4j.util.ConvolutionUtils;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark for the CPU convolution algorithms ({@link CpuAlgo}): measures the forward and backward pass time of a
+ * single convolution layer for each algorithm, for a given layer configuration and input size.<br>
+ * {@link #main(String[])} runs a standard suite of layer shapes (based on common CNN architectures) and logs the
+ * results, along with the algorithm that would be selected by {@link CpuAlgo#AUTO} for each shape.
+ */
+@Slf4j
+public class CpuConvolutionBenchmark {
+
+    private CpuConvolutionBenchmark() {
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Result {
+        /** Algorithm that was configured */
+        private CpuAlgo algorithm;
+        /** Algorithm that was actually executed (IM2COL if the configured algorithm is not applicable) */
+        private CpuAlgo executed;
+        private double forwardMs;
+        private double backwardMs;
+    }
+
+    /**
+     * Benchmark IM2COL, DIRECT and WINOGRAD (where applicable) for the given configuration
+     *
+     * @param miniBatch  Minibatch size
+     * @param inDepth    Number of input channels
+     * @param outDepth   Number of output channels
+     * @param inH        Input height
+     * @param inW        Input width
+     * @param kernel     Kernel size (square)
+     * @param stride     Stride
+     * @param mode       Convolution mode
+     * @param warmup     Number of warmup iterations (not timed)
+     * @param iterations Number of timed iterations
+     * @return Average forward and backward times, for each algorithm
+     */
+    public static List<Result> benchmark(int miniBatch, int inDepth, int outDepth, int inH, int inW, int kernel,
+                    int stride, ConvolutionMode mode, int warmup, int iterations) {
+        INDArray input = Nd4j.rand(new int[] {miniBatch, inDepth, inH, inW});
+        List<Result> results = new ArrayList<>();
+        for (CpuAlgo algo : new CpuAlgo[] {CpuAlgo.IM2COL, CpuAlgo.DIRECT, CpuAlgo.WINOGRAD}) {
+            Layer layer = createLayer(algo, inDepth, outDepth, kernel, stride, mode);
+            CpuAlgo executed = selectedAlgorithm(algo, layer, input);
+            if (algo != CpuAlgo.IM2COL && executed == CpuAlgo.IM2COL) {
+                //Not applicable for this configuration
+                continue;
+            }
+
+            LayerWorkspaceMgr workspaceMgr = LayerWorkspaceMgr.noWorkspaces();
+            INDArray epsilon = null;
+            long fwd = 0;
+            long bwd = 0;
+            for (int i = 0; i < warmup + iterations; i++) {
+                long start = System.nanoTime();
+                INDArray out = layer.activate(input, true, workspaceMgr);
+                long mid = System.nanoTime();
+                if (epsilon == null) {
+                    epsilon = Nd4j.rand(out.shape());
+                }
+                layer.backpropGradient(epsilon, workspaceMgr);
+                long end = System.nanoTime();
+                if (i >= warmup) {
+                    fwd += mid - start;
+                    bwd += end - mid;
+                }
+            }
+            results.add(new Result(algo, executed, fwd / 1e6 / iterations, bwd / 1e6 / iterations));
+        }
+        return results;
+    }
+
+    /**
+     * Run the standard benchmark suite, and log the results
+     */
+    public static void main(String[] args) {
+        int miniBatch = (args.length > 0 ? Integer.parseInt(args[0]) : 16);
+        int iterations = (args.length > 1 ? Integer.parseInt(args[1]) : 10);
+
+        //inDepth, outDepth, size, kernel, stride
+        int[][] suite = new int[][] {
+                        {3, 64, 64, 3, 1},        //First layer: few input channels
+                        {64, 64, 56, 3, 1},       //ResNet/VGG style 3x3 blocks
+                        {128, 128, 28, 3, 1},
+                        {256, 256, 14, 3, 1},
+                        {256, 64, 56, 1, 1},      //ResNet bottleneck 1x1 reduce/expand
+                        {64, 256, 56, 1, 1},
+                        {256, 512, 28, 1, 2},     //ResNet 1x1 stride 2 projection
+                        {128, 128, 28, 3, 2},     //Not supported by either alternative: IM2COL only
+        };
+
+        for (int[] s : suite) {
+            CpuAlgo auto = CpuConvolutionHelper.selectAlgorithm(CpuAlgo.AUTO, new int[] {s[3], s[3]},
+                            new int[] {s[4], s[4]}, new int[] {0, 0}, new int[] {1, 1}, s[0], s[1],
+                            s[2] / s[4], s[2] / s[4]);
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("in=%d, out=%d, size=%dx%d, kernel=%dx%d, stride=%d (AUTO: %s)", s[0], s[1], s[2],
+                            s[2], s[3], s[3], s[4], auto));
+            for (Result r : benchmark(miniBatch, s[0], s[1], s[2], s[2], s[3], s[4], ConvolutionMode.Same, 2,
+                            iterations)) {
+                sb.append(String.format("%n    %-8s forward: %9.2f ms, backward: %9.2f ms", r.getAlgorithm(),
+                                r.getForwardMs(), r.getBackwardMs()));
+            }
+            log.info(sb.toString());
+        }
+    }
+
+    private static Layer createLayer(CpuAlgo algo, int inDepth, int outDepth, int kernel, int stride,
+                    ConvolutionMode mode) {
+        NeuralNetConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345).convolutionMode(mode)
+                        .layer(new org.deeplearning4j.nn.conf.layers.ConvolutionLayer.Builder()
+                                        .kernelSize(kernel, kernel).stride(stride, stride).nIn(inDepth)
+                                        .nOut(outDepth).activation(Activation.RELU).cpuAlgo(algo).build())
+                        .build();
+        long numParams = conf.getLayer().initializer().numParams(conf);
+        INDArray params = Nd4j.create(1, numParams);
+        Layer layer = conf.getLayer().instantiate(conf, null, 0, params, true);
+        layer.setBackpropGradientsViewArray(Nd4j.create(1, numParams));
+        return layer;
+    }
+
+    private static CpuAlgo selectedAlgorithm(CpuAlgo algo, Layer layer, INDArray input) {
+        org.deeplearning4j.nn.conf.layers.ConvolutionLayer c =
+                        (org.deeplearning4j.nn.conf.layers.ConvolutionLayer) layer.conf().getLayer();
+        INDArray w = layer.getParam("W");
+        INDArray out = layer.activate(input, false, LayerWorkspaceMgr.noWorkspaces());
+        int[] pad = c.getConvolutionMode() == ConvolutionMode.Same
+                        ? ConvolutionUtils.getSameModeTopLeftPadding(
+                                        new int[] {(int) out.size(2), (int) out.size(3)},
+                                        new int[] {(int) input.size(2), (int) input.size(3)}, c.getKernelSize(),
+                                        c.getStride(), c.getDilation())
+                        : c.getPadding();
+        return CpuConvolutionHelper.selectAlgorithm(algo, c.getKernelSize(), c.getStride(), pad, c.getDilation(),
+                        w.size(1), w.size(0), (int) out.size(2), (int) out.size(3));
+    }
+}
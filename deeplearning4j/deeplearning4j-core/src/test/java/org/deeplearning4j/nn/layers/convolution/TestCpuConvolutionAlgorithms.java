@@ -0,0 +1,227 @@
+package org.deeplearning4j.nn.layers.convolution;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.gradientcheck.GradientCheckUtil;
+import org.deeplearning4j.nn.conf.ConvolutionMode;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.distribution.NormalDistribution;
+import org.deeplearning4j.nn.conf.inputs.InputType;
+import org.deeplearning4j.nn.conf.layers.Convolution1DLayer;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer.CpuAlgo;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.conf.layers.RnnOutputLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.workspace.ArrayType;
+import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.NoOp;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import static org.junit.Assert.*;
+
+public class TestCpuConvolutionAlgorithms extends BaseDL4JTest {
+
+    private static MultiLayerNetwork getNet(CpuAlgo algo, int kernel, int stride, int padding, ConvolutionMode cm,
+                                            boolean hasBias, int inH, int inW) {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .updater(new NoOp())
+                .weightInit(org.deeplearning4j.nn.weights.WeightInit.DISTRIBUTION)
+                .dist(new NormalDistribution(0, 1))
+                .convolutionMode(cm)
+                .list()
+                //Two identical conv layers: second layer's input gradients are used by the first layer
+                .layer(new org.deeplearning4j.nn.conf.layers.ConvolutionLayer.Builder().kernelSize(kernel, kernel)
+                        .stride(stride, stride).padding(padding, padding).nOut(4).hasBias(hasBias)
+                        .activation(Activation.TANH).cpuAlgo(algo).build())
+                .layer(new org.deeplearning4j.nn.conf.layers.ConvolutionLayer.Builder().kernelSize(kernel, kernel)
+                        .stride(stride, stride).padding(padding, padding).nOut(3).hasBias(hasBias)
+                        .activation(Activation.TANH).cpuAlgo(algo).build())
+                .layer(new OutputLayer.Builder().nOut(2).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                .setInputType(InputType.convolutional(inH, inW, 2))
+                .build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        return net;
+    }
+
+    @Test
+    public void testSelectAlgorithm() {
+        int[] one = {1, 1};
+        int[] two = {2, 2};
+        int[] zero = {0, 0};
+        int[] k1 = {1, 1};
+        int[] k3 = {3, 3};
+
+        assertEquals(CpuAlgo.DIRECT, CpuConvolutionHelper.selectAlgorithm(CpuAlgo.AUTO, k1, one, zero, one, 2, 2, 1, 1));
+        assertEquals(CpuAlgo.DIRECT, CpuConvolutionHelper.selectAlgorithm(CpuAlgo.AUTO, k1, two, zero, one, 64, 64, 8, 8));
+        assertEquals(CpuAlgo.IM2COL, CpuConvolutionHelper.selectAlgorithm(CpuAlgo.AUTO, k1, one, one, one, 64, 64, 8, 8));
+        assertEquals(CpuAlgo.WINOGRAD, CpuConvolutionHelper.selectAlgorithm(CpuAlgo.AUTO, k3, one, one, one, 64, 64, 8, 8));
+        //Too few channels, or too small output for Winograd in AUTO mode
+        assertEquals(CpuAlgo.IM2COL, CpuConvolutionHelper.selectAlgorithm(CpuAlgo.AUTO, k3, one, one, one, 3, 64, 8, 8));
+        assertEquals(CpuAlgo.IM2COL, CpuConvolutionHelper.selectAlgorithm(CpuAlgo.AUTO, k3, one, one, one, 64, 64, 2, 2));
+        assertEquals(CpuAlgo.IM2COL, CpuConvolutionHelper.selectAlgorithm(CpuAlgo.AUTO, k3, two, one, one, 64, 64, 8, 8));
+        assertEquals(CpuAlgo.IM2COL, CpuConvolutionHelper.selectAlgorithm(CpuAlgo.AUTO, k3, one, one, two, 64, 64, 8, 8));
+        //Explicit: used whenever applicable
+        assertEquals(CpuAlgo.WINOGRAD, CpuConvolutionHelper.selectAlgorithm(CpuAlgo.WINOGRAD, k3, one, zero, one, 1, 1, 1, 1));
+        assertEquals(CpuAlgo.IM2COL, CpuConvolutionHelper.selectAlgorithm(CpuAlgo.WINOGRAD, k1, one, zero, one, 64, 64, 8, 8));
+        assertEquals(CpuAlgo.IM2COL, CpuConvolutionHelper.selectAlgorithm(CpuAlgo.DIRECT, k3, one, zero, one, 64, 64, 8, 8));
+        assertEquals(CpuAlgo.IM2COL, CpuConvolutionHelper.selectAlgorithm(CpuAlgo.IM2COL, k1, one, zero, one, 64, 64, 8, 8));
+
+        assertFalse(new CpuConvolutionHelper(CpuAlgo.IM2COL).checkSupported());
+        assertFalse(new CpuConvolutionHelper(null).checkSupported());
+    }
+
+    @Test
+    public void testAlgorithmsMatchIm2col() {
+        DataBuffer.Type initialType = Nd4j.dataType();
+        Nd4j.setDataType(DataBuffer.Type.DOUBLE);
+        try {
+            //kernel, stride, padding, convolution mode, algorithm
+            Object[][] configs = new Object[][]{
+                    {1, 1, 0, ConvolutionMode.Truncate, CpuAlgo.DIRECT},
+                    {1, 2, 0, ConvolutionMode.Truncate, CpuAlgo.DIRECT},
+                    {1, 2, 0, ConvolutionMode.Same, CpuAlgo.DIRECT},
+                    {3, 1, 0, ConvolutionMode.Truncate, CpuAlgo.WINOGRAD},
+                    {3, 1, 1, ConvolutionMode.Truncate, CpuAlgo.WINOGRAD},
+                    {3, 1, 2, ConvolutionMode.Truncate, CpuAlgo.WINOGRAD},
+                    {3, 1, 0, ConvolutionMode.Same, CpuAlgo.WINOGRAD},
+                    {3, 1, 0, ConvolutionMode.Same, CpuAlgo.AUTO},
+            };
+
+            for (Object[] c : configs) {
+                int k = (Integer) c[0];
+                int s = (Integer) c[1];
+                int p = (Integer) c[2];
+                ConvolutionMode cm = (ConvolutionMode) c[3];
+                CpuAlgo algo = (CpuAlgo) c[4];
+                for (boolean hasBias : new boolean[]{true, false}) {
+                    //Odd and even sizes: Winograd output tiles are 2x2
+                    for (int[] hw : new int[][]{{8, 6}, {7, 9}}) {
+                        String msg = "kernel=" + k + ", stride=" + s + ", padding=" + p + ", mode=" + cm + ", algo="
+                                + algo + ", hasBias=" + hasBias + ", size=" + hw[0] + "x" + hw[1];
+
+                        MultiLayerNetwork exp = getNet(CpuAlgo.IM2COL, k, s, p, cm, hasBias, hw[0], hw[1]);
+                        MultiLayerNetwork act = getNet(algo, k, s, p, cm, hasBias, hw[0], hw[1]);
+                        assertEquals(msg, exp.params(), act.params());
+                        if (algo != CpuAlgo.AUTO) {
+                            assertTrue(msg, ((ConvolutionLayer) act.getLayer(0)).helper instanceof CpuConvolutionHelper);
+                        }
+                        assertNull(msg, ((ConvolutionLayer) exp.getLayer(0)).helper);
+
+                        INDArray in = Nd4j.rand(new int[]{3, 2, hw[0], hw[1]});
+                        INDArray labels = Nd4j.create(new double[][]{{1, 0}, {0, 1}, {1, 0}});
+
+                        INDArray outExp = exp.output(in);
+                        INDArray outAct = act.output(in);
+                        assertTrue(msg, outExp.equalsWithEps(outAct, 1e-10));
+
+                        exp.setInput(in);
+                        exp.setLabels(labels);
+                        exp.computeGradientAndScore();
+                        act.setInput(in);
+                        act.setLabels(labels);
+                        act.computeGradientAndScore();
+                        assertEquals(msg, exp.score(), act.score(), 1e-10);
+                        assertTrue(msg, exp.getFlattenedGradients().equalsWithEps(act.getFlattenedGradients(), 1e-10));
+                    }
+                }
+            }
+        } finally {
+            Nd4j.setDataType(initialType);
+        }
+    }
+
+    @Test
+    public void testWinogradBlocks() {
+        DataBuffer.Type initialType = Nd4j.dataType();
+        Nd4j.setDataType(DataBuffer.Type.DOUBLE);
+        try {
+            //Output 9x7: 5x4 tiles per example, each with 16 * (5 + 4) transformed elements
+            INDArray in = Nd4j.rand(new int[]{3, 5, 9, 7});
+            INDArray w = Nd4j.rand(new int[]{4, 5, 3, 3});
+            INDArray b = Nd4j.rand(1, 4);
+            LayerWorkspaceMgr mgr = LayerWorkspaceMgr.noWorkspaces();
+            INDArray exp = CpuConvolutionHelper.winograd(in, w, b, 1, 1, 9, 7, mgr, ArrayType.ACTIVATIONS,
+                    ArrayType.FF_WORKING_MEM, Integer.MAX_VALUE);
+
+            int tileSize = 16 * (5 + 4);
+            //Single row of tiles; 2 rows (with remainder); 1 example; 2 examples (with remainder)
+            for (int blockSize : new int[]{1, 8 * tileSize, 20 * tileSize, 40 * tileSize}) {
+                INDArray act = CpuConvolutionHelper.winograd(in, w, b, 1, 1, 9, 7, mgr, ArrayType.ACTIVATIONS,
+                        ArrayType.FF_WORKING_MEM, blockSize);
+                assertTrue("blockSize=" + blockSize, exp.equalsWithEps(act, 1e-10));
+            }
+        } finally {
+            Nd4j.setDataType(initialType);
+        }
+    }
+
+    @Test
+    public void testGradientCheckWinogradDirect() {
+        DataBuffer.Type initialType = Nd4j.dataType();
+        Nd4j.setDataType(DataBuffer.Type.DOUBLE);
+        try {
+            for (CpuAlgo algo : new CpuAlgo[]{CpuAlgo.WINOGRAD, CpuAlgo.DIRECT}) {
+                int k = (algo == CpuAlgo.WINOGRAD ? 3 : 1);
+                MultiLayerNetwork net = getNet(algo, k, 1, 0, ConvolutionMode.Same, true, 5, 4);
+                INDArray in = Nd4j.rand(new int[]{2, 2, 5, 4});
+                INDArray labels = Nd4j.create(new double[][]{{1, 0}, {0, 1}});
+                boolean gradOK = GradientCheckUtil.checkGradients(net, 1e-6, 1e-3, 1e-8, false, false, in, labels);
+                assertTrue(algo.toString(), gradOK);
+            }
+        } finally {
+            Nd4j.setDataType(initialType);
+        }
+    }
+
+    @Test
+    public void testIm2colByDefault() {
+        //CPU helper is opt-in: existing configurations (including 1d convolutions and configurations serialized
+        // before the cpuAlgo option existed) continue to use im2col
+        MultiLayerConfiguration conf2d = new NeuralNetConfiguration.Builder().list()
+                .layer(new org.deeplearning4j.nn.conf.layers.ConvolutionLayer.Builder().kernelSize(3, 3).nOut(4)
+                        .build())
+                .layer(new OutputLayer.Builder().nOut(2).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                .setInputType(InputType.convolutional(8, 8, 2))
+                .build();
+        MultiLayerConfiguration conf1d = new NeuralNetConfiguration.Builder().list()
+                .layer(new Convolution1DLayer.Builder().kernelSize(3).nOut(4).build())
+                .layer(new RnnOutputLayer.Builder().nOut(2).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                .setInputType(InputType.recurrent(2, 10))
+                .build();
+
+        for (MultiLayerConfiguration conf : new MultiLayerConfiguration[]{conf2d, conf1d}) {
+            assertEquals(CpuAlgo.IM2COL, ((org.deeplearning4j.nn.conf.layers.ConvolutionLayer) conf.getConf(0)
+                    .getLayer()).getCpuAlgo());
+
+            String json = conf.toJson().replaceAll(",?\\s*\"cpuAlgo\"\\s*:\\s*\"IM2COL\"", "");
+            assertFalse(json.contains("cpuAlgo"));
+            MultiLayerConfiguration fromJson = MultiLayerConfiguration.fromJson(json);
+            assertEquals(conf, fromJson);
+
+            for (MultiLayerConfiguration c : new MultiLayerConfiguration[]{conf, fromJson}) {
+                MultiLayerNetwork net = new MultiLayerNetwork(c);
+                net.init();
+                assertNull(((ConvolutionLayer) net.getLayer(0)).helper);
+            }
+        }
+    }
+
+    @Test
+    public void testCpuAlgoJson() {
+        MultiLayerNetwork net = getNet(CpuAlgo.WINOGRAD, 3, 1, 0, ConvolutionMode.Same, true, 5, 4);
+        MultiLayerConfiguration conf = MultiLayerConfiguration.fromJson(net.getLayerWiseConfigurations().toJson());
+        assertEquals(CpuAlgo.WINOGRAD, ((org.deeplearning4j.nn.conf.layers.ConvolutionLayer) conf.getConf(0).getLayer())
+                .getCpuAlgo());
+        assertEquals(net.getLayerWiseConfigurations(), conf);
+    }
+}
@@ -0,0 +1,244 @@
+package org.deeplearning4j.nn.layers.feedforward.embedding;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.api.layers.SparseGradientLayer;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.EmbeddingLayer;
+import org.deeplearning4j.nn.conf.layers.EmbeddingSequenceLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.conf.layers.RnnOutputLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.params.DefaultParamInitializer;
+import org.deeplearning4j.nn.updater.SparseModelAveraging;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.AdaGrad;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.learning.config.IUpdater;
+import org.nd4j.linalg.learning.config.Sgd;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class SparseEmbeddingUpdatesTest extends BaseDL4JTest {
+
+    private static final int VOCAB = 20;
+    private static final int DIM = 5;
+    private static final int N_OUT = 3;
+
+    private static MultiLayerNetwork getNet(IUpdater updater, boolean sparse) {
+        return getNet(updater, sparse, 1);
+    }
+
+    private static MultiLayerNetwork getNet(IUpdater updater, boolean sparse, int accumulationSteps) {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345).updater(updater)
+                        .gradientAccumulationSteps(accumulationSteps)
+                        .activation(Activation.TANH).list()
+                        .layer(new EmbeddingLayer.Builder().hasBias(true).sparseUpdates(sparse).nIn(VOCAB).nOut(DIM)
+                                        .build())
+                        .layer(new DenseLayer.Builder().nIn(DIM).nOut(4).build())
+                        .layer(new OutputLayer.Builder().lossFunction(LossFunctions.LossFunction.MCXENT)
+                                        .activation(Activation.SOFTMAX).nIn(4).nOut(N_OUT).build())
+                        .build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        return net;
+    }
+
+    private static INDArray[] getData(int[] indexes) {
+        INDArray in = Nd4j.create(indexes.length, 1);
+        INDArray labels = Nd4j.create(indexes.length, N_OUT);
+        for (int i = 0; i < indexes.length; i++) {
+            in.putScalar(i, 0, indexes[i]);
+            labels.putScalar(i, indexes[i] % N_OUT, 1.0);
+        }
+        return new INDArray[] {in, labels};
+    }
+
+    @Test
+    public void testSparseEqualsDenseSameRows() {
+        //When the same rows are used every iteration, lazy and dense updates are identical: the other rows never
+        // have a non-zero gradient or updater state
+        int[] rows = {1, 3, 3, 7, 12, 1};
+        INDArray[] d = getData(rows);
+        for (IUpdater u : new IUpdater[] {new Sgd(0.1), new Adam(0.05), new AdaGrad(0.1)}) {
+            MultiLayerNetwork dense = getNet(u, false);
+            MultiLayerNetwork sparse = getNet(u, true);
+            assertEquals(dense.params(), sparse.params());
+
+            for (int i = 0; i < 5; i++) {
+                dense.fit(d[0], d[1]);
+                sparse.fit(d[0], d[1]);
+            }
+            String msg = u.getClass().getSimpleName();
+            assertTrue(msg, dense.params().equalsWithEps(sparse.params(), 1e-5));
+            assertTrue(msg, dense.getUpdater().getStateViewArray() == null
+                            || dense.getUpdater().getStateViewArray().equalsWithEps(
+                                            sparse.getUpdater().getStateViewArray(), 1e-5));
+        }
+    }
+
+    @Test
+    public void testLazyAdamUntouchedRows() {
+        INDArray[] a = getData(new int[] {0, 2, 4, 6});
+        INDArray[] b = getData(new int[] {1, 5, 9, 11});
+
+        MultiLayerNetwork dense = getNet(new Adam(0.05), false);
+        MultiLayerNetwork sparse = getNet(new Adam(0.05), true);
+        dense.fit(a[0], a[1]);
+        sparse.fit(a[0], a[1]);
+        assertTrue(dense.params().equalsWithEps(sparse.params(), 1e-5));
+
+        INDArray wDenseBefore = dense.getLayer(0).getParam(DefaultParamInitializer.WEIGHT_KEY).dup();
+        INDArray wSparseBefore = sparse.getLayer(0).getParam(DefaultParamInitializer.WEIGHT_KEY).dup();
+        INDArray stateSparseBefore = sparse.getUpdater().getStateViewArray().dup();
+
+        dense.fit(b[0], b[1]);
+        sparse.fit(b[0], b[1]);
+
+        INDArray wDense = dense.getLayer(0).getParam(DefaultParamInitializer.WEIGHT_KEY);
+        INDArray wSparse = sparse.getLayer(0).getParam(DefaultParamInitializer.WEIGHT_KEY);
+        for (int r : new int[] {0, 2, 4, 6}) {
+            //Dense Adam keeps moving the rows from the first minibatch (momentum); lazy Adam does not
+            assertNotEquals(wDenseBefore.getRow(r), wDense.getRow(r));
+            assertEquals(wSparseBefore.getRow(r), wSparse.getRow(r));
+        }
+        for (int r : new int[] {3, 8, 19}) {
+            //Never used
+            assertEquals(wSparseBefore.getRow(r), wSparse.getRow(r));
+        }
+        for (int r : new int[] {1, 5, 9, 11}) {
+            assertNotEquals(wSparseBefore.getRow(r), wSparse.getRow(r));
+        }
+
+        //Updater state for the embedding weights: [m|v] for the whole updater block (weights + bias + dense layer...)
+        //Only the state of rows from the second minibatch (and the other, dense params) should have changed
+        INDArray stateSparse = sparse.getUpdater().getStateViewArray();
+        assertNotEquals(stateSparseBefore, stateSparse);
+        int numW = VOCAB * DIM;
+        int blockLength = sparse.numParams();
+        for (int chunk = 0; chunk < 2; chunk++) {
+            for (int i = 0; i < numW; i++) {
+                int row = i % VOCAB; //'f' order weights
+                boolean touched = row == 1 || row == 5 || row == 9 || row == 11;
+                double before = stateSparseBefore.getDouble(chunk * blockLength + i);
+                double after = stateSparse.getDouble(chunk * blockLength + i);
+                if (!touched) {
+                    assertEquals(before, after, 0.0);
+                }
+            }
+        }
+
+        //The rows of the second minibatch are pending sync; nothing is pending for the next update
+        SparseGradientLayer l0 = (SparseGradientLayer) sparse.getLayer(0);
+        assertEquals(0, l0.getSparseGradientRows(DefaultParamInitializer.WEIGHT_KEY).length);
+        assertArrayEquals(new int[] {0, 1, 2, 4, 5, 6, 9, 11}, l0.getRowsModifiedSinceSync(DefaultParamInitializer.WEIGHT_KEY));
+        assertTrue(l0.isSparseGradientParam(DefaultParamInitializer.WEIGHT_KEY));
+        assertFalse(l0.isSparseGradientParam(DefaultParamInitializer.BIAS_KEY));
+        assertFalse(((SparseGradientLayer) dense.getLayer(0)).isSparseGradientParam(DefaultParamInitializer.WEIGHT_KEY));
+    }
+
+    @Test
+    public void testSparseStepAndGradientZeroing() {
+        //With SGD (no updater state), lazy and dense updates are identical even if different rows are used in each
+        // iteration: only the updated rows are stepped, and only the rows used previously are zeroed before backprop
+        INDArray[] a = getData(new int[] {0, 2, 4, 6});
+        INDArray[] b = getData(new int[] {1, 2, 9, 19});
+        for (int accumulationSteps : new int[] {1, 2}) {
+            MultiLayerNetwork dense = getNet(new Sgd(0.1), false, accumulationSteps);
+            MultiLayerNetwork sparse = getNet(new Sgd(0.1), true, accumulationSteps);
+            for (int i = 0; i < 4; i++) {
+                INDArray[] d = (i % 2 == 0 ? a : b);
+                dense.fit(d[0], d[1]);
+                sparse.fit(d[0], d[1]);
+                assertTrue(dense.params().equalsWithEps(sparse.params(), 1e-6));
+            }
+
+            SparseGradientLayer l0 = (SparseGradientLayer) sparse.getLayer(0);
+            assertEquals(0, l0.getSparseStepRows(DefaultParamInitializer.WEIGHT_KEY).length);
+
+            dense.setInput(a[0]);
+            dense.setLabels(a[1]);
+            dense.computeGradientAndScore();
+            sparse.setInput(a[0]);
+            sparse.setLabels(a[1]);
+            sparse.computeGradientAndScore();
+            assertEquals(dense.gradient().getGradientFor("0_W"), sparse.gradient().getGradientFor("0_W"));
+        }
+    }
+
+    @Test
+    public void testEmbeddingSequenceLayer() {
+        int inputLength = 4;
+        int mb = 3;
+        INDArray in = Nd4j.create(new double[][] {{1, 2, 3, 2}, {5, 1, 1, 0}, {7, 7, 2, 3}});
+        INDArray labels = Nd4j.zeros(mb, N_OUT, inputLength);
+        for (int i = 0; i < mb; i++) {
+            for (int j = 0; j < inputLength; j++) {
+                labels.putScalar(i, (i + j) % N_OUT, j, 1.0);
+            }
+        }
+
+        MultiLayerNetwork[] nets = new MultiLayerNetwork[2];
+        for (int i = 0; i < 2; i++) {
+            MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345).updater(new Adam(0.05))
+                            .activation(Activation.TANH).list()
+                            .layer(new EmbeddingSequenceLayer.Builder().sparseUpdates(i == 1).inputLength(inputLength)
+                                            .nIn(VOCAB).nOut(DIM).build())
+                            .layer(new RnnOutputLayer.Builder().lossFunction(LossFunctions.LossFunction.MCXENT)
+                                            .activation(Activation.SOFTMAX).nIn(DIM).nOut(N_OUT).build())
+                            .build();
+            nets[i] = new MultiLayerNetwork(conf);
+            nets[i].init();
+            for (int j = 0; j < 3; j++) {
+                nets[i].fit(in, labels);
+            }
+        }
+
+        assertTrue(nets[0].params().equalsWithEps(nets[1].params(), 1e-5));
+        assertArrayEquals(new int[] {0, 1, 2, 3, 5, 7},
+                        ((SparseGradientLayer) nets[1].getLayer(0)).getRowsModifiedSinceSync(DefaultParamInitializer.WEIGHT_KEY));
+    }
+
+    @Test
+    public void testSparseModelAveraging() {
+        MultiLayerNetwork net = getNet(new Adam(0.05), true);
+        INDArray[] warmup = getData(new int[] {0, 1});
+        net.fit(warmup[0], warmup[1]);
+
+        MultiLayerNetwork w1 = net.clone();
+        MultiLayerNetwork w2 = net.clone();
+        assertTrue(SparseModelAveraging.hasSparseParams(w1));
+        assertFalse(SparseModelAveraging.hasSparseParams(getNet(new Adam(0.05), false)));
+
+        INDArray[] a = getData(new int[] {2, 4, 6});
+        INDArray[] b = getData(new int[] {4, 9, 11});
+        w1.fit(a[0], a[1]);
+        w2.fit(b[0], b[1]);
+
+        //Untouched rows are identical between the workers, hence the sparse average equals the full average
+        INDArray expParams = w1.params().add(w2.params()).divi(2);
+        INDArray expState = w1.getUpdater().getStateViewArray().add(w2.getUpdater().getStateViewArray()).divi(2);
+
+        SparseModelAveraging.averageParams(Arrays.asList(w1, w2));
+        SparseModelAveraging.averageUpdaterState(Arrays.asList(w1, w2));
+
+        assertTrue(expParams.equalsWithEps(w1.params(), 1e-6));
+        assertEquals(w1.params(), w2.params());
+        assertTrue(expState.equalsWithEps(w1.getUpdater().getStateViewArray(), 1e-6));
+        assertEquals(w1.getUpdater().getStateViewArray(), w2.getUpdater().getStateViewArray());
+
+        SparseModelAveraging.clearRowsModifiedSinceSync(Arrays.asList(w1, w2));
+        for (MultiLayerNetwork m : new MultiLayerNetwork[] {w1, w2}) {
+            Layer l = m.getLayer(0);
+            assertEquals(0, ((SparseGradientLayer) l).getRowsModifiedSinceSync(DefaultParamInitializer.WEIGHT_KEY).length);
+        }
+    }
+}
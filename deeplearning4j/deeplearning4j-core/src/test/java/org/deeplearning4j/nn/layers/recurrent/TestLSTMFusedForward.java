@@ -0,0 +1,193 @@
+package org.deeplearning4j.nn.layers.recurrent;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.nn.conf.CacheMode;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.distribution.UniformDistribution;
+import org.deeplearning4j.nn.conf.layers.RnnOutputLayer;
+import org.deeplearning4j.nn.layers.BaseLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.params.GravesLSTMParamInitializer;
+import org.deeplearning4j.nn.weights.WeightInit;
+import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.activations.IActivation;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import static org.junit.Assert.*;
+import static org.nd4j.linalg.indexing.NDArrayIndex.interval;
+
+public class TestLSTMFusedForward extends BaseDL4JTest {
+
+    private static final int N_IN = 5;
+    private static final int LAYER_SIZE = 6;
+
+    private static BaseLayer getLayer(boolean graves, Activation gateActivation) {
+        org.deeplearning4j.nn.conf.layers.Layer l;
+        if (graves) {
+            l = new org.deeplearning4j.nn.conf.layers.GravesLSTM.Builder().nIn(N_IN).nOut(LAYER_SIZE)
+                            .gateActivationFunction(gateActivation).activation(Activation.TANH).build();
+        } else {
+            l = new org.deeplearning4j.nn.conf.layers.LSTM.Builder().nIn(N_IN).nOut(LAYER_SIZE)
+                            .gateActivationFunction(gateActivation).activation(Activation.TANH).build();
+        }
+        NeuralNetConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345)
+                        .weightInit(WeightInit.DISTRIBUTION).dist(new UniformDistribution(-1, 1)).layer(l).build();
+        long numParams = conf.getLayer().initializer().numParams(conf);
+        INDArray params = Nd4j.create(1, numParams);
+        return (BaseLayer) conf.getLayer().instantiate(conf, null, 0, params, true);
+    }
+
+    private static FwdPassReturn activate(BaseLayer layer, boolean graves, INDArray input, INDArray prevAct,
+                    INDArray prevMemCell, boolean forBackprop, boolean forwards, INDArray mask) {
+        IActivation gateFn = graves
+                        ? ((org.deeplearning4j.nn.conf.layers.GravesLSTM) layer.layerConf()).getGateActivationFn()
+                        : ((org.deeplearning4j.nn.conf.layers.LSTM) layer.layerConf()).getGateActivationFn();
+        return LSTMHelpers.activateHelper(layer, layer.conf(), gateFn, input,
+                        layer.getParam(GravesLSTMParamInitializer.RECURRENT_WEIGHT_KEY),
+                        layer.getParam(GravesLSTMParamInitializer.INPUT_WEIGHT_KEY),
+                        layer.getParam(GravesLSTMParamInitializer.BIAS_KEY), false, prevAct, prevMemCell,
+                        forBackprop, forwards, GravesLSTMParamInitializer.INPUT_WEIGHT_KEY, mask, graves, null,
+                        CacheMode.NONE, LayerWorkspaceMgr.noWorkspaces());
+    }
+
+    /**
+     * Straightforward (unfused) per time step reference implementation
+     */
+    private static INDArray[] reference(BaseLayer layer, boolean graves, INDArray input, INDArray prevAct,
+                    INDArray prevMemCell, boolean forwards, INDArray mask) {
+        INDArray rw = layer.getParam(GravesLSTMParamInitializer.RECURRENT_WEIGHT_KEY);
+        INDArray iw = layer.getParam(GravesLSTMParamInitializer.INPUT_WEIGHT_KEY);
+        INDArray b = layer.getParam(GravesLSTMParamInitializer.BIAS_KEY);
+        IActivation gate = graves
+                        ? ((org.deeplearning4j.nn.conf.layers.GravesLSTM) layer.layerConf()).getGateActivationFn()
+                        : ((org.deeplearning4j.nn.conf.layers.LSTM) layer.layerConf()).getGateActivationFn();
+        int n = LAYER_SIZE;
+        int mb = (int) input.size(0);
+        int tsLength = (int) input.size(2);
+
+        INDArray out = Nd4j.create(mb, n, tsLength);
+        INDArray h = (prevAct == null ? Nd4j.zeros(mb, n) : prevAct.dup());
+        INDArray c = (prevMemCell == null ? Nd4j.zeros(mb, n) : prevMemCell.dup());
+        for (int i = 0; i < tsLength; i++) {
+            int t = (forwards ? i : tsLength - i - 1);
+            INDArray x = input.get(NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.point(t)).dup();
+            INDArray z = x.mmul(iw).addi(h.mmul(rw.get(NDArrayIndex.all(), interval(0, 4 * n)))).addiRowVector(b);
+            INDArray zi = z.get(NDArrayIndex.all(), interval(0, n)).dup();
+            INDArray zf = z.get(NDArrayIndex.all(), interval(n, 2 * n)).dup();
+            INDArray zo = z.get(NDArrayIndex.all(), interval(2 * n, 3 * n)).dup();
+            INDArray zg = z.get(NDArrayIndex.all(), interval(3 * n, 4 * n)).dup();
+            if (graves) {
+                zf.addi(c.mulRowVector(rw.get(NDArrayIndex.all(), NDArrayIndex.point(4 * n)).transpose()));
+                zg.addi(c.mulRowVector(rw.get(NDArrayIndex.all(), NDArrayIndex.point(4 * n + 2)).transpose()));
+            }
+            INDArray a = Activation.TANH.getActivationFunction().getActivation(zi, false);
+            INDArray f = gate.getActivation(zf, false);
+            INDArray g = gate.getActivation(zg, false);
+            c = f.mul(c).addi(a.mul(g));
+            if (graves) {
+                zo.addi(c.mulRowVector(rw.get(NDArrayIndex.all(), NDArrayIndex.point(4 * n + 1)).transpose()));
+            }
+            INDArray o = gate.getActivation(zo, false);
+            h = Activation.TANH.getActivationFunction().getActivation(c.dup(), false).muli(o);
+            if (mask != null) {
+                h.muliColumnVector(mask.getColumn(t));
+                c.muliColumnVector(mask.getColumn(t));
+            }
+            out.get(NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.point(t)).assign(h);
+        }
+        return new INDArray[] {out, h, c};
+    }
+
+    @Test
+    public void testFusedForwardMatchesReference() {
+        DataBuffer.Type initialType = Nd4j.dataType();
+        Nd4j.setDataType(DataBuffer.Type.DOUBLE);
+        try {
+            Nd4j.getRandom().setSeed(12345);
+            for (boolean graves : new boolean[] {false, true}) {
+                for (Activation gateAfn : new Activation[] {Activation.SIGMOID, Activation.HARDSIGMOID}) {
+                    BaseLayer layer = getLayer(graves, gateAfn);
+                    for (boolean forwards : new boolean[] {true, false}) {
+                        for (boolean withState : new boolean[] {false, true}) {
+                            for (boolean withMask : new boolean[] {false, true}) {
+                                for (int tsLength : new int[] {1, 4}) {
+                                    String msg = "graves=" + graves + ", gate=" + gateAfn + ", forwards=" + forwards
+                                                    + ", withState=" + withState + ", withMask=" + withMask
+                                                    + ", tsLength=" + tsLength;
+                                    int mb = 3;
+                                    INDArray in = Nd4j.rand(new int[] {mb, N_IN, tsLength});
+                                    INDArray prevAct = (withState ? Nd4j.rand(mb, LAYER_SIZE) : null);
+                                    INDArray prevMem = (withState ? Nd4j.rand(mb, LAYER_SIZE) : null);
+                                    INDArray mask = null;
+                                    if (withMask) {
+                                        mask = Nd4j.ones(mb, tsLength);
+                                        mask.putScalar(0, tsLength - 1, 0.0);
+                                        mask.putScalar(2, 0, 0.0);
+                                    }
+
+                                    INDArray[] exp = reference(layer, graves, in, prevAct, prevMem, forwards, mask);
+                                    FwdPassReturn fused = activate(layer, graves, in, prevAct, prevMem, false,
+                                                    forwards, mask);
+                                    FwdPassReturn bp = activate(layer, graves, in, prevAct, prevMem, true, forwards,
+                                                    mask);
+
+                                    assertTrue(msg, exp[0].equalsWithEps(fused.fwdPassOutput, 1e-10));
+                                    assertTrue(msg, exp[1].equalsWithEps(fused.lastAct, 1e-10));
+                                    assertTrue(msg, exp[2].equalsWithEps(fused.lastMemCell, 1e-10));
+                                    for (int t = 0; t < tsLength; t++) {
+                                        INDArray expT = exp[0].get(NDArrayIndex.all(), NDArrayIndex.all(),
+                                                        NDArrayIndex.point(t));
+                                        assertTrue(msg, expT.equalsWithEps(bp.fwdPassOutputAsArrays[t], 1e-10));
+                                    }
+                                    assertTrue(msg, exp[1].equalsWithEps(bp.lastAct, 1e-10));
+                                    assertTrue(msg, exp[2].equalsWithEps(bp.lastMemCell, 1e-10));
+
+                                    //Stored state must not be a view of the returned activations
+                                    fused.fwdPassOutput.assign(0);
+                                    assertTrue(msg, exp[1].equalsWithEps(fused.lastAct, 1e-10));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            Nd4j.setDataType(initialType);
+        }
+    }
+
+    @Test
+    public void testRnnTimeStepMatchesOutput() {
+        for (boolean graves : new boolean[] {false, true}) {
+            org.deeplearning4j.nn.conf.layers.Layer l = graves
+                            ? new org.deeplearning4j.nn.conf.layers.GravesLSTM.Builder().nIn(N_IN).nOut(LAYER_SIZE)
+                                            .activation(Activation.TANH).build()
+                            : new org.deeplearning4j.nn.conf.layers.LSTM.Builder().nIn(N_IN).nOut(LAYER_SIZE)
+                                            .activation(Activation.TANH).build();
+            MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345).list().layer(l)
+                            .layer(new RnnOutputLayer.Builder().nIn(LAYER_SIZE).nOut(3)
+                                            .lossFunction(LossFunctions.LossFunction.MCXENT)
+                                            .activation(Activation.SOFTMAX).build())
+                            .build();
+            MultiLayerNetwork net = new MultiLayerNetwork(conf);
+            net.init();
+
+            INDArray in = Nd4j.rand(new int[] {2, N_IN, 6});
+            INDArray outFull = net.output(in);
+
+            net.rnnTimeStep(in.get(NDArrayIndex.all(), NDArrayIndex.all(), interval(0, 2)));
+            for (int t = 2; t < 6; t++) {
+                INDArray step = net.rnnTimeStep(in.get(NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.point(t)));
+                INDArray exp = outFull.get(NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.point(t));
+                assertEquals("graves=" + graves + ", t=" + t, exp, step);
+            }
+        }
+    }
+}
@@ -14,11 +14,16 @@ import org.deeplearning4j.nn.conf.layers.*;
 import org.deeplearning4j.nn.conf.memory.MemoryReport;
 import org.deeplearning4j.nn.conf.memory.MemoryType;
 import org.deeplearning4j.nn.conf.memory.MemoryUseMode;
+import org.deeplearning4j.nn.conf.memory.NetworkMemoryReport;
+import org.deeplearning4j.nn.conf.memory.WorkspaceMemoryPlan;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
 import org.deeplearning4j.nn.conf.preprocessor.FeedForwardToCnnPreProcessor;
 import org.junit.Test;
 import org.nd4j.linalg.activations.Activation;
 import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
 import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
 import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.linalg.io.ClassPathResource;
 import org.nd4j.linalg.primitives.Pair;
@@ -28,8 +33,7 @@ import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 
-import static org.junit.Assert.assertArrayEquals;
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 /**
  * Created by Alex on 14/07/2017.
@@ -252,4 +256,90 @@ public class TestMemoryReports extends BaseDL4JTest {
 
         conf.getMemoryReport(InputType.convolutional(17,19,19));
     }
+
+    @Test
+    public void testMaxBatchSizeFor() {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().list()
+                        .layer(new DenseLayer.Builder().nIn(10).nOut(20).build())
+                        .layer(new OutputLayer.Builder().nIn(20).nOut(5).build()).build();
+        NetworkMemoryReport mr = conf.getMemoryReport(InputType.feedForward(10));
+
+        for (MemoryUseMode mode : MemoryUseMode.values()) {
+            long fixed = mr.getTotalMemoryBytes(0, mode, CacheMode.NONE, DataBuffer.Type.FLOAT);
+            for (int mb : new int[] {1, 7, 32, 1000, 123457}) {
+                long budget = mr.getTotalMemoryBytes(mb, mode, CacheMode.NONE, DataBuffer.Type.FLOAT);
+                assertEquals(mode + ", mb=" + mb, mb, mr.maxBatchSizeFor(budget, mode, CacheMode.NONE,
+                                DataBuffer.Type.FLOAT));
+                assertEquals(mode + ", mb=" + mb, mb - 1, mr.maxBatchSizeFor(budget - 1, mode, CacheMode.NONE,
+                                DataBuffer.Type.FLOAT));
+            }
+            assertEquals(0, mr.maxBatchSizeFor(fixed, mode, CacheMode.NONE, DataBuffer.Type.FLOAT));
+            assertEquals(Integer.MAX_VALUE, mr.maxBatchSizeFor(Long.MAX_VALUE, mode, CacheMode.NONE,
+                            DataBuffer.Type.FLOAT));
+        }
+
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        long budget = mr.getTotalMemoryBytes(64, MemoryUseMode.TRAINING, CacheMode.NONE, Nd4j.dataType());
+        assertEquals(64, net.maxBatchSizeFor(InputType.feedForward(10), budget, MemoryUseMode.TRAINING));
+    }
+
+    @Test
+    public void testWorkspacePlan() {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345).list()
+                        .layer(new DenseLayer.Builder().nIn(10).nOut(64).build())
+                        .layer(new DenseLayer.Builder().nIn(64).nOut(32).build())
+                        .layer(new OutputLayer.Builder().nIn(32).nOut(5).activation(Activation.SOFTMAX).build())
+                        .build();
+        NetworkMemoryReport mr = conf.getMemoryReport(InputType.feedForward(10));
+
+        int mb = 16;
+        WorkspaceMemoryPlan plan = WorkspaceMemoryPlan.fromReport(mr, mb, MemoryUseMode.TRAINING, CacheMode.NONE,
+                        DataBuffer.Type.FLOAT);
+        //Max working memory, all activations (input + layers), max activation gradients (layer inputs)
+        assertEquals(mr.getMemoryBytes(MemoryType.WORKING_MEMORY_FIXED, mb, MemoryUseMode.TRAINING, CacheMode.NONE,
+                        DataBuffer.Type.FLOAT)
+                        + mr.getMemoryBytes(MemoryType.WORKING_MEMORY_VARIABLE, mb, MemoryUseMode.TRAINING,
+                                        CacheMode.NONE, DataBuffer.Type.FLOAT),
+                        plan.getWorkingMemoryBytes());
+        assertEquals(mb * 10 * 4 + mr.getMemoryBytes(MemoryType.ACTIVATIONS, mb, MemoryUseMode.TRAINING,
+                        CacheMode.NONE, DataBuffer.Type.FLOAT), plan.getAllActivationsBytes());
+        assertEquals(mb * 64 * 4, plan.getLayerActivationsBytes());
+
+        WorkspaceMemoryPlan inference = WorkspaceMemoryPlan.fromReport(mr, mb, MemoryUseMode.INFERENCE,
+                        CacheMode.NONE, DataBuffer.Type.FLOAT);
+        assertEquals(0, inference.getAllActivationsBytes());
+        assertEquals(mb * 64 * 4, inference.getLayerActivationsBytes());
+
+        //Workspaces should be allocated up front, and the network should give the same results as without a plan
+        MultiLayerNetwork net = new MultiLayerNetwork(conf.clone());
+        net.init();
+        MultiLayerNetwork netPlanned = new MultiLayerNetwork(conf.clone());
+        netPlanned.init();
+        WorkspaceMemoryPlan p = netPlanned.planWorkspaces(InputType.feedForward(10), mb, MemoryUseMode.TRAINING);
+        assertEquals(p, netPlanned.getWorkspaceMemoryPlan());
+        for (String ws : new String[] {"WS_LAYER_WORKING_MEM", "WS_ALL_LAYERS_ACT", "WS_LAYER_ACT_1"}) {
+            assertTrue(ws, Nd4j.getWorkspaceManager().checkIfWorkspaceExists(ws));
+            MemoryWorkspace w = Nd4j.getWorkspaceManager().getWorkspaceForCurrentThread(ws);
+            assertTrue(ws, w.getCurrentSize() > 0);
+        }
+        assertEquals(p, netPlanned.clone().getWorkspaceMemoryPlan());
+
+        Nd4j.getRandom().setSeed(12345);
+        for (int i = 0; i < 3; i++) {
+            INDArray f = Nd4j.rand(mb, 10);
+            INDArray l = Nd4j.zeros(mb, 5);
+            for (int j = 0; j < mb; j++) {
+                l.putScalar(j, j % 5, 1.0);
+            }
+            DataSet ds = new DataSet(f, l);
+            net.fit(ds);
+            netPlanned.fit(ds);
+            assertEquals(net.params(), netPlanned.params());
+            assertEquals(net.output(f), netPlanned.output(f));
+        }
+
+        netPlanned.setWorkspaceMemoryPlan(null);
+        assertNull(netPlanned.getWorkspaceMemoryPlan());
+    }
 }
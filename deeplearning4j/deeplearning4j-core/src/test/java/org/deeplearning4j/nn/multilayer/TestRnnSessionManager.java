@@ -0,0 +1,148 @@
+package org.deeplearning4j.nn.multilayer;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.GravesLSTM;
+import org.deeplearning4j.nn.conf.layers.LSTM;
+import org.deeplearning4j.nn.conf.layers.RnnOutputLayer;
+import org.deeplearning4j.nn.conf.layers.recurrent.SimpleRnn;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TestRnnSessionManager extends BaseDL4JTest {
+
+    private static MultiLayerNetwork getNet() {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345).list()
+                        .layer(new LSTM.Builder().nIn(3).nOut(5).activation(Activation.TANH).build())
+                        .layer(new GravesLSTM.Builder().nIn(5).nOut(4).activation(Activation.TANH).build())
+                        .layer(new SimpleRnn.Builder().nIn(4).nOut(6).activation(Activation.TANH).build())
+                        .layer(new RnnOutputLayer.Builder().nIn(6).nOut(2).activation(Activation.SOFTMAX)
+                                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                        .build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        return net;
+    }
+
+    @Test
+    public void testSessionsMatchIndependentNetworks() {
+        Nd4j.getRandom().setSeed(12345);
+        MultiLayerNetwork net = getNet();
+        //Small initial capacity: store needs to grow
+        RnnSessionManager sessions = new RnnSessionManager(net, 2, 100);
+
+        int nSessions = 5;
+        MultiLayerNetwork[] independent = new MultiLayerNetwork[nSessions];
+        for (int i = 0; i < nSessions; i++) {
+            independent[i] = net.clone();
+        }
+
+        for (int step = 0; step < 6; step++) {
+            Map<String, INDArray> inputs = new LinkedHashMap<>();
+            for (int i = 0; i < nSessions; i++) {
+                //Not all sessions active at every step; mix of single step (2d) and multi-step (3d) inputs
+                if ((step + i) % 3 == 0) {
+                    continue;
+                }
+                INDArray in = (i % 2 == 0 ? Nd4j.rand(1, 3) : Nd4j.rand(new int[] {1, 3, 1 + i % 3}));
+                inputs.put(String.valueOf(i), in);
+            }
+
+            Map<String, INDArray> out = sessions.rnnTimeStep(inputs);
+            assertEquals(inputs.keySet(), out.keySet());
+            for (Map.Entry<String, INDArray> e : inputs.entrySet()) {
+                INDArray exp = independent[Integer.parseInt(e.getKey())].rnnTimeStep(e.getValue());
+                INDArray act = out.get(e.getKey());
+                assertArrayEquals(exp.shape(), act.shape());
+                assertEquals("step=" + step + ", session=" + e.getKey(), exp, act);
+            }
+        }
+        assertEquals(nSessions, sessions.numSessions());
+        assertTrue(sessions.getCapacity() >= nSessions);
+
+        //Network's own state should not be modified
+        assertTrue(net.rnnGetPreviousState(0).isEmpty());
+    }
+
+    @Test
+    public void testRemoveAndReuseSlots() {
+        Nd4j.getRandom().setSeed(12345);
+        MultiLayerNetwork net = getNet();
+        RnnSessionManager sessions = new RnnSessionManager(net, 2, 2);
+
+        INDArray in1 = Nd4j.rand(new int[] {1, 3, 4});
+        INDArray in2 = Nd4j.rand(new int[] {1, 3, 4});
+        sessions.rnnTimeStep("a", in1);
+        sessions.rnnTimeStep("b", in1);
+
+        try {
+            sessions.rnnTimeStep("c", in1);
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("Maximum number of sessions"));
+        }
+
+        //New session reusing a slot should start from zero state
+        assertTrue(sessions.removeSession("a"));
+        assertFalse(sessions.hasSession("a"));
+        INDArray out = sessions.rnnTimeStep("c", in2);
+        net.rnnClearPreviousState();
+        assertEquals(net.rnnTimeStep(in2), out);
+        net.rnnClearPreviousState();
+        assertEquals(2, sessions.numSessions());
+    }
+
+    @Test
+    public void testGetSetSessionState() {
+        Nd4j.getRandom().setSeed(12345);
+        MultiLayerNetwork net = getNet();
+        RnnSessionManager sessions = new RnnSessionManager(net);
+
+        INDArray in1 = Nd4j.rand(new int[] {1, 3, 3});
+        INDArray in2 = Nd4j.rand(1, 3);
+        sessions.rnnTimeStep("a", in1);
+
+        Map<Integer, Map<String, INDArray>> state = sessions.getSessionState("a");
+        assertEquals(3, state.size());
+        assertEquals(2, state.get(0).size());     //LSTM: activations and memory cell state
+        assertEquals(2, state.get(1).size());     //GravesLSTM
+        assertEquals(1, state.get(2).size());     //SimpleRnn
+        assertNull(sessions.getSessionState("x"));
+
+        net.rnnTimeStep(in1);
+        Map<Integer, Map<String, INDArray>> expState = new HashMap<>();
+        for (int i = 0; i < 3; i++) {
+            expState.put(i, net.rnnGetPreviousState(i));
+            for (Map.Entry<String, INDArray> e : net.rnnGetPreviousState(i).entrySet()) {
+                assertEquals(e.getValue(), state.get(i).get(e.getKey()));
+            }
+        }
+        INDArray exp = net.rnnTimeStep(in2);
+        net.rnnClearPreviousState();
+
+        //Restore into another session
+        sessions.setSessionState("b", state);
+        assertEquals(exp, sessions.rnnTimeStep("b", in2));
+        assertEquals(exp, sessions.rnnTimeStep("a", in2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonRecurrentNetwork() {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().list()
+                        .layer(new DenseLayer.Builder().nIn(3).nOut(3).build()).build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        new RnnSessionManager(net);
+    }
+}
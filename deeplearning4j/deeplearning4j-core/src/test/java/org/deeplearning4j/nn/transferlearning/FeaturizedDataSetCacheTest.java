@@ -0,0 +1,199 @@
+package org.deeplearning4j.nn.transferlearning;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.datasets.iterator.impl.ListDataSetIterator;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.nd4j.linalg.learning.config.Sgd;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class FeaturizedDataSetCacheTest extends BaseDL4JTest {
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    private static MultiLayerNetwork getMLN() {
+        MultiLayerNetwork net = new MultiLayerNetwork(new NeuralNetConfiguration.Builder().seed(12345)
+                        .updater(new Sgd(0.1)).activation(Activation.TANH).list()
+                        .layer(0, new DenseLayer.Builder().nIn(4).nOut(6).build())
+                        .layer(1, new DenseLayer.Builder().nIn(6).nOut(5).build())
+                        .layer(2, new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT)
+                                        .activation(Activation.SOFTMAX).nIn(5).nOut(3).build())
+                        .build());
+        net.init();
+        return net;
+    }
+
+    private static List<DataSet> getData(int numBatches, int batchSize) {
+        Nd4j.getRandom().setSeed(12345);
+        List<DataSet> list = new ArrayList<>();
+        for (int i = 0; i < numBatches; i++) {
+            INDArray labels = Nd4j.zeros(batchSize, 3);
+            for (int j = 0; j < batchSize; j++) {
+                labels.putScalar(j, (i + j) % 3, 1.0);
+            }
+            list.add(new DataSet(Nd4j.rand(batchSize, 4), labels));
+        }
+        return list;
+    }
+
+    private static Set<List<Float>> toSet(INDArray features, INDArray labels) {
+        Set<List<Float>> set = new HashSet<>();
+        for (int i = 0; i < features.size(0); i++) {
+            List<Float> l = new ArrayList<>();
+            for (float f : features.getRow(i).dup().data().asFloat())
+                l.add(f);
+            for (float f : labels.getRow(i).dup().data().asFloat())
+                l.add(f);
+            set.add(l);
+        }
+        return set;
+    }
+
+    @Test
+    public void testCacheMLN() throws Exception {
+        MultiLayerNetwork net = getMLN();
+        TransferLearningHelper helper = new TransferLearningHelper(net, 1);
+        List<DataSet> data = getData(5, 6);
+        DataSet all = DataSet.merge(data);
+        DataSet expFeaturized = helper.featurize(all);
+
+        File f = tempDir.newFile();
+        try (FeaturizedDataSetCache cache = FeaturizedDataSetCache.create(helper, new ListDataSetIterator<>(data, 6),
+                        f)) {
+            assertEquals(30, cache.getNumExamples());
+            assertArrayEquals(new long[] {5}, cache.getFeatureShape());
+            assertArrayEquals(new long[] {3}, cache.getLabelShape());
+
+            int[] idx = new int[30];
+            for (int i = 0; i < idx.length; i++) {
+                idx[i] = i;
+            }
+            DataSet stored = cache.get(idx);
+            assertTrue(expFeaturized.getFeatures().equalsWithEps(stored.getFeatures(), 1e-6));
+            assertEquals(expFeaturized.getLabels(), stored.getLabels());
+
+            DataSet subset = cache.get(new int[] {7, 2});
+            assertEquals(stored.getFeatures().getRow(7), subset.getFeatures().getRow(0));
+            assertEquals(stored.getFeatures().getRow(2), subset.getFeatures().getRow(1));
+
+            //Shuffled iteration: all examples once per epoch, in a different order each epoch
+            FeaturizedDataSetIterator iter = cache.iterator(8, true, 12345);
+            Set<List<Float>> expSet = toSet(stored.getFeatures(), stored.getLabels());
+            List<INDArray> firstBatches = new ArrayList<>();
+            for (int epoch = 0; epoch < 2; epoch++) {
+                List<DataSet> batches = new ArrayList<>();
+                while (iter.hasNext()) {
+                    batches.add(iter.next());
+                }
+                assertEquals(4, batches.size());
+                assertEquals(6, batches.get(3).numExamples());
+                DataSet merged = DataSet.merge(batches);
+                assertEquals(expSet, toSet(merged.getFeatures(), merged.getLabels()));
+                firstBatches.add(batches.get(0).getFeatures());
+                iter.reset();
+            }
+            assertNotEquals(firstBatches.get(0), firstBatches.get(1));
+
+            helper.fitFeaturized(cache.iterator(10, true, 12345));
+        }
+
+        //Reopen the same file
+        try (FeaturizedDataSetCache cache = FeaturizedDataSetCache.open(f)) {
+            assertEquals(30, cache.getNumExamples());
+            DataSet ds = cache.get(new int[] {0, 29});
+            assertTrue(expFeaturized.getFeatures().getRow(29).equalsWithEps(ds.getFeatures().getRow(1), 1e-6));
+        }
+    }
+
+    @Test
+    public void testHalfPrecision() throws Exception {
+        float[] values = {0.0f, 1.0f, -2.5f, 0.1f, 65504f, -1e-6f, 3.0e-8f};
+        for (float v : values) {
+            float out = FeaturizedDataSetCache.halfToFloat(FeaturizedDataSetCache.floatToHalf(v));
+            assertEquals(String.valueOf(v), v, out, Math.max(Math.abs(v) * 1e-3, 6e-8));
+        }
+        assertEquals(Float.POSITIVE_INFINITY,
+                        FeaturizedDataSetCache.halfToFloat(FeaturizedDataSetCache.floatToHalf(70000f)), 0.0);
+        assertTrue(Float.isNaN(FeaturizedDataSetCache.halfToFloat(FeaturizedDataSetCache.floatToHalf(Float.NaN))));
+
+        TransferLearningHelper helper = new TransferLearningHelper(getMLN(), 1);
+        List<DataSet> data = getData(3, 5);
+        DataSet expFeaturized = helper.featurize(DataSet.merge(data));
+
+        File full = tempDir.newFile();
+        File half = tempDir.newFile();
+        FeaturizedDataSetCache.create(helper, new ListDataSetIterator<>(data, 5), full).close();
+        try (FeaturizedDataSetCache cache = FeaturizedDataSetCache.create(helper, new ListDataSetIterator<>(data, 5),
+                        half, FeaturizedDataSetCache.Precision.HALF, 1)) {
+            assertEquals(FeaturizedDataSetCache.Precision.HALF, cache.getPrecision());
+            DataSet ds = cache.get(new int[] {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14});
+            assertTrue(expFeaturized.getFeatures().equalsWithEps(ds.getFeatures(), 1e-3));
+            assertEquals(expFeaturized.getLabels(), ds.getLabels());
+        }
+        assertTrue(half.length() < full.length());
+    }
+
+    @Test
+    public void testParallelFeaturizingGraph() throws Exception {
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345).updater(new Sgd(0.1))
+                        .activation(Activation.TANH).graphBuilder().addInputs("in")
+                        .addLayer("dense0", new DenseLayer.Builder().nIn(4).nOut(6).build(), "in")
+                        .addLayer("dense1", new DenseLayer.Builder().nIn(6).nOut(5).build(), "dense0")
+                        .addLayer("out", new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT)
+                                        .activation(Activation.SOFTMAX).nIn(5).nOut(3).build(), "dense1")
+                        .setOutputs("out").build();
+        ComputationGraph graph = new ComputationGraph(conf);
+        graph.init();
+        TransferLearningHelper helper = new TransferLearningHelper(graph, "dense1");
+
+        List<DataSet> data = getData(7, 4);
+        List<DataSet> featurized = new ArrayList<>();
+        for (DataSet ds : data) {
+            featurized.add(helper.featurize(ds));
+        }
+        DataSet expFeaturized = DataSet.merge(featurized);
+
+        File f = tempDir.newFile();
+        try (FeaturizedDataSetCache cache = FeaturizedDataSetCache.create(helper, new ListDataSetIterator<>(data, 4),
+                        f, FeaturizedDataSetCache.Precision.FLOAT, 3)) {
+            assertEquals(28, cache.getNumExamples());
+            FeaturizedDataSetIterator iter = cache.iterator(28, false, 0);
+            DataSet ds = iter.next();
+            assertFalse(iter.hasNext());
+
+            //Order of examples depends on the workers; contents don't
+            Set<List<Float>> exp = toSet(expFeaturized.getFeatures(), expFeaturized.getLabels());
+            Set<List<Float>> act = toSet(ds.getFeatures(), ds.getLabels());
+            assertEquals(exp, act);
+
+            //Frozen layers must not have been modified by featurizing
+            INDArray paramsBefore = graph.params().dup();
+            helper.fitFeaturized(cache.iterator(10, true, 12345));
+            int numFrozen = 4 * 6 + 6 + 6 * 5 + 5;
+            assertEquals(paramsBefore.get(NDArrayIndex.point(0), NDArrayIndex.interval(0, numFrozen)),
+                            graph.params().get(NDArrayIndex.point(0), NDArrayIndex.interval(0, numFrozen)));
+            assertNotEquals(paramsBefore, graph.params());
+        }
+    }
+}
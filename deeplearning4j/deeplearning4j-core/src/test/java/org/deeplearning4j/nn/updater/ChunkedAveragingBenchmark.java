@@ -0,0 +1,74 @@
+package org.deeplearning4j.nn.updater;
+
+import lombok.extern.slf4j.Slf4j;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark for {@link ChunkedAveraging}: measures the time to average and propagate the parameters of a number of
+ * workers, compared with {@code Nd4j.averageAndPropagate}.<br>
+ * {@link #main(String[])} runs increasing numbers of workers and chunk threads, and logs the results along with the
+ * number of cores and the default number of threads ({@link ChunkedAveraging#defaultNumThreads()}). Results depend on
+ * the number of OpenMP threads used by ND4J ops (OMP_NUM_THREADS).
+ */
+@Slf4j
+public class ChunkedAveragingBenchmark {
+
+    private ChunkedAveragingBenchmark() {
+    }
+
+    /**
+     * @param numWorkers Number of arrays to average
+     * @param length     Length of each array (number of parameters)
+     * @param numThreads Number of chunk threads, or 0 for Nd4j.averageAndPropagate
+     * @param warmup     Number of warmup iterations (not timed)
+     * @param iterations Number of timed iterations
+     * @return Average time per iteration, in milliseconds
+     */
+    public static double benchmark(int numWorkers, int length, int numThreads, int warmup, int iterations) {
+        List<INDArray> arrays = new ArrayList<>();
+        for (int i = 0; i < numWorkers; i++) {
+            arrays.add(Nd4j.rand(1, length));
+        }
+
+        try (ChunkedAveraging averaging = (numThreads > 0 ? new ChunkedAveraging(numThreads) : null)) {
+            long total = 0;
+            for (int i = 0; i < warmup + iterations; i++) {
+                long start = System.nanoTime();
+                if (averaging == null) {
+                    Nd4j.averageAndPropagate(null, arrays);
+                } else {
+                    averaging.averageAndPropagate(arrays);
+                }
+                if (i >= warmup) {
+                    total += System.nanoTime() - start;
+                }
+            }
+            return total / 1e6 / iterations;
+        }
+    }
+
+    /**
+     * Run the standard benchmark suite, and log the results
+     */
+    public static void main(String[] args) {
+        int length = (args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000);
+        int iterations = (args.length > 1 ? Integer.parseInt(args[1]) : 10);
+        int cores = Runtime.getRuntime().availableProcessors();
+        log.info("{} cores, default number of chunk threads: {}", cores, ChunkedAveraging.defaultNumThreads());
+
+        for (int workers : new int[] {2, 4, 8}) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%d workers, %d parameters:%n    Nd4j.averageAndPropagate: %9.2f ms", workers,
+                    length, benchmark(workers, length, 0, 2, iterations)));
+            for (int threads = 1; threads <= cores; threads *= 2) {
+                sb.append(String.format("%n    ChunkedAveraging (%3d threads): %9.2f ms", threads,
+                        benchmark(workers, length, threads, 2, iterations)));
+            }
+            log.info(sb.toString());
+        }
+    }
+}
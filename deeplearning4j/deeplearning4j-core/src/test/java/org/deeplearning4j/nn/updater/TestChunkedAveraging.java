@@ -0,0 +1,117 @@
+package org.deeplearning4j.nn.updater;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TestChunkedAveraging extends BaseDL4JTest {
+
+    private static INDArray mean(List<INDArray> arrays) {
+        INDArray sum = arrays.get(0).dup();
+        for (int i = 1; i < arrays.size(); i++) {
+            sum.addi(arrays.get(i));
+        }
+        return sum.divi(arrays.size());
+    }
+
+    @Test
+    public void testAverageAndPropagate() {
+        Nd4j.getRandom().setSeed(12345);
+
+        for (int threads : new int[] {1, 3}) {
+            //Small chunk size: many chunks, including an uneven last one
+            try (ChunkedAveraging averaging = new ChunkedAveraging(threads, 7)) {
+                for (int n : new int[] {2, 5}) {
+                    List<INDArray> arrays = new ArrayList<>();
+                    for (int i = 0; i < n; i++) {
+                        arrays.add(Nd4j.rand(1, 100));
+                    }
+                    INDArray exp = mean(arrays);
+
+                    averaging.averageAndPropagate(arrays);
+
+                    String msg = threads + " - " + n;
+                    for (INDArray arr : arrays) {
+                        assertTrue(msg, exp.equalsWithEps(arr, 1e-5));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAverageViews() {
+        //Parameters and updater state are views of larger arrays: only the views should be modified
+        INDArray full1 = Nd4j.linspace(1, 30, 30);
+        INDArray full2 = Nd4j.linspace(31, 60, 30);
+        INDArray v1 = full1.get(NDArrayIndex.point(0), NDArrayIndex.interval(10, 20));
+        INDArray v2 = full2.get(NDArrayIndex.point(0), NDArrayIndex.interval(10, 20));
+        INDArray exp = v1.add(v2).divi(2);
+
+        try (ChunkedAveraging averaging = new ChunkedAveraging(2, 3)) {
+            averaging.averageAndPropagate(Arrays.asList(v1, v2));
+        }
+
+        assertEquals(exp, v1);
+        assertEquals(exp, v2);
+        assertEquals(Nd4j.linspace(1, 10, 10), full1.get(NDArrayIndex.point(0), NDArrayIndex.interval(0, 10)));
+        assertEquals(Nd4j.linspace(51, 60, 10), full2.get(NDArrayIndex.point(0), NDArrayIndex.interval(20, 30)));
+    }
+
+    @Test
+    public void testModelAveraging() {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345).updater(new Adam(0.05))
+                        .list().layer(new DenseLayer.Builder().nIn(4).nOut(5).activation(Activation.TANH).build())
+                        .layer(new OutputLayer.Builder().lossFunction(LossFunctions.LossFunction.MCXENT)
+                                        .activation(Activation.SOFTMAX).nIn(5).nOut(3).build())
+                        .build();
+
+        List<MultiLayerNetwork> nets = new ArrayList<>();
+        List<INDArray> params = new ArrayList<>();
+        List<INDArray> states = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            MultiLayerNetwork net = new MultiLayerNetwork(conf);
+            net.init();
+            Nd4j.getRandom().setSeed(i);
+            net.fit(Nd4j.rand(8, 4), Nd4j.eye(3).getRows(0, 1, 2, 0, 1, 2, 0, 1));
+            nets.add(net);
+            params.add(net.params());
+            states.add(net.getUpdater().getStateViewArray());
+        }
+        INDArray expParams = mean(params);
+        INDArray expState = mean(states);
+
+        try (ChunkedAveraging averaging = new ChunkedAveraging(2, 10)) {
+            averaging.averageAndPropagate(params);
+            averaging.averageAndPropagate(states);
+        }
+
+        for (MultiLayerNetwork net : nets) {
+            assertTrue(expParams.equalsWithEps(net.params(), 1e-5));
+            assertTrue(expState.equalsWithEps(net.getUpdater().getStateViewArray(), 1e-5));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDifferentLengths() {
+        try (ChunkedAveraging averaging = new ChunkedAveraging(1)) {
+            averaging.averageAndPropagate(Arrays.asList(Nd4j.create(1, 10), Nd4j.create(1, 11)));
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package org.deeplearning4j.optimize.solver;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.*;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.params.BatchNormalizationParamInitializer;
+import org.deeplearning4j.optimize.listeners.CollectScoresIterationListener;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.learning.config.Sgd;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TestGradientAccumulation extends BaseDL4JTest {
+
+    private static MultiLayerConfiguration getConf(int accumulationSteps) {
+        return new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .updater(new Adam(0.01))
+                .l2(1e-3)
+                .gradientAccumulationSteps(accumulationSteps)
+                .list()
+                .layer(new DenseLayer.Builder().nIn(5).nOut(8).activation(Activation.TANH).build())
+                .layer(new OutputLayer.Builder().nIn(8).nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                .build();
+    }
+
+    private static List<DataSet> split(DataSet ds, int numSplits) {
+        int n = ds.numExamples() / numSplits;
+        List<DataSet> out = new ArrayList<>();
+        for (int i = 0; i < numSplits; i++) {
+            List<DataSet> l = new ArrayList<>();
+            for (int j = 0; j < n; j++) {
+                l.add(ds.get(i * n + j));
+            }
+            out.add(DataSet.merge(l));
+        }
+        return out;
+    }
+
+    private static DataSet getData(int n) {
+        INDArray labels = Nd4j.zeros(n, 3);
+        for (int i = 0; i < n; i++) {
+            labels.putScalar(i, i % 3, 1.0);
+        }
+        return new DataSet(Nd4j.rand(n, 5), labels);
+    }
+
+    @Test
+    public void testGradientAccumulationMLN() {
+        DataBuffer.Type initialType = Nd4j.dataType();
+        Nd4j.setDataType(DataBuffer.Type.DOUBLE);
+        try {
+            Nd4j.getRandom().setSeed(12345);
+            DataSet full = getData(32);
+            List<DataSet> micro = split(full, 4);
+
+            MultiLayerNetwork netFull = new MultiLayerNetwork(getConf(1));
+            netFull.init();
+            MultiLayerNetwork netAccum = new MultiLayerNetwork(getConf(4));
+            netAccum.init();
+            assertEquals(4, netAccum.getLayerWiseConfigurations().getGradientAccumulationSteps());
+            assertEquals(netFull.params(), netAccum.params());
+
+            CollectScoresIterationListener listener = new CollectScoresIterationListener(1);
+            netAccum.setListeners(listener);
+
+            for (int iter = 0; iter < 3; iter++) {
+                netFull.fit(full);
+
+                INDArray paramsBefore = netAccum.params().dup();
+                double expScore = 0.0;
+                for (DataSet ds : micro) {
+                    expScore += netAccum.score(ds) / micro.size();
+                }
+                for (int i = 0; i < micro.size(); i++) {
+                    netAccum.fit(micro.get(i));
+                    if (i < micro.size() - 1) {
+                        //No update until the last micro-batch
+                        assertEquals(paramsBefore, netAccum.params());
+                    }
+                }
+
+                assertEquals(iter + 1, netAccum.getIterationCount());
+                assertEquals(netFull.getIterationCount(), netAccum.getIterationCount());
+                assertEquals(iter + 1, listener.getScoreVsIter().size());
+                //Reported score: average over all micro-batches
+                assertEquals(expScore, listener.getScoreVsIter().get(iter).getSecond(), 1e-10);
+                assertTrue(netFull.params().equalsWithEps(netAccum.params(), 1e-10));
+            }
+
+            //JSON and clone round trip
+            MultiLayerConfiguration conf = netAccum.getLayerWiseConfigurations();
+            assertEquals(4, MultiLayerConfiguration.fromJson(conf.toJson()).getGradientAccumulationSteps());
+            assertEquals(4, conf.clone().getGradientAccumulationSteps());
+        } finally {
+            Nd4j.setDataType(initialType);
+        }
+    }
+
+    @Test
+    public void testGradientAccumulationGraph() {
+        DataBuffer.Type initialType = Nd4j.dataType();
+        Nd4j.setDataType(DataBuffer.Type.DOUBLE);
+        try {
+            Nd4j.getRandom().setSeed(12345);
+            DataSet full = getData(30);
+            List<DataSet> micro = split(full, 3);
+
+            ComputationGraph[] nets = new ComputationGraph[2];
+            for (int i = 0; i < 2; i++) {
+                ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder()
+                        .seed(12345)
+                        .updater(new Sgd(0.1))
+                        .gradientAccumulationSteps(i == 0 ? 1 : 3)
+                        .graphBuilder()
+                        .addInputs("in")
+                        .addLayer("0", new DenseLayer.Builder().nIn(5).nOut(8).activation(Activation.TANH).build(), "in")
+                        .addLayer("1", new OutputLayer.Builder().nIn(8).nOut(3).activation(Activation.SOFTMAX)
+                                .lossFunction(LossFunctions.LossFunction.MCXENT).build(), "0")
+                        .setOutputs("1")
+                        .build();
+                nets[i] = new ComputationGraph(conf);
+                nets[i].init();
+            }
+            assertEquals(3, nets[1].getConfiguration().getGradientAccumulationSteps());
+            assertEquals(3, ComputationGraphConfiguration.fromJson(nets[1].getConfiguration().toJson())
+                    .getGradientAccumulationSteps());
+
+            for (int iter = 0; iter < 3; iter++) {
+                nets[0].fit(full);
+                for (DataSet ds : micro) {
+                    nets[1].fit(ds);
+                }
+                assertEquals(iter + 1, nets[1].getConfiguration().getIterationCount());
+                assertTrue(nets[0].params().equalsWithEps(nets[1].params(), 1e-10));
+            }
+        } finally {
+            Nd4j.setDataType(initialType);
+        }
+    }
+
+    @Test
+    public void testGradientAccumulationBatchNormAndMasks() {
+        DataBuffer.Type initialType = Nd4j.dataType();
+        Nd4j.setDataType(DataBuffer.Type.DOUBLE);
+        try {
+            //Batch norm: global statistics are updated for every micro-batch, parameters only once
+            MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                    .seed(12345)
+                    .updater(new Sgd(0.1))
+                    .gradientAccumulationSteps(2)
+                    .list()
+                    .layer(new DenseLayer.Builder().nIn(5).nOut(8).activation(Activation.TANH).build())
+                    .layer(new BatchNormalization.Builder().build())
+                    .layer(new OutputLayer.Builder().nIn(8).nOut(3).activation(Activation.SOFTMAX)
+                            .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                    .build();
+            MultiLayerNetwork net = new MultiLayerNetwork(conf);
+            net.init();
+
+            Nd4j.getRandom().setSeed(12345);
+            DataSet ds = getData(8);
+            INDArray mean = net.getLayer(1).getParam(BatchNormalizationParamInitializer.GLOBAL_MEAN);
+            INDArray weights = net.getLayer(0).getParam("W");
+            INDArray meanBefore = mean.dup();
+            INDArray wBefore = weights.dup();
+            net.fit(ds);
+            assertNotEquals(meanBefore, mean);
+            assertEquals(wBefore, weights);
+            INDArray meanAfterFirst = mean.dup();
+            net.fit(ds);
+            assertNotEquals(meanAfterFirst, mean);
+            assertNotEquals(wBefore, weights);
+
+            //Masks: masked micro-batches should give the same result as the equivalent (padded, masked) full batch
+            Nd4j.getRandom().setSeed(12345);
+            INDArray features = Nd4j.rand(new int[]{4, 3, 6});
+            INDArray labels = Nd4j.zeros(4, 2, 6);
+            for (int i = 0; i < 4; i++) {
+                for (int j = 0; j < 6; j++) {
+                    labels.putScalar(i, (i + j) % 2, j, 1.0);
+                }
+            }
+            INDArray mask = Nd4j.ones(4, 6);
+            mask.putScalar(1, 5, 0.0);
+            mask.putScalar(2, 4, 0.0);
+            mask.putScalar(2, 5, 0.0);
+            DataSet full = new DataSet(features, labels, mask, mask);
+            List<DataSet> micro = split(full, 2);
+
+            MultiLayerNetwork[] nets = new MultiLayerNetwork[2];
+            for (int i = 0; i < 2; i++) {
+                MultiLayerConfiguration c = new NeuralNetConfiguration.Builder()
+                        .seed(12345)
+                        .updater(new Adam(0.01))
+                        .gradientAccumulationSteps(i == 0 ? 1 : 2)
+                        .list()
+                        .layer(new LSTM.Builder().nIn(3).nOut(5).activation(Activation.TANH).build())
+                        .layer(new RnnOutputLayer.Builder().nIn(5).nOut(2).activation(Activation.SOFTMAX)
+                                .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                        .build();
+                nets[i] = new MultiLayerNetwork(c);
+                nets[i].init();
+            }
+
+            for (int iter = 0; iter < 2; iter++) {
+                nets[0].fit(full);
+                for (DataSet d : micro) {
+                    nets[1].fit(d);
+                }
+                assertTrue(nets[0].params().equalsWithEps(nets[1].params(), 1e-10));
+            }
+            assertEquals(2, nets[1].getIterationCount());
+        } finally {
+            Nd4j.setDataType(initialType);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidAccumulationSteps() {
+        new NeuralNetConfiguration.Builder().gradientAccumulationSteps(0);
+    }
+}
@@ -6,6 +6,7 @@ import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
 import org.deeplearning4j.nn.conf.layers.OutputLayer;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.optimize.listeners.checkpoint.Checkpoint;
 import org.deeplearning4j.optimize.listeners.checkpoint.CheckpointListener;
 import org.deeplearning4j.util.ModelSerializer;
 import org.junit.Rule;
@@ -13,16 +14,19 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.nd4j.linalg.activations.Activation;
 import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.learning.config.Adam;
 import org.nd4j.linalg.lossfunctions.LossFunctions;
 import org.nd4j.linalg.primitives.Pair;
 
 import java.io.File;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class TestCheckpointListener extends BaseDL4JTest {
@@ -226,4 +230,173 @@ public class TestCheckpointListener extends BaseDL4JTest {
 
         assertEquals(5, l.availableCheckpoints().size());
     }
+
+    @Test
+    public void testCheckpointListenerAsync() throws Exception {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .updater(new Adam(0.01))
+                .list()
+                .layer(new OutputLayer.Builder().nIn(4).nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                .build();
+        MultiLayerNetwork netSync = new MultiLayerNetwork(conf);
+        netSync.init();
+        MultiLayerNetwork netAsync = netSync.clone();
+        DataSetIterator iterSync = new IrisDataSetIterator(75,150);
+        DataSetIterator iterAsync = new IrisDataSetIterator(75,150);
+
+        File fSync = tempDir.newFolder();
+        File fAsync = tempDir.newFolder();
+        CheckpointListener lSync = new CheckpointListener.Builder(fSync)
+                .keepLast(3)
+                .saveEveryNIterations(5)
+                .build();
+        CheckpointListener lAsync = new CheckpointListener.Builder(fAsync)
+                .keepLast(3)
+                .saveEveryNIterations(5)
+                .asyncSaving(true)
+                .asyncQueueSize(2)
+                .build();
+        netSync.setListeners(lSync);
+        netAsync.setListeners(lAsync);
+
+        for(int i=0; i<20; i++ ){   //40 iterations total
+            netSync.fit(iterSync);
+            netAsync.fit(iterAsync);
+        }
+
+        //Pending checkpoints are written before the available checkpoints are returned
+        List<Checkpoint> sync = lSync.availableCheckpoints();
+        List<Checkpoint> async = lAsync.availableCheckpoints();
+        assertEquals(3, async.size());
+        assertEquals(0, lAsync.getSkippedCheckpoints());
+        for(File f2 : fAsync.listFiles()){
+            assertFalse(f2.getName().endsWith(".tmp"));
+        }
+
+        for( int i=0; i<3; i++ ){
+            assertEquals(sync.get(i).getIteration(), async.get(i).getIteration());
+            assertEquals(sync.get(i).getEpoch(), async.get(i).getEpoch());
+
+            MultiLayerNetwork nSync = lSync.loadCheckpointMLN(sync.get(i));
+            MultiLayerNetwork nAsync = lAsync.loadCheckpointMLN(async.get(i));
+            assertEquals(nSync.getLayerWiseConfigurations(), nAsync.getLayerWiseConfigurations());
+            assertEquals(nSync.params(), nAsync.params());
+            assertEquals(nSync.getUpdater().getStateViewArray(), nAsync.getUpdater().getStateViewArray());
+        }
+        lAsync.close();
+    }
+
+    @Test
+    public void testCheckpointListenerAsyncClose() throws Exception {
+        Pair<MultiLayerNetwork, DataSetIterator> p = getNetAndData();
+        MultiLayerNetwork net = p.getFirst();
+        DataSetIterator iter = p.getSecond();
+
+        File f = tempDir.newFolder();
+        CheckpointListener l = new CheckpointListener.Builder(f)
+                .keepAll()
+                .saveEveryNIterations(2)
+                .asyncSaving(true)
+                .asyncQueueSize(3)
+                .build();
+        net.setListeners(l);
+
+        for(int i=0; i<5; i++ ){   //10 iterations total: saved at iterations 2, 4, 6, 8
+            net.fit(iter);
+        }
+
+        //Closing writes all pending checkpoints and stops the writer thread
+        l.close();
+        assertEquals(0, countWriterThreads());
+        assertEquals(4, l.availableCheckpoints().size());
+        for(File f2 : f.listFiles()){
+            assertFalse(f2.getName().endsWith(".tmp"));
+        }
+
+        //Listener can still be used after closing
+        for(int i=0; i<2; i++ ){   //Saved at iterations 10, 12
+            net.fit(iter);
+        }
+        l.close();
+        assertEquals(0, countWriterThreads());
+        List<Checkpoint> list = l.availableCheckpoints();
+        assertEquals(6, list.size());
+        assertEquals(12, list.get(5).getIteration());
+
+        //Closing again is a no-op
+        l.close();
+    }
+
+    @Test
+    public void testCheckpointListenerSkipRetry() throws Exception {
+        Pair<MultiLayerNetwork, DataSetIterator> p = getNetAndData();
+        MultiLayerNetwork net = p.getFirst();
+
+        File f = tempDir.newFolder();
+        CheckpointListener l = new CheckpointListener.Builder(f)
+                .keepAll()
+                .saveEveryNIterations(2)
+                .asyncSaving(true)
+                .asyncQueueSize(1)
+                .fallBehindPolicy(CheckpointListener.FallBehindPolicy.SKIP)
+                .build();
+
+        //The writer thread can't record a checkpoint while the listener is locked: it falls behind
+        synchronized (l){
+            l.iterationDone(net, 0, 0);
+            l.iterationDone(net, 2, 0);     //Saved (queued)
+            l.iterationDone(net, 3, 0);
+            l.iterationDone(net, 4, 0);     //Skipped
+            l.iterationDone(net, 5, 0);     //Skipped again
+        }
+        assertEquals(2, l.getSkippedCheckpoints());
+        l.flush();
+
+        //Checkpoint due at iteration 4 is saved at the next iteration, rather than at iteration 6
+        l.iterationDone(net, 5, 0);
+        l.close();
+        assertEquals(2, l.availableCheckpoints().size());
+        assertEquals(2, l.getSkippedCheckpoints());
+    }
+
+    @Test
+    public void testCheckpointListenerSkipRetryTime() throws Exception {
+        Pair<MultiLayerNetwork, DataSetIterator> p = getNetAndData();
+        MultiLayerNetwork net = p.getFirst();
+
+        File f = tempDir.newFolder();
+        CheckpointListener l = new CheckpointListener.Builder(f)
+                .keepAll()
+                .saveEvery(200, TimeUnit.MILLISECONDS, false)
+                .asyncSaving(true)
+                .asyncQueueSize(1)
+                .fallBehindPolicy(CheckpointListener.FallBehindPolicy.SKIP)
+                .build();
+
+        synchronized (l){
+            l.iterationDone(net, 0, 0);
+            Thread.sleep(250);
+            l.iterationDone(net, 1, 0);     //Saved (queued)
+            Thread.sleep(250);
+            l.iterationDone(net, 2, 0);     //Skipped
+        }
+        assertEquals(1, l.getSkippedCheckpoints());
+        l.flush();
+
+        //Skipped checkpoint doesn't count as saved: still due
+        l.iterationDone(net, 3, 0);
+        l.close();
+        assertEquals(2, l.availableCheckpoints().size());
+    }
+
+    private static int countWriterThreads(){
+        int count = 0;
+        for(Thread t : Thread.getAllStackTraces().keySet()){
+            if(t.isAlive() && "CheckpointListener writer thread".equals(t.getName())){
+                count++;
+            }
+        }
+        return count;
+    }
 }
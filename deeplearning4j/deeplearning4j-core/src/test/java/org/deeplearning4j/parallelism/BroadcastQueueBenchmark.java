@@ -0,0 +1,138 @@
+package org.deeplearning4j.parallelism;
+
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.optimize.solvers.accumulation.BroadcastRingBuffer;
+import org.deeplearning4j.optimize.solvers.accumulation.EncodedGradientsAccumulator;
+import org.deeplearning4j.optimize.solvers.accumulation.FancyBlockingQueue;
+import org.deeplearning4j.optimize.solvers.accumulation.Registerable;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Benchmark for the queues used to share updates between workers in symmetric gradients sharing:
+ * {@link FancyBlockingQueue} and {@link BroadcastRingBuffer}.<br>
+ * Each cycle mimics one iteration of {@link EncodedGradientsAccumulator#applyUpdate}: a producer enqueues a number of
+ * updates, {@link Registerable#registerConsumers(int)} is called, and all consumers drain the queue concurrently.
+ * Elements are not processed by consumers, hence the time measured is the queue overhead only.<br>
+ * {@link #main(String[])} compares both queues for increasing numbers of consumers, and logs the results.
+ */
+@Slf4j
+public class BroadcastQueueBenchmark {
+
+    private BroadcastQueueBenchmark() {
+    }
+
+    /**
+     * Factory for the queues to benchmark
+     */
+    public interface QueueFactory {
+        <T> BlockingQueue<T> create(int capacity);
+    }
+
+    public static final QueueFactory FANCY_BLOCKING_QUEUE = new QueueFactory() {
+        @Override
+        public <T> BlockingQueue<T> create(int capacity) {
+            return new FancyBlockingQueue<>(new LinkedBlockingQueue<T>(capacity));
+        }
+    };
+
+    public static final QueueFactory BROADCAST_RING_BUFFER = new QueueFactory() {
+        @Override
+        public <T> BlockingQueue<T> create(int capacity) {
+            return new BroadcastRingBuffer<>(capacity);
+        }
+    };
+
+    /**
+     * Run the benchmark for one queue type
+     *
+     * @param factory          Queue to benchmark
+     * @param numConsumers     Number of consumer threads
+     * @param messagesPerCycle Number of elements enqueued per cycle
+     * @param warmup           Number of warmup cycles (not timed)
+     * @param cycles           Number of timed cycles
+     * @return Average time per cycle, in milliseconds
+     */
+    public static double benchmark(QueueFactory factory, final int numConsumers, int messagesPerCycle, int warmup,
+                    int cycles) {
+        final int totalCycles = warmup + cycles;
+        final BlockingQueue<Integer> queue = factory.create(messagesPerCycle);
+        final CyclicBarrier barrier = new CyclicBarrier(numConsumers + 1);
+        final AtomicLong consumed = new AtomicLong(0);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        Thread[] threads = new Thread[numConsumers];
+        for (int i = 0; i < numConsumers; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int c = 0; c < totalCycles; c++) {
+                            barrier.await();
+                            long cnt = 0;
+                            while (!queue.isEmpty()) {
+                                if (queue.poll() != null)
+                                    cnt++;
+                            }
+                            consumed.addAndGet(cnt);
+                            barrier.await();
+                        }
+                    } catch (InterruptedException | BrokenBarrierException e) {
+                        error.compareAndSet(null, e);
+                    } catch (Throwable t) {
+                        error.compareAndSet(null, t);
+                        barrier.reset();
+                    }
+                }
+            }, "BroadcastQueueBenchmark-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+
+        long time = 0;
+        try {
+            for (int c = 0; c < totalCycles; c++) {
+                long start = System.nanoTime();
+                for (int m = 0; m < messagesPerCycle; m++) {
+                    queue.put(m);
+                }
+                ((Registerable) queue).registerConsumers(numConsumers);
+                barrier.await();
+                barrier.await();
+                if (c >= warmup)
+                    time += System.nanoTime() - start;
+            }
+            for (Thread t : threads)
+                t.join();
+        } catch (InterruptedException | BrokenBarrierException e) {
+            throw new RuntimeException("Benchmark failed", error.get() != null ? error.get() : e);
+        }
+
+        long expected = (long) totalCycles * messagesPerCycle * numConsumers;
+        if (consumed.get() != expected)
+            throw new IllegalStateException("Expected " + expected + " elements consumed, got " + consumed.get());
+
+        return time / 1e6 / cycles;
+    }
+
+    /**
+     * Compare both queues for 1 to 32 consumers, and log the results
+     */
+    public static void main(String[] args) {
+        int messagesPerCycle = (args.length > 0 ? Integer.parseInt(args[0]) : 64);
+        int cycles = (args.length > 1 ? Integer.parseInt(args[1]) : 200);
+
+        for (int numConsumers : new int[] {1, 2, 4, 8, 16, 32}) {
+            double fancy = benchmark(FANCY_BLOCKING_QUEUE, numConsumers, messagesPerCycle, cycles / 10, cycles);
+            double ring = benchmark(BROADCAST_RING_BUFFER, numConsumers, messagesPerCycle, cycles / 10, cycles);
+            log.info(String.format("consumers=%2d, messages per cycle=%d: FancyBlockingQueue: %8.3f ms/cycle, "
+                            + "BroadcastRingBuffer: %8.3f ms/cycle (%.1fx)", numConsumers, messagesPerCycle, fancy,
+                            ring, fancy / ring));
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package org.deeplearning4j.parallelism;
+
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.optimize.solvers.accumulation.BroadcastRingBuffer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+public class BroadcastRingBufferTests extends BaseDL4JTest {
+
+    @Test
+    public void testAllConsumersGetAllElementsInOrder() throws Exception {
+        final BroadcastRingBuffer<Integer> queue = new BroadcastRingBuffer<>(512);
+        for (int x = 0; x < 512; x++) {
+            queue.add(x);
+        }
+        assertEquals(512, queue.size());
+        queue.registerConsumers(4);
+
+        final List<List<Integer>> received = new ArrayList<>();
+        Thread[] threads = new Thread[4];
+        for (int x = 0; x < 4; x++) {
+            final List<Integer> list = new ArrayList<>();
+            received.add(list);
+            threads[x] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (!queue.isEmpty()) {
+                        list.add(queue.poll());
+                    }
+                }
+            });
+            threads[x].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        for (List<Integer> list : received) {
+            assertEquals(512, list.size());
+            for (int i = 0; i < 512; i++) {
+                assertEquals(i, (int) list.get(i));
+            }
+        }
+        //All consumers are done: all slots are released
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testIsEmptyLimitedToRegisteredElements() {
+        BroadcastRingBuffer<Integer> queue = new BroadcastRingBuffer<>(16);
+        assertTrue(queue.isEmpty());
+        queue.add(0);
+        queue.add(1);
+        queue.add(2);
+        queue.registerConsumers(1);
+        queue.add(3);
+
+        List<Integer> l = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            l.add(queue.poll());
+        }
+        assertEquals(3, l.size());
+        assertNull(queue.poll());
+
+        queue.registerConsumers(1);
+        assertEquals(3, (int) queue.peek());
+        assertEquals(3, (int) queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test(timeout = 60000L)
+    public void testSmallCapacityConcurrentProducer() throws Exception {
+        //Producer must wait for the slowest consumer before reusing slots
+        final int n = 2000;
+        final BroadcastRingBuffer<Integer> queue = new BroadcastRingBuffer<>(8);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final CountDownLatch registered = new CountDownLatch(6);
+
+        Thread[] threads = new Thread[6];
+        for (int x = 0; x < threads.length; x++) {
+            final int t = x;
+            threads[x] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        //Consumers are registered on first access
+                        queue.isEmpty();
+                        registered.countDown();
+                        for (int i = 0; i < n; i++) {
+                            int v = queue.take();
+                            if (v != i) {
+                                throw new IllegalStateException("Expected " + i + ", got " + v);
+                            }
+                            if (t == 0 && i % 100 == 0) {
+                                Thread.sleep(1);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        error.compareAndSet(null, e);
+                    }
+                }
+            });
+            threads[x].start();
+        }
+        registered.await();
+
+        //One cycle per 4 elements: all consumers access the buffer in each cycle, so none is detached
+        for (int i = 0; i < n; i++) {
+            queue.put(i);
+            if (i % 4 == 3) {
+                queue.registerConsumers(threads.length);
+            }
+            assertTrue(queue.size() <= 8);
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertNull(String.valueOf(error.get()), error.get());
+    }
+
+    @Test(timeout = 60000L)
+    public void testIdleConsumerDoesNotBlockProducer() throws Exception {
+        final BroadcastRingBuffer<Integer> queue = new BroadcastRingBuffer<>(4);
+        queue.add(0);
+        queue.registerConsumers(2);
+
+        //This consumer stops after a single element, but its thread stays alive (as for pooled threads)
+        final CountDownLatch consumed = new CountDownLatch(1);
+        final CountDownLatch resume = new CountDownLatch(1);
+        final AtomicReference<Integer> afterResume = new AtomicReference<>();
+        Thread t1 = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                queue.poll();
+                consumed.countDown();
+                try {
+                    resume.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                afterResume.set(queue.peek());
+            }
+        });
+        t1.start();
+        consumed.await();
+
+        final int n = 50;
+        final List<Integer> received = new ArrayList<>();
+        Thread t2 = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i <= n; i++) {
+                        received.add(queue.take());
+                    }
+                } catch (InterruptedException e) {
+                    //
+                }
+            }
+        });
+        t2.start();
+
+        for (int i = 1; i <= n; i++) {
+            queue.put(i);
+            queue.registerConsumers(1);
+        }
+        t2.join();
+        //Element 0 is kept until the second consumer of the first cycle has joined
+        assertEquals(n + 1, received.size());
+        assertEquals(0, (int) received.get(0));
+        assertEquals(n, (int) received.get(n));
+        assertTrue(t1.isAlive());
+
+        //Detached consumer is registered again when it comes back, starting from the oldest element in the buffer
+        queue.put(n + 1);
+        queue.registerConsumers(2);
+        resume.countDown();
+        t1.join();
+        assertEquals(n + 1, (int) afterResume.get());
+    }
+
+    @Test
+    public void testSingleConsumerBypassMode() throws Exception {
+        final BroadcastRingBuffer<Integer> queue = new BroadcastRingBuffer<>(512);
+        long f = 0;
+        for (int x = 0; x < 512; x++) {
+            queue.add(x);
+            f += x;
+        }
+        queue.fallbackToSingleConsumerMode(true);
+
+        long e = 0;
+        while (!queue.isEmpty()) {
+            e += queue.poll();
+        }
+        assertEquals(f, e);
+        assertEquals(0, queue.size());
+
+        queue.add(1);
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testBenchmark() {
+        for (BroadcastQueueBenchmark.QueueFactory f : new BroadcastQueueBenchmark.QueueFactory[] {
+                        BroadcastQueueBenchmark.FANCY_BLOCKING_QUEUE, BroadcastQueueBenchmark.BROADCAST_RING_BUFFER}) {
+            double ms = BroadcastQueueBenchmark.benchmark(f, 4, 16, 2, 10);
+            assertTrue(ms > 0);
+        }
+    }
+}
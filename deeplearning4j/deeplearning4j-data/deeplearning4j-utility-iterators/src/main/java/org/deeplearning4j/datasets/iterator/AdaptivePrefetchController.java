@@ -0,0 +1,94 @@
+package org.deeplearning4j.datasets.iterator;
+
+import java.util.Queue;
+
+/**
+ * Adjusts the prefetch depth of {@link AsyncDataSetIterator} and {@link AsyncMultiDataSetIterator} within bounds,
+ * so that the consumer doesn't have to wait for the producer, without keeping more elements in memory than required.
+ * <br>
+ * The depth is increased by one each time the consumer finds the queue empty. It is decreased by one after
+ * {@code shrinkWindow} consecutive takes for which the queue was (almost) full, i.e. the producer was ahead of the
+ * consumer by at least depth - 1 elements.<br>
+ * The producer calls {@link #awaitCapacity(Queue)} before each put: the queue itself should be able to hold
+ * {@code maxDepth} elements.
+ */
+public class AdaptivePrefetchController {
+    public static final int DEFAULT_SHRINK_WINDOW = 64;
+
+    private final int minDepth;
+    private final int maxDepth;
+    private final int shrinkWindow;
+    private volatile int depth;
+    private int fullTakes = 0;
+
+    /**
+     * @param minDepth Minimum prefetch depth, and initial depth
+     * @param maxDepth Maximum prefetch depth
+     */
+    public AdaptivePrefetchController(int minDepth, int maxDepth) {
+        this(minDepth, maxDepth, DEFAULT_SHRINK_WINDOW);
+    }
+
+    /**
+     * @param minDepth     Minimum prefetch depth, and initial depth
+     * @param maxDepth     Maximum prefetch depth
+     * @param shrinkWindow Number of consecutive takes with a full queue before the depth is reduced
+     */
+    public AdaptivePrefetchController(int minDepth, int maxDepth, int shrinkWindow) {
+        if (minDepth < 1 || maxDepth < minDepth)
+            throw new IllegalArgumentException("Invalid prefetch depth bounds: expected 1 <= minDepth <= maxDepth, got "
+                            + minDepth + " and " + maxDepth);
+        if (shrinkWindow < 1)
+            throw new IllegalArgumentException("Shrink window should be positive value, got " + shrinkWindow);
+        this.minDepth = minDepth;
+        this.maxDepth = maxDepth;
+        this.shrinkWindow = shrinkWindow;
+        this.depth = minDepth;
+    }
+
+    /**
+     * @return Current prefetch depth
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getMinDepth() {
+        return minDepth;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Block the producer until the queue holds fewer elements than the current prefetch depth
+     */
+    public synchronized void awaitCapacity(Queue<?> queue) throws InterruptedException {
+        while (queue.size() >= depth) {
+            this.wait();
+        }
+    }
+
+    /**
+     * Called by the consumer after each take, to update the depth and wake up the producer
+     *
+     * @param queueSize Number of elements in the queue before the take
+     */
+    public synchronized void onTake(int queueSize) {
+        if (queueSize <= 0) {
+            fullTakes = 0;
+            if (depth < maxDepth)
+                depth++;
+        } else if (queueSize >= depth - 1) {
+            if (++fullTakes >= shrinkWindow) {
+                fullTakes = 0;
+                if (depth > minDepth)
+                    depth--;
+            }
+        } else {
+            fullTakes = 0;
+        }
+        this.notifyAll();
+    }
+}
@@ -0,0 +1,125 @@
+package org.deeplearning4j.datasets.iterator;
+
+/**
+ * Adjusts the number of active producer threads of a {@link MultiProducerAsyncDataSetIterator} within bounds, so that
+ * the consumer doesn't have to wait for data, without keeping more producers busy than required.<br>
+ * Decisions are based on the queue telemetry ({@link AsyncPrefetchStats}) over windows of {@code window} takes:
+ * the number of active producers is increased by one if the consumer found the queue empty for more than
+ * {@code growThreshold} of the takes in the window, and decreased by one if the queue was (almost) full for every
+ * take in the window, i.e. the active producers were ahead of the consumer all the time.<br>
+ * Producers with an index greater than or equal to {@link #getActiveProducers()} are parked before fetching their
+ * next element.
+ */
+public class AdaptiveProducerController {
+    public static final int DEFAULT_WINDOW = 32;
+    public static final double DEFAULT_GROW_THRESHOLD = 0.1;
+
+    private final AsyncPrefetchStats stats;
+    private final int fullOccupancy;
+    private final int minProducers;
+    private final int maxProducers;
+    private final int window;
+    private final double growThreshold;
+    private volatile int activeProducers;
+
+    // cumulative stats at the start of the current window
+    private long lastTaken;
+    private long lastStarved;
+    private long lastFull;
+
+    /**
+     * @param stats         Queue telemetry of the iterator
+     * @param queueCapacity Capacity of the queue: takes with at least queueCapacity - 1 elements count as full
+     * @param minProducers  Minimum number of active producers, and initial number
+     * @param maxProducers  Maximum number of active producers
+     */
+    public AdaptiveProducerController(AsyncPrefetchStats stats, int queueCapacity, int minProducers,
+                    int maxProducers) {
+        this(stats, queueCapacity, minProducers, maxProducers, DEFAULT_WINDOW, DEFAULT_GROW_THRESHOLD);
+    }
+
+    /**
+     * @param stats         Queue telemetry of the iterator
+     * @param queueCapacity Capacity of the queue: takes with at least queueCapacity - 1 elements count as full
+     * @param minProducers  Minimum number of active producers, and initial number
+     * @param maxProducers  Maximum number of active producers
+     * @param window        Number of takes between decisions
+     * @param growThreshold Fraction of takes in a window for which the consumer was starving, above which the number
+     *                      of active producers is increased
+     */
+    public AdaptiveProducerController(AsyncPrefetchStats stats, int queueCapacity, int minProducers,
+                    int maxProducers, int window, double growThreshold) {
+        if (minProducers < 1 || maxProducers < minProducers)
+            throw new IllegalArgumentException("Invalid producer bounds: expected 1 <= minProducers <= maxProducers, "
+                            + "got " + minProducers + " and " + maxProducers);
+        if (window < 1)
+            throw new IllegalArgumentException("Window should be positive value, got " + window);
+        this.stats = stats;
+        this.fullOccupancy = Math.max(1, queueCapacity - 1);
+        this.minProducers = minProducers;
+        this.maxProducers = maxProducers;
+        this.window = window;
+        this.growThreshold = growThreshold;
+        this.activeProducers = minProducers;
+        resetWindow();
+    }
+
+    /**
+     * @return Current number of active producers
+     */
+    public int getActiveProducers() {
+        return activeProducers;
+    }
+
+    public int getMinProducers() {
+        return minProducers;
+    }
+
+    public int getMaxProducers() {
+        return maxProducers;
+    }
+
+    /**
+     * Called by the consumer after each take has been recorded in the stats
+     *
+     * @return True if the number of active producers has changed
+     */
+    public synchronized boolean update() {
+        long taken = stats.getNumTaken();
+        if (taken < lastTaken) {
+            //Stats were reset
+            resetWindow();
+            return false;
+        }
+        long n = taken - lastTaken;
+        if (n < window)
+            return false;
+
+        long starved = stats.getNumStarved() - lastStarved;
+        long full = numFull() - lastFull;
+        resetWindow();
+
+        int before = activeProducers;
+        if (starved > growThreshold * n) {
+            activeProducers = Math.min(maxProducers, before + 1);
+        } else if (starved == 0 && full >= n) {
+            activeProducers = Math.max(minProducers, before - 1);
+        }
+        return activeProducers != before;
+    }
+
+    private void resetWindow() {
+        lastTaken = stats.getNumTaken();
+        lastStarved = stats.getNumStarved();
+        lastFull = numFull();
+    }
+
+    private long numFull() {
+        long[] hist = stats.getOccupancyHistogram();
+        long count = 0;
+        for (int i = Math.min(fullOccupancy, hist.length - 1); i < hist.length; i++) {
+            count += hist[i];
+        }
+        return count;
+    }
+}
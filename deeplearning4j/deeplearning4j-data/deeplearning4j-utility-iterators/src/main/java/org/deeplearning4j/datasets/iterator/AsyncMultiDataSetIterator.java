@@ -20,7 +20,9 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Async prefetching iterator wrapper for MultiDataSetIterator implementations
+ * Async prefetching iterator wrapper for MultiDataSetIterator implementations<br>
+ * Queue telemetry is available via {@link #getStats()}. Optionally, the prefetch depth can be adjusted at runtime
+ * between bounds, to keep the consumer from waiting for data: see {@link AdaptivePrefetchController}.
  *
  * @author raver119@gmail.com
  */
@@ -40,6 +42,8 @@ public class AsyncMultiDataSetIterator implements MultiDataSetIterator {
     protected DataSetCallback callback;
     protected Integer deviceId;
     protected AtomicBoolean hasDepleted = new AtomicBoolean(false);
+    protected AsyncPrefetchStats stats;
+    protected AdaptivePrefetchController prefetchController;
 
     protected AsyncMultiDataSetIterator() {
         //
@@ -79,6 +83,38 @@ public class AsyncMultiDataSetIterator implements MultiDataSetIterator {
 
     public AsyncMultiDataSetIterator(MultiDataSetIterator iterator, int queueSize, BlockingQueue<MultiDataSet> queue,
                     boolean useWorkspace, DataSetCallback callback, Integer deviceId) {
+        this(iterator, queueSize, queue, useWorkspace, callback, deviceId, null);
+    }
+
+    /**
+     * Create an iterator with adaptive prefetch depth: the number of prefetched elements is adjusted between
+     * {@code minQueueSize} and {@code maxQueueSize}, depending on whether the consumer has to wait for the data.
+     * See {@link AdaptivePrefetchController} for details.
+     *
+     * @param baseIterator Underlying iterator
+     * @param minQueueSize Minimum (and initial) prefetch depth
+     * @param maxQueueSize Maximum prefetch depth
+     * @param useWorkspace Whether prefetched elements should be allocated in a workspace
+     */
+    public AsyncMultiDataSetIterator(MultiDataSetIterator baseIterator, int minQueueSize, int maxQueueSize, boolean useWorkspace) {
+        this(baseIterator, minQueueSize, maxQueueSize, useWorkspace, null,
+                        Nd4j.getAffinityManager().getDeviceForCurrentThread());
+    }
+
+    public AsyncMultiDataSetIterator(MultiDataSetIterator baseIterator, int minQueueSize, int maxQueueSize, boolean useWorkspace,
+                    DataSetCallback callback, Integer deviceId) {
+        this(baseIterator, Math.max(2, maxQueueSize), new LinkedBlockingQueue<MultiDataSet>(Math.max(2, maxQueueSize)),
+                        useWorkspace, callback, deviceId,
+                        new AdaptivePrefetchController(Math.max(2, minQueueSize), Math.max(2, maxQueueSize)));
+    }
+
+    /**
+     * @param prefetchController Controller for adaptive prefetch depth; if null, prefetch depth is limited only by
+     *                           the capacity of the queue
+     */
+    protected AsyncMultiDataSetIterator(MultiDataSetIterator iterator, int queueSize, BlockingQueue<MultiDataSet> queue,
+                    boolean useWorkspace, DataSetCallback callback, Integer deviceId,
+                    AdaptivePrefetchController prefetchController) {
 
         if (queueSize < 2)
             queueSize = 2;
@@ -88,6 +124,8 @@ public class AsyncMultiDataSetIterator implements MultiDataSetIterator {
         this.backedIterator = iterator;
         this.useWorkspaces = useWorkspace;
         this.prefetchSize = queueSize;
+        this.prefetchController = prefetchController;
+        this.stats = new AsyncPrefetchStats(queueSize);
         this.workspaceId = "AMDSI_ITER-" + java.util.UUID.randomUUID().toString();
         this.deviceId = deviceId;
 
@@ -201,6 +239,20 @@ public class AsyncMultiDataSetIterator implements MultiDataSetIterator {
     }
 
 
+    /**
+     * Queue telemetry: consumer and producer wait times, and queue occupancy. Counters are cumulative over resets.
+     */
+    public AsyncPrefetchStats getStats() {
+        return stats;
+    }
+
+    /**
+     * @return Current prefetch depth: adjusted over time if adaptive prefetch is used, fixed otherwise
+     */
+    public int getPrefetchDepth() {
+        return prefetchController != null ? prefetchController.getDepth() : prefetchSize;
+    }
+
     /**
      * This method will terminate background thread AND will destroy attached workspace (if any)
      *
@@ -248,13 +300,20 @@ public class AsyncMultiDataSetIterator implements MultiDataSetIterator {
                 return false;
 
 
+            int queueSize = buffer.size();
+            long start = System.nanoTime();
             nextElement = buffer.take();
+            long waitNanos = System.nanoTime() - start;
 
             if (nextElement == terminator) {
                 hasDepleted.set(true);
                 return false;
             }
 
+            stats.recordTake(waitNanos, queueSize);
+            if (prefetchController != null)
+                prefetchController.onTake(queueSize);
+
             return true;
         } catch (Exception e) {
             log.error("Premature end of loop!");
@@ -358,8 +417,13 @@ public class AsyncMultiDataSetIterator implements MultiDataSetIterator {
                     // we want to ensure underlying iterator finished dataset creation
                     Nd4j.getExecutioner().commit();
 
-                    if (smth != null)
+                    if (smth != null) {
+                        long start = System.nanoTime();
+                        if (prefetchController != null)
+                            prefetchController.awaitCapacity(queue);
                         queue.put(smth);
+                        stats.recordPut(System.nanoTime() - start);
+                    }
 
                     //                    if (internalCounter.incrementAndGet() % 100 == 0)
                     //                        Nd4j.getWorkspaceManager().printAllocationStatisticsForCurrentThread();
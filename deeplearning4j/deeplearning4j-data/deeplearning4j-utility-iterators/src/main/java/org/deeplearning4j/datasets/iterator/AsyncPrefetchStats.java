@@ -0,0 +1,145 @@
+package org.deeplearning4j.datasets.iterator;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Queue telemetry for {@link AsyncDataSetIterator} and {@link AsyncMultiDataSetIterator}:
+ * how long the consumer (usually, the training thread) waited for the next element, how long the producer waited
+ * for free space in the queue, and a histogram of the number of prefetched elements available at each take.<br>
+ * A consumer that often finds the queue empty is starving: the prefetch depth or the number of producers should be
+ * increased (or the data pipeline made faster). A queue that is always full means the prefetch depth can be reduced
+ * without any impact on throughput.<br>
+ * All counters are cumulative over resets of the iterator, use {@link #reset()} to clear them.
+ */
+public class AsyncPrefetchStats {
+    private final AtomicLong consumerWaitNanos = new AtomicLong(0);
+    private final AtomicLong producerWaitNanos = new AtomicLong(0);
+    private final AtomicLong numTaken = new AtomicLong(0);
+    private final AtomicLong numStarved = new AtomicLong(0);
+    private final AtomicLong numPut = new AtomicLong(0);
+    private final AtomicLongArray occupancy;
+
+    /**
+     * @param maxOccupancy Largest queue size tracked by the occupancy histogram; larger sizes are counted in the
+     *                     last bucket
+     */
+    public AsyncPrefetchStats(int maxOccupancy) {
+        this.occupancy = new AtomicLongArray(Math.max(1, maxOccupancy) + 1);
+    }
+
+    /**
+     * Record an element taken by the consumer
+     *
+     * @param waitNanos Time spent waiting for the element
+     * @param queueSize Number of elements in the queue before the take
+     */
+    public void recordTake(long waitNanos, int queueSize) {
+        consumerWaitNanos.addAndGet(waitNanos);
+        numTaken.incrementAndGet();
+        if (queueSize <= 0)
+            numStarved.incrementAndGet();
+        occupancy.incrementAndGet(Math.max(0, Math.min(queueSize, occupancy.length() - 1)));
+    }
+
+    /**
+     * Record an element put into the queue by the producer
+     *
+     * @param waitNanos Time spent waiting for free space in the queue
+     */
+    public void recordPut(long waitNanos) {
+        producerWaitNanos.addAndGet(waitNanos);
+        numPut.incrementAndGet();
+    }
+
+    /**
+     * @return Total time the consumer spent waiting for elements
+     */
+    public long getConsumerWaitTime(TimeUnit unit) {
+        return unit.convert(consumerWaitNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return Total time the producer spent waiting for free space in the queue
+     */
+    public long getProducerWaitTime(TimeUnit unit) {
+        return unit.convert(producerWaitNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return Number of elements taken by the consumer
+     */
+    public long getNumTaken() {
+        return numTaken.get();
+    }
+
+    /**
+     * @return Number of elements put into the queue by the producer
+     */
+    public long getNumPut() {
+        return numPut.get();
+    }
+
+    /**
+     * @return Number of takes for which the queue was empty, i.e., the consumer had to wait for the producer
+     */
+    public long getNumStarved() {
+        return numStarved.get();
+    }
+
+    /**
+     * @return Fraction of takes for which the queue was empty, 0.0 if nothing was taken yet
+     */
+    public double getStarvedFraction() {
+        long taken = numTaken.get();
+        return taken == 0 ? 0.0 : numStarved.get() / (double) taken;
+    }
+
+    /**
+     * @return Histogram of the queue size at each take: element i is the number of takes with i elements in the queue
+     */
+    public long[] getOccupancyHistogram() {
+        long[] out = new long[occupancy.length()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = occupancy.get(i);
+        }
+        return out;
+    }
+
+    /**
+     * @return Mean queue size at each take, 0.0 if nothing was taken yet
+     */
+    public double getMeanOccupancy() {
+        long count = 0;
+        long sum = 0;
+        for (int i = 0; i < occupancy.length(); i++) {
+            long c = occupancy.get(i);
+            count += c;
+            sum += c * i;
+        }
+        return count == 0 ? 0.0 : sum / (double) count;
+    }
+
+    /**
+     * Clear all counters
+     */
+    public void reset() {
+        consumerWaitNanos.set(0);
+        producerWaitNanos.set(0);
+        numTaken.set(0);
+        numStarved.set(0);
+        numPut.set(0);
+        for (int i = 0; i < occupancy.length(); i++) {
+            occupancy.set(i, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncPrefetchStats(taken=" + getNumTaken() + ", starved=" + getNumStarved() + ", consumerWaitMs="
+                        + getConsumerWaitTime(TimeUnit.MILLISECONDS) + ", producerWaitMs="
+                        + getProducerWaitTime(TimeUnit.MILLISECONDS) + ", meanOccupancy="
+                        + String.format("%.2f", getMeanOccupancy()) + ")";
+    }
+}
@@ -0,0 +1,529 @@
+package org.deeplearning4j.datasets.iterator;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.memory.conf.WorkspaceConfiguration;
+import org.nd4j.linalg.api.memory.enums.AllocationPolicy;
+import org.nd4j.linalg.api.memory.enums.LearningPolicy;
+import org.nd4j.linalg.api.memory.enums.ResetPolicy;
+import org.nd4j.linalg.api.memory.enums.SpillPolicy;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Async prefetching iterator wrapper, with multiple producer threads.<br>
+ * Unlike {@link AsyncDataSetIterator}, which uses a single background thread, this iterator can use several cores
+ * for ETL and preprocessing. Two kinds of sources are supported:<br>
+ * (a) A single iterator, shared by all producers. Calls to the source iterator are serialized, but the
+ * {@link DataSetPreProcessor} set on <i>this</i> iterator (for example: image augmentation) is applied by the
+ * producers in parallel. Any iterator that supports asynchronous prefetching can be used.<br>
+ * (b) A list of splits of the data (for example: one RecordReaderDataSetIterator or FileDataSetIterator per subset
+ * of the files), one per producer. Both ETL and preprocessing run in parallel.<br>
+ * <br>
+ * In ordered mode, DataSets are returned in a deterministic order: for a shared source, the same order as the
+ * source itself; for splits, round-robin over the splits (so, if the files are split in a strided way, the original
+ * order is preserved). In unordered mode, DataSets are returned as soon as any producer has one ready.<br>
+ * <br>
+ * If workspaces are used, each producer thread allocates its DataSets in its own workspace.<br>
+ * <br>
+ * For a shared source in unordered mode, the number of active producers can be adjusted at runtime between bounds,
+ * to keep the consumer from waiting for data: see {@link AdaptiveProducerController}. All threads are started, but
+ * only the active ones fetch from the source. With splits, or in ordered mode, the assignment of DataSets to producers
+ * is fixed, and so is the number of producers.
+ */
+@Slf4j
+public class MultiProducerAsyncDataSetIterator implements DataSetIterator {
+    protected DataSetIterator source;
+    protected List<DataSetIterator> splits;
+    protected int numProducers;
+    protected int queueSize;
+    protected boolean ordered;
+    protected boolean useWorkspace;
+    protected Integer deviceId;
+    protected String workspaceId;
+
+    protected DataSet terminator = new DataSet();
+    protected List<BlockingQueue<DataSet>> queues = new ArrayList<>();
+    protected List<ProducerThread> producers = new ArrayList<>();
+    protected volatile boolean shouldWork = true;
+    protected volatile RuntimeException throwable = null;
+    protected volatile DataSetPreProcessor preProcessor;
+    protected AsyncPrefetchStats stats;
+    protected AdaptiveProducerController producerController;
+
+    // shared source state, locked around sourceLock
+    protected final Object sourceLock = new Object();
+    protected long turn = 0;
+    protected boolean sourceDepleted = false;
+
+    // consumer state
+    protected DataSet nextElement = null;
+    protected boolean hasDepleted = false;
+    protected boolean[] finished;
+    protected int numFinished = 0;
+    protected int cursor = 0;
+
+    /**
+     * Ordered iterator over a shared source, with a prefetch depth of 2 per producer, using workspaces
+     *
+     * @param source       Source iterator
+     * @param numProducers Number of producer threads
+     */
+    public MultiProducerAsyncDataSetIterator(@NonNull DataSetIterator source, int numProducers) {
+        this(source, numProducers, 2, true, true);
+    }
+
+    /**
+     * @param source       Source iterator, shared by all producers
+     * @param numProducers Number of producer threads
+     * @param queueSize    Prefetch depth, per producer
+     * @param ordered      If true: DataSets are returned in the same order as the source iterator
+     * @param useWorkspace Whether producers should allocate DataSets in workspaces
+     */
+    public MultiProducerAsyncDataSetIterator(@NonNull DataSetIterator source, int numProducers, int queueSize,
+                    boolean ordered, boolean useWorkspace) {
+        this(source, null, numProducers, numProducers, queueSize, ordered, useWorkspace,
+                        Nd4j.getAffinityManager().getDeviceForCurrentThread());
+    }
+
+    /**
+     * Unordered iterator over a shared source, with an adaptive number of producers: the number of active producers
+     * is adjusted between {@code minProducers} and {@code maxProducers}, depending on whether the consumer has to
+     * wait for data. See {@link AdaptiveProducerController} for details.
+     *
+     * @param source       Source iterator, shared by all producers
+     * @param minProducers Minimum (and initial) number of active producers
+     * @param maxProducers Maximum number of active producers
+     * @param queueSize    Prefetch depth, per producer
+     * @param useWorkspace Whether producers should allocate DataSets in workspaces
+     */
+    public MultiProducerAsyncDataSetIterator(@NonNull DataSetIterator source, int minProducers, int maxProducers,
+                    int queueSize, boolean useWorkspace) {
+        this(source, null, minProducers, maxProducers, queueSize, false, useWorkspace,
+                        Nd4j.getAffinityManager().getDeviceForCurrentThread());
+    }
+
+    /**
+     * @param splits       Splits of the data: one producer thread is used per split
+     * @param queueSize    Prefetch depth, per producer
+     * @param ordered      If true: DataSets are returned round-robin over the splits
+     * @param useWorkspace Whether producers should allocate DataSets in workspaces
+     */
+    public MultiProducerAsyncDataSetIterator(@NonNull List<? extends DataSetIterator> splits, int queueSize,
+                    boolean ordered, boolean useWorkspace) {
+        this(null, splits, splits.size(), splits.size(), queueSize, ordered, useWorkspace,
+                        Nd4j.getAffinityManager().getDeviceForCurrentThread());
+    }
+
+    /**
+     * @param minProducers If less than numProducers: adaptive number of active producers, between minProducers and
+     *                     numProducers (shared source in unordered mode only)
+     * @param numProducers Number of producer threads
+     */
+    protected MultiProducerAsyncDataSetIterator(DataSetIterator source, List<? extends DataSetIterator> splits,
+                    int minProducers, int numProducers, int queueSize, boolean ordered, boolean useWorkspace,
+                    Integer deviceId) {
+        if (numProducers < 1)
+            throw new IllegalArgumentException("Number of producers should be positive value, got " + numProducers);
+        if (minProducers < 1 || minProducers > numProducers)
+            throw new IllegalArgumentException("Invalid producer bounds: expected 1 <= minProducers <= maxProducers, "
+                            + "got " + minProducers + " and " + numProducers);
+        if (minProducers < numProducers && (ordered || source == null))
+            throw new IllegalArgumentException("Adaptive number of producers is only supported for a shared source "
+                            + "in unordered mode");
+        if (queueSize < 2)
+            queueSize = 2;
+
+        this.source = source;
+        this.splits = splits == null ? null : new ArrayList<>(splits);
+        this.numProducers = numProducers;
+        this.queueSize = queueSize;
+        this.ordered = ordered;
+        this.useWorkspace = useWorkspace;
+        this.deviceId = deviceId;
+        this.workspaceId = "MPADSI_ITER-" + java.util.UUID.randomUUID().toString();
+        this.finished = new boolean[numProducers];
+
+        // in unordered mode all producers share a single queue
+        int numQueues = ordered ? numProducers : 1;
+        int capacity = ordered ? queueSize : queueSize * numProducers;
+        for (int i = 0; i < numQueues; i++) {
+            queues.add(new LinkedBlockingQueue<DataSet>(capacity));
+        }
+        this.stats = new AsyncPrefetchStats(capacity);
+        if (minProducers < numProducers)
+            this.producerController = new AdaptiveProducerController(stats, capacity, minProducers, numProducers);
+
+        for (DataSetIterator iter : sources()) {
+            if (iter.resetSupported() && !iter.hasNext())
+                iter.reset();
+        }
+
+        startProducers();
+    }
+
+    protected List<DataSetIterator> sources() {
+        return source != null ? Collections.singletonList(source) : splits;
+    }
+
+    protected DataSetIterator first() {
+        return sources().get(0);
+    }
+
+    protected void startProducers() {
+        shouldWork = true;
+        turn = 0;
+        sourceDepleted = false;
+        producers.clear();
+        for (int i = 0; i < numProducers; i++) {
+            ProducerThread t = new ProducerThread(i);
+
+            /**
+             * We want to ensure, that background threads will have the same thread->device affinity, as master thread
+             */
+            Nd4j.getAffinityManager().attachThreadToDevice(t, deviceId);
+            t.start();
+            producers.add(t);
+        }
+    }
+
+    protected void stopProducers() {
+        shouldWork = false;
+        for (ProducerThread t : producers) {
+            t.interrupt();
+        }
+        try {
+            for (ProducerThread t : producers) {
+                t.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        for (BlockingQueue<DataSet> q : queues) {
+            q.clear();
+        }
+        for (ProducerThread t : producers) {
+            t.destroyWorkspace();
+        }
+    }
+
+    /**
+     * Queue telemetry: consumer and producer wait times, and queue occupancy. Counters are cumulative over resets.
+     */
+    public AsyncPrefetchStats getStats() {
+        return stats;
+    }
+
+    /**
+     * @return Number of producer threads (the maximum number of active producers, if adaptive)
+     */
+    public int getNumProducers() {
+        return numProducers;
+    }
+
+    /**
+     * @return Current number of producers fetching from the source: adjusted over time if the number of producers is
+     * adaptive, fixed otherwise
+     */
+    public int getActiveProducers() {
+        return producerController != null ? producerController.getActiveProducers() : numProducers;
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    @Override
+    public DataSet next(int num) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int inputColumns() {
+        return first().inputColumns();
+    }
+
+    @Override
+    public int totalOutcomes() {
+        return first().totalOutcomes();
+    }
+
+    @Override
+    public boolean resetSupported() {
+        for (DataSetIterator iter : sources()) {
+            if (!iter.resetSupported())
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean asyncSupported() {
+        return false;
+    }
+
+    /**
+     * Resets the iterator back to the beginning
+     */
+    @Override
+    public void reset() {
+        stopProducers();
+        for (DataSetIterator iter : sources()) {
+            iter.reset();
+        }
+
+        nextElement = null;
+        hasDepleted = false;
+        finished = new boolean[numProducers];
+        numFinished = 0;
+        cursor = 0;
+        throwable = null;
+
+        startProducers();
+    }
+
+    /**
+     * This method will terminate background threads AND will destroy attached workspaces (if any)
+     *
+     * PLEASE NOTE: After shutdown() call, this instance can't be used anymore
+     */
+    public void shutdown() {
+        stopProducers();
+    }
+
+    @Override
+    public int batch() {
+        return first().batch();
+    }
+
+    /**
+     * Set a pre processor. It's applied by the producer threads, in parallel, after the DataSet was obtained from
+     * the source.
+     *
+     * @param preProcessor a pre processor to set
+     */
+    @Override
+    public void setPreProcessor(DataSetPreProcessor preProcessor) {
+        this.preProcessor = preProcessor;
+    }
+
+    @Override
+    public DataSetPreProcessor getPreProcessor() {
+        return preProcessor;
+    }
+
+    @Override
+    public List<String> getLabels() {
+        return first().getLabels();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (throwable != null)
+            throw throwable;
+
+        if (nextElement != null)
+            return true;
+        if (hasDepleted)
+            return false;
+
+        try {
+            while (numFinished < numProducers) {
+                int idx = ordered ? cursor : 0;
+                if (ordered && finished[idx]) {
+                    cursor = (cursor + 1) % numProducers;
+                    continue;
+                }
+
+                BlockingQueue<DataSet> queue = queues.get(idx);
+                int size = queue.size();
+                long start = System.nanoTime();
+                DataSet ds = queue.take();
+                long waitNanos = System.nanoTime() - start;
+
+                if (throwable != null)
+                    throw throwable;
+
+                if (ordered)
+                    cursor = (cursor + 1) % numProducers;
+
+                if (ds == terminator) {
+                    // shared ordered source: the first terminator marks the end of the data
+                    if (ordered && source != null)
+                        break;
+                    if (ordered)
+                        finished[idx] = true;
+                    numFinished++;
+                    continue;
+                }
+
+                stats.recordTake(waitNanos, size);
+                if (producerController != null && producerController.update()) {
+                    // wake up parked producers
+                    synchronized (sourceLock) {
+                        sourceLock.notifyAll();
+                    }
+                }
+                nextElement = ds;
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+
+        hasDepleted = true;
+        return false;
+    }
+
+    @Override
+    public DataSet next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        DataSet temp = nextElement;
+        nextElement = null;
+        return temp;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    protected class ProducerThread extends Thread implements Runnable {
+        private final int index;
+        private final BlockingQueue<DataSet> queue;
+        private final WorkspaceConfiguration configuration;
+        private MemoryWorkspace workspace;
+
+        protected ProducerThread(int index) {
+            this.index = index;
+            this.queue = queues.get(ordered ? index : 0);
+            this.configuration = WorkspaceConfiguration.builder().minSize(10 * 1024L * 1024L)
+                            .overallocationLimit(queue.remainingCapacity() + 1)
+                            .policyReset(ResetPolicy.ENDOFBUFFER_REACHED).policyLearning(LearningPolicy.FIRST_LOOP)
+                            .policyAllocation(AllocationPolicy.OVERALLOCATE).policySpill(SpillPolicy.REALLOCATE)
+                            .build();
+
+            this.setDaemon(true);
+            this.setName("MPADSI producer thread " + index);
+        }
+
+        /**
+         * Get the next DataSet from the source, or null if there's nothing left for this producer
+         */
+        private DataSet fetch() throws InterruptedException {
+            if (source == null) {
+                DataSetIterator split = splits.get(index);
+                return split.hasNext() ? split.next() : null;
+            }
+
+            synchronized (sourceLock) {
+                // in ordered mode, producers take turns: DataSet i always goes to producer i % numProducers
+                // with an adaptive number of producers, inactive producers are parked
+                while (shouldWork && !sourceDepleted && !isTurn())
+                    sourceLock.wait();
+
+                if (!shouldWork || sourceDepleted)
+                    return null;
+
+                DataSet ds = null;
+                if (source.hasNext())
+                    ds = source.next();
+                else
+                    sourceDepleted = true;
+
+                turn++;
+                sourceLock.notifyAll();
+                return ds;
+            }
+        }
+
+        private boolean isTurn() {
+            if (ordered)
+                return turn % numProducers == index;
+            return producerController == null || index < producerController.getActiveProducers();
+        }
+
+        private DataSet produce() throws InterruptedException {
+            DataSet ds = fetch();
+            if (ds != null) {
+                DataSetPreProcessor pp = preProcessor;
+                if (pp != null)
+                    pp.preProcess(ds);
+            }
+            return ds;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (useWorkspace)
+                    workspace = Nd4j.getWorkspaceManager().getWorkspaceForCurrentThread(configuration, workspaceId);
+
+                while (shouldWork) {
+                    DataSet ds;
+                    if (useWorkspace) {
+                        try (MemoryWorkspace ws = workspace.notifyScopeEntered()) {
+                            ds = produce();
+                        }
+                    } else {
+                        ds = produce();
+                    }
+
+                    if (ds == null)
+                        break;
+
+                    // we want to ensure underlying iterator finished dataset creation
+                    Nd4j.getExecutioner().commit();
+
+                    long start = System.nanoTime();
+                    queue.put(ds);
+                    stats.recordPut(System.nanoTime() - start);
+                }
+                queue.put(terminator);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("Exception in producer thread {}", index, e);
+                throwable = e;
+                release();
+            }
+        }
+
+        /**
+         * Wake up other producers and the consumer after an exception
+         */
+        private void release() {
+            synchronized (sourceLock) {
+                sourceDepleted = true;
+                sourceLock.notifyAll();
+            }
+            try {
+                queue.put(terminator);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        protected void destroyWorkspace() {
+            if (workspace != null) {
+                log.debug("Manually destroying MPADSI workspace");
+                workspace.destroyWorkspace(true);
+                workspace = null;
+            }
+        }
+    }
+}
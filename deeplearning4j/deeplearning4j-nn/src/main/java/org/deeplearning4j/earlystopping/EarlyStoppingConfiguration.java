@@ -42,6 +42,7 @@ import java.util.List;
  *     (ii) Epoch termination conditions: calculated once per epoch. For example, maxEpochs or no improvement for N epochs<br>
  * (c) Score calculator: what score should be calculated at every epoch? (For example: test set loss or test set accuracy)<br>
  * (d) How frequently (ever N epochs) should scores be calculated? (Default: every epoch)<br>
+ * (e) Optionally: whether scores should be calculated, and models saved, asynchronously (Default: false)<br>
  * @param <T> Type of model. For example, {@link org.deeplearning4j.nn.multilayer.MultiLayerNetwork} or {@link org.deeplearning4j.nn.graph.ComputationGraph}
  * @author Alex Black
  */
@@ -56,6 +57,8 @@ public class EarlyStoppingConfiguration<T extends Model> implements Serializable
     private int evaluateEveryNEpochs;
     private ScoreCalculator<T> scoreCalculator;
     private Supplier<ScoreCalculator> scoreCalculatorSupplier;
+    private boolean asyncScoring;
+    private boolean asyncModelSaving;
 
     private EarlyStoppingConfiguration(Builder<T> builder) {
         this.modelSaver = builder.modelSaver;
@@ -65,6 +68,8 @@ public class EarlyStoppingConfiguration<T extends Model> implements Serializable
         this.evaluateEveryNEpochs = builder.evaluateEveryNEpochs;
         this.scoreCalculator = builder.scoreCalculator;
         this.scoreCalculatorSupplier = builder.scoreCalculatorSupplier;
+        this.asyncScoring = builder.asyncScoring;
+        this.asyncModelSaving = builder.asyncModelSaving;
     }
 
     public ScoreCalculator<T> getScoreCalculator(){
@@ -108,6 +113,8 @@ public class EarlyStoppingConfiguration<T extends Model> implements Serializable
         private int evaluateEveryNEpochs = 1;
         private ScoreCalculator<T> scoreCalculator;
         private Supplier<ScoreCalculator> scoreCalculatorSupplier;
+        private boolean asyncScoring = false;
+        private boolean asyncModelSaving = false;
 
 
         /** How should models be saved? (Default: in memory)*/
@@ -168,6 +175,32 @@ public class EarlyStoppingConfiguration<T extends Model> implements Serializable
             return this;
         }
 
+        /** Calculate scores asynchronously? If true: the score for an epoch is calculated in a background thread, on a
+         * copy of the model, while training continues with the next epoch. The score is then handled (best model
+         * saving, listener, epoch termination conditions) at the end of the next epoch. Hence score based epoch
+         * termination conditions (such as
+         * {@link org.deeplearning4j.earlystopping.termination.ScoreImprovementEpochTerminationCondition}) lag by one
+         * epoch: training continues for one epoch after such a condition would have stopped it, though the best model
+         * is unaffected. Conditions that don't depend on the epoch score
+         * ({@link org.deeplearning4j.earlystopping.termination.MaxEpochsTerminationCondition} and iteration termination
+         * conditions) are checked before the next epoch is started, waiting for the score if training stops.
+         * Requires a MultiLayerNetwork or ComputationGraph. Note that the score calculator must not use the training
+         * data iterator. Default: false
+         */
+        public Builder<T> asyncScoring(boolean asyncScoring) {
+            this.asyncScoring = asyncScoring;
+            return this;
+        }
+
+        /** Save models asynchronously? If true: best and latest models are saved in a background thread (from a
+         * copy of the model), while training continues. At most one save is in progress at any time. Requires a
+         * MultiLayerNetwork or ComputationGraph. Default: false
+         */
+        public Builder<T> asyncModelSaving(boolean asyncModelSaving) {
+            this.asyncModelSaving = asyncModelSaving;
+            return this;
+        }
+
         /** Create the early stopping configuration */
         public EarlyStoppingConfiguration<T> build() {
             return new EarlyStoppingConfiguration<>(this);
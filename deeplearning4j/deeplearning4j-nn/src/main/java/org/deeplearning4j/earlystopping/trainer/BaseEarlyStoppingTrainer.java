@@ -24,6 +24,7 @@ import org.deeplearning4j.earlystopping.listener.EarlyStoppingListener;
 import org.deeplearning4j.earlystopping.scorecalc.ScoreCalculator;
 import org.deeplearning4j.earlystopping.termination.EpochTerminationCondition;
 import org.deeplearning4j.earlystopping.termination.IterationTerminationCondition;
+import org.deeplearning4j.earlystopping.termination.MaxEpochsTerminationCondition;
 import org.deeplearning4j.nn.api.Model;
 import org.deeplearning4j.nn.graph.ComputationGraph;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
@@ -42,6 +43,12 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**Base/abstract class for conducting early stopping training locally (single machine).<br>
  * Can be used to train a {@link MultiLayerNetwork} or a {@link ComputationGraph} via early stopping
@@ -62,6 +69,12 @@ public abstract class BaseEarlyStoppingTrainer<T extends Model> implements IEarl
     private double bestModelScore = Double.MAX_VALUE;
     private int bestModelEpoch = -1;
 
+    private ExecutorService executor;
+    private Future<Double> pendingScore;
+    private T pendingScoreModel;
+    private int pendingScoreEpoch;
+    private Future<Void> pendingSave;
+
     protected BaseEarlyStoppingTrainer(EarlyStoppingConfiguration<T> earlyStoppingConfiguration, T model,
                                        DataSetIterator train, MultiDataSetIterator trainMulti, EarlyStoppingListener<T> listener) {
         this.esConfig = earlyStoppingConfiguration;
@@ -108,6 +121,20 @@ public abstract class BaseEarlyStoppingTrainer<T extends Model> implements IEarl
             bestModelScore = -Double.MAX_VALUE;
         }
 
+        try {
+            return doFit(scoreVsEpoch);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+            pendingScore = null;
+            pendingScoreModel = null;
+            pendingSave = null;
+        }
+    }
+
+    private EarlyStoppingResult<T> doFit(Map<Integer, Double> scoreVsEpoch) {
         int epochCount = 0;
         while (true) {
             reset();
@@ -125,9 +152,14 @@ public abstract class BaseEarlyStoppingTrainer<T extends Model> implements IEarl
                 } catch (Exception e) {
                     log.warn("Early stopping training terminated due to exception at epoch {}, iteration {}",
                             epochCount, iterCount, e);
+                    EarlyStoppingResult<T> pendingResult = completePendingScore(scoreVsEpoch);
+                    if (pendingResult != null) {
+                        return pendingResult;
+                    }
                     //Load best model to return
                     T bestModel;
                     try {
+                        awaitPendingSave();
                         bestModel = esConfig.getModelSaver().getBestModel();
                     } catch (IOException e2) {
                         throw new RuntimeException(e2);
@@ -157,141 +189,319 @@ public abstract class BaseEarlyStoppingTrainer<T extends Model> implements IEarl
                 triggerEpochListeners(false, model, epochCount);
             }
 
+            //With asynchronous scoring: the score for the previous evaluated epoch was calculated during this epoch
+            EarlyStoppingResult<T> pendingResult = completePendingScore(scoreVsEpoch);
+            if (pendingResult != null) {
+                return pendingResult;
+            }
+
             if (terminate) {
                 //Handle termination condition:
                 log.info("Hit per iteration epoch termination condition at epoch {}, iteration {}. Reason: {}",
                         epochCount, iterCount, terminationReason);
+                return iterationTerminationResult(terminationReason, epochCount, scoreVsEpoch);
+            }
+
+            log.info("Completed training epoch {}", epochCount);
 
-                if (esConfig.isSaveLastModel()) {
-                    //Save last model:
-                    try {
-                        esConfig.getModelSaver().saveLatestModel(model, 0.0);
-                    } catch (IOException e) {
-                        //best model not saved, let's just use default
-                        if(e instanceof FileNotFoundException) {
 
+            if ((epochCount == 0 && esConfig.getEvaluateEveryNEpochs() == 1)
+                    || epochCount % esConfig.getEvaluateEveryNEpochs() == 0) {
+                //Calculate score at this epoch:
+                if (esConfig.isAsyncScoring()) {
+                    final T scoreModel = snapshot();
+                    final ScoreCalculator sc = esConfig.getScoreCalculator();
+                    pendingScore = executor().submit(new Callable<Double>() {
+                        @Override
+                        public Double call() {
+                            return sc.calculateScore(scoreModel);
+                        }
+                    });
+                    pendingScoreModel = scoreModel;
+                    pendingScoreEpoch = epochCount;
+
+                    //Don't train another epoch if training stops here regardless of the score: wait for it instead
+                    IterationTerminationCondition iterReason = null;
+                    for (IterationTerminationCondition c : esConfig.getIterationTerminationConditions()) {
+                        if (c.terminate(model.score())) {
+                            iterReason = c;
+                            break;
+                        }
+                    }
+                    if (iterReason != null || maxEpochsReached(epochCount)) {
+                        EarlyStoppingResult<T> result = completePendingScore(scoreVsEpoch);
+                        if (result != null) {
+                            return result;
+                        }
+                        if (iterReason != null) {
+                            log.info("Hit per iteration termination condition at end of epoch {}. Reason: {}",
+                                    epochCount, iterReason);
+                            return iterationTerminationResult(iterReason, epochCount + 1, scoreVsEpoch);
                         }
-                        else
-                            throw new RuntimeException("Error saving most recent model", e);
+                    }
+                } else {
+                    double score = esConfig.getScoreCalculator().calculateScore(model);
+                    EarlyStoppingResult<T> result = onEpochScore(epochCount, score, model, scoreVsEpoch);
+                    if (result != null) {
+                        return result;
                     }
                 }
+            }
+            epochCount++;
 
-                T bestModel;
-                try {
-                    bestModel = esConfig.getModelSaver().getBestModel();
-                } catch (IOException e2) {
-                    throw new RuntimeException(e2);
-                }
+        }
+    }
+
+    /**
+     * @return True if a {@link MaxEpochsTerminationCondition} terminates training at the specified epoch
+     */
+    private boolean maxEpochsReached(int epochCount) {
+        for (EpochTerminationCondition c : esConfig.getEpochTerminationConditions()) {
+            //Maximum number of epochs condition doesn't depend on the score
+            if (c instanceof MaxEpochsTerminationCondition && c.terminate(epochCount, 0.0)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
+    /**
+     * Save the last model (if required) and create the result, when training is stopped by an iteration termination
+     * condition
+     *
+     * @param totalEpochs Number of epochs (complete or not) trained
+     */
+    private EarlyStoppingResult<T> iterationTerminationResult(IterationTerminationCondition terminationReason,
+                    int totalEpochs, Map<Integer, Double> scoreVsEpoch) {
+        awaitPendingSave();
+        if (esConfig.isSaveLastModel()) {
+            //Save last model:
+            try {
+                esConfig.getModelSaver().saveLatestModel(model, 0.0);
+            } catch (IOException e) {
+                //best model not saved, let's just use default
+                if(e instanceof FileNotFoundException) {
 
-                EarlyStoppingResult<T> result = new EarlyStoppingResult<>(
-                        EarlyStoppingResult.TerminationReason.IterationTerminationCondition,
-                        terminationReason.toString(), scoreVsEpoch, bestModelEpoch, bestModelScore, epochCount,
-                        bestModel);
-                if (listener != null) {
-                    listener.onCompletion(result);
                 }
-                return result;
+                else
+                    throw new RuntimeException("Error saving most recent model", e);
             }
+        }
 
-            log.info("Completed training epoch {}", epochCount);
+        T bestModel;
+        try {
+            bestModel = esConfig.getModelSaver().getBestModel();
+        } catch (IOException e2) {
+            throw new RuntimeException(e2);
+        }
 
 
-            if ((epochCount == 0 && esConfig.getEvaluateEveryNEpochs() == 1)
-                    || epochCount % esConfig.getEvaluateEveryNEpochs() == 0) {
-                //Calculate score at this epoch:
-                ScoreCalculator sc = esConfig.getScoreCalculator();
-                double score = esConfig.getScoreCalculator().calculateScore(model);
-                scoreVsEpoch.put(epochCount, score);
+        EarlyStoppingResult<T> result = new EarlyStoppingResult<>(
+                EarlyStoppingResult.TerminationReason.IterationTerminationCondition,
+                terminationReason.toString(), scoreVsEpoch, bestModelEpoch, bestModelScore, totalEpochs,
+                bestModel);
+        if (listener != null) {
+            listener.onCompletion(result);
+        }
+        return result;
+    }
 
-                boolean invalidScore = Double.isNaN(score) || Double.isInfinite(score);
-                if(invalidScore){
-                    log.warn("Score is not finite for epoch {}: score = {}", epochCount, score);
-                }
+    /**
+     * Wait for the score being calculated asynchronously (if any), and handle it
+     *
+     * @return The result, if an epoch termination condition was hit for the scored epoch; null otherwise
+     */
+    private EarlyStoppingResult<T> completePendingScore(Map<Integer, Double> scoreVsEpoch) {
+        if (pendingScore == null) {
+            return null;
+        }
+        double score;
+        try {
+            score = pendingScore.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error calculating score for epoch " + pendingScoreEpoch, e.getCause());
+        } finally {
+            pendingScore = null;
+        }
+        T scoredModel = pendingScoreModel;
+        pendingScoreModel = null;
+        return onEpochScore(pendingScoreEpoch, score, scoredModel, scoreVsEpoch);
+    }
 
-                if ((sc.minimizeScore() && score < bestModelScore) || (!sc.minimizeScore() && score > bestModelScore) || (bestModelEpoch == -1 && invalidScore)) {
-                    //Save best model:
-                    if (bestModelEpoch == -1) {
-                        //First calculated/reported score
-                        log.info("Score at epoch {}: {}", epochCount, score);
-                    } else {
-                        log.info("New best model: score = {}, epoch = {} (previous: score = {}, epoch = {})", score,
-                                epochCount, bestModelScore, bestModelEpoch);
-                    }
-                    bestModelScore = score;
-                    bestModelEpoch = epochCount;
+    /**
+     * Handle the score calculated for an epoch: save the best and latest models, notify the listener, and check the
+     * epoch termination conditions
+     *
+     * @param scoredModel The model the score was calculated for: either the model being trained, or a copy of it
+     * @return The result, if an epoch termination condition was hit; null otherwise
+     */
+    private EarlyStoppingResult<T> onEpochScore(int epochCount, double score, T scoredModel,
+                    Map<Integer, Double> scoreVsEpoch) {
+        ScoreCalculator sc = esConfig.getScoreCalculator();
+        scoreVsEpoch.put(epochCount, score);
+
+        boolean invalidScore = Double.isNaN(score) || Double.isInfinite(score);
+        if(invalidScore){
+            log.warn("Score is not finite for epoch {}: score = {}", epochCount, score);
+        }
 
-                    try {
-                        esConfig.getModelSaver().saveBestModel(model, score);
-                    } catch (IOException e) {
-                        throw new RuntimeException("Error saving best model", e);
-                    }
-                } else {
-                    log.info("Score at epoch {}: {}", epochCount, score);
-                }
+        //A copy of the model is required for saving in the background, unless the score was calculated on one
+        T toSave = scoredModel;
+        if (esConfig.isAsyncModelSaving() && scoredModel == model) {
+            toSave = snapshot();
+        }
+
+        if ((sc.minimizeScore() && score < bestModelScore) || (!sc.minimizeScore() && score > bestModelScore) || (bestModelEpoch == -1 && invalidScore)) {
+            //Save best model:
+            if (bestModelEpoch == -1) {
+                //First calculated/reported score
+                log.info("Score at epoch {}: {}", epochCount, score);
+            } else {
+                log.info("New best model: score = {}, epoch = {} (previous: score = {}, epoch = {})", score,
+                        epochCount, bestModelScore, bestModelEpoch);
+            }
+            bestModelScore = score;
+            bestModelEpoch = epochCount;
+
+            saveModel(toSave, score, true);
+        } else {
+            log.info("Score at epoch {}: {}", epochCount, score);
+        }
+
+        if (esConfig.isSaveLastModel()) {
+            //Save last model:
+            saveModel(toSave, score, false);
+        }
+
+        if (listener != null) {
+            listener.onEpoch(epochCount, score, esConfig, scoredModel);
+        }
 
-                if (esConfig.isSaveLastModel()) {
-                    //Save last model:
+        //Check per-epoch termination conditions:
+        boolean epochTerminate = false;
+        EpochTerminationCondition termReason = null;
+        for (EpochTerminationCondition c : esConfig.getEpochTerminationConditions()) {
+            if (c.terminate(epochCount, score)) {
+                epochTerminate = true;
+                termReason = c;
+                break;
+            }
+        }
+        if (epochTerminate) {
+            log.info("Hit epoch termination condition at epoch {}. Details: {}", epochCount,
+                    termReason.toString());
+            awaitPendingSave();
+            T bestModel;
+            try {
+                bestModel = esConfig.getModelSaver().getBestModel();
+            } catch (IOException e2) {
+                //Best model does not exist. Just save the current model
+                if(esConfig.isSaveLastModel()) {
                     try {
-                        esConfig.getModelSaver().saveLatestModel(model, score);
+                        esConfig.getModelSaver().saveBestModel(scoredModel,0.0);
+                        bestModel = scoredModel;
                     } catch (IOException e) {
-                        throw new RuntimeException("Error saving most recent model", e);
+                        log.error("Unable to save model.",e);
+                        throw new RuntimeException(e);
                     }
                 }
-
-                if (listener != null) {
-                    listener.onEpoch(epochCount, score, esConfig, model);
+                else {
+                    log.error("Error with earlystopping",e2);
+                    throw new RuntimeException(e2);
                 }
 
-                //Check per-epoch termination conditions:
-                boolean epochTerminate = false;
-                EpochTerminationCondition termReason = null;
-                for (EpochTerminationCondition c : esConfig.getEpochTerminationConditions()) {
-                    if (c.terminate(epochCount, score)) {
-                        epochTerminate = true;
-                        termReason = c;
-                        break;
-                    }
-                }
-                if (epochTerminate) {
-                    log.info("Hit epoch termination condition at epoch {}. Details: {}", epochCount,
-                            termReason.toString());
-                    T bestModel;
-                    try {
-                        bestModel = esConfig.getModelSaver().getBestModel();
-                    } catch (IOException e2) {
-                        //Best model does not exist. Just save the current model
-                        if(esConfig.isSaveLastModel()) {
-                            try {
-                                esConfig.getModelSaver().saveBestModel(model,0.0);
-                                bestModel = model;
-                            } catch (IOException e) {
-                                log.error("Unable to save model.",e);
-                                throw new RuntimeException(e);
-                            }
-                        }
-                        else {
-                            log.error("Error with earlystopping",e2);
-                            throw new RuntimeException(e2);
-                        }
+            }
 
-                    }
 
+            EarlyStoppingResult<T> result = new EarlyStoppingResult<>(
+                    EarlyStoppingResult.TerminationReason.EpochTerminationCondition,
+                    termReason.toString(), scoreVsEpoch, bestModelEpoch, bestModelScore, epochCount + 1,
+                    bestModel);
+            if (listener != null) {
+                listener.onCompletion(result);
+            }
 
-                    EarlyStoppingResult<T> result = new EarlyStoppingResult<>(
-                            EarlyStoppingResult.TerminationReason.EpochTerminationCondition,
-                            termReason.toString(), scoreVsEpoch, bestModelEpoch, bestModelScore, epochCount + 1,
-                            bestModel);
-                    if (listener != null) {
-                        listener.onCompletion(result);
-                    }
+            return result;
+        }
+        return null;
+    }
 
-                    return result;
+    private void saveModel(final T toSave, final double score, final boolean best) {
+        if (!esConfig.isAsyncModelSaving()) {
+            try {
+                if (best) {
+                    esConfig.getModelSaver().saveBestModel(toSave, score);
+                } else {
+                    esConfig.getModelSaver().saveLatestModel(toSave, score);
                 }
+            } catch (IOException e) {
+                throw new RuntimeException(best ? "Error saving best model" : "Error saving most recent model", e);
             }
-            epochCount++;
+            return;
+        }
+
+        //At most one save in progress: bounds the number of model copies held in memory
+        awaitPendingSave();
+        pendingSave = executor().submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                if (best) {
+                    esConfig.getModelSaver().saveBestModel(toSave, score);
+                } else {
+                    esConfig.getModelSaver().saveLatestModel(toSave, score);
+                }
+                return null;
+            }
+        });
+    }
+
+    private void awaitPendingSave() {
+        if (pendingSave == null) {
+            return;
+        }
+        try {
+            pendingSave.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error saving model", e.getCause());
+        } finally {
+            pendingSave = null;
+        }
+    }
+
+    private ExecutorService executor() {
+        if (executor == null) {
+            //Two threads: score calculation and model saving may run at the same time
+            executor = Executors.newFixedThreadPool(2, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = Executors.defaultThreadFactory().newThread(r);
+                    t.setName("EarlyStoppingTrainer background thread");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return executor;
+    }
 
+    /**
+     * @return A copy of the model being trained, for asynchronous score calculation or model saving
+     */
+    @SuppressWarnings("unchecked")
+    protected T snapshot() {
+        if (model instanceof MultiLayerNetwork) {
+            return (T) ((MultiLayerNetwork) model).clone();
+        } else if (model instanceof ComputationGraph) {
+            return (T) ((ComputationGraph) model).clone();
         }
+        throw new UnsupportedOperationException("Asynchronous scoring and model saving are only supported for "
+                        + "MultiLayerNetwork and ComputationGraph, got " + model.getClass().getName());
     }
 
     @Override
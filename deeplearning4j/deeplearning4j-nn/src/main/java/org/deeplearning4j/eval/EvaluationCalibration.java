@@ -272,14 +272,27 @@ public class EvaluationCalibration extends BaseEvaluation<EvaluationCalibration>
         }
 
         if (rDiagBinPosCount == null) {
-            this.rDiagBinPosCount = other.rDiagBinPosCount;
-            this.rDiagBinTotalCount = other.rDiagBinTotalCount;
-            this.rDiagBinSumPredictions = other.rDiagBinSumPredictions;
+            this.rDiagBinPosCount = other.rDiagBinPosCount.dup();
+            this.rDiagBinTotalCount = other.rDiagBinTotalCount.dup();
+            this.rDiagBinSumPredictions = other.rDiagBinSumPredictions.dup();
+            this.labelCountsEachClass = other.labelCountsEachClass.dup();
+            this.predictionCountsEachClass = other.predictionCountsEachClass.dup();
+            this.residualPlotOverall = other.residualPlotOverall.dup();
+            this.residualPlotByLabelClass = other.residualPlotByLabelClass.dup();
+            this.probHistogramOverall = other.probHistogramOverall.dup();
+            this.probHistogramByLabelClass = other.probHistogramByLabelClass.dup();
+            return;
         }
 
         this.rDiagBinPosCount.addi(other.rDiagBinPosCount);
         this.rDiagBinTotalCount.addi(other.rDiagBinTotalCount);
         this.rDiagBinSumPredictions.addi(other.rDiagBinSumPredictions);
+        this.labelCountsEachClass.addi(other.labelCountsEachClass);
+        this.predictionCountsEachClass.addi(other.predictionCountsEachClass);
+        this.residualPlotOverall.addi(other.residualPlotOverall);
+        this.residualPlotByLabelClass.addi(other.residualPlotByLabelClass);
+        this.probHistogramOverall.addi(other.probHistogramOverall);
+        this.probHistogramByLabelClass.addi(other.probHistogramByLabelClass);
     }
 
     @Override
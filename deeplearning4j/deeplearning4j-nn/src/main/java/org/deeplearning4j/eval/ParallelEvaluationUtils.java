@@ -0,0 +1,146 @@
+package org.deeplearning4j.eval;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.SerializationUtils;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Utilities for evaluating a model on multiple threads: the data is read on the calling thread and handed to a set of
+ * workers (usually each wrapping its own copy of the network, sharing the parameters), each of which evaluates into
+ * its own copy of the {@link IEvaluation} instances. Once all data has been processed, the per-worker evaluations are
+ * merged into the original instances using {@link IEvaluation#merge(IEvaluation)}.<br>
+ * Used by {@link org.deeplearning4j.nn.multilayer.MultiLayerNetwork#doEvaluationParallel} and
+ * {@link org.deeplearning4j.nn.graph.ComputationGraph#doEvaluationParallel}
+ */
+@Slf4j
+public class ParallelEvaluationUtils {
+
+    private ParallelEvaluationUtils() {}
+
+    /**
+     * Evaluates one batch of data into the specified evaluations. One instance is used per worker thread; an
+     * instance is only ever called from its worker thread.
+     *
+     * @param <D> Type of the data (DataSet, MultiDataSet)
+     */
+    public interface BatchEvaluator<D> {
+        void eval(D batch, IEvaluation[] evaluations);
+    }
+
+    /**
+     * Evaluate all data from the iterator, using one thread per worker
+     *
+     * @param data        Data to evaluate. Must not reuse the returned objects (or their arrays) after later calls to next()
+     * @param workers     Worker evaluators, one per thread
+     * @param queueSize   Maximum number of batches waiting to be evaluated
+     * @param evaluations Evaluations to merge the results into. Each must be {@link java.io.Serializable} to be copied
+     *                    for each worker
+     * @return The evaluations passed in, after merging
+     */
+    public static <D, T extends IEvaluation> T[] evaluate(@NonNull Iterator<D> data,
+                    @NonNull List<? extends BatchEvaluator<D>> workers, int queueSize, @NonNull T[] evaluations) {
+        final int numWorkers = workers.size();
+        if (numWorkers == 0) {
+            throw new IllegalArgumentException("At least one worker is required");
+        }
+
+        final BlockingQueue<Object> queue = new LinkedBlockingQueue<>(Math.max(queueSize, 1));
+        final Object endOfData = new Object();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final IEvaluation[][] workerEvals = new IEvaluation[numWorkers][];
+        final boolean[] workerHasData = new boolean[numWorkers];
+
+        Thread[] threads = new Thread[numWorkers];
+        for (int i = 0; i < numWorkers; i++) {
+            workerEvals[i] = emptyCopies(evaluations);
+            final int idx = i;
+            final BatchEvaluator<D> w = workers.get(i);
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public void run() {
+                    try {
+                        while (true) {
+                            Object next = queue.take();
+                            if (next == endOfData) {
+                                return;
+                            }
+                            w.eval((D) next, workerEvals[idx]);
+                            workerHasData[idx] = true;
+                        }
+                    } catch (InterruptedException e) {
+                        //Evaluation aborted due to failure in another thread
+                    } catch (Throwable t) {
+                        error.compareAndSet(null, t);
+                    }
+                }
+            }, "ParallelEvaluation-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+
+        try {
+            while (data.hasNext() && error.get() == null) {
+                offer(queue, data.next(), error);
+            }
+            for (int i = 0; i < numWorkers && error.get() == null; i++) {
+                offer(queue, endOfData, error);
+            }
+            if (error.get() != null) {
+                for (Thread t : threads) {
+                    t.interrupt();
+                }
+            }
+            for (Thread t : threads) {
+                t.join();
+            }
+        } catch (InterruptedException e) {
+            for (Thread t : threads) {
+                t.interrupt();
+            }
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted during parallel evaluation", e);
+        }
+
+        if (error.get() != null) {
+            throw new RuntimeException("Error during parallel evaluation", error.get());
+        }
+
+        //Workers that never received data are skipped: reset() does not clear all evaluation types
+        for (int i = 0; i < numWorkers; i++) {
+            if (!workerHasData[i]) {
+                continue;
+            }
+            for (int j = 0; j < evaluations.length; j++) {
+                evaluations[j].merge(workerEvals[i][j]);
+            }
+        }
+        return evaluations;
+    }
+
+    private static void offer(BlockingQueue<Object> queue, Object o, AtomicReference<Throwable> error)
+                    throws InterruptedException {
+        //Don't block forever if all workers have failed
+        while (!queue.offer(o, 100, TimeUnit.MILLISECONDS)) {
+            if (error.get() != null) {
+                return;
+            }
+        }
+    }
+
+    private static IEvaluation[] emptyCopies(IEvaluation[] evaluations) {
+        IEvaluation[] out = new IEvaluation[evaluations.length];
+        for (int i = 0; i < evaluations.length; i++) {
+            out[i] = SerializationUtils.clone(evaluations[i]);
+            out[i].reset();
+        }
+        return out;
+    }
+}
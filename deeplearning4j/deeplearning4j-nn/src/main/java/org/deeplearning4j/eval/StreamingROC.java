@@ -0,0 +1,361 @@
+package org.deeplearning4j.eval;
+
+import lombok.*;
+import org.deeplearning4j.eval.curves.PrecisionRecallCurve;
+import org.deeplearning4j.eval.curves.RocCurve;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.shade.jackson.annotation.JsonIgnoreProperties;
+import org.nd4j.shade.jackson.annotation.JsonTypeInfo;
+
+import java.util.Arrays;
+
+/**
+ * Bounded-memory, mergeable ROC (Receiver Operating Characteristic) and precision/recall evaluation for binary
+ * classifiers.<br>
+ * Unlike {@link ROC} in exact mode (which stores every probability, and hence does not scale to very large data sets)
+ * or in thresholded mode (which does one pass over the minibatch per threshold), StreamingROC keeps a fixed size
+ * histogram sketch of the predicted probabilities: the counts of actual positive and actual negative examples in each
+ * of {@code numBins} equal width bins over [0,1]. Each minibatch is processed in a single pass, memory use is
+ * independent of the number of examples, and instances evaluated on different subsets of the data (different threads
+ * or machines) can be combined exactly using {@link #merge(StreamingROC)}.
+ * <p>
+ * AUC and AUPRC are calculated from the curves through the bin edges. The only approximation is for examples
+ * that fall into the same bin, whose relative order is not known. The maximum resulting error is reported by
+ * {@link #getAucErrorBound()} and {@link #getAuprcErrorBound()}. Both depend only on the counts in the sketch, not on
+ * any assumption about the data. Increase the number of bins if the bounds are too loose, which happens when
+ * predictions are concentrated in a very narrow range of probabilities.
+ * <p>
+ * As per {@link ROC}, the data is assumed to be binary classification - nColumns == 1 (single binary output variable)
+ * or nColumns == 2 (probability distribution over 2 classes, with column 1 being values for 'positive' examples)
+ */
+@EqualsAndHashCode(callSuper = true, exclude = {"auc", "auprc", "rocCurve", "prCurve"})
+@Data
+@ToString(exclude = {"rocCurve", "prCurve"})
+@JsonIgnoreProperties({"auc", "auprc", "rocCurve", "prCurve"})
+@JsonTypeInfo(use = JsonTypeInfo.Id.CLASS, include = JsonTypeInfo.As.PROPERTY)
+public class StreamingROC extends BaseEvaluation<StreamingROC> {
+    public static final int DEFAULT_NUM_BINS = 10000;
+
+    private int numBins;
+    private long[] countPositive;
+    private long[] countNegative;
+    private long countActualPositive;
+    private long countActualNegative;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Double auc;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Double auprc;
+    @Setter(AccessLevel.NONE)
+    private RocCurve rocCurve;
+    @Setter(AccessLevel.NONE)
+    private PrecisionRecallCurve prCurve;
+
+    public StreamingROC() {
+        this(DEFAULT_NUM_BINS);
+    }
+
+    /**
+     * @param numBins Number of histogram bins to use for the predicted probabilities. Memory use is 2 longs per bin
+     */
+    public StreamingROC(int numBins) {
+        if (numBins <= 0) {
+            throw new IllegalArgumentException("Number of bins must be > 0, got " + numBins);
+        }
+        this.numBins = numBins;
+        this.countPositive = new long[numBins];
+        this.countNegative = new long[numBins];
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(countPositive, 0);
+        Arrays.fill(countNegative, 0);
+        countActualPositive = 0;
+        countActualNegative = 0;
+        clearCached();
+    }
+
+    private void clearCached() {
+        auc = null;
+        auprc = null;
+        rocCurve = null;
+        prCurve = null;
+    }
+
+    /**
+     * @return Total number of examples evaluated so far
+     */
+    public long getExampleCount() {
+        return countActualPositive + countActualNegative;
+    }
+
+    @Override
+    public void eval(INDArray labels, INDArray predictions) {
+        if (labels.rank() == 3 && predictions.rank() == 3) {
+            //Assume time series input -> reshape to 2d
+            evalTimeSeries(labels, predictions);
+            return;
+        }
+        if (labels.rank() > 2 || predictions.rank() > 2 || labels.size(1) != predictions.size(1)
+                        || labels.size(1) > 2) {
+            throw new IllegalArgumentException("Invalid input data shape: labels shape = "
+                            + Arrays.toString(labels.shape()) + ", predictions shape = "
+                            + Arrays.toString(predictions.shape()) + "; require rank 2 array with size(1) == 1 or 2");
+        }
+
+        INDArray probClass1;
+        INDArray labelClass1;
+        if (labels.size(1) == 1) {
+            probClass1 = predictions;
+            labelClass1 = labels;
+        } else {
+            probClass1 = predictions.getColumn(1);
+            labelClass1 = labels.getColumn(1);
+        }
+
+        //Single pass over the minibatch: dup to get contiguous buffers with zero offset
+        double[] prob = probClass1.dup().data().asDouble();
+        double[] label = labelClass1.dup().data().asDouble();
+        for (int i = 0; i < prob.length; i++) {
+            int bin = binFor(prob[i]);
+            if (label[i] > 0.5) {
+                countPositive[bin]++;
+                countActualPositive++;
+            } else {
+                countNegative[bin]++;
+                countActualNegative++;
+            }
+        }
+
+        clearCached();
+    }
+
+    private int binFor(double probability) {
+        int bin = (int) (probability * numBins);
+        if (bin < 0 || Double.isNaN(probability)) {
+            return 0;
+        }
+        return Math.min(bin, numBins - 1);
+    }
+
+    /**
+     * Get the ROC curve, as a set of (threshold, falsePositive, truePositive) points. Thresholds are the lower edges of
+     * the bins; only points that differ from the previous point are included.
+     *
+     * @return ROC curve
+     */
+    public RocCurve getRocCurve() {
+        if (rocCurve != null) {
+            return rocCurve;
+        }
+
+        int[] edges = nonEmptyEdges();
+        double[] threshold = new double[edges.length];
+        double[] fpr = new double[edges.length];
+        double[] tpr = new double[edges.length];
+
+        //Counts of examples predicted positive (probability >= threshold) at each edge, from highest threshold down
+        long tp = 0;
+        long fp = 0;
+        int bin = numBins;
+        for (int i = edges.length - 1; i >= 0; i--) {
+            while (bin > edges[i]) {
+                bin--;
+                tp += countPositive[bin];
+                fp += countNegative[bin];
+            }
+            threshold[i] = edges[i] / (double) numBins;
+            fpr[i] = fp / (double) countActualNegative;
+            tpr[i] = tp / (double) countActualPositive;
+        }
+
+        rocCurve = new RocCurve(threshold, fpr, tpr);
+        return rocCurve;
+    }
+
+    /**
+     * Get the precision recall curve, with thresholds at the lower edges of the bins
+     *
+     * @return Precision recall curve
+     */
+    public PrecisionRecallCurve getPrecisionRecallCurve() {
+        if (prCurve != null) {
+            return prCurve;
+        }
+
+        int[] edges = nonEmptyEdges();
+        double[] threshold = new double[edges.length];
+        double[] precision = new double[edges.length];
+        double[] recall = new double[edges.length];
+        int[] tpCount = new int[edges.length];
+        int[] fpCount = new int[edges.length];
+        int[] fnCount = new int[edges.length];
+
+        long tp = 0;
+        long fp = 0;
+        int bin = numBins;
+        for (int i = edges.length - 1; i >= 0; i--) {
+            while (bin > edges[i]) {
+                bin--;
+                tp += countPositive[bin];
+                fp += countNegative[bin];
+            }
+            threshold[i] = edges[i] / (double) numBins;
+            precision[i] = precision(tp, fp);
+            recall[i] = (countActualPositive == 0 ? 1.0 : tp / (double) countActualPositive);
+            tpCount[i] = (int) tp;
+            fpCount[i] = (int) fp;
+            fnCount[i] = (int) (countActualPositive - tp);
+        }
+
+        prCurve = new PrecisionRecallCurve(threshold, precision, recall, tpCount, fpCount, fnCount,
+                        (int) getExampleCount());
+        return prCurve;
+    }
+
+    /**
+     * Bin edges (as bin indices, 0 to numBins inclusive) at which the curves change: the lower edge of each non-empty
+     * bin, plus both end points
+     */
+    private int[] nonEmptyEdges() {
+        int n = 2;
+        for (int i = 1; i < numBins; i++) {
+            if (countPositive[i] + countNegative[i] > 0) {
+                n++;
+            }
+        }
+        int[] edges = new int[n];
+        int j = 1;
+        for (int i = 1; i < numBins; i++) {
+            if (countPositive[i] + countNegative[i] > 0) {
+                edges[j++] = i;
+            }
+        }
+        edges[n - 1] = numBins;
+        return edges;
+    }
+
+    private static double precision(long tp, long fp) {
+        //precision == 1 when TP + FP = 0 -> no incorrect positive predictions. Consistent with ROC
+        return (tp + fp == 0 ? 1.0 : tp / (double) (tp + fp));
+    }
+
+    /**
+     * Calculate the AUROC - Area Under ROC Curve, using trapezoidal integration over the bin edges. Pairs of positive
+     * and negative examples in the same bin are counted as ties; see {@link #getAucErrorBound()}
+     *
+     * @return AUC
+     */
+    public double calculateAUC() {
+        if (auc != null) {
+            return auc;
+        }
+        if (getExampleCount() == 0) {
+            return Double.NaN;
+        }
+        auc = getRocCurve().calculateAUC();
+        return auc;
+    }
+
+    /**
+     * Calculate the area under the precision/recall curve - aka AUCPR - using trapezoidal integration over the bin edges
+     *
+     * @return AUPRC
+     */
+    public double calculateAUCPR() {
+        if (auprc != null) {
+            return auprc;
+        }
+        if (getExampleCount() == 0) {
+            return Double.NaN;
+        }
+        auprc = getPrecisionRecallCurve().calculateAUPRC();
+        return auprc;
+    }
+
+    /**
+     * Maximum absolute difference between {@link #calculateAUC()} and the exact AUC (with ties counted as 1/2) of
+     * the evaluated data. The histogram only loses the order of positive/negative pairs that fall into the same bin,
+     * each of which contributes 1/2 to the estimate and either 0 or 1 to the exact value:<br>
+     * bound = 0.5 * sum_bins(positive * negative) / (totalPositive * totalNegative)
+     *
+     * @return Error bound for AUC
+     */
+    public double getAucErrorBound() {
+        if (countActualPositive == 0 || countActualNegative == 0) {
+            return Double.NaN;
+        }
+        double sameBinPairs = 0.0;
+        for (int i = 0; i < numBins; i++) {
+            sameBinPairs += countPositive[i] * (double) countNegative[i];
+        }
+        return 0.5 * sameBinPairs / ((double) countActualPositive * countActualNegative);
+    }
+
+    /**
+     * Maximum absolute difference between {@link #calculateAUCPR()} and the area under the exact precision/recall curve
+     * of the evaluated data. Within each bin, recall increases by (positives in bin / total positives), and both the
+     * exact and the interpolated precision lie between the lowest and highest precision achievable by any split of
+     * the bin's examples; the bound is the sum over bins of recall width times that precision range
+     *
+     * @return Error bound for AUPRC
+     */
+    public double getAuprcErrorBound() {
+        if (countActualPositive == 0) {
+            return Double.NaN;
+        }
+        double bound = 0.0;
+        long tpAbove = 0;
+        long fpAbove = 0;
+        for (int i = numBins - 1; i >= 0; i--) {
+            long p = countPositive[i];
+            long n = countNegative[i];
+            if (p > 0) {
+                double maxPrecision = precision(tpAbove + p, fpAbove);
+                double minPrecision = precision(tpAbove, fpAbove + n);
+                bound += (p / (double) countActualPositive) * (maxPrecision - minPrecision);
+            }
+            tpAbove += p;
+            fpAbove += n;
+        }
+        return bound;
+    }
+
+    /**
+     * Merge this StreamingROC instance with another. This instance is modified by adding the counts from the other
+     * instance. The result is identical to evaluating all of the data with a single instance.
+     *
+     * @param other StreamingROC instance to combine with this one
+     */
+    @Override
+    public void merge(StreamingROC other) {
+        if (other == null) {
+            return;
+        }
+        if (this.numBins != other.numBins) {
+            throw new UnsupportedOperationException("Cannot merge StreamingROC instances with different numbers of bins ("
+                            + this.numBins + " vs. " + other.numBins + ")");
+        }
+        for (int i = 0; i < numBins; i++) {
+            countPositive[i] += other.countPositive[i];
+            countNegative[i] += other.countNegative[i];
+        }
+        countActualPositive += other.countActualPositive;
+        countActualNegative += other.countActualNegative;
+        clearCached();
+    }
+
+    @Override
+    public String stats() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("AUC (Area under ROC Curve):                ").append(calculateAUC())
+                        .append(" (max error: ").append(getAucErrorBound()).append(")\n");
+        sb.append("AUPRC (Area under Precision/Recall Curve): ").append(calculateAUCPR())
+                        .append(" (max error: ").append(getAuprcErrorBound()).append(")\n");
+        sb.append("[Note: streaming AUC/AUPRC calculation used with ").append(numBins).append(" bins]");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,77 @@
+package org.deeplearning4j.nn.api.layers;
+
+import org.deeplearning4j.nn.api.Layer;
+
+/**
+ * A layer with row-sparse parameters: 2d parameters of which each minibatch only uses (and hence has a non-zero
+ * gradient for) a small subset of rows - for example, the weights of an embedding layer. Parameters may also be sparse
+ * along columns instead (see {@link #getSparseGradientDimension(String)}), such as the output weights and biases of a
+ * sampled softmax layer: "rows" then refers to the columns of the parameter.<br>
+ * When sparse updates are enabled, the updater only applies to the rows with a non-zero gradient
+ * ({@link #getSparseGradientRows(String)}): the updater state of the other rows is not modified ("lazy" updaters),
+ * and neither are the rows themselves. The step function is also applied to the updated rows only
+ * ({@link #getSparseStepRows(String)}), and only those rows of the gradient are zeroed before the next backprop pass.
+ * Parameter averaging can also restrict itself to the rows modified since the last synchronization
+ * ({@link #getRowsModifiedSinceSync(String)}), as all other rows are identical across copies of the network.
+ *
+ * @see org.deeplearning4j.nn.updater.UpdaterBlock
+ */
+public interface SparseGradientLayer extends Layer {
+
+    /**
+     * @param paramName Name of the parameter
+     * @return True if sparse updates are enabled, and the given parameter is row-sparse
+     */
+    boolean isSparseGradientParam(String paramName);
+
+    /**
+     * @param paramName Name of the row-sparse parameter
+     * @return 0 if the gradient of the parameter is sparse along rows, or 1 if it is sparse along columns
+     */
+    int getSparseGradientDimension(String paramName);
+
+    /**
+     * @param paramName Name of the row-sparse parameter
+     * @return Sorted row indices of the parameter that may have a non-zero gradient, since the last call to
+     * {@link #markSparseGradientRowsApplied(String)}
+     */
+    int[] getSparseGradientRows(String paramName);
+
+    /**
+     * Called once the updater has been applied to the rows returned by {@link #getSparseGradientRows(String)}: those
+     * rows are cleared, and added to the rows returned by {@link #getRowsModifiedSinceSync(String)}
+     *
+     * @param paramName Name of the row-sparse parameter
+     */
+    void markSparseGradientRowsApplied(String paramName);
+
+    /**
+     * @param paramName Name of the row-sparse parameter
+     * @return Sorted row indices of the parameter updated by the last updater application, i.e., the rows returned by
+     * {@link #getSparseGradientRows(String)} before the last call to {@link #markSparseGradientRowsApplied(String)}.
+     * The step function only needs to be applied to these rows.
+     */
+    int[] getSparseStepRows(String paramName);
+
+    /**
+     * Called once the step function has been applied to the rows returned by {@link #getSparseStepRows(String)}, and
+     * only to those rows. The gradient view is then known to be zero for all other rows, hence only the rows used in
+     * the last iteration need to be zeroed before the next backprop pass.
+     *
+     * @param paramName Name of the row-sparse parameter
+     */
+    void markSparseStepApplied(String paramName);
+
+    /**
+     * @param paramName Name of the row-sparse parameter
+     * @return Sorted row indices of the parameter that have been updated since the last call to
+     * {@link #clearRowsModifiedSinceSync()}
+     */
+    int[] getRowsModifiedSinceSync(String paramName);
+
+    /**
+     * Clear the set of rows modified since the last synchronization for all row-sparse parameters, usually after
+     * parameter averaging
+     */
+    void clearRowsModifiedSinceSync();
+}
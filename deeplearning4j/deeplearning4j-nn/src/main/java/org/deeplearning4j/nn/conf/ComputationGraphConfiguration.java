@@ -75,6 +75,12 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
     @Setter
     protected CacheMode cacheMode;
 
+    /**
+     * Number of minibatches to accumulate gradients over before applying a parameter update.
+     * See {@link NeuralNetConfiguration.Builder#gradientAccumulationSteps(int)}
+     */
+    protected int gradientAccumulationSteps = 1;
+
     /**
      * List of inputs to the network, by name
      */
@@ -260,6 +266,7 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
         conf.trainingWorkspaceMode = trainingWorkspaceMode;
         conf.inferenceWorkspaceMode = inferenceWorkspaceMode;
         conf.cacheMode = this.cacheMode;
+        conf.gradientAccumulationSteps = gradientAccumulationSteps;
         conf.defaultConfiguration.cacheMode = this.cacheMode;
 
         return conf;
@@ -992,6 +999,7 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
             conf.trainingWorkspaceMode = globalConfiguration.trainingWorkspaceMode;
             conf.inferenceWorkspaceMode = globalConfiguration.inferenceWorkspaceMode;
             conf.cacheMode = globalConfiguration.cacheMode;
+            conf.gradientAccumulationSteps = globalConfiguration.gradientAccumulationSteps;
 
             conf.defaultConfiguration = globalConfiguration.build();
             conf.getDefaultConfiguration().setPretrain(pretrain);
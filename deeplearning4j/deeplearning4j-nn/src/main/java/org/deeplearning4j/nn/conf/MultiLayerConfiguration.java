@@ -75,6 +75,12 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
     @Setter
     protected CacheMode cacheMode;
 
+    /**
+     * Number of minibatches to accumulate gradients over before applying a parameter update.
+     * See {@link NeuralNetConfiguration.Builder#gradientAccumulationSteps(int)}
+     */
+    protected int gradientAccumulationSteps = 1;
+
     //Counter for the number of parameter updates so far
     // This is important for learning rate schedules, for example, and is stored here to ensure it is persisted
     // for Spark and model serialization
@@ -317,6 +323,7 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
             clone.inferenceWorkspaceMode = this.inferenceWorkspaceMode;
             clone.trainingWorkspaceMode = this.trainingWorkspaceMode;
             clone.cacheMode = this.cacheMode;
+            clone.gradientAccumulationSteps = this.gradientAccumulationSteps;
 
             return clone;
 
@@ -338,6 +345,7 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
      */
     public NetworkMemoryReport getMemoryReport(InputType inputType) {
 
+        InputType networkInputType = inputType;
         Map<String, MemoryReport> memoryReportMap = new LinkedHashMap<>();
         int nLayers = confs.size();
         for (int i = 0; i < nLayers; i++) {
@@ -359,7 +367,8 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
             inputType = confs.get(i).getLayer().getOutputType(i, inputType);
         }
 
-        return new NetworkMemoryReport(memoryReportMap, MultiLayerConfiguration.class, "MultiLayerNetwork", inputType);
+        return new NetworkMemoryReport(memoryReportMap, MultiLayerConfiguration.class, "MultiLayerNetwork",
+                        networkInputType);
     }
 
     /**
@@ -401,6 +410,7 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
         protected WorkspaceMode trainingWorkspaceMode = WorkspaceMode.ENABLED;
         protected WorkspaceMode inferenceWorkspaceMode = WorkspaceMode.ENABLED;
         protected CacheMode cacheMode = CacheMode.NONE;
+        protected int gradientAccumulationSteps = 1;
 
         /**
          * Specify the processors.
@@ -461,6 +471,14 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
             return this;
         }
 
+        /**
+         * See {@link NeuralNetConfiguration.Builder#gradientAccumulationSteps(int)}
+         */
+        public Builder gradientAccumulationSteps(int gradientAccumulationSteps) {
+            this.gradientAccumulationSteps = gradientAccumulationSteps;
+            return this;
+        }
+
         /**The type of backprop. Default setting is used for most networks (MLP, CNN etc),
          * but optionally truncated BPTT can be used for training recurrent neural networks.
          * If using TruncatedBPTT make sure you set both tBPTTForwardLength() and tBPTTBackwardLength()
@@ -607,6 +625,7 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
             conf.trainingWorkspaceMode = trainingWorkspaceMode;
             conf.inferenceWorkspaceMode = inferenceWorkspaceMode;
             conf.cacheMode = cacheMode;
+            conf.gradientAccumulationSteps = gradientAccumulationSteps;
 
             Nd4j.getRandom().setSeed(conf.getConf(0).getSeed());
             return conf;
@@ -298,6 +298,7 @@ public class NeuralNetConfiguration implements Serializable, Cloneable {
                             .pretrain(pretrain).backpropType(backpropType).tBPTTForwardLength(tbpttFwdLength)
                             .tBPTTBackwardLength(tbpttBackLength).setInputType(this.inputType)
                             .trainingWorkspaceMode(wsmTrain).cacheMode(globalConfig.cacheMode)
+                            .gradientAccumulationSteps(globalConfig.gradientAccumulationSteps)
                             .inferenceWorkspaceMode(wsmTest).confs(list).build();
         }
 
@@ -536,6 +537,7 @@ public class NeuralNetConfiguration implements Serializable, Cloneable {
         protected boolean setTWM = false;
         protected boolean setIWM = false;
         protected CacheMode cacheMode = CacheMode.NONE;
+        protected int gradientAccumulationSteps = 1;
 
         protected ConvolutionMode convolutionMode = ConvolutionMode.Truncate;
         protected ConvolutionLayer.AlgoMode cudnnAlgoMode = ConvolutionLayer.AlgoMode.PREFER_FASTEST;
@@ -608,6 +610,32 @@ public class NeuralNetConfiguration implements Serializable, Cloneable {
             return this;
         }
 
+        /**
+         * Gradient accumulation: number of minibatches (fit calls) to accumulate gradients over before a single
+         * parameter update is applied. Default: 1 (update after every minibatch).<br>
+         * With N > 1, the gradients of N consecutive minibatches ("micro-batches") are summed in the flattened
+         * gradient view, and the updater is then applied once, with the gradient divided by the total number of
+         * examples across all N micro-batches. This gives (for layers without batch-dependent behaviour) the same
+         * update as a single minibatch N times larger, at the memory cost of a single micro-batch.<br>
+         * Notes:<br>
+         * - The iteration count (used for learning rate schedules etc) and listeners' iterationDone are only
+         * incremented/called once per parameter update, not once per micro-batch<br>
+         * - BatchNormalization global mean/variance estimates are updated for every micro-batch; the minibatch
+         * statistics used for normalization during training are those of each micro-batch<br>
+         * - Masks are applied per micro-batch as usual: the gradient is normalized by the total number of examples<br>
+         * - Only applies to MultiLayerNetwork and ComputationGraph with the stochastic gradient descent optimization
+         * algorithm; pending (not yet applied) micro-batch gradients are carried over across epochs
+         *
+         * @param gradientAccumulationSteps Number of micro-batches per parameter update. Must be 1 or more
+         * @return Builder
+         */
+        public Builder gradientAccumulationSteps(int gradientAccumulationSteps) {
+            Preconditions.checkArgument(gradientAccumulationSteps >= 1,
+                            "Gradient accumulation steps must be 1 or more: got %s", gradientAccumulationSteps);
+            this.gradientAccumulationSteps = gradientAccumulationSteps;
+            return this;
+        }
+
         /**
          * Objective function to minimize or maximize cost function
          * Default set to minimize true.
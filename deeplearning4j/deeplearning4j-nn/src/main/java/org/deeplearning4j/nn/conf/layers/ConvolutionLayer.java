@@ -71,11 +71,24 @@ public class ConvolutionLayer extends FeedForwardLayer {
         ALGO_0, ALGO_1, FFT, FFT_TILING, WINOGRAD, WINOGRAD_NONFUSED, COUNT
     }
 
+    /** The algorithm to use for the forward and backward pass when cuDNN is not used (i.e., on CPU).<br>
+     * "IM2COL" (default) always uses im2col followed by a matrix multiplication. This supports all configurations,
+     * but the im2col array has shape [miniBatch*outH*outW, inDepth*kH*kW], which can be very large.<br>
+     * "AUTO" selects an algorithm per layer based on the kernel size, stride, padding and number of channels.<br>
+     * "DIRECT" computes 1x1 convolutions (without padding) directly as a matrix multiplication, without im2col.<br>
+     * "WINOGRAD" uses Winograd F(2x2,3x3) for 3x3 kernels with stride 1 and no dilation.<br>
+     * When the selected algorithm is not applicable to the layer configuration, "IM2COL" is used.
+     */
+    public enum CpuAlgo {
+        AUTO, IM2COL, DIRECT, WINOGRAD
+    }
+
     /** Defaults to "PREFER_FASTEST", but "NO_WORKSPACE" uses less memory. */
     protected AlgoMode cudnnAlgoMode = AlgoMode.PREFER_FASTEST;
     protected FwdAlgo cudnnFwdAlgo;
     protected BwdFilterAlgo cudnnBwdFilterAlgo;
     protected BwdDataAlgo cudnnBwdDataAlgo;
+    protected CpuAlgo cpuAlgo = CpuAlgo.IM2COL;
 
     /**
      * ConvolutionLayer
@@ -108,6 +121,7 @@ public class ConvolutionLayer extends FeedForwardLayer {
         this.cudnnBwdFilterAlgo = builder.cudnnBwdFilterAlgo;
         this.cudnnBwdDataAlgo = builder.cudnnBwdDataAlgo;
         this.cudnnAllowFallback = builder.cudnnAllowFallback;
+        this.cpuAlgo = builder.cpuAlgo;
 
         initializeConstraints(builder);
     }
@@ -321,6 +335,7 @@ public class ConvolutionLayer extends FeedForwardLayer {
         protected BwdFilterAlgo cudnnBwdFilterAlgo;
         protected BwdDataAlgo cudnnBwdDataAlgo;
         protected boolean cudnnAllowFallback = true;
+        protected CpuAlgo cpuAlgo = CpuAlgo.IM2COL;
 
 
         protected BaseConvBuilder(int[] kernelSize, int[] stride, int[] padding, int[] dilation, int dim) {
@@ -445,5 +460,16 @@ public class ConvolutionLayer extends FeedForwardLayer {
             this.cudnnAllowFallback = allowFallback;
             return (T) this;
         }
+
+        /**
+         * The convolution algorithm to use when cuDNN is not used (i.e., on CPU). Defaults to IM2COL.
+         * See {@link CpuAlgo} for details.
+         *
+         * @param cpuAlgo Algorithm to use on CPU
+         */
+        public T cpuAlgo(@NonNull CpuAlgo cpuAlgo){
+            this.cpuAlgo = cpuAlgo;
+            return (T) this;
+        }
     }
 }
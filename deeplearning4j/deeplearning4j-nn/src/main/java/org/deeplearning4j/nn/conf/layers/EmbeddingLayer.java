@@ -32,10 +32,12 @@ import java.util.Map;
 @EqualsAndHashCode(callSuper = true)
 public class EmbeddingLayer extends FeedForwardLayer {
     private boolean hasBias = true; //Default for pre-0.9.2 implementations
+    private boolean sparseUpdates = false;
 
     private EmbeddingLayer(Builder builder) {
         super(builder);
         this.hasBias = builder.hasBias;
+        this.sparseUpdates = builder.sparseUpdates;
         initializeConstraints(builder);
     }
 
@@ -85,6 +87,7 @@ public class EmbeddingLayer extends FeedForwardLayer {
     public static class Builder extends FeedForwardLayer.Builder<Builder> {
 
         private boolean hasBias = false;
+        private boolean sparseUpdates = false;
 
         /**
          * If true: include bias parameters in the layer. False (default): no bias.
@@ -96,6 +99,20 @@ public class EmbeddingLayer extends FeedForwardLayer {
             return this;
         }
 
+        /**
+         * If true: the updater (and parameter averaging, when training with ParallelWrapper) is only applied to the
+         * rows of the weight matrix used in each minibatch; the updater state (for example, Adam or AdaGrad
+         * moments) of the other rows is left unchanged ("lazy" updates). Note that this changes the behaviour of
+         * updaters with state, as well as l1/l2 regularization, for the unused rows.<br>
+         * False (default): standard, dense updates of the full weight matrix.
+         *
+         * @param sparseUpdates If true: only update the weight rows used in each minibatch
+         */
+        public Builder sparseUpdates(boolean sparseUpdates) {
+            this.sparseUpdates = sparseUpdates;
+            return this;
+        }
+
         @Override
         @SuppressWarnings("unchecked")
         public EmbeddingLayer build() {
@@ -33,12 +33,14 @@ public class EmbeddingSequenceLayer extends FeedForwardLayer {
     private int inputLength = 1; // By default only use one index to embed
     private boolean hasBias = false;
     private boolean inferInputLength = false; // use input length as provided by input data
+    private boolean sparseUpdates = false;
 
     private EmbeddingSequenceLayer(Builder builder) {
         super(builder);
         this.hasBias = builder.hasBias;
         this.inputLength = builder.inputLength;
         this.inferInputLength = builder.inferInputLength;
+        this.sparseUpdates = builder.sparseUpdates;
         initializeConstraints(builder);
     }
 
@@ -96,6 +98,7 @@ public class EmbeddingSequenceLayer extends FeedForwardLayer {
         private boolean hasBias = false;
         private int inputLength = 1;
         private boolean inferInputLength = false;
+        private boolean sparseUpdates = false;
 
         /**
          * If true: include bias parameters in the layer. False (default): no bias.
@@ -130,6 +133,20 @@ public class EmbeddingSequenceLayer extends FeedForwardLayer {
             return this;
         }
 
+        /**
+         * If true: the updater (and parameter averaging, when training with ParallelWrapper) is only applied to the
+         * rows of the weight matrix used in each minibatch; the updater state (for example, Adam or AdaGrad
+         * moments) of the other rows is left unchanged ("lazy" updates). Note that this changes the behaviour of
+         * updaters with state, as well as l1/l2 regularization, for the unused rows.<br>
+         * False (default): standard, dense updates of the full weight matrix.
+         *
+         * @param sparseUpdates If true: only update the weight rows used in each minibatch
+         */
+        public Builder sparseUpdates(boolean sparseUpdates) {
+            this.sparseUpdates = sparseUpdates;
+            return this;
+        }
+
         @Override
         @SuppressWarnings("unchecked")
         public EmbeddingSequenceLayer build() {
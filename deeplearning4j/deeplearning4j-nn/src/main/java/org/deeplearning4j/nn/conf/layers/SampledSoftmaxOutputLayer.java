@@ -0,0 +1,174 @@
+package org.deeplearning4j.nn.conf.layers;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.deeplearning4j.exception.DL4JInvalidConfigException;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.api.ParamInitializer;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.sampling.ICandidateSampler;
+import org.deeplearning4j.nn.conf.sampling.LogUniformSampler;
+import org.deeplearning4j.nn.params.DefaultParamInitializer;
+import org.deeplearning4j.optimize.api.TrainingListener;
+import org.nd4j.linalg.activations.impl.ActivationSoftmax;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.lossfunctions.impl.LossMCXENT;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Sampled softmax output layer, for classification with very large numbers of classes.<br>
+ * At training time, the softmax cross entropy loss is calculated only over the true class of each example plus a
+ * set of numSampled negative classes (shared by all examples in the minibatch), drawn by an
+ * {@link ICandidateSampler} ({@link LogUniformSampler} by default). The logits of the candidate classes are corrected
+ * by subtracting the log of their expected count under the sampler. Only the weight and bias columns of the candidate
+ * classes take part in the forward and backward pass, and only those receive non-zero gradients.<br>
+ * With sparse updates enabled (default), zeroing the gradient, the updater, L1/L2 regularization of the gradient and
+ * the parameter step are also restricted to the candidate columns, so that the cost of a training iteration scales
+ * with numSampled rather than nOut. Note that the L1/L2 terms of the score, gradient normalization and (when training
+ * with ParallelWrapper) parameter averaging are not restricted. With sparse updates disabled, the updater and step
+ * are applied to the full [nIn, nOut] weights, at O(nIn * nOut) cost per iteration.<br>
+ * At inference time (and for evaluation scores), the full softmax over all nOut classes is calculated, exactly as
+ * in {@link OutputLayer}.<br>
+ * Labels may be provided either as one-hot arrays of shape [minibatch, nOut], or as class indices of shape
+ * [minibatch, 1].<br>
+ * The activation function must be softmax, and the loss function MCXENT or negative log likelihood (without
+ * weights). The layer may be used in both MultiLayerNetwork and ComputationGraph.<br>
+ * See: Jean et al. 2015, On Using Very Large Target Vocabulary for Neural Machine Translation -
+ * <a href="https://arxiv.org/abs/1412.2007">https://arxiv.org/abs/1412.2007</a>
+ */
+@Data
+@NoArgsConstructor
+@ToString(callSuper = true)
+@EqualsAndHashCode(callSuper = true)
+public class SampledSoftmaxOutputLayer extends BaseOutputLayer {
+
+    protected int numSampled;
+    protected ICandidateSampler sampler;
+    protected boolean removeAccidentalHits;
+    protected boolean sparseUpdates;
+
+    protected SampledSoftmaxOutputLayer(Builder builder) {
+        super(builder);
+        this.numSampled = builder.numSampled;
+        this.sampler = builder.sampler;
+        this.removeAccidentalHits = builder.removeAccidentalHits;
+        this.sparseUpdates = builder.sparseUpdates;
+        initializeConstraints(builder);
+    }
+
+    @Override
+    public Layer instantiate(NeuralNetConfiguration conf, Collection<TrainingListener> trainingListeners,
+                    int layerIndex, INDArray layerParamsView, boolean initializeParams) {
+        LayerValidation.assertNInNOutSet("SampledSoftmaxOutputLayer", getLayerName(), layerIndex, getNIn(), getNOut());
+        validate(layerIndex);
+
+        org.deeplearning4j.nn.layers.training.SampledSoftmaxOutputLayer ret =
+                        new org.deeplearning4j.nn.layers.training.SampledSoftmaxOutputLayer(conf);
+        ret.setListeners(trainingListeners);
+        ret.setIndex(layerIndex);
+        ret.setParamsViewArray(layerParamsView);
+        Map<String, INDArray> paramTable = initializer().init(conf, layerParamsView, initializeParams);
+        ret.setParamTable(paramTable);
+        ret.setConf(conf);
+        return ret;
+    }
+
+    private void validate(int layerIndex) {
+        String layerName = getLayerName() == null ? "(name not set)" : getLayerName();
+        String prefix = "SampledSoftmaxOutputLayer (index=" + layerIndex + ", name=" + layerName + "): ";
+        if (numSampled <= 0) {
+            throw new DL4JInvalidConfigException(prefix + "numSampled must be > 0, got " + numSampled);
+        }
+        if (sampler == null) {
+            throw new DL4JInvalidConfigException(prefix + "candidate sampler must not be null");
+        }
+        if (!(activationFn instanceof ActivationSoftmax)) {
+            throw new DL4JInvalidConfigException(prefix + "activation function must be softmax, got " + activationFn);
+        }
+        if (!(lossFn instanceof LossMCXENT) || ((LossMCXENT) lossFn).getWeights() != null) {
+            throw new DL4JInvalidConfigException(prefix + "loss function must be MCXENT or NEGATIVELOGLIKELIHOOD "
+                            + "without weights, got " + lossFn);
+        }
+    }
+
+    @Override
+    public ParamInitializer initializer() {
+        return DefaultParamInitializer.getInstance();
+    }
+
+    public static class Builder extends BaseOutputLayer.Builder<Builder> {
+        protected int numSampled;
+        protected ICandidateSampler sampler = new LogUniformSampler();
+        protected boolean removeAccidentalHits = true;
+        protected boolean sparseUpdates = true;
+
+        public Builder() {
+            this.activationFn = new ActivationSoftmax();
+        }
+
+        /**
+         * @param numSampled Number of negative classes to sample for each minibatch
+         */
+        public Builder(int numSampled) {
+            this();
+            this.numSampled = numSampled;
+        }
+
+        /**
+         * Number of unique negative classes to sample for each minibatch, at training time. If greater than or equal
+         * to nOut, all classes are used and the loss is the same as the full softmax loss.
+         *
+         * @param numSampled Number of negative classes to sample
+         */
+        public Builder numSampled(int numSampled) {
+            this.numSampled = numSampled;
+            return this;
+        }
+
+        /**
+         * Candidate sampler used to draw the negative classes. Default: {@link LogUniformSampler}, which assumes
+         * classes are sorted by decreasing frequency
+         *
+         * @param sampler Candidate sampler
+         */
+        public Builder sampler(ICandidateSampler sampler) {
+            this.sampler = sampler;
+            return this;
+        }
+
+        /**
+         * If true (default): sampled classes that are equal to the true class of an example are excluded from
+         * the loss for that example
+         *
+         * @param removeAccidentalHits Whether to remove accidental hits
+         */
+        public Builder removeAccidentalHits(boolean removeAccidentalHits) {
+            this.removeAccidentalHits = removeAccidentalHits;
+            return this;
+        }
+
+        /**
+         * If true (default): the updater (and L1/L2 regularization) is only applied to the weight and bias columns of
+         * the candidate classes of each minibatch; the updater state (for example, Adam or AdaGrad moments) of the
+         * other columns is left unchanged ("lazy" updates), as are the columns themselves. Note that this changes the
+         * behaviour of updaters with state, as well as L1/L2 regularization, for the classes not sampled.<br>
+         * False: standard, dense updates of the full weight matrix and biases, at O(nIn * nOut) cost per iteration.
+         *
+         * @param sparseUpdates If true: only update the weight and bias columns of the candidate classes
+         */
+        public Builder sparseUpdates(boolean sparseUpdates) {
+            this.sparseUpdates = sparseUpdates;
+            return this;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public SampledSoftmaxOutputLayer build() {
+            return new SampledSoftmaxOutputLayer(this);
+        }
+    }
+}
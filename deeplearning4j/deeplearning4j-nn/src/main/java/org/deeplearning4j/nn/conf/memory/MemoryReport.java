@@ -147,6 +147,56 @@ public abstract class MemoryReport {
     public abstract long getMemoryBytes(MemoryType memoryType, int minibatchSize, MemoryUseMode memoryUseMode,
                     CacheMode cacheMode, DataBuffer.Type dataType);
 
+    /**
+     * Get the largest minibatch size for which the total estimated memory use (see
+     * {@link #getTotalMemoryBytes(int, MemoryUseMode, CacheMode, DataBuffer.Type)}) does not exceed the specified
+     * memory budget.
+     *
+     * @param memoryBudgetBytes Memory budget, in bytes
+     * @param memoryUseMode     The memory use mode (training or inference)
+     * @param cacheMode         The CacheMode to use
+     * @param dataType          Nd4j datatype
+     * @return Maximum minibatch size, or 0 if even a minibatch size of 1 exceeds the budget
+     */
+    public int maxBatchSizeFor(long memoryBudgetBytes, @NonNull MemoryUseMode memoryUseMode,
+                    @NonNull CacheMode cacheMode, @NonNull DataBuffer.Type dataType) {
+        if (getTotalMemoryBytes(1, memoryUseMode, cacheMode, dataType) > memoryBudgetBytes) {
+            return 0;
+        }
+
+        //Total memory is non-decreasing in minibatch size: exponential search for an upper bound, then bisect
+        long lower = 1;
+        long upper = 2;
+        while (upper < Integer.MAX_VALUE
+                        && getTotalMemoryBytes((int) upper, memoryUseMode, cacheMode, dataType) <= memoryBudgetBytes) {
+            lower = upper;
+            upper = Math.min(2 * upper, Integer.MAX_VALUE);
+        }
+        if (upper == Integer.MAX_VALUE
+                        && getTotalMemoryBytes(Integer.MAX_VALUE, memoryUseMode, cacheMode, dataType) <= memoryBudgetBytes) {
+            return Integer.MAX_VALUE;
+        }
+
+        //Invariant: lower fits in budget, upper does not
+        while (upper - lower > 1) {
+            long mid = (lower + upper) / 2;
+            if (getTotalMemoryBytes((int) mid, memoryUseMode, cacheMode, dataType) <= memoryBudgetBytes) {
+                lower = mid;
+            } else {
+                upper = mid;
+            }
+        }
+        return (int) lower;
+    }
+
+    /**
+     * As per {@link #maxBatchSizeFor(long, MemoryUseMode, CacheMode, DataBuffer.Type)}, using the current ND4J data type
+     */
+    public int maxBatchSizeFor(long memoryBudgetBytes, @NonNull MemoryUseMode memoryUseMode,
+                    @NonNull CacheMode cacheMode) {
+        return maxBatchSizeFor(memoryBudgetBytes, memoryUseMode, cacheMode, DataTypeUtil.getDtypeFromContext());
+    }
+
     public abstract String toString();
 
     protected int getBytesPerElement(DataBuffer.Type dataType) {
@@ -0,0 +1,104 @@
+package org.deeplearning4j.nn.conf.memory;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NonNull;
+import org.deeplearning4j.nn.conf.CacheMode;
+import org.deeplearning4j.nn.conf.inputs.InputType;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+
+import java.io.Serializable;
+
+/**
+ * Workspace sizes (in bytes) planned from a {@link NetworkMemoryReport}, for a given minibatch size, so that the
+ * network's workspaces can be allocated up front, instead of being learned (and reallocated) over the first
+ * iterations.<br>
+ * The sizes correspond to the workspaces used by {@link org.deeplearning4j.nn.multilayer.MultiLayerNetwork}:
+ * <ul>
+ * <li>workingMemoryBytes: working memory for a single layer (forward and backward pass). Max over all layers</li>
+ * <li>allActivationsBytes: network input plus the activations of all layers, retained for backprop, plus cached
+ * memory (training only; 0 for inference)</li>
+ * <li>layerActivationsBytes: activations (inference) or activation gradients (training) of one layer. Max over all
+ * layers</li>
+ * </ul>
+ * Note that as memory reports are estimates, workspaces may still need to grow at runtime.
+ */
+@Data
+@AllArgsConstructor
+public class WorkspaceMemoryPlan implements Serializable {
+
+    private final int minibatchSize;
+    private final MemoryUseMode memoryUseMode;
+    private final CacheMode cacheMode;
+    private final DataBuffer.Type dataType;
+
+    private final long workingMemoryBytes;
+    private final long allActivationsBytes;
+    private final long layerActivationsBytes;
+
+    /**
+     * Plan workspace sizes from the specified memory report
+     *
+     * @param report        Memory report for the network
+     * @param minibatchSize Minibatch size to plan for
+     * @param memoryUseMode Training or inference
+     * @param cacheMode     Cache mode
+     * @param dataType      Data type
+     * @return Workspace plan
+     */
+    public static WorkspaceMemoryPlan fromReport(@NonNull NetworkMemoryReport report, int minibatchSize,
+                    @NonNull MemoryUseMode memoryUseMode, @NonNull CacheMode cacheMode,
+                    @NonNull DataBuffer.Type dataType) {
+        if (minibatchSize <= 0) {
+            throw new IllegalArgumentException("Minibatch size must be > 0, got " + minibatchSize);
+        }
+        boolean training = memoryUseMode == MemoryUseMode.TRAINING;
+
+        long working = 0;
+        long layerAct = 0;
+        long allAct = 0;
+        for (InputType it : report.getNetworkInputTypes()) {
+            allAct += minibatchSize * it.arrayElementsPerExample() * bytesPerElement(dataType);
+        }
+
+        for (MemoryReport r : report.getLayerAndVertexReports().values()) {
+            long w = r.getMemoryBytes(MemoryType.WORKING_MEMORY_FIXED, minibatchSize, memoryUseMode, cacheMode, dataType)
+                            + r.getMemoryBytes(MemoryType.WORKING_MEMORY_VARIABLE, minibatchSize, memoryUseMode,
+                                            cacheMode, dataType);
+            working = Math.max(working, w);
+
+            long act = r.getMemoryBytes(MemoryType.ACTIVATIONS, minibatchSize, memoryUseMode, cacheMode, dataType);
+            if (training) {
+                long actGrad = r.getMemoryBytes(MemoryType.ACTIVATION_GRADIENTS, minibatchSize, memoryUseMode,
+                                cacheMode, dataType);
+                layerAct = Math.max(layerAct, actGrad);
+                allAct += act
+                                + r.getMemoryBytes(MemoryType.CACHED_MEMORY_FIXED, minibatchSize, memoryUseMode,
+                                                cacheMode, dataType)
+                                + r.getMemoryBytes(MemoryType.CACHED_MEMORY_VARIABLE, minibatchSize, memoryUseMode,
+                                                cacheMode, dataType);
+            } else {
+                layerAct = Math.max(layerAct, act);
+            }
+        }
+
+        if (!training) {
+            allAct = 0;
+        }
+
+        return new WorkspaceMemoryPlan(minibatchSize, memoryUseMode, cacheMode, dataType, working, allAct, layerAct);
+    }
+
+    private static int bytesPerElement(DataBuffer.Type dataType) {
+        switch (dataType) {
+            case DOUBLE:
+                return 8;
+            case FLOAT:
+                return 4;
+            case HALF:
+                return 2;
+            default:
+                throw new UnsupportedOperationException("Data type not supported: " + dataType);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.deeplearning4j.nn.conf.sampling;
+
+import org.nd4j.shade.jackson.annotation.JsonTypeInfo;
+
+import java.io.Serializable;
+import java.util.Random;
+
+/**
+ * ICandidateSampler instances sample a set of (negative) candidate classes from a large label space, for use in
+ * sampled loss functions such as {@link org.deeplearning4j.nn.conf.layers.SampledSoftmaxOutputLayer}.<br>
+ * Samplers draw classes (with replacement) from a fixed distribution until the requested number of unique classes
+ * have been sampled; the probability of each class is used to correct the sampled logits for the sampling bias.
+ *
+ * @see LogUniformSampler
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.CLASS, include = JsonTypeInfo.As.PROPERTY, property = "@class")
+public interface ICandidateSampler extends Serializable, Cloneable {
+
+    /**
+     * Sample unique candidate classes
+     *
+     * @param numSampled Number of unique classes to sample. If greater than or equal to numClasses, all classes
+     *                   are returned
+     * @param numClasses Total number of classes
+     * @param rng        Random number generator to use
+     * @return The sampled candidates
+     */
+    SampledCandidates sample(int numSampled, int numClasses, Random rng);
+
+    /**
+     * @param classIdx   Index of the class, 0 to numClasses-1
+     * @param numClasses Total number of classes
+     * @return Probability of the specified class being drawn in a single trial
+     */
+    double probability(int classIdx, int numClasses);
+
+    ICandidateSampler clone();
+
+}
@@ -0,0 +1,58 @@
+package org.deeplearning4j.nn.conf.sampling;
+
+import lombok.Data;
+
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Log-uniform (Zipfian) candidate sampler. Class k (0 to numClasses-1) is drawn with probability<br>
+ * P(k) = (log(k+2) - log(k+1)) / log(numClasses+1)<br>
+ * This is appropriate when classes are sorted by decreasing frequency, as is common for word and item vocabularies:
+ * frequent classes (low indices) are sampled as negatives more often than rare ones.
+ */
+@Data
+public class LogUniformSampler implements ICandidateSampler {
+
+    @Override
+    public SampledCandidates sample(int numSampled, int numClasses, Random rng) {
+        if (numSampled <= 0 || numClasses <= 0) {
+            throw new IllegalArgumentException("Number of samples and number of classes must be positive: got "
+                            + "numSampled=" + numSampled + ", numClasses=" + numClasses);
+        }
+        if (numSampled >= numClasses) {
+            int[] all = new int[numClasses];
+            for (int i = 0; i < numClasses; i++) {
+                all[i] = i;
+            }
+            return new SampledCandidates(all, numClasses, true);
+        }
+
+        double logRange = Math.log(numClasses + 1.0);
+        Set<Integer> sampled = new LinkedHashSet<>();
+        int numTries = 0;
+        while (sampled.size() < numSampled) {
+            int k = (int) (Math.exp(rng.nextDouble() * logRange)) - 1;
+            sampled.add(Math.min(Math.max(k, 0), numClasses - 1));
+            numTries++;
+        }
+
+        int[] out = new int[numSampled];
+        int i = 0;
+        for (Integer k : sampled) {
+            out[i++] = k;
+        }
+        return new SampledCandidates(out, numTries, false);
+    }
+
+    @Override
+    public double probability(int classIdx, int numClasses) {
+        return (Math.log(classIdx + 2.0) - Math.log(classIdx + 1.0)) / Math.log(numClasses + 1.0);
+    }
+
+    @Override
+    public LogUniformSampler clone() {
+        return new LogUniformSampler();
+    }
+}
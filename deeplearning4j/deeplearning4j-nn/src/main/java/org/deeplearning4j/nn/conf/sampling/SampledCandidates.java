@@ -0,0 +1,31 @@
+package org.deeplearning4j.nn.conf.sampling;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Result of sampling from an {@link ICandidateSampler}: the unique sampled classes, and the number of trials that
+ * were required to sample them. The number of trials is used to calculate the expected count of each class,
+ * as used to correct logits for the sampling bias.
+ */
+@AllArgsConstructor
+@Getter
+public class SampledCandidates {
+
+    private final int[] sampled;
+    private final int numTries;
+    private final boolean allClasses;
+
+    /**
+     * Expected number of times a class appears in the sampled set, i.e., the probability of the class being
+     * sampled at least once in {@link #getNumTries()} trials. This is exactly 1.0 if all classes were sampled.
+     *
+     * @param probability Probability of the class in a single trial
+     */
+    public double expectedCount(double probability) {
+        if (allClasses)
+            return 1.0;
+        //1 - (1-p)^numTries, calculated in a numerically stable way for small p
+        return -Math.expm1(numTries * Math.log1p(-probability));
+    }
+}
@@ -37,7 +37,9 @@ import org.deeplearning4j.nn.gradient.DefaultGradient;
 import org.deeplearning4j.nn.gradient.Gradient;
 import org.deeplearning4j.nn.graph.util.ComputationGraphUtil;
 import org.deeplearning4j.nn.graph.util.GraphIndices;
+import org.deeplearning4j.nn.graph.util.ParallelVertexExecutor;
 import org.deeplearning4j.nn.graph.vertex.GraphVertex;
+import org.deeplearning4j.nn.inference.InferenceModel;
 import org.deeplearning4j.nn.graph.vertex.VertexIndices;
 import org.deeplearning4j.nn.graph.vertex.impl.FrozenVertex;
 import org.deeplearning4j.nn.graph.vertex.impl.InputVertex;
@@ -110,6 +112,14 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
     //Workspaces for CUDNN. Pass to LayerWorkspaceMgr for re-use in cudnn helpers
     protected transient Map<String,Pointer> helperWorkspaces = new HashMap<>();
 
+    /**
+     * Number of threads used to execute independent vertices concurrently. 1: sequential execution in topological order
+     */
+    protected int vertexParallelism = 1;
+    protected transient ParallelVertexExecutor vertexExecutor;
+    //Helper workspaces (for CUDNN) for the vertex executor threads
+    protected transient ThreadLocal<Map<String,Pointer>> parallelHelperWorkspaces;
+
     /**
      * Workspace for working memory for a single layer: forward pass and backward pass
      * Note that this is opened/closed once per op (activate/backpropGradient call)
@@ -1991,6 +2001,9 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         } else {
             stopIndex = topologicalOrder.length -1;
         }
+        if(vertexParallelism > 1 && fwdPassType == FwdPassType.STANDARD){
+            return ffToLayerActivationsParallel(train, stopIndex, excludeIdxs, clearInputs);
+        }
         for (int i = 0; i <= stopIndex; i++) {
             GraphVertex current = vertices[topologicalOrder[i]];
             String vName = current.getVertexName();
@@ -2054,6 +2067,147 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         return activations;
     }
 
+    /**
+     * Feed-forward through the network, executing independent vertices concurrently (see {@link #setVertexParallelism(int)}).
+     * Inputs and mask arrays should already be set.<br>
+     * Activations are always detached: the worker threads use only their own working memory workspaces.
+     *
+     * @param train       Training mode (true) or test/inference mode (false)
+     * @param stopIndex   Index (in the topological order) of the last vertex to execute
+     * @param excludeIdxs Indices of vertices to not execute. May be null
+     * @param clearInputs Whether the layer inputs should be cleared
+     * @return Map of activations (including the input), detached
+     */
+    protected Map<String,INDArray> ffToLayerActivationsParallel(final boolean train, int stopIndex, int[] excludeIdxs,
+                                                                final boolean clearInputs){
+        ParallelVertexExecutor executor = getVertexExecutor();
+        final Map<String, INDArray> activations = new HashMap<>();
+        final LayerWorkspaceMgr inputWorkspaceMgr = parallelWorkspaceMgr(train);
+
+        List<Integer> toExecute = new ArrayList<>();
+        int[][] dependencies = new int[vertices.length][0];
+        for (int i = 0; i <= stopIndex; i++) {
+            GraphVertex gv = vertices[topologicalOrder[i]];
+            if(excludeIdxs != null && ArrayUtils.contains(excludeIdxs, gv.getVertexIndex())){
+                continue;
+            }
+            toExecute.add(gv.getVertexIndex());
+            VertexIndices[] inputsFrom = gv.getInputVertices();
+            if(inputsFrom != null){
+                dependencies[gv.getVertexIndex()] = new int[inputsFrom.length];
+                for( int j=0; j<inputsFrom.length; j++ ){
+                    dependencies[gv.getVertexIndex()][j] = inputsFrom[j].getVertexIndex();
+                }
+            }
+        }
+
+        executor.execute(vertices.length, ArrayUtils.toPrimitive(toExecute.toArray(new Integer[toExecute.size()])),
+                dependencies, new ParallelVertexExecutor.VertexTask<INDArray>() {
+            @Override
+            public boolean executeInline(int vertexIdx) {
+                return vertices[vertexIdx].isInputVertex();
+            }
+
+            @Override
+            public INDArray execute(int vertexIdx) {
+                GraphVertex current = vertices[vertexIdx];
+                if(current.isInputVertex()){
+                    return inputs[vertexIdx];
+                }
+                LayerWorkspaceMgr workspaceMgr = parallelWorkspaceMgr(train);
+                try(MemoryWorkspace wsFFWorking = workspaceMgr.notifyScopeEntered(ArrayType.FF_WORKING_MEM)){
+                    INDArray out = current.doForward(train, workspaceMgr);
+                    //Activations must outlive this thread's working memory workspace
+                    return workspaceMgr.leverageTo(ArrayType.ACTIVATIONS, out);
+                }
+            }
+
+            @Override
+            public void onComplete(int vertexIdx, INDArray out) {
+                GraphVertex current = vertices[vertexIdx];
+                activations.put(current.getVertexName(), out);
+                VertexIndices[] inputsTo = current.getOutputVertices();
+                if(inputsTo != null) {
+                    for (VertexIndices v : inputsTo) {
+                        vertices[v.getVertexIndex()].setInput(v.getVertexEdgeNumber(), out, inputWorkspaceMgr);
+                    }
+                }
+                if(clearInputs) {
+                    current.clear();
+                }
+            }
+        });
+        return activations;
+    }
+
+    /**
+     * Workspace manager for vertices executed by the vertex executor threads: activations, inputs and activation
+     * gradients are detached, working memory uses the workspaces of the current thread
+     */
+    protected LayerWorkspaceMgr parallelWorkspaceMgr(boolean train){
+        WorkspaceMode wsm = (train ? configuration.getTrainingWorkspaceMode() : configuration.getInferenceWorkspaceMode());
+        Map<String,Pointer> helperPointers = parallelHelperWorkspaces.get();
+        if(helperPointers == null){
+            helperPointers = new HashMap<>();
+            parallelHelperWorkspaces.set(helperPointers);
+        }
+        if(wsm == WorkspaceMode.NONE){
+            return LayerWorkspaceMgr.noWorkspaces(helperPointers);
+        }
+        LayerWorkspaceMgr mgr = LayerWorkspaceMgr.builder()
+                .noWorkspaceFor(ArrayType.ACTIVATIONS)
+                .noWorkspaceFor(ArrayType.INPUT)
+                .noWorkspaceFor(ArrayType.ACTIVATION_GRAD)
+                .noWorkspaceFor(ArrayType.FF_CACHE)
+                .with(ArrayType.FF_WORKING_MEM, WS_LAYER_WORKING_MEM, WS_LAYER_WORKING_MEM_CONFIG)
+                .with(ArrayType.BP_WORKING_MEM, WS_LAYER_WORKING_MEM, WS_LAYER_WORKING_MEM_CONFIG)
+                .with(ArrayType.RNN_FF_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM_CONFIG)
+                .with(ArrayType.RNN_BP_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM_CONFIG)
+                .build();
+        mgr.setHelperWorkspacePointers(helperPointers);
+        return mgr;
+    }
+
+    /**
+     * Set the number of threads used to execute the vertices of the network. If larger than 1, independent vertices
+     * (for example, the branches of Inception or NASNet style modules) are executed concurrently, in both the
+     * forward pass (feed forward, output and training) and the backward pass. This is most useful for graphs with
+     * many parallel branches, on CPUs with many cores and small minibatch sizes.<br>
+     * Note that in this mode, layer activations and activation gradients are not placed in workspaces (each thread
+     * uses its own working memory workspaces only), hence memory use may be higher than for sequential execution.
+     * Truncated BPTT and RNN time step forward passes are always executed sequentially.<br>
+     * The worker threads are shared by all graphs (including clones) with the same number of threads on the same
+     * device, and are released when idle: see {@link ParallelVertexExecutor#getShared(int)}.<br>
+     * Default: 1 (vertices are executed one at a time, in topological order)
+     *
+     * @param numThreads Number of threads to use to execute vertices
+     */
+    public void setVertexParallelism(int numThreads){
+        Preconditions.checkArgument(numThreads > 0, "Number of threads must be > 0, got %s", numThreads);
+        if(vertexExecutor != null && vertexExecutor.getNumThreads() != numThreads){
+            vertexExecutor = null;
+        }
+        this.vertexParallelism = numThreads;
+    }
+
+    /**
+     * @return Number of threads used to execute the vertices of the network
+     * @see #setVertexParallelism(int)
+     */
+    public int getVertexParallelism(){
+        return vertexParallelism;
+    }
+
+    protected synchronized ParallelVertexExecutor getVertexExecutor(){
+        if(vertexExecutor == null){
+            vertexExecutor = ParallelVertexExecutor.getShared(vertexParallelism);
+        }
+        if(parallelHelperWorkspaces == null){
+            parallelHelperWorkspaces = new ThreadLocal<>();
+        }
+        return vertexExecutor;
+    }
+
 
     /**
      * Provide the output of the specified layers, detached from any workspace. This is most commonly used at inference/test
@@ -2092,6 +2246,19 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         //Verify that no workspace is open externally
         WorkspaceUtils.assertNoWorkspacesOpen("Expected no workspace active before call to outputOfLayersDetached");
 
+        if(vertexParallelism > 1 && fwdPassType == FwdPassType.STANDARD){
+            int stopIndex = -1;
+            for( int i=0; i<layerIndexes.length; i++ ){
+                stopIndex = Math.max(stopIndex, ArrayUtils.indexOf(topologicalOrder, layerIndexes[i]));
+            }
+            Map<String,INDArray> activations = ffToLayerActivationsParallel(train, stopIndex, null, clearLayerInputs);
+            INDArray[] outputs = new INDArray[layerIndexes.length];
+            for( int i=0; i<layerIndexes.length; i++ ){
+                outputs[i] = activations.get(vertices[layerIndexes[i]].getVertexName());
+            }
+            return outputs;
+        }
+
 
         //First: for each vertex, determine the highest index of the vertex that consumes it's output
         //Then: for each vertex, determine the forward pass step that each vertex's output has been fully consumed on
@@ -2358,6 +2525,11 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
 
         }
 
+        if(vertexParallelism > 1){
+            setBackpropGradients(calcBackpropGradientsParallel(truncatedBPTT, externalEpsilons), truncatedBPTT, clearLayers);
+            return;
+        }
+
         //Position in array: index of vertex. Value at position: the step (in topological order) that the activation
         // gradients of the specified vertex have been consumed by
         //Put another way: this is the step that it's safe to deallocate the layer's activation gradients by closing the
@@ -2572,6 +2744,11 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
             Nd4j.getMemoryManager().setCurrentWorkspace(initialWorkspace);
         }
 
+        setBackpropGradients(gradients, truncatedBPTT, clearLayers);
+    }
+
+    private void setBackpropGradients(List<Triple<String, INDArray, Character>> gradients, boolean truncatedBPTT,
+                                      boolean clearLayers){
         //Now, add the gradients in the order we need them in for flattening (same as params order)
         Gradient gradient = new DefaultGradient(flattenedGradients);
         for (Triple<String, INDArray, Character> t : gradients) {
@@ -2592,6 +2769,150 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         }
     }
 
+    /**
+     * Backprop, executing independent vertices concurrently (see {@link #setVertexParallelism(int)}).
+     * Activation gradients are detached: the worker threads use only their own working memory workspaces.
+     *
+     * @return Gradients, in the order required for flattening
+     */
+    protected List<Triple<String, INDArray, Character>> calcBackpropGradientsParallel(final boolean truncatedBPTT,
+                                                                                      final INDArray[] externalEpsilons) {
+        ParallelVertexExecutor executor = getVertexExecutor();
+        final boolean[] setVertexEpsilon = new boolean[topologicalOrder.length]; //If true: already set epsilon for this vertex; later epsilons should be added
+        final List<Triple<String, INDArray, Character>>[] vertexGradients = (List<Triple<String, INDArray, Character>>[]) new List[topologicalOrder.length];
+
+        int[] toExecute = new int[topologicalOrder.length];
+        int[][] dependencies = new int[vertices.length][0];
+        for(int i=0; i<topologicalOrder.length; i++ ){
+            GraphVertex gv = vertices[topologicalOrder[topologicalOrder.length - 1 - i]];
+            toExecute[i] = gv.getVertexIndex();
+            //Backprop for a vertex can be done once all vertices that take its output as input are done
+            VertexIndices[] outputsTo = gv.getOutputVertices();
+            if(outputsTo != null){
+                dependencies[gv.getVertexIndex()] = new int[outputsTo.length];
+                for( int j=0; j<outputsTo.length; j++ ){
+                    dependencies[gv.getVertexIndex()][j] = outputsTo[j].getVertexIndex();
+                }
+            }
+        }
+
+        executor.execute(vertices.length, toExecute, dependencies,
+                new ParallelVertexExecutor.VertexTask<Pair<Gradient, INDArray[]>>() {
+            @Override
+            public boolean executeInline(int vertexIdx) {
+                GraphVertex current = vertices[vertexIdx];
+                //FIXME: make the frozen vertex feature extraction more flexible
+                return current.isInputVertex() || (current.hasLayer() && current.getLayer() instanceof FrozenLayer)
+                        || current instanceof FrozenVertex;
+            }
+
+            @Override
+            public Pair<Gradient, INDArray[]> execute(int vertexIdx) {
+                if(executeInline(vertexIdx)){
+                    return null;
+                }
+                GraphVertex current = vertices[vertexIdx];
+                if (current.isOutputVertex()) {
+                    int thisOutputNumber = configuration.getNetworkOutputs().indexOf(current.getVertexName());
+                    Layer currentLayer = current.getLayer();
+                    if (currentLayer instanceof FrozenLayerWithBackprop) {
+                        currentLayer = ((FrozenLayerWithBackprop) currentLayer).getInsideLayer();
+                    }
+                    if (currentLayer instanceof IOutputLayer) {
+                        ((IOutputLayer) currentLayer).setLabels(labels[thisOutputNumber]);
+                    } else {
+                        if ((externalEpsilons == null || externalEpsilons.length == 0)
+                                && labels[thisOutputNumber] != null) {
+                            throw new DL4JException("Layer \"" + current.getVertexName() + "\" of type "
+                                    + current.getLayer().getClass().getSimpleName()
+                                    + " is set as network output "
+                                    + "(but isn't an IOutputLayer). Only IOutputLayer layers can be fit via backprop with"
+                                    + " a labels array. ");
+                        }
+                        current.setEpsilon(externalEpsilons[thisOutputNumber]);
+                    }
+                }
+
+                LayerWorkspaceMgr workspaceMgr = parallelWorkspaceMgr(true);
+                try(MemoryWorkspace wsWorkingMem = workspaceMgr.notifyScopeEntered(ArrayType.BP_WORKING_MEM)){
+                    Pair<Gradient, INDArray[]> pair = current.doBackward(truncatedBPTT, workspaceMgr);
+                    INDArray[] epsilons = pair.getSecond();
+                    for( int i=0; i<epsilons.length; i++ ){
+                        if(epsilons[i] != null) {
+                            //May be null for EmbeddingLayer, etc
+                            epsilons[i] = workspaceMgr.leverageTo(ArrayType.ACTIVATION_GRAD, epsilons[i]);
+                        }
+                    }
+                    return pair;
+                }
+            }
+
+            @Override
+            public void onComplete(int vertexIdx, Pair<Gradient, INDArray[]> pair) {
+                if(pair == null){
+                    return;
+                }
+                GraphVertex current = vertices[vertexIdx];
+                INDArray[] epsilons = pair.getSecond();
+
+                //Set epsilons for the vertices that provide inputs to this vertex:
+                VertexIndices[] inputVertices = current.getInputVertices();
+                if (inputVertices != null) {
+                    int j = 0;
+                    for (VertexIndices v : inputVertices) {
+                        GraphVertex gv = vertices[v.getVertexIndex()];
+                        if (setVertexEpsilon[gv.getVertexIndex()]) {
+                            //Output to multiple vertices: add the epsilons. Not in-place, as the existing epsilon
+                            // array may have been passed to other vertices too
+                            try(MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()){
+                                gv.setEpsilon(gv.getEpsilon().add(epsilons[j++]));
+                            }
+                        } else {
+                            gv.setEpsilon(epsilons[j++]);
+                        }
+                        setVertexEpsilon[gv.getVertexIndex()] = true;
+                    }
+                }
+
+                if (pair.getFirst() != null) {
+                    Gradient g = pair.getFirst();
+                    Map<String, INDArray> map = g.gradientForVariable();
+                    LinkedList<Triple<String, INDArray, Character>> tempList = new LinkedList<>();
+                    for (Map.Entry<String, INDArray> entry : map.entrySet()) {
+                        String origName = entry.getKey();
+                        String newName = current.getVertexName() + "_" + origName;
+                        tempList.addFirst(new Triple<>(newName, entry.getValue(),
+                                g.flatteningOrderForVariable(origName)));
+                    }
+                    vertexGradients[vertexIdx] = tempList;
+                }
+            }
+        });
+
+        //Order gradients as per sequential backprop (reverse topological order)
+        LinkedList<Triple<String, INDArray, Character>> gradients = new LinkedList<>();
+        for(int i=topologicalOrder.length-1; i>= 0; i--){
+            List<Triple<String, INDArray, Character>> l = vertexGradients[topologicalOrder[i]];
+            if(l != null){
+                for (Triple<String, INDArray, Character> t : l)
+                    gradients.addFirst(t);
+            }
+        }
+        return gradients;
+    }
+
+    /**
+     * Create an immutable, inference-only copy of this network: BatchNormalization and ActivationLayers are folded
+     * into the preceding layers where possible, dropout and other training-only state is removed, and output arrays
+     * are reused between calls. See {@link InferenceModel} for details.<br>
+     * This network is not modified.
+     *
+     * @return Inference model for this network
+     */
+    public InferenceModel compileForInference() {
+        return InferenceModel.compile(this);
+    }
+
     @Override
     public ComputationGraph clone() {
         ComputationGraph cg = new ComputationGraph(configuration.clone());
@@ -2605,6 +2926,7 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
             }
         }
         cg.trainingListeners = this.trainingListeners;
+        cg.vertexParallelism = this.vertexParallelism;
         for (int i = 0; i < topologicalOrder.length; i++) {
             if (!vertices[topologicalOrder[i]].hasLayer())
                 continue;
@@ -3842,77 +4164,156 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         boolean useRnnSegments = (configuration.getBackpropType() == BackpropType.TruncatedBPTT);
 
         while (iter.hasNext()) {
-            MultiDataSet next = iter.next();
-
-            if (next.getFeatures() == null || next.getLabels() == null)
+            if (!doEvaluationBatch(iter.next(), useRnnSegments, evaluations))
                 break;
+        }
 
-            if (!useRnnSegments) {
-                //Standard/non-RNN case
+        if (iterator.asyncSupported())
+            ((AsyncMultiDataSetIterator) iter).shutdown();
 
-                //Assuming single output here
-                INDArray[] features = next.getFeatures();
-                INDArray[] featuresMasks = next.getFeaturesMaskArrays();
-                INDArray labels = next.getLabels(0);
-                INDArray[] labelMasks = next.getLabelsMaskArrays();
-                INDArray labelMask = next.getLabelsMaskArray(0);
+        configuration.setTrainingWorkspaceMode(cMode);
 
-                //TODO in principle, we could keep these output arrays in a workspace...
-                INDArray[] out = outputOfLayersDetached(false, FwdPassType.STANDARD, getOutputLayerIndices(), features, featuresMasks, labelMasks, true, false);
+        return evaluations;
+    }
 
-                for (T evaluation : evaluations)
-                    evaluation.eval(labels, out[0], labelMask);
-            } else {
-                rnnClearPreviousState();
-
-                int fwdLen = configuration.getTbpttFwdLength();
-                long tsLength = -1;
-                long nF = next.getFeatures().length;
-                for (int i = 0; i < nF; i++) {
-                    if (next.getFeatures(i).rank() == 3) {
-                        tsLength = next.getFeatures(i).size(2);
-                    }
-                }
-                if (tsLength < 0) {
-                    throw new IllegalStateException("Invalid configuration: detected TBPTT backprop type without" +
-                            " time series features");
+    /**
+     * Perform evaluation on the given data (DataSetIterator) with the given {@link IEvaluation} instances, running
+     * inference on multiple threads. See {@link #doEvaluationParallel(MultiDataSetIterator, int, IEvaluation[])}
+     *
+     * @param iterator    Test data to evaluate on
+     * @param numThreads  Number of inference threads
+     * @param evaluations IEvaluation instances
+     * @param <T>         Type of the IEvaluation instance
+     * @return The input IEvaluation instances, after performing evaluation on the test data
+     */
+    public <T extends IEvaluation> T[] doEvaluationParallel(DataSetIterator iterator, int numThreads, T... evaluations) {
+        return doEvaluationParallel(new MultiDataSetIteratorAdapter(iterator), numThreads, evaluations);
+    }
+
+    /**
+     * Perform evaluation on the given data (MultiDataSetIterator) with the given {@link IEvaluation} instances,
+     * running inference on multiple threads.<br>
+     * Data is read from the iterator on the calling thread. Each worker thread uses its own copy of the network (sharing
+     * this network's parameters, so parameter memory is not duplicated) and its own copy of the evaluations, which
+     * are merged into the provided instances once all data has been evaluated. Results are the same as for
+     * {@link #doEvaluation(MultiDataSetIterator, IEvaluation[])}, other than the order in which examples are evaluated.<br>
+     * Note that the iterator must not reuse MultiDataSet objects (or their arrays) between calls to next(), as multiple
+     * MultiDataSets are evaluated at once. For bounded memory ROC evaluation on large data sets, see {@link StreamingROC}.
+     *
+     * @param iterator    Test data to evaluate on
+     * @param numThreads  Number of inference threads. If 1: equivalent to {@link #doEvaluation(MultiDataSetIterator, IEvaluation[])}
+     * @param evaluations IEvaluation instances. Must be serializable, to be copied for each thread
+     * @param <T>         Type of the IEvaluation instance
+     * @return The input IEvaluation instances, after performing evaluation on the test data
+     */
+    public <T extends IEvaluation> T[] doEvaluationParallel(MultiDataSetIterator iterator, int numThreads,
+                    T... evaluations) {
+        if (numThreads <= 1) {
+            return doEvaluation(iterator, evaluations);
+        }
+        if (layers == null || !(getOutputLayer(0) instanceof IOutputLayer)) {
+            throw new IllegalStateException("Cannot evaluate network with no output layer");
+        }
+        if (getNumOutputArrays() != 1) {
+            throw new IllegalStateException("Cannot evaluate a model using this method with > 1 output arrays");
+        }
+
+        if (iterator.resetSupported() && !iterator.hasNext())
+            iterator.reset();
+
+        //No workspace for async prefetch here: MultiDataSets are handed over to other threads
+        MultiDataSetIterator iter =
+                iterator.asyncSupported() ? new AsyncMultiDataSetIterator(iterator, 2, false) : iterator;
+
+        final boolean useRnnSegments = (configuration.getBackpropType() == BackpropType.TruncatedBPTT);
+        List<ParallelEvaluationUtils.BatchEvaluator<MultiDataSet>> workers = new ArrayList<>(numThreads);
+        for (int i = 0; i < numThreads; i++) {
+            ComputationGraphConfiguration conf = configuration.clone();
+            conf.setTrainingWorkspaceMode(conf.getInferenceWorkspaceMode());
+            final ComputationGraph worker = new ComputationGraph(conf);
+            worker.init(params(), false);
+            workers.add(new ParallelEvaluationUtils.BatchEvaluator<MultiDataSet>() {
+                @Override
+                public void eval(MultiDataSet batch, IEvaluation[] evaluations) {
+                    worker.doEvaluationBatch(batch, useRnnSegments, evaluations);
                 }
+            });
+        }
 
-                long nSubsets = tsLength / fwdLen;
-                if (tsLength % fwdLen != 0)
-                    nSubsets++; //Example: 100 fwdLen with timeSeriesLength=120 -> want 2 subsets (1 of size 100, 1 of size 20)
-                for (int i = 0; i < nSubsets; i++) {
-                    int startTimeIdx = i * fwdLen;
-                    long endTimeIdx = Math.min(startTimeIdx + fwdLen, tsLength);
+        try {
+            return ParallelEvaluationUtils.evaluate(iter, workers, 2 * numThreads, evaluations);
+        } finally {
+            if (iterator.asyncSupported())
+                ((AsyncMultiDataSetIterator) iter).shutdown();
+        }
+    }
 
-                    List<INDArray[]> subset = getSubsetsForTbptt(startTimeIdx, endTimeIdx, next.getFeatures(),
-                            next.getLabels(), next.getFeaturesMaskArrays(), next.getLabelsMaskArrays());
-                    setLayerMaskArrays(subset.get(2), subset.get(3));
+    /**
+     * Evaluate a single MultiDataSet. Returns false if the data set has no features or labels
+     */
+    private boolean doEvaluationBatch(MultiDataSet next, boolean useRnnSegments, IEvaluation[] evaluations) {
+        if (next.getFeatures() == null || next.getLabels() == null)
+            return false;
 
-                    INDArray[] outSub = rnnTimeStep(subset.get(0));
+        if (!useRnnSegments) {
+            //Standard/non-RNN case
 
-                    INDArray maskSub = subset.get(3) == null ? null : subset.get(3)[0];
+            //Assuming single output here
+            INDArray[] features = next.getFeatures();
+            INDArray[] featuresMasks = next.getFeaturesMaskArrays();
+            INDArray labels = next.getLabels(0);
+            INDArray[] labelMasks = next.getLabelsMaskArrays();
+            INDArray labelMask = next.getLabelsMaskArray(0);
 
+            //TODO in principle, we could keep these output arrays in a workspace...
+            INDArray[] out = outputOfLayersDetached(false, FwdPassType.STANDARD, getOutputLayerIndices(), features, featuresMasks, labelMasks, true, false);
 
-                    try (MemoryWorkspace wsO = Nd4j.getWorkspaceManager().scopeOutOfWorkspaces()) {
-                        for (T evaluation : evaluations)
-                            evaluation.eval(subset.get(1)[0], outSub[0], maskSub);
-                    }
-                }
+            for (IEvaluation evaluation : evaluations)
+                evaluation.eval(labels, out[0], labelMask);
+        } else {
+            rnnClearPreviousState();
 
-                rnnClearPreviousState();
+            int fwdLen = configuration.getTbpttFwdLength();
+            long tsLength = -1;
+            long nF = next.getFeatures().length;
+            for (int i = 0; i < nF; i++) {
+                if (next.getFeatures(i).rank() == 3) {
+                    tsLength = next.getFeatures(i).size(2);
+                }
+            }
+            if (tsLength < 0) {
+                throw new IllegalStateException("Invalid configuration: detected TBPTT backprop type without" +
+                        " time series features");
             }
 
-            //Clear inputs, masks etc. Important to avoid leaking invalidated/out of scope arrays between iterations
-            clearLayersStates();
-        }
+            long nSubsets = tsLength / fwdLen;
+            if (tsLength % fwdLen != 0)
+                nSubsets++; //Example: 100 fwdLen with timeSeriesLength=120 -> want 2 subsets (1 of size 100, 1 of size 20)
+            for (int i = 0; i < nSubsets; i++) {
+                int startTimeIdx = i * fwdLen;
+                long endTimeIdx = Math.min(startTimeIdx + fwdLen, tsLength);
 
-        if (iterator.asyncSupported())
-            ((AsyncMultiDataSetIterator) iter).shutdown();
+                List<INDArray[]> subset = getSubsetsForTbptt(startTimeIdx, endTimeIdx, next.getFeatures(),
+                        next.getLabels(), next.getFeaturesMaskArrays(), next.getLabelsMaskArrays());
+                setLayerMaskArrays(subset.get(2), subset.get(3));
 
-        configuration.setTrainingWorkspaceMode(cMode);
+                INDArray[] outSub = rnnTimeStep(subset.get(0));
 
-        return evaluations;
+                INDArray maskSub = subset.get(3) == null ? null : subset.get(3)[0];
+
+
+                try (MemoryWorkspace wsO = Nd4j.getWorkspaceManager().scopeOutOfWorkspaces()) {
+                    for (IEvaluation evaluation : evaluations)
+                        evaluation.eval(subset.get(1)[0], outSub[0], maskSub);
+                }
+            }
+
+            rnnClearPreviousState();
+        }
+
+        //Clear inputs, masks etc. Important to avoid leaking invalidated/out of scope arrays between iterations
+        clearLayersStates();
+        return true;
     }
 
     /**
@@ -0,0 +1,260 @@
+package org.deeplearning4j.nn.graph.util;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.primitives.Pair;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes the vertices of a {@link org.deeplearning4j.nn.graph.ComputationGraph} concurrently, respecting the
+ * dependencies between them: a vertex is executed (on one of the worker threads) only once all of the vertices it
+ * depends on have completed. Completion callbacks are always executed on the calling thread, one at a time, so
+ * state shared between vertices (inputs, epsilons, etc) can be updated there without synchronization.<br>
+ * Graphs use the shared instances returned by {@link #getShared(int)}: a single executor per device and number of
+ * threads, used by all graphs (including the copies of a graph created for parallel training or inference). As the
+ * threads of the shared executors are released when idle, shared executors don't need to be shut down.
+ *
+ * @see org.deeplearning4j.nn.graph.ComputationGraph#setVertexParallelism(int)
+ */
+public class ParallelVertexExecutor {
+
+    /**
+     * A computation to perform for each vertex
+     *
+     * @param <T> Type of the result of the computation
+     */
+    public interface VertexTask<T> {
+
+        /**
+         * @return True if the vertex should be executed on the calling thread (for trivial computations)
+         */
+        boolean executeInline(int vertexIdx);
+
+        /**
+         * Perform the computation for the specified vertex. Called on a worker thread, unless
+         * {@link #executeInline(int)} returns true
+         */
+        T execute(int vertexIdx) throws Exception;
+
+        /**
+         * Called on the calling thread once the computation for the specified vertex has completed, before any of the
+         * vertices that depend on it are executed
+         */
+        void onComplete(int vertexIdx, T result);
+    }
+
+    /**
+     * Time after which idle worker threads of the shared executors are released
+     */
+    public static final long SHARED_KEEP_ALIVE_MS = 60000;
+
+    //Key: device ID and number of threads
+    private static final Map<Pair<Integer, Integer>, ParallelVertexExecutor> SHARED = new HashMap<>();
+
+    @Getter
+    private final int numThreads;
+    @Getter
+    private boolean shared;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Create a new executor, with worker threads attached to the device of the current thread.
+     * Executors created with this constructor should be shut down using {@link #shutdown()} when no longer required;
+     * consider using {@link #getShared(int)} instead.
+     *
+     * @param numThreads Number of worker threads
+     */
+    public ParallelVertexExecutor(int numThreads) {
+        this(numThreads, Nd4j.getAffinityManager().getDeviceForCurrentThread());
+    }
+
+    private ParallelVertexExecutor(int numThreads, final Integer deviceId) {
+        if (numThreads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be > 0, got " + numThreads);
+        }
+        this.numThreads = numThreads;
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(numThreads, numThreads, SHARED_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "ComputationGraph vertex thread " + threadCount.getAndIncrement());
+                t.setDaemon(true);
+                Nd4j.getAffinityManager().attachThreadToDevice(t, deviceId);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Get the executor shared by all graphs on the device of the current thread with the specified number of
+     * threads. Worker threads are created on demand, and released when they have been idle for
+     * {@link #SHARED_KEEP_ALIVE_MS} milliseconds. Shared executors must not be shut down.
+     *
+     * @param numThreads Number of worker threads
+     */
+    public static ParallelVertexExecutor getShared(int numThreads) {
+        Integer deviceId = Nd4j.getAffinityManager().getDeviceForCurrentThread();
+        Pair<Integer, Integer> key = new Pair<>(deviceId, numThreads);
+        synchronized (SHARED) {
+            ParallelVertexExecutor e = SHARED.get(key);
+            if (e == null) {
+                e = new ParallelVertexExecutor(numThreads, deviceId);
+                e.executor.allowCoreThreadTimeOut(true);
+                e.shared = true;
+                SHARED.put(key, e);
+            }
+            return e;
+        }
+    }
+
+    /**
+     * Execute the specified vertices.
+     *
+     * @param numVertices  Total number of vertices in the graph
+     * @param toExecute    Indices of the vertices to execute. Vertices that are ready at the same time are submitted
+     *                     in this order
+     * @param dependencies For each vertex index: the vertices that must have completed before the vertex can be
+     *                     executed (may be null). Dependencies that are not in toExecute are ignored
+     * @param task         Task to execute for each vertex
+     */
+    public <T> void execute(int numVertices, @NonNull int[] toExecute, @NonNull int[][] dependencies,
+                            @NonNull final VertexTask<T> task) {
+        boolean[] included = new boolean[numVertices];
+        for (int v : toExecute) {
+            included[v] = true;
+        }
+
+        int[] remaining = new int[numVertices];
+        List<Integer>[] dependents = (List<Integer>[]) new List[numVertices];
+        for (int v : toExecute) {
+            if (dependencies[v] == null) {
+                continue;
+            }
+            for (int d : dependencies[v]) {
+                if (!included[d]) {
+                    continue;
+                }
+                remaining[v]++;
+                if (dependents[d] == null) {
+                    dependents[d] = new ArrayList<>();
+                }
+                dependents[d].add(v);
+            }
+        }
+
+        Deque<Integer> ready = new ArrayDeque<>();
+        for (int v : toExecute) {
+            if (remaining[v] == 0) {
+                ready.add(v);
+            }
+        }
+
+        CompletionService<Pair<Integer, T>> completionService = new ExecutorCompletionService<>(executor);
+        int running = 0;
+        int completed = 0;
+        Throwable error = null;
+        while (completed < toExecute.length) {
+            while (!ready.isEmpty() && error == null) {
+                final int v = ready.poll();
+                if (task.executeInline(v)) {
+                    try {
+                        T result = task.execute(v);
+                        task.onComplete(v, result);
+                        completed++;
+                        addReady(v, dependents, remaining, ready);
+                    } catch (Throwable t) {
+                        error = t;
+                    }
+                } else {
+                    completionService.submit(new Callable<Pair<Integer, T>>() {
+                        @Override
+                        public Pair<Integer, T> call() throws Exception {
+                            return new Pair<>(v, task.execute(v));
+                        }
+                    });
+                    running++;
+                }
+            }
+
+            if (running == 0) {
+                //Either an exception was thrown, or there's nothing left that can be executed
+                break;
+            }
+
+            try {
+                Pair<Integer, T> p = completionService.take().get();
+                running--;
+                if (error == null) {
+                    int v = p.getFirst();
+                    task.onComplete(v, p.getSecond());
+                    completed++;
+                    addReady(v, dependents, remaining, ready);
+                }
+            } catch (ExecutionException e) {
+                running--;
+                if (error == null) {
+                    error = e.getCause();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while executing graph vertices", e);
+            } catch (Throwable t) {
+                //Exception in onComplete
+                if (error == null) {
+                    error = t;
+                }
+            }
+        }
+
+        if (error != null) {
+            if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            } else if (error instanceof Error) {
+                throw (Error) error;
+            }
+            throw new RuntimeException("Error executing graph vertices", error);
+        }
+        if (completed < toExecute.length) {
+            throw new IllegalStateException("Could not execute all vertices: " + (toExecute.length - completed)
+                    + " vertices have unsatisfied dependencies");
+        }
+    }
+
+    private static void addReady(int completedIdx, List<Integer>[] dependents, int[] remaining, Deque<Integer> ready) {
+        if (dependents[completedIdx] == null) {
+            return;
+        }
+        for (int d : dependents[completedIdx]) {
+            if (--remaining[d] == 0) {
+                ready.add(d);
+            }
+        }
+    }
+
+    /**
+     * Shut down the worker threads. Not supported for shared executors (see {@link #getShared(int)})
+     */
+    public void shutdown() {
+        if (shared) {
+            throw new IllegalStateException("Cannot shut down a shared vertex executor");
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * @return Number of worker threads currently alive
+     */
+    public int getPoolSize() {
+        return executor.getPoolSize();
+    }
+}
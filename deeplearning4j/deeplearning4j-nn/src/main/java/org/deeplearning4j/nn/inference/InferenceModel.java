@@ -0,0 +1,357 @@
+package org.deeplearning4j.nn.inference;
+
+import lombok.NonNull;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.conf.InputPreProcessor;
+import org.deeplearning4j.nn.conf.WorkspaceMode;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.graph.vertex.GraphVertex;
+import org.deeplearning4j.nn.graph.vertex.VertexIndices;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.workspace.ArrayType;
+import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.memory.conf.WorkspaceConfiguration;
+import org.nd4j.linalg.api.memory.enums.AllocationPolicy;
+import org.nd4j.linalg.api.memory.enums.LearningPolicy;
+import org.nd4j.linalg.api.memory.enums.ResetPolicy;
+import org.nd4j.linalg.api.memory.enums.SpillPolicy;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An immutable, inference-only version of a trained {@link MultiLayerNetwork} or {@link ComputationGraph}.<br>
+ * Compared to {@code output(INDArray, false)} on the original network, an InferenceModel:
+ * <ul>
+ *     <li>Folds BatchNormalization layers into the weights of the preceding DenseLayer/ConvolutionLayer</li>
+ *     <li>Fuses ActivationLayers into the activation function of the preceding DenseLayer/ConvolutionLayer</li>
+ *     <li>Removes DropoutLayers, and dropout/weight noise configuration for all layers</li>
+ *     <li>Has no updater, gradients, listeners, masks or training-only workspaces: the forward pass is a single loop
+ *     over the layers, with all activations in one workspace</li>
+ *     <li>(Optionally) reuses fixed output arrays: one set per minibatch size, for the most recently used
+ *     minibatch sizes</li>
+ *     <li>(Optionally) executes DenseLayer and ConvolutionLayer with int8 weights - see {@link Int8Calibrator}</li>
+ * </ul>
+ * Note that folding changes the order of floating point operations, so the outputs may differ slightly (within
+ * numerical precision) from those of the original network.<br>
+ * The original network is not modified by compilation, and changes to it (for example, further training) are not
+ * reflected in the InferenceModel.<br>
+ * Calls to {@link #output(INDArray...)} are synchronized. For concurrent inference, compile one InferenceModel per
+ * thread.
+ * <pre>
+ * {@code InferenceModel model = net.compileForInference();
+ * INDArray out = model.output(features)[0];
+ * }</pre>
+ *
+ * @see MultiLayerNetwork#compileForInference()
+ * @see ComputationGraph#compileForInference()
+ */
+public class InferenceModel {
+
+    /**
+     * Maximum number of minibatch sizes to keep output arrays for
+     */
+    public static final int MAX_CACHED_BATCH_SIZES = 8;
+
+    private static final String WS_ACTIVATIONS = "WS_INFERENCE_MODEL_ACT";
+    private static final String WS_WORKING_MEM = "WS_INFERENCE_MODEL_WORKING_MEM";
+    private static final String WS_RNN_LOOP_WORKING_MEM = "WS_INFERENCE_MODEL_RNN_LOOP_WORKING_MEM";
+
+    private static final WorkspaceConfiguration WS_ACTIVATIONS_CONFIG = WorkspaceConfiguration.builder()
+            .initialSize(0)
+            .overallocationLimit(0.05)
+            .policyLearning(LearningPolicy.FIRST_LOOP)
+            .policyReset(ResetPolicy.BLOCK_LEFT)
+            .policySpill(SpillPolicy.REALLOCATE)
+            .policyAllocation(AllocationPolicy.OVERALLOCATE)
+            .build();
+
+    private static final WorkspaceConfiguration WS_RNN_LOOP_WORKING_MEM_CONFIG = WorkspaceConfiguration.builder()
+            .initialSize(0).overallocationLimit(0.05).policyReset(ResetPolicy.BLOCK_LEFT)
+            .policyAllocation(AllocationPolicy.OVERALLOCATE).policySpill(SpillPolicy.REALLOCATE)
+            .policyLearning(LearningPolicy.FIRST_LOOP).build();
+
+    private final boolean isGraph;
+    private final MultiLayerNetwork mln;
+    private final ComputationGraph graph;
+    private final int numFoldedBatchNorm;
+    private final int numFusedActivations;
+    private final int numRemovedDropout;
+    private final Map<Integer, Int8LinearOp> int8Ops;
+
+    private final LayerWorkspaceMgr workspaceMgr;
+    private final boolean reuseOutputBuffers;
+    private final Map<Long, INDArray[]> outputBuffers;
+    private int[] outputIdxForVertex;
+
+    InferenceModel(MultiLayerNetwork mln, ComputationGraph graph, LayerFolding folding,
+                   Map<Integer, Int8LinearOp> int8Ops, WorkspaceMode wsm, int numOps, boolean reuseOutputBuffers) {
+        this.isGraph = graph != null;
+        this.mln = mln;
+        this.graph = graph;
+        this.numFoldedBatchNorm = folding.getNumFoldedBatchNorm();
+        this.numFusedActivations = folding.getNumFusedActivations();
+        this.numRemovedDropout = folding.getNumRemovedDropout();
+        this.int8Ops = (int8Ops == null ? Collections.<Integer, Int8LinearOp>emptyMap() : int8Ops);
+        this.reuseOutputBuffers = reuseOutputBuffers;
+        this.outputBuffers = new LinkedHashMap<Long, INDArray[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, INDArray[]> eldest) {
+                return size() > MAX_CACHED_BATCH_SIZES;
+            }
+        };
+
+        if (wsm == WorkspaceMode.NONE) {
+            workspaceMgr = LayerWorkspaceMgr.noWorkspaces();
+        } else {
+            //Working memory: opened once per layer/vertex
+            WorkspaceConfiguration workingMemConfig = WorkspaceConfiguration.builder()
+                    .initialSize(0)
+                    .overallocationLimit(0.02)
+                    .policyLearning(LearningPolicy.OVER_TIME)
+                    .cyclesBeforeInitialization(numOps)
+                    .policyReset(ResetPolicy.BLOCK_LEFT)
+                    .policySpill(SpillPolicy.REALLOCATE)
+                    .policyAllocation(AllocationPolicy.OVERALLOCATE)
+                    .build();
+
+            workspaceMgr = LayerWorkspaceMgr.builder()
+                    .with(ArrayType.ACTIVATIONS, WS_ACTIVATIONS, WS_ACTIVATIONS_CONFIG)
+                    .with(ArrayType.INPUT, WS_ACTIVATIONS, WS_ACTIVATIONS_CONFIG)
+                    .with(ArrayType.FF_WORKING_MEM, WS_WORKING_MEM, workingMemConfig)
+                    .with(ArrayType.RNN_FF_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM_CONFIG)
+                    .build();
+        }
+
+        if (isGraph) {
+            GraphVertex[] vertices = graph.getVertices();
+            outputIdxForVertex = new int[vertices.length];
+            Arrays.fill(outputIdxForVertex, -1);
+            for (int i = 0; i < graph.getNumOutputArrays(); i++) {
+                String name = graph.getConfiguration().getNetworkOutputs().get(i);
+                outputIdxForVertex[graph.getVertex(name).getVertexIndex()] = i;
+            }
+        }
+    }
+
+    /**
+     * Compile the specified network for inference, reusing output arrays
+     *
+     * @param network Network to compile. Not modified
+     */
+    public static InferenceModel compile(@NonNull MultiLayerNetwork network) {
+        return compile(network, true);
+    }
+
+    /**
+     * Compile the specified network for inference
+     *
+     * @param network            Network to compile. Not modified
+     * @param reuseOutputBuffers If true: the arrays returned by {@link #output(INDArray...)} are reused (overwritten)
+     *                           by subsequent calls with the same minibatch size. If false: new arrays are returned
+     *                           for each call
+     */
+    public static InferenceModel compile(@NonNull MultiLayerNetwork network, boolean reuseOutputBuffers) {
+        LayerFolding folding = new LayerFolding();
+        MultiLayerNetwork folded = folding.fold(network);
+        return new InferenceModel(folded, null, folding, null,
+                folded.getLayerWiseConfigurations().getInferenceWorkspaceMode(), folded.getnLayers(),
+                reuseOutputBuffers);
+    }
+
+    /**
+     * Compile the specified network for inference, reusing output arrays
+     *
+     * @param network Network to compile. Not modified
+     */
+    public static InferenceModel compile(@NonNull ComputationGraph network) {
+        return compile(network, true);
+    }
+
+    /**
+     * Compile the specified network for inference
+     *
+     * @param network            Network to compile. Not modified
+     * @param reuseOutputBuffers If true: the arrays returned by {@link #output(INDArray...)} are reused (overwritten)
+     *                           by subsequent calls with the same minibatch size. If false: new arrays are returned
+     *                           for each call
+     */
+    public static InferenceModel compile(@NonNull ComputationGraph network, boolean reuseOutputBuffers) {
+        LayerFolding folding = new LayerFolding();
+        ComputationGraph folded = folding.fold(network);
+        return new InferenceModel(null, folded, folding, null,
+                folded.getConfiguration().getInferenceWorkspaceMode(), folded.getVertices().length,
+                reuseOutputBuffers);
+    }
+
+    /**
+     * Perform inference.<br>
+     * If output buffers are reused (the default), the returned arrays are owned by this InferenceModel, and will be
+     * overwritten by the next call with the same minibatch size: use {@code dup()} if they need to be retained.
+     *
+     * @param input Network inputs: one array for MultiLayerNetworks, or one per network input for ComputationGraphs
+     * @return Network outputs: one array for MultiLayerNetworks, or one per network output for ComputationGraphs
+     */
+    public synchronized INDArray[] output(@NonNull INDArray... input) {
+        if (input.length != numInputs()) {
+            throw new IllegalArgumentException("Invalid number of input arrays: network has " + numInputs()
+                    + " inputs, got " + input.length + " arrays");
+        }
+
+        if (input[0].isAttached()) {
+            //Don't leverage out of async iterator workspaces, for example
+            workspaceMgr.setNoLeverageOverride(input[0].data().getParentWorkspace().getId());
+        }
+
+        long minibatch = input[0].size(0);
+        try (MemoryWorkspace ws = workspaceMgr.notifyScopeEntered(ArrayType.ACTIVATIONS)) {
+            INDArray[] out = isGraph ? outputGraph(input) : new INDArray[]{outputMln(input[0])};
+
+            INDArray[] ret = reuseOutputBuffers ? outputBuffers.get(minibatch) : null;
+            if (ret == null || !shapesMatch(ret, out)) {
+                ret = new INDArray[out.length];
+                try (MemoryWorkspace wsO = Nd4j.getWorkspaceManager().scopeOutOfWorkspaces()) {
+                    for (int i = 0; i < out.length; i++) {
+                        ret[i] = Nd4j.createUninitialized(out[i].shape(), out[i].ordering());
+                    }
+                }
+                if (reuseOutputBuffers) {
+                    outputBuffers.put(minibatch, ret);
+                }
+            }
+            for (int i = 0; i < out.length; i++) {
+                ret[i].assign(out[i]);
+            }
+            return ret;
+        } finally {
+            if (isGraph) {
+                graph.clear();
+            } else {
+                mln.clear();
+            }
+        }
+    }
+
+    private INDArray outputMln(INDArray input) {
+        mln.setInput(input);
+        int minibatch = (int) input.size(0);
+        Layer[] layers = mln.getLayers();
+        for (int i = 0; i < layers.length; i++) {
+            try (MemoryWorkspace wsWorking = workspaceMgr.notifyScopeEntered(ArrayType.FF_WORKING_MEM)) {
+                InputPreProcessor preProcessor = mln.getLayerWiseConfigurations().getInputPreProcess(i);
+                if (preProcessor != null) {
+                    input = preProcessor.preProcess(input, minibatch, workspaceMgr);
+                }
+                Int8LinearOp int8Op = int8Ops.get(i);
+                if (int8Op != null) {
+                    //Quantized layers: int8 linear part here, activation function from the (placeholder) layer
+                    input = int8Op.preOutput(input, workspaceMgr);
+                }
+                input = layers[i].activate(input, false, workspaceMgr);
+                layers[i].clear();
+            }
+        }
+        return input;
+    }
+
+    private INDArray[] outputGraph(INDArray[] input) {
+        graph.setInputs(input);
+        GraphVertex[] vertices = graph.getVertices();
+        INDArray[] out = new INDArray[graph.getNumOutputArrays()];
+        for (int idx : graph.topologicalSortOrder()) {
+            GraphVertex current = vertices[idx];
+            try (MemoryWorkspace wsWorking = workspaceMgr.notifyScopeEntered(ArrayType.FF_WORKING_MEM)) {
+                INDArray act;
+                Int8LinearOp int8Op = int8Ops.get(idx);
+                if (current.isInputVertex()) {
+                    act = input[idx];
+                } else if (int8Op != null) {
+                    //Layer input (after preprocessor) has been set already
+                    Layer l = current.getLayer();
+                    act = l.activate(int8Op.preOutput(l.input(), workspaceMgr), false, workspaceMgr);
+                } else {
+                    act = current.doForward(false, workspaceMgr);
+                }
+                VertexIndices[] inputsTo = current.getOutputVertices();
+                if (inputsTo != null) {
+                    for (VertexIndices v : inputsTo) {
+                        vertices[v.getVertexIndex()].setInput(v.getVertexEdgeNumber(), act, workspaceMgr);
+                    }
+                }
+                if (outputIdxForVertex[idx] >= 0) {
+                    out[outputIdxForVertex[idx]] = act;
+                }
+                current.clear();
+            }
+        }
+        return out;
+    }
+
+    private static boolean shapesMatch(INDArray[] a, INDArray[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (!Arrays.equals(a[i].shape(), b[i].shape())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Number of input arrays for the network
+     */
+    public int numInputs() {
+        return isGraph ? graph.getNumInputArrays() : 1;
+    }
+
+    /**
+     * @return Number of output arrays for the network
+     */
+    public int numOutputs() {
+        return isGraph ? graph.getNumOutputArrays() : 1;
+    }
+
+    /**
+     * @return Number of layers (MultiLayerNetwork) or layers and vertices (ComputationGraph) executed per forward pass
+     */
+    public int numOps() {
+        return isGraph ? graph.getVertices().length - graph.getNumInputArrays() : mln.getnLayers();
+    }
+
+    /**
+     * @return Number of BatchNormalization layers that were folded into the preceding layer
+     */
+    public int numFoldedBatchNorm() {
+        return numFoldedBatchNorm;
+    }
+
+    /**
+     * @return Number of ActivationLayers that were fused into the preceding layer
+     */
+    public int numFusedActivations() {
+        return numFusedActivations;
+    }
+
+    /**
+     * @return Number of layers executed with int8 weights and inputs
+     * @see Int8Calibrator
+     */
+    public int numQuantizedLayers() {
+        return int8Ops.size();
+    }
+
+    Map<Integer, Int8LinearOp> getInt8Ops() {
+        return int8Ops;
+    }
+
+    /**
+     * @return Number of DropoutLayers that were removed
+     */
+    public int numRemovedDropout() {
+        return numRemovedDropout;
+    }
+}
@@ -0,0 +1,352 @@
+package org.deeplearning4j.nn.inference;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import org.deeplearning4j.eval.Evaluation;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.graph.GraphVertex;
+import org.deeplearning4j.nn.conf.graph.LayerVertex;
+import org.deeplearning4j.nn.conf.layers.ActivationLayer;
+import org.deeplearning4j.nn.conf.layers.BaseLayer;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.params.DefaultParamInitializer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.DataSet;
+import org.nd4j.linalg.dataset.api.MultiDataSet;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.dataset.api.iterator.MultiDataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.ops.transforms.Transforms;
+
+import java.util.*;
+
+/**
+ * Post-training int8 quantization for {@link MultiLayerNetwork} and {@link ComputationGraph}.<br>
+ * Usage:
+ * <pre>
+ * {@code Int8Calibrator calibrator = new Int8Calibrator(net);
+ * calibrator.calibrate(calibrationDataIter);
+ * InferenceModel quantized = calibrator.quantize();
+ * QuantizationReport report = calibrator.evaluate(quantized, testDataIter);
+ * }</pre>
+ * The network is first folded as per {@link InferenceModel}. Calibration then runs data through the (float) folded
+ * network, recording the range of the inputs to each DenseLayer and ConvolutionLayer. The quantized model executes
+ * these layers with int8 weights (symmetric, per output channel scales) and int8 inputs (symmetric, per layer scale
+ * from the calibrated range). All other layers (including output layers) are executed as normal.<br>
+ * ND4J has no int8 matrix multiplication: the int8 weights are converted to floating point and multiplied using
+ * standard BLAS operations (see {@link Int8LinearOp}), so quantization does not make inference faster: the quantized
+ * model is somewhat slower than the float model, due to quantizing the layer inputs. By default the converted weights
+ * are kept after the first forward pass. With {@link #setCacheWeights(boolean)} set to false, weights for the
+ * quantized layers are kept only in int8 form (plus scales and biases), reducing their memory by approximately 4x
+ * relative to float, at the cost of converting the weights for each forward pass.<br>
+ * Note that activations outside of the calibrated range are clipped: calibration data should be representative of
+ * the data used for inference.
+ */
+public class Int8Calibrator {
+
+    private final boolean isGraph;
+    private final MultiLayerNetwork origMln;
+    private final ComputationGraph origGraph;
+    private final LayerFolding folding = new LayerFolding();
+    private final MultiLayerNetwork foldedMln;
+    private final ComputationGraph foldedGraph;
+
+    //Maximum absolute value of the input activations, by layer index (MultiLayerNetwork) or vertex name (graph)
+    private final Map<Integer, Double> layerInputRanges = new HashMap<>();
+    private final Map<String, Double> vertexInputRanges = new HashMap<>();
+    @Getter
+    private long numCalibrationExamples;
+    /**
+     * If true (default): the quantized model converts the int8 weights to floating point once, and keeps them.
+     * If false: only the int8 weights are kept, and are converted for each forward pass
+     */
+    @Getter
+    @Setter
+    private boolean cacheWeights = true;
+
+    /**
+     * @param network Network to quantize. Not modified
+     */
+    public Int8Calibrator(@NonNull MultiLayerNetwork network) {
+        this.isGraph = false;
+        this.origMln = network;
+        this.origGraph = null;
+        this.foldedMln = folding.fold(network);
+        this.foldedGraph = null;
+    }
+
+    /**
+     * @param network Network to quantize. Not modified
+     */
+    public Int8Calibrator(@NonNull ComputationGraph network) {
+        this.isGraph = true;
+        this.origMln = null;
+        this.origGraph = network;
+        this.foldedMln = null;
+        this.foldedGraph = folding.fold(network);
+    }
+
+    /**
+     * Record activation ranges for all examples in the iterator. May be called multiple times.
+     *
+     * @param iterator Calibration data. Labels are not used
+     */
+    public void calibrate(@NonNull DataSetIterator iterator) {
+        if (iterator.resetSupported()) {
+            iterator.reset();
+        }
+        while (iterator.hasNext()) {
+            DataSet ds = iterator.next();
+            calibrate(ds.getFeatures());
+        }
+    }
+
+    /**
+     * Record activation ranges for all examples in the iterator. May be called multiple times.
+     *
+     * @param iterator Calibration data. Labels are not used
+     */
+    public void calibrate(@NonNull MultiDataSetIterator iterator) {
+        if (iterator.resetSupported()) {
+            iterator.reset();
+        }
+        while (iterator.hasNext()) {
+            MultiDataSet mds = iterator.next();
+            calibrate(mds.getFeatures());
+        }
+    }
+
+    /**
+     * Record activation ranges for the specified network input(s). May be called multiple times.
+     *
+     * @param features Network input(s)
+     */
+    public void calibrate(@NonNull INDArray... features) {
+        if (isGraph) {
+            ComputationGraphConfiguration conf = foldedGraph.getConfiguration();
+            Map<String, INDArray> activations = foldedGraph.feedForward(features, false);
+            for (Map.Entry<String, GraphVertex> e : conf.getVertices().entrySet()) {
+                if (isQuantizable(e.getValue())) {
+                    //Layer vertices have exactly 1 input. Note that preprocessors don't change the range of activations
+                    String input = conf.getVertexInputs().get(e.getKey()).get(0);
+                    updateRange(vertexInputRanges, e.getKey(), activations.get(input));
+                }
+            }
+        } else {
+            if (features.length != 1) {
+                throw new IllegalArgumentException("MultiLayerNetwork has 1 input, got " + features.length);
+            }
+            List<INDArray> activations = foldedMln.feedForward(features[0], false);
+            for (int i = 0; i < foldedMln.getnLayers(); i++) {
+                if (isQuantizable(foldedMln.getLayerWiseConfigurations().getConf(i).getLayer())) {
+                    updateRange(layerInputRanges, i, activations.get(i));
+                }
+            }
+        }
+        numCalibrationExamples += features[0].size(0);
+    }
+
+    private static <T> void updateRange(Map<T, Double> ranges, T key, INDArray activations) {
+        double maxAbs = activations.amaxNumber().doubleValue();
+        Double current = ranges.get(key);
+        ranges.put(key, current == null ? maxAbs : Math.max(current, maxAbs));
+    }
+
+    /**
+     * Create the quantized inference model, reusing output arrays (see {@link InferenceModel#output(INDArray...)})
+     */
+    public InferenceModel quantize() {
+        return quantize(true);
+    }
+
+    /**
+     * Create the quantized inference model
+     *
+     * @param reuseOutputBuffers See {@link InferenceModel#compile(MultiLayerNetwork, boolean)}
+     */
+    public InferenceModel quantize(boolean reuseOutputBuffers) {
+        if (numCalibrationExamples == 0) {
+            throw new IllegalStateException("Cannot quantize network: no calibration data has been provided");
+        }
+
+        if (isGraph) {
+            ComputationGraphConfiguration conf = foldedGraph.getConfiguration().clone();
+            Map<String, Int8LinearOp> opsByName = new HashMap<>();
+            for (Map.Entry<String, GraphVertex> e : conf.getVertices().entrySet()) {
+                String name = e.getKey();
+                if (isQuantizable(e.getValue()) && vertexInputRanges.containsKey(name)) {
+                    NeuralNetConfiguration nnc = ((LayerVertex) e.getValue()).getLayerConf();
+                    opsByName.put(name, createOp(nnc.getLayer(), foldedGraph.getLayer(name).paramTable(),
+                            vertexInputRanges.get(name), cacheWeights));
+                    replaceWithPlaceholder(nnc);
+                }
+            }
+
+            ComputationGraph graph = new ComputationGraph(conf);
+            graph.init();
+            Map<Integer, Int8LinearOp> ops = new HashMap<>();
+            for (Map.Entry<String, GraphVertex> e : conf.getVertices().entrySet()) {
+                String name = e.getKey();
+                if (opsByName.containsKey(name)) {
+                    ops.put(graph.getVertex(name).getVertexIndex(), opsByName.get(name));
+                } else if (e.getValue() instanceof LayerVertex) {
+                    LayerFolding.setParams(graph.getLayer(name), LayerFolding.copyParams(foldedGraph.getLayer(name)));
+                }
+            }
+            return new InferenceModel(null, graph, folding, ops, conf.getInferenceWorkspaceMode(),
+                    graph.getVertices().length, reuseOutputBuffers);
+        } else {
+            MultiLayerConfiguration conf = foldedMln.getLayerWiseConfigurations().clone();
+            Map<Integer, Int8LinearOp> ops = new HashMap<>();
+            for (int i = 0; i < conf.getConfs().size(); i++) {
+                NeuralNetConfiguration nnc = conf.getConf(i);
+                if (isQuantizable(nnc.getLayer()) && layerInputRanges.containsKey(i)) {
+                    ops.put(i, createOp(nnc.getLayer(), foldedMln.getLayer(i).paramTable(), layerInputRanges.get(i),
+                            cacheWeights));
+                    replaceWithPlaceholder(nnc);
+                }
+            }
+
+            MultiLayerNetwork net = new MultiLayerNetwork(conf);
+            net.init();
+            for (int i = 0; i < net.getnLayers(); i++) {
+                if (!ops.containsKey(i)) {
+                    LayerFolding.setParams(net.getLayer(i), LayerFolding.copyParams(foldedMln.getLayer(i)));
+                }
+            }
+            return new InferenceModel(net, null, folding, ops, conf.getInferenceWorkspaceMode(), net.getnLayers(),
+                    reuseOutputBuffers);
+        }
+    }
+
+    /**
+     * Compare the outputs of the quantized model with those of the original (float) network
+     *
+     * @param quantized Quantized model, from {@link #quantize()}
+     * @param iterator  Test data. If labels are present (and the first output is for classification), the accuracy
+     *                  of both networks is reported also
+     */
+    public QuantizationReport evaluate(@NonNull InferenceModel quantized, @NonNull DataSetIterator iterator) {
+        if (isGraph) {
+            throw new IllegalStateException("Use evaluate(InferenceModel, MultiDataSetIterator) for ComputationGraph");
+        }
+        if (iterator.resetSupported()) {
+            iterator.reset();
+        }
+        ReportAccumulator acc = new ReportAccumulator();
+        while (iterator.hasNext()) {
+            DataSet ds = iterator.next();
+            acc.add(new INDArray[]{origMln.output(ds.getFeatures(), false)}, quantized.output(ds.getFeatures()),
+                    ds.getLabels());
+        }
+        return acc.toReport(quantized);
+    }
+
+    /**
+     * Compare the outputs of the quantized model with those of the original (float) network
+     *
+     * @param quantized Quantized model, from {@link #quantize()}
+     * @param iterator  Test data. If labels are present (and the first output is for classification), the accuracy
+     *                  of both networks is reported also
+     */
+    public QuantizationReport evaluate(@NonNull InferenceModel quantized, @NonNull MultiDataSetIterator iterator) {
+        if (iterator.resetSupported()) {
+            iterator.reset();
+        }
+        ReportAccumulator acc = new ReportAccumulator();
+        while (iterator.hasNext()) {
+            MultiDataSet mds = iterator.next();
+            INDArray[] expected = isGraph ? origGraph.output(false, mds.getFeatures())
+                    : new INDArray[]{origMln.output(mds.getFeatures(0), false)};
+            acc.add(expected, quantized.output(mds.getFeatures()), mds.getLabels() == null ? null : mds.getLabels(0));
+        }
+        return acc.toReport(quantized);
+    }
+
+    private static boolean isQuantizable(GraphVertex vertex) {
+        return vertex instanceof LayerVertex && isQuantizable(((LayerVertex) vertex).getLayerConf().getLayer());
+    }
+
+    private static boolean isQuantizable(org.deeplearning4j.nn.conf.layers.Layer layer) {
+        //Only plain dense and 2d convolution layers - subclasses have different parameters/forward pass
+        return layer.getClass() == DenseLayer.class || layer.getClass() == ConvolutionLayer.class;
+    }
+
+    private static Int8LinearOp createOp(org.deeplearning4j.nn.conf.layers.Layer layer, Map<String, INDArray> params,
+                                         double inputRange, boolean cacheWeights) {
+        INDArray w = params.get(DefaultParamInitializer.WEIGHT_KEY);
+        INDArray b = params.get(DefaultParamInitializer.BIAS_KEY);
+        if (layer instanceof ConvolutionLayer) {
+            return new Int8ConvolutionOp((ConvolutionLayer) layer, w, b, inputRange, cacheWeights);
+        }
+        return new Int8DenseOp(w, b, inputRange, cacheWeights);
+    }
+
+    /**
+     * Replace the quantized layer by a parameterless layer that applies only the activation function: the linear part
+     * is executed by the int8 op. This means no float copy of the weights is retained by the network itself.
+     */
+    private static void replaceWithPlaceholder(NeuralNetConfiguration nnc) {
+        org.deeplearning4j.nn.conf.layers.Layer layer = nnc.getLayer();
+        nnc.setLayer(new ActivationLayer.Builder().activation(((BaseLayer) layer).getActivationFn())
+                .name(layer.getLayerName()).build());
+        nnc.clearVariables();
+    }
+
+    private static class ReportAccumulator {
+        private long numExamples;
+        private long numValues;
+        private double sumAbsError;
+        private double maxAbsError;
+        private long top1Agree;
+        private long top1Count;
+        private Evaluation floatEval;
+        private Evaluation quantizedEval;
+
+        private void add(INDArray[] expected, INDArray[] actual, INDArray labels) {
+            numExamples += expected[0].size(0);
+            for (int i = 0; i < expected.length; i++) {
+                INDArray absDiff = Transforms.abs(expected[i].sub(actual[i]), false);
+                numValues += absDiff.length();
+                sumAbsError += absDiff.sumNumber().doubleValue();
+                maxAbsError = Math.max(maxAbsError, absDiff.maxNumber().doubleValue());
+            }
+
+            if (expected[0].rank() == 2 && expected[0].size(1) > 1) {
+                INDArray argMaxExp = Nd4j.argMax(expected[0], 1);
+                INDArray argMaxAct = Nd4j.argMax(actual[0], 1);
+                top1Agree += argMaxExp.eq(argMaxAct).sumNumber().longValue();
+                top1Count += expected[0].size(0);
+
+                if (labels != null && labels.rank() == 2 && Arrays.equals(labels.shape(), expected[0].shape())) {
+                    if (floatEval == null) {
+                        floatEval = new Evaluation();
+                        quantizedEval = new Evaluation();
+                    }
+                    floatEval.eval(labels, expected[0]);
+                    quantizedEval.eval(labels, actual[0]);
+                }
+            }
+        }
+
+        private QuantizationReport toReport(InferenceModel model) {
+            long floatBytes = 0;
+            long int8Bytes = 0;
+            for (Int8LinearOp op : model.getInt8Ops().values()) {
+                floatBytes += ((long) op.getNIn() * op.getNOut() + op.getNOut()) * Nd4j.sizeOfDataType();
+                int8Bytes += op.sizeInBytes();
+            }
+            return new QuantizationReport(model.numQuantizedLayers(), floatBytes, int8Bytes, numExamples,
+                    numValues == 0 ? 0.0 : sumAbsError / numValues, maxAbsError,
+                    top1Count == 0 ? Double.NaN : top1Agree / (double) top1Count,
+                    floatEval == null ? Double.NaN : floatEval.accuracy(),
+                    quantizedEval == null ? Double.NaN : quantizedEval.accuracy());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.deeplearning4j.nn.inference;
+
+import org.deeplearning4j.exception.DL4JInvalidInputException;
+import org.deeplearning4j.nn.conf.ConvolutionMode;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer;
+import org.deeplearning4j.nn.workspace.ArrayType;
+import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
+import org.deeplearning4j.util.ConvolutionUtils;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.convolution.Convolution;
+
+import java.util.Arrays;
+
+/**
+ * Int8 version of the linear part of a (2d) {@link ConvolutionLayer}, implemented as im2col followed by an int8
+ * matrix multiplication
+ */
+class Int8ConvolutionOp extends Int8LinearOp {
+
+    private final int inDepth;
+    private final int[] kernel;
+    private final int[] stride;
+    private final int[] padding;
+    private final int[] dilation;
+    private final ConvolutionMode convolutionMode;
+
+    /**
+     * @param conf         Layer configuration
+     * @param weights      Convolution weights, [nOut, nIn, kH, kW]
+     * @param bias         Bias, [1, nOut]. May be null
+     * @param inputMaxAbs  Maximum absolute value of the input activations, from calibration
+     * @param cacheWeights See {@link Int8LinearOp}
+     */
+    Int8ConvolutionOp(ConvolutionLayer conf, INDArray weights, INDArray bias, double inputMaxAbs,
+                      boolean cacheWeights) {
+        super(weights.dup('c').reshape('c', weights.size(0), weights.size(1) * weights.size(2) * weights.size(3)),
+                bias, inputMaxAbs, cacheWeights);
+        this.inDepth = (int) weights.size(1);
+        this.kernel = conf.getKernelSize();
+        this.stride = conf.getStride();
+        this.padding = conf.getPadding();
+        this.dilation = conf.getDilation();
+        this.convolutionMode = conf.getConvolutionMode();
+    }
+
+    @Override
+    INDArray preOutput(INDArray input, LayerWorkspaceMgr workspaceMgr) {
+        if (input.rank() != 4 || input.size(1) != inDepth) {
+            throw new DL4JInvalidInputException("Invalid input for int8 convolution layer: expected rank 4 input with "
+                    + inDepth + " channels, got input with shape " + Arrays.toString(input.shape()));
+        }
+
+        int miniBatch = (int) input.size(0);
+        int[] pad;
+        int[] outSize;
+        if (convolutionMode == ConvolutionMode.Same) {
+            outSize = ConvolutionUtils.getOutputSize(input, kernel, stride, null, convolutionMode, dilation);
+            pad = ConvolutionUtils.getSameModeTopLeftPadding(outSize, new int[]{(int) input.size(2), (int) input.size(3)},
+                    kernel, stride, dilation);
+        } else {
+            pad = padding;
+            outSize = ConvolutionUtils.getOutputSize(input, kernel, stride, pad, convolutionMode, dilation);
+        }
+        int outH = outSize[0];
+        int outW = outSize[1];
+
+        //Same im2col approach as ConvolutionLayer: rows ordered by [miniBatch, outH, outW], columns [depthIn, kH, kW]
+        INDArray col = workspaceMgr.createUninitialized(ArrayType.FF_WORKING_MEM,
+                new long[]{miniBatch, outH, outW, inDepth, kernel[0], kernel[1]}, 'c');
+        INDArray col2 = col.permute(0, 3, 4, 5, 1, 2);
+        Convolution.im2col(input, kernel[0], kernel[1], stride[0], stride[1], pad[0], pad[1], dilation[0], dilation[1],
+                convolutionMode == ConvolutionMode.Same, col2);
+
+        INDArray out = mmul(col.reshape('c', (long) miniBatch * outH * outW, nIn), workspaceMgr);
+
+        //[miniBatch, outH, outW, depthOut] -> [miniBatch, depthOut, outH, outW]
+        return out.reshape('c', miniBatch, outH, outW, nOut).permute(0, 3, 1, 2);
+    }
+}
@@ -0,0 +1,32 @@
+package org.deeplearning4j.nn.inference;
+
+import org.deeplearning4j.exception.DL4JInvalidInputException;
+import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.Arrays;
+
+/**
+ * Int8 version of the linear part of a {@link org.deeplearning4j.nn.conf.layers.DenseLayer}
+ */
+class Int8DenseOp extends Int8LinearOp {
+
+    /**
+     * @param weights      DenseLayer weights, [nIn, nOut]
+     * @param bias         DenseLayer bias, [1, nOut]. May be null
+     * @param inputMaxAbs  Maximum absolute value of the input activations, from calibration
+     * @param cacheWeights See {@link Int8LinearOp}
+     */
+    Int8DenseOp(INDArray weights, INDArray bias, double inputMaxAbs, boolean cacheWeights) {
+        super(weights.transpose(), bias, inputMaxAbs, cacheWeights);
+    }
+
+    @Override
+    INDArray preOutput(INDArray input, LayerWorkspaceMgr workspaceMgr) {
+        if (input.rank() != 2 || input.size(1) != nIn) {
+            throw new DL4JInvalidInputException("Invalid input for int8 dense layer: expected rank 2 input with size "
+                    + nIn + " for dimension 1, got input with shape " + Arrays.toString(input.shape()));
+        }
+        return mmul(input, workspaceMgr);
+    }
+}
@@ -0,0 +1,154 @@
+package org.deeplearning4j.nn.inference;
+
+import lombok.Getter;
+import org.deeplearning4j.nn.workspace.ArrayType;
+import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.BooleanIndexing;
+import org.nd4j.linalg.indexing.conditions.Conditions;
+import org.nd4j.linalg.ops.transforms.Transforms;
+
+/**
+ * Base class for the linear part (pre-activation output) of a layer, executed with int8 weights and inputs.<br>
+ * Weights are quantized symmetrically per output channel: W[c,k] ~= scaleW[c] * Wq[c,k]. Inputs are quantized
+ * symmetrically per tensor, using the range recorded during calibration: x[k] ~= scaleX * xq[k]. Hence
+ * out[c] = scaleX * scaleW[c] * sum_k(xq[k] * Wq[c,k]) + b[c].<br>
+ * The quantized weights are stored in int8 form (using the ND4J INT8 codec, 1 byte per weight). ND4J has no int8
+ * GEMM, so the sum is computed by a standard (BLAS) matrix multiplication of the integer valued inputs and weights,
+ * in the floating point data type. Every product is exact; the sum is exact as long as it fits in the floating point
+ * mantissa (always for double, and for float up to nIn = 1040), and otherwise has a relative rounding error of order
+ * 1e-7 - far below the quantization error.<br>
+ * The int8 weights are converted (natively, without rescaling) to the floating point data type either once, at the
+ * first forward pass, with the result being kept for later passes (cacheWeights = true), or for each forward pass,
+ * in working memory (cacheWeights = false). In the first case inference cost is that of the float layer plus the
+ * quantization of the input, and memory use at inference time is not reduced. In the second case only the int8 weights are kept, at the cost of the
+ * conversion in each forward pass.
+ */
+abstract class Int8LinearOp {
+    protected static final int QMAX = 127;
+    protected static final String CODEC = "INT8";
+
+    /** Quantized weights, [nOut, nIn] row major, INT8 compressed */
+    protected final INDArray weights;
+    /** Combined input and weight scale, per output channel: [1, nOut] */
+    protected final INDArray outputScales;
+    /** Bias: [1, nOut] */
+    protected final INDArray bias;
+    protected final double inputScaleInv;
+    protected final boolean cacheWeights;
+    /** Integer valued weights in the floating point data type, [nOut, nIn]. Only if cacheWeights is true */
+    private volatile INDArray cachedWeights;
+    @Getter
+    protected final int nIn;
+    @Getter
+    protected final int nOut;
+
+    /**
+     * @param weights      Weights, [nOut, nIn] (i.e., one row per output channel)
+     * @param bias         Bias, length nOut. May be null
+     * @param inputMaxAbs  Maximum absolute value of the input activations, from calibration
+     * @param cacheWeights If true: convert the int8 weights to floating point once, and keep them
+     */
+    protected Int8LinearOp(INDArray weights, INDArray bias, double inputMaxAbs, boolean cacheWeights) {
+        this.nOut = (int) weights.size(0);
+        this.nIn = (int) weights.size(1);
+        double inputScale = inputMaxAbs > 0 ? inputMaxAbs / QMAX : 1.0;
+        this.inputScaleInv = 1.0 / inputScale;
+        this.cacheWeights = cacheWeights;
+
+        try (MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+            //Per output channel (row) scales; all zero rows: any scale
+            INDArray scaleW = Transforms.abs(weights, true).max(1).divi(QMAX);
+            BooleanIndexing.replaceWhere(scaleW, 1.0, Conditions.equals(0.0));
+
+            INDArray wq = weights.dup('c').diviColumnVector(scaleW);
+            this.weights = Nd4j.getCompressor().compress(quantize(wq), CODEC);
+            this.outputScales = scaleW.transpose().muli(inputScale).dup('c');
+            this.bias = (bias == null ? Nd4j.zeros(1, nOut) : bias.dup('c').reshape(1, nOut));
+        }
+    }
+
+    /**
+     * Compute the pre-activation output (in the working memory workspace) for the given layer input
+     */
+    abstract INDArray preOutput(INDArray input, LayerWorkspaceMgr workspaceMgr);
+
+    /**
+     * @return Memory used by the quantized weights, scales and biases, in bytes. Excludes the floating point copy of
+     * the weights, if cacheWeights is true
+     */
+    long sizeInBytes() {
+        return weights.length() + (outputScales.length() + bias.length()) * Nd4j.sizeOfDataType();
+    }
+
+    /**
+     * Quantize and multiply: out[r, c] = outputScales[c] * sum_k(q(x[r,k]) * Wq[c,k]) + b[c]
+     *
+     * @param x Input, [rows, nIn]
+     * @return Output, [rows, nOut] row major, in the working memory workspace
+     */
+    protected INDArray mmul(INDArray x, LayerWorkspaceMgr workspaceMgr) {
+        INDArray xq = workspaceMgr.createUninitialized(ArrayType.FF_WORKING_MEM, x.shape(), 'c');
+        xq.assign(x).muli(inputScaleInv);
+        quantize(xq);
+
+        INDArray w;
+        if (cacheWeights) {
+            w = cachedWeights();
+        } else {
+            w = workspaceMgr.createUninitialized(ArrayType.FF_WORKING_MEM, new long[] {nOut, nIn}, 'c');
+            decompress(w);
+        }
+
+        INDArray out = workspaceMgr.createUninitialized(ArrayType.FF_WORKING_MEM, new long[] {x.size(0), nOut}, 'c');
+        xq.mmul(w.transpose(), out);
+        return out.muliRowVector(outputScales).addiRowVector(bias);
+    }
+
+    private INDArray cachedWeights() {
+        INDArray w = cachedWeights;
+        if (w == null) {
+            synchronized (this) {
+                w = cachedWeights;
+                if (w == null) {
+                    try (MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+                        w = Nd4j.createUninitialized(new long[] {nOut, nIn}, 'c');
+                        decompress(w);
+                    }
+                    cachedWeights = w;
+                }
+            }
+        }
+        return w;
+    }
+
+    private void decompress(INDArray target) {
+        Nd4j.getNDArrayFactory().convertDataEx(DataBuffer.TypeEx.INT8, weights.data(), typeEx(target.data()),
+                target.data());
+    }
+
+    /**
+     * Round to the nearest integer and clip to [-QMAX, QMAX], in place
+     */
+    protected static INDArray quantize(INDArray arr) {
+        Transforms.round(arr, false);
+        Transforms.min(arr, QMAX, false);
+        return Transforms.max(arr, -QMAX, false);
+    }
+
+    private static DataBuffer.TypeEx typeEx(DataBuffer buffer) {
+        switch (buffer.dataType()) {
+            case DOUBLE:
+                return DataBuffer.TypeEx.DOUBLE;
+            case FLOAT:
+                return DataBuffer.TypeEx.FLOAT;
+            case HALF:
+                return DataBuffer.TypeEx.FLOAT16;
+            default:
+                throw new IllegalStateException("Unsupported data type: " + buffer.dataType());
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package org.deeplearning4j.nn.inference;
+
+import lombok.Getter;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.InputPreProcessor;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.graph.GraphVertex;
+import org.deeplearning4j.nn.conf.graph.LayerVertex;
+import org.deeplearning4j.nn.conf.layers.ActivationLayer;
+import org.deeplearning4j.nn.conf.layers.BaseLayer;
+import org.deeplearning4j.nn.conf.layers.BatchNormalization;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.DropoutLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.params.BatchNormalizationParamInitializer;
+import org.deeplearning4j.nn.params.DefaultParamInitializer;
+import org.nd4j.linalg.activations.impl.ActivationIdentity;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.impl.broadcast.BroadcastMulOp;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.ops.transforms.Transforms;
+
+import java.util.*;
+
+/**
+ * Rewrites a trained network into an equivalent network for inference only:
+ * <ul>
+ *     <li>BatchNormalization layers directly after a DenseLayer or ConvolutionLayer (with identity activation) are
+ *     folded into the weights and bias of that layer, using the global mean/variance estimates</li>
+ *     <li>ActivationLayers directly after a DenseLayer or ConvolutionLayer (with identity activation) are fused into
+ *     that layer's activation function</li>
+ *     <li>DropoutLayers (which are a no-op at inference time) are removed</li>
+ *     <li>Dropout and weight noise are removed from all remaining layers</li>
+ * </ul>
+ * The original network is not modified.
+ */
+class LayerFolding {
+
+    @Getter
+    private int numFoldedBatchNorm;
+    @Getter
+    private int numFusedActivations;
+    @Getter
+    private int numRemovedDropout;
+
+    /**
+     * Create the folded copy of the specified network
+     */
+    MultiLayerNetwork fold(MultiLayerNetwork net) {
+        MultiLayerConfiguration conf = net.getLayerWiseConfigurations().clone();
+        int n = conf.getConfs().size();
+        List<NeuralNetConfiguration> confs = new ArrayList<>(conf.getConfs());
+        List<InputPreProcessor> preProcessors = new ArrayList<>();
+        List<Map<String, INDArray>> params = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            preProcessors.add(conf.getInputPreProcess(i));
+            params.add(copyParams(net.getLayer(i)));
+        }
+
+        int i = 0;
+        while (i < confs.size()) {
+            org.deeplearning4j.nn.conf.layers.Layer curr = confs.get(i).getLayer();
+            boolean remove = false;
+            if (preProcessors.get(i) == null && confs.size() > 1) {
+                if (curr instanceof DropoutLayer) {
+                    remove = true;
+                    numRemovedDropout++;
+                } else if (i > 0) {
+                    remove = foldPair(confs.get(i - 1).getLayer(), params.get(i - 1), curr, params.get(i));
+                }
+            }
+
+            if (remove) {
+                //Preprocessor (if any) for the next layer is retained: folded/removed layers don't change the
+                // activations type. Next layer is now at index i, and may be folded into layer i-1 also
+                confs.remove(i);
+                preProcessors.remove(i);
+                params.remove(i);
+            } else {
+                i++;
+            }
+        }
+
+        Map<Integer, InputPreProcessor> preProcMap = new HashMap<>();
+        for (int j = 0; j < confs.size(); j++) {
+            if (preProcessors.get(j) != null) {
+                preProcMap.put(j, preProcessors.get(j));
+            }
+            stripTrainingConfig(confs.get(j));
+        }
+        conf.setConfs(confs);
+        conf.setInputPreProcessors(preProcMap);
+
+        MultiLayerNetwork out = new MultiLayerNetwork(conf);
+        out.init();
+        for (int j = 0; j < confs.size(); j++) {
+            setParams(out.getLayer(j), params.get(j));
+        }
+        return out;
+    }
+
+    /**
+     * Create the folded copy of the specified network
+     */
+    ComputationGraph fold(ComputationGraph net) {
+        ComputationGraphConfiguration conf = net.getConfiguration().clone();
+        Map<String, GraphVertex> vertices = conf.getVertices();
+        Map<String, List<String>> vertexInputs = conf.getVertexInputs();
+        List<String> networkOutputs = conf.getNetworkOutputs();
+
+        Map<String, Map<String, INDArray>> params = new HashMap<>();
+        for (Map.Entry<String, GraphVertex> e : vertices.entrySet()) {
+            if (e.getValue() instanceof LayerVertex) {
+                params.put(e.getKey(), copyParams(net.getLayer(e.getKey())));
+            }
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (String name : new ArrayList<>(vertices.keySet())) {
+                if (!(vertices.get(name) instanceof LayerVertex) || networkOutputs.contains(name)) {
+                    continue;
+                }
+                LayerVertex lv = (LayerVertex) vertices.get(name);
+                List<String> inputs = vertexInputs.get(name);
+                if (lv.getPreProcessor() != null || inputs == null || inputs.size() != 1) {
+                    continue;
+                }
+                String prevName = inputs.get(0);
+                org.deeplearning4j.nn.conf.layers.Layer curr = lv.getLayerConf().getLayer();
+
+                boolean remove = false;
+                if (curr instanceof DropoutLayer) {
+                    remove = true;
+                    numRemovedDropout++;
+                } else if (vertices.get(prevName) instanceof LayerVertex
+                        && numConsumers(prevName, vertexInputs, networkOutputs) == 1) {
+                    org.deeplearning4j.nn.conf.layers.Layer prev =
+                            ((LayerVertex) vertices.get(prevName)).getLayerConf().getLayer();
+                    remove = foldPair(prev, params.get(prevName), curr, params.get(name));
+                }
+
+                if (remove) {
+                    vertices.remove(name);
+                    vertexInputs.remove(name);
+                    params.remove(name);
+                    for (List<String> l : vertexInputs.values()) {
+                        for (int j = 0; j < l.size(); j++) {
+                            if (name.equals(l.get(j))) {
+                                l.set(j, prevName);
+                            }
+                        }
+                    }
+                    changed = true;
+                }
+            }
+        }
+
+        for (GraphVertex gv : vertices.values()) {
+            if (gv instanceof LayerVertex) {
+                stripTrainingConfig(((LayerVertex) gv).getLayerConf());
+            }
+        }
+
+        ComputationGraph out = new ComputationGraph(conf);
+        out.init();
+        for (Map.Entry<String, Map<String, INDArray>> e : params.entrySet()) {
+            setParams(out.getLayer(e.getKey()), e.getValue());
+        }
+        return out;
+    }
+
+    /**
+     * Fold layer "curr" into the preceding layer "prev", if possible. Parameters and configuration for prev are
+     * modified in place.
+     *
+     * @return True if the layer was folded (and should be removed), false otherwise
+     */
+    private boolean foldPair(org.deeplearning4j.nn.conf.layers.Layer prev, Map<String, INDArray> prevParams,
+                             org.deeplearning4j.nn.conf.layers.Layer curr, Map<String, INDArray> currParams) {
+        if (!isFoldTarget(prev)) {
+            return false;
+        }
+
+        if (curr instanceof BatchNormalization) {
+            BatchNormalization bn = (BatchNormalization) curr;
+            if (bn.isLockGammaBeta() && (bn.getGamma() != 1.0 || bn.getBeta() != 0.0)) {
+                //Not supported: would need to reproduce the fixed gamma/beta special casing in the layer
+                return false;
+            }
+            foldBatchNorm(prev, prevParams, bn, currParams);
+            numFoldedBatchNorm++;
+            return true;
+        } else if (curr instanceof ActivationLayer && ((ActivationLayer) curr).getActivationFn() != null) {
+            ((BaseLayer) prev).setActivationFn(((ActivationLayer) curr).getActivationFn());
+            numFusedActivations++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Only plain DenseLayer and ConvolutionLayer (not subclasses, which have different parameter layouts) are used
+     * as targets for folding, and only if the activations are not otherwise modified by the layer
+     */
+    private static boolean isFoldTarget(org.deeplearning4j.nn.conf.layers.Layer l) {
+        if (l.getClass() != DenseLayer.class && l.getClass() != ConvolutionLayer.class) {
+            return false;
+        }
+        return ((BaseLayer) l).getActivationFn() instanceof ActivationIdentity;
+    }
+
+    /**
+     * BatchNorm (at inference): out = gamma * (x - mean) / sqrt(var) + beta, with x = W*in + b.<br>
+     * Hence: W' = W * s and b' = (b - mean) * s + beta, with s = gamma / sqrt(var), applied per output (Dense) or
+     * per channel (Convolution). Note that the global variance estimate already includes epsilon.
+     */
+    private static void foldBatchNorm(org.deeplearning4j.nn.conf.layers.Layer prev, Map<String, INDArray> prevParams,
+                                      BatchNormalization bn, Map<String, INDArray> bnParams) {
+        INDArray mean = bnParams.get(BatchNormalizationParamInitializer.GLOBAL_MEAN);
+        INDArray var = bnParams.get(BatchNormalizationParamInitializer.GLOBAL_VAR);
+        INDArray scale = Transforms.sqrt(var, true).rdivi(1.0);
+        INDArray shift;
+        if (bn.isLockGammaBeta()) {
+            shift = Nd4j.zeros(mean.shape());
+        } else {
+            scale.muli(bnParams.get(BatchNormalizationParamInitializer.GAMMA));
+            shift = bnParams.get(BatchNormalizationParamInitializer.BETA).dup();
+        }
+
+        INDArray w = prevParams.get(DefaultParamInitializer.WEIGHT_KEY);
+        INDArray b = prevParams.get(DefaultParamInitializer.BIAS_KEY);
+        if (b == null) {
+            b = Nd4j.zeros(mean.shape());
+        }
+
+        if (prev instanceof ConvolutionLayer) {
+            //Weights: [nOut, nIn, kH, kW]
+            Nd4j.getExecutioner().exec(new BroadcastMulOp(w, scale, w, 0));
+            ((ConvolutionLayer) prev).setHasBias(true);
+        } else {
+            //Weights: [nIn, nOut]
+            w.muliRowVector(scale);
+            ((DenseLayer) prev).setHasBias(true);
+        }
+        prevParams.put(DefaultParamInitializer.BIAS_KEY, b.sub(mean).muli(scale).addi(shift));
+    }
+
+    private static int numConsumers(String vertex, Map<String, List<String>> vertexInputs, List<String> outputs) {
+        int count = 0;
+        for (List<String> l : vertexInputs.values()) {
+            for (String s : l) {
+                if (vertex.equals(s)) {
+                    count++;
+                }
+            }
+        }
+        if (outputs.contains(vertex)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static void stripTrainingConfig(NeuralNetConfiguration conf) {
+        org.deeplearning4j.nn.conf.layers.Layer l = conf.getLayer();
+        l.setIDropout(null);
+        if (l instanceof BaseLayer) {
+            ((BaseLayer) l).setWeightNoise(null);
+        }
+        //Variables are re-added by the parameter initializers on init - may differ due to folding (bias added)
+        conf.clearVariables();
+    }
+
+    static Map<String, INDArray> copyParams(Layer layer) {
+        Map<String, INDArray> out = new LinkedHashMap<>();
+        for (Map.Entry<String, INDArray> e : layer.paramTable().entrySet()) {
+            out.put(e.getKey(), e.getValue().dup());
+        }
+        return out;
+    }
+
+    static void setParams(Layer layer, Map<String, INDArray> params) {
+        Map<String, INDArray> table = layer.paramTable();
+        if (!table.keySet().equals(params.keySet())) {
+            throw new IllegalStateException("Parameter keys for folded layer do not match: expected " + table.keySet()
+                    + ", got " + params.keySet());
+        }
+        for (Map.Entry<String, INDArray> e : params.entrySet()) {
+            table.get(e.getKey()).assign(e.getValue());
+        }
+    }
+}
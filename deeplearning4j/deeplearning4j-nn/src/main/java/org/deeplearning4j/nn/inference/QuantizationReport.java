@@ -0,0 +1,51 @@
+package org.deeplearning4j.nn.inference;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Comparison of a quantized {@link InferenceModel} with the original (float) network, as produced by
+ * {@link Int8Calibrator#evaluate(InferenceModel, org.nd4j.linalg.dataset.api.iterator.DataSetIterator)}.<br>
+ * Top-1 agreement and accuracy are only available for classification networks (rank 2 first output with more than
+ * one column), and accuracy only if labels are available - otherwise they are NaN
+ */
+@Data
+@AllArgsConstructor
+public class QuantizationReport {
+    private final int numQuantizedLayers;
+    /** Memory for the weights and biases of the quantized layers, in the network's floating point data type */
+    private final long floatWeightBytes;
+    /** Memory for the int8 weights, scales and biases of the quantized layers */
+    private final long int8WeightBytes;
+    private final long numExamples;
+    private final double meanAbsError;
+    private final double maxAbsError;
+    /** Fraction of examples for which the quantized and float networks predict the same class */
+    private final double top1Agreement;
+    private final double floatAccuracy;
+    private final double quantizedAccuracy;
+
+    /**
+     * @return Ratio of float to int8 memory for the weights of the quantized layers
+     */
+    public double compressionRatio() {
+        return int8WeightBytes == 0 ? 1.0 : floatWeightBytes / (double) int8WeightBytes;
+    }
+
+    public String stats() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Quantization report: ").append(numQuantizedLayers).append(" int8 layers, ")
+                .append(numExamples).append(" test examples\n");
+        sb.append(String.format("Weight memory:     %d bytes (float) -> %d bytes (int8), ratio %.2f%n",
+                floatWeightBytes, int8WeightBytes, compressionRatio()));
+        sb.append(String.format("Output abs error:  mean %.6g, max %.6g%n", meanAbsError, maxAbsError));
+        if (!Double.isNaN(top1Agreement)) {
+            sb.append(String.format("Top-1 agreement:   %.4f%n", top1Agreement));
+        }
+        if (!Double.isNaN(floatAccuracy)) {
+            sb.append(String.format("Accuracy:          %.4f (float) -> %.4f (int8)%n", floatAccuracy,
+                    quantizedAccuracy));
+        }
+        return sb.toString();
+    }
+}
@@ -64,6 +64,10 @@ public abstract class BaseOutputLayer<LayerConfT extends org.deeplearning4j.nn.c
     protected INDArray inputMaskArray;
     protected MaskState inputMaskArrayState;
 
+    //Loss function score (sum over examples, without regularization) calculated during backprop for the current
+    // input, labels and mask. Used once by computeScore at training time, to avoid evaluating the loss function twice
+    private double backpropScore = Double.NaN;
+
     public BaseOutputLayer(NeuralNetConfiguration conf) {
         super(conf);
     }
@@ -85,12 +89,19 @@ public abstract class BaseOutputLayer<LayerConfT extends org.deeplearning4j.nn.c
             throw new IllegalStateException("Cannot calculate score without input and labels " + layerId());
         this.fullNetworkL1 = fullNetworkL1;
         this.fullNetworkL2 = fullNetworkL2;
-        INDArray preOut = preOutput2d(training, workspaceMgr);
 
-        ILossFunction lossFunction = layerConf().getLossFn();
+        double score;
+        if (training && !Double.isNaN(backpropScore)) {
+            score = backpropScore;
+            backpropScore = Double.NaN;
+        } else {
+            INDArray preOut = preOutput2d(training, workspaceMgr);
 
-        double score = lossFunction.computeScore(getLabels2d(workspaceMgr, ArrayType.FF_WORKING_MEM), preOut,
-                layerConf().getActivationFn(), maskArray,false);
+            ILossFunction lossFunction = layerConf().getLossFn();
+
+            score = lossFunction.computeScore(getLabels2d(workspaceMgr, ArrayType.FF_WORKING_MEM), preOut,
+                    layerConf().getActivationFn(), maskArray, false);
+        }
         score += fullNetworkL1 + fullNetworkL2;
         if(conf().isMiniBatch())
             score /= getInputMiniBatchSize();
@@ -180,8 +191,11 @@ public abstract class BaseOutputLayer<LayerConfT extends org.deeplearning4j.nn.c
     private Pair<Gradient, INDArray> getGradientsAndDelta(INDArray preOut, LayerWorkspaceMgr workspaceMgr) {
         ILossFunction lossFunction = layerConf().getLossFn();
         INDArray labels2d = getLabels2d(workspaceMgr, ArrayType.BP_WORKING_MEM);
-        //INDArray delta = lossFunction.computeGradient(labels2d, preOut, layerConf().getActivationFunction(), maskArray);
-        INDArray delta = lossFunction.computeGradient(labels2d, preOut, layerConf().getActivationFn(), maskArray);
+        //Score and gradient together: loss functions such as MCXENT + softmax share most of the work between them
+        Pair<Double, INDArray> scoreAndDelta = lossFunction.computeGradientAndScore(labels2d, preOut,
+                layerConf().getActivationFn(), maskArray, false);
+        INDArray delta = scoreAndDelta.getSecond();
+        backpropScore = scoreAndDelta.getFirst();
 
         Gradient gradient = new DefaultGradient();
 
@@ -337,6 +351,7 @@ public abstract class BaseOutputLayer<LayerConfT extends org.deeplearning4j.nn.c
         inputMaskArray = null;
         fullNetworkL1 = 0.0;
         fullNetworkL2 = 0.0;
+        backpropScore = Double.NaN;
     }
 
     /**
@@ -356,6 +371,19 @@ public abstract class BaseOutputLayer<LayerConfT extends org.deeplearning4j.nn.c
 
     public void setLabels(INDArray labels) {
         this.labels = labels;
+        backpropScore = Double.NaN;
+    }
+
+    @Override
+    public void setInput(INDArray input, LayerWorkspaceMgr workspaceMgr) {
+        super.setInput(input, workspaceMgr);
+        backpropScore = Double.NaN;
+    }
+
+    @Override
+    public void setMaskArray(INDArray maskArray) {
+        super.setMaskArray(maskArray);
+        backpropScore = Double.NaN;
     }
 
     protected INDArray preOutput2d(boolean training, LayerWorkspaceMgr workspaceMgr) {
@@ -0,0 +1,101 @@
+package org.deeplearning4j.nn.layers;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.custom.ScatterUpdate;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.Serializable;
+import java.util.BitSet;
+
+/**
+ * Tracks the rows of a row-sparse parameter (such as the weights of an embedding layer) that have a non-zero gradient
+ * (since the last updater application), the rows updated by the last updater application (to which the step function
+ * is applied) and the rows modified since the last synchronization, for
+ * {@link org.deeplearning4j.nn.api.layers.SparseGradientLayer}.<br>
+ * Also tracks the rows of the gradient view that may be non-zero, so that only those need to be zeroed before the
+ * next backprop. This is only possible if the step has been applied to the updated rows only: otherwise (for example,
+ * with gradient sharing) the gradient view may have been modified anywhere, and is zeroed in full.
+ */
+public class SparseRowTracker implements Serializable {
+    private static final int[] DIM_1 = new int[] {1};
+
+    private final BitSet gradientRows = new BitSet();
+    private final BitSet modifiedRows = new BitSet();
+    private final BitSet gradientViewRows = new BitSet();
+    private int[] stepRows = new int[0];
+    //True if all rows of the gradient view other than gradientViewRows are known to be zero
+    private boolean gradientViewTracked = false;
+
+    public void addGradientRows(int[] rows) {
+        for (int r : rows) {
+            gradientRows.set(r);
+            gradientViewRows.set(r);
+        }
+    }
+
+    public int[] getGradientRows() {
+        return toArray(gradientRows);
+    }
+
+    public void markGradientRowsApplied() {
+        stepRows = toArray(gradientRows);
+        modifiedRows.or(gradientRows);
+        gradientViewRows.or(gradientRows);
+        gradientRows.clear();
+        //Unknown until the step has been applied to the updated rows only
+        gradientViewTracked = false;
+    }
+
+    public int[] getStepRows() {
+        return stepRows;
+    }
+
+    public void markStepApplied() {
+        stepRows = new int[0];
+        gradientViewTracked = true;
+    }
+
+    public int[] getModifiedRows() {
+        return toArray(modifiedRows);
+    }
+
+    public void clearModifiedRows() {
+        modifiedRows.clear();
+    }
+
+    /**
+     * Zero the gradient view of the row-sparse parameter before backprop: only the rows that may be non-zero, if
+     * known, or the full array otherwise
+     *
+     * @param gradientView Gradient view of the parameter, with the tracked rows as rows (i.e., transposed if the
+     *                     parameter is sparse along columns)
+     */
+    public void zeroGradientView(INDArray gradientView) {
+        if (!gradientViewTracked) {
+            gradientView.assign(0);
+        } else if (!gradientViewRows.isEmpty()) {
+            int[] rows = toArray(gradientViewRows);
+            Nd4j.getExecutioner().exec(new ScatterUpdate(gradientView, Nd4j.zeros(rows.length, gradientView.size(1)),
+                            rows, DIM_1, ScatterUpdate.UpdateOp.ASSIGN));
+        }
+        gradientViewRows.clear();
+        gradientViewTracked = true;
+    }
+
+    /**
+     * Called when a new gradient view array is set: its content is unknown
+     */
+    public void resetGradientView() {
+        gradientViewRows.clear();
+        gradientViewTracked = false;
+    }
+
+    private static int[] toArray(BitSet bitSet) {
+        int[] out = new int[bitSet.cardinality()];
+        int j = 0;
+        for (int i = bitSet.nextSetBit(0); i >= 0; i = bitSet.nextSetBit(i + 1)) {
+            out[j++] = i;
+        }
+        return out;
+    }
+}
@@ -23,6 +23,7 @@ import org.deeplearning4j.nn.api.Layer;
 import org.deeplearning4j.nn.conf.CacheMode;
 import org.deeplearning4j.nn.conf.ConvolutionMode;
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer.CpuAlgo;
 import org.deeplearning4j.nn.gradient.DefaultGradient;
 import org.deeplearning4j.nn.gradient.Gradient;
 import org.deeplearning4j.nn.graph.ComputationGraph;
@@ -92,6 +93,30 @@ public class ConvolutionLayer extends BaseLayer<org.deeplearning4j.nn.conf.layer
                             + "For more information, please refer to: https://deeplearning4j.org/cudnn", t);
                 }
             }
+        } else if (layerConf().getCpuAlgo() != null && layerConf().getCpuAlgo() != CpuAlgo.IM2COL) {
+            //CPU, opt-in: direct/Winograd algorithms where applicable. Helper returns null (im2col fallback) otherwise
+            helper = new CpuConvolutionHelper(layerConf().getCpuAlgo());
+        }
+    }
+
+    /**
+     * @return True if the built-in implementation should be used after the helper has failed. The CPU helper can
+     * always fall back on im2col; cuDNN only if {@link org.deeplearning4j.nn.conf.layers.ConvolutionLayer#isCudnnAllowFallback()}
+     */
+    protected boolean helperAllowFallback() {
+        return helper instanceof CpuConvolutionHelper || layerConf().isCudnnAllowFallback();
+    }
+
+    protected void helperFailed(Exception e) {
+        if (!helperAllowFallback()) {
+            throw new RuntimeException(e);
+        }
+        helperCountFail++;
+        if (helper instanceof CpuConvolutionHelper) {
+            log.warn("CPU convolution algorithm " + layerConf().getCpuAlgo()
+                            + " failed - falling back on im2col implementation", e);
+        } else {
+            log.warn("CuDNN execution failed - falling back on built-in implementation", e);
         }
     }
 
@@ -145,7 +170,7 @@ public class ConvolutionLayer extends BaseLayer<org.deeplearning4j.nn.conf.layer
         Pair<INDArray, INDArray> p = preOutput4d(true, true, workspaceMgr);
         delta = afn.backprop(p.getFirst(), epsilon).getFirst(); //TODO handle activation function params
 
-        if (helper != null && (helperCountFail == 0 || !layerConf().isCudnnAllowFallback())) {
+        if (helper != null && (helperCountFail == 0 || !helperAllowFallback())) {
 
             if(!hasBias()){
                 if(dummyBiasGrad == null){
@@ -163,12 +188,7 @@ public class ConvolutionLayer extends BaseLayer<org.deeplearning4j.nn.conf.layer
                         layerConf().getCudnnBwdFilterAlgo(), layerConf().getCudnnBwdDataAlgo(), convolutionMode,
                         dilation, workspaceMgr);
             } catch (Exception e){
-                if(layerConf().isCudnnAllowFallback()){
-                    helperCountFail++;
-                    log.warn("CuDNN execution failed - falling back on built-in implementation",e);
-                } else {
-                    throw new RuntimeException(e);
-                }
+                helperFailed(e);
             }
 
             if (ret != null) {
@@ -313,7 +333,7 @@ public class ConvolutionLayer extends BaseLayer<org.deeplearning4j.nn.conf.layer
         int outW = outSize[1];
 
 
-        if (helper != null && (helperCountFail == 0 || !layerConf().isCudnnAllowFallback())) {
+        if (helper != null && (helperCountFail == 0 || !helperAllowFallback())) {
             if (preOutput != null && forBackprop) {
                 return new Pair<>(preOutput, null);
             }
@@ -333,12 +353,7 @@ public class ConvolutionLayer extends BaseLayer<org.deeplearning4j.nn.conf.layer
                 ret = helper.preOutput(input, weights, bias, kernel, strides, pad, layerConf().getCudnnAlgoMode(),
                         layerConf().getCudnnFwdAlgo(), convolutionMode, dilation, workspaceMgr);
             } catch (Exception e){
-                if(layerConf().isCudnnAllowFallback()){
-                    helperCountFail++;
-                    log.warn("CuDNN execution failed - falling back on built-in implementation",e);
-                } else {
-                    throw new RuntimeException(e);
-                }
+                helperFailed(e);
             }
             if (ret != null) {
                 return new Pair<>(ret, null);
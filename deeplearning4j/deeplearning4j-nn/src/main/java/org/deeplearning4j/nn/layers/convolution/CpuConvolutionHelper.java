@@ -0,0 +1,446 @@
+package org.deeplearning4j.nn.layers.convolution;
+
+import org.deeplearning4j.nn.conf.ConvolutionMode;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer.AlgoMode;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer.BwdDataAlgo;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer.BwdFilterAlgo;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer.CpuAlgo;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer.FwdAlgo;
+import org.deeplearning4j.nn.gradient.DefaultGradient;
+import org.deeplearning4j.nn.gradient.Gradient;
+import org.deeplearning4j.nn.params.ConvolutionParamInitializer;
+import org.deeplearning4j.nn.workspace.ArrayType;
+import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
+import org.deeplearning4j.util.ConvolutionUtils;
+import org.nd4j.linalg.activations.IActivation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.shape.Shape;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.INDArrayIndex;
+import org.nd4j.linalg.primitives.Pair;
+
+import static org.nd4j.linalg.indexing.NDArrayIndex.all;
+import static org.nd4j.linalg.indexing.NDArrayIndex.interval;
+import static org.nd4j.linalg.indexing.NDArrayIndex.point;
+
+/**
+ * CPU helper for the convolution layer, providing alternatives to the built-in im2col + gemm implementation, which
+ * allocates an im2col array of shape [miniBatch*outH*outW, inDepth*kH*kW] (9x the size of the input for 3x3 kernels):
+ * <ul>
+ *     <li>DIRECT: 1x1 kernels without padding (any stride). The convolution is a single matrix multiplication of the
+ *     weights with the (channels first) input: no im2col is required</li>
+ *     <li>WINOGRAD: Winograd minimal filtering F(2x2,3x3), for 3x3 kernels with stride 1 and no dilation. The input is
+ *     split into overlapping 4x4 tiles (stride 2), and each tile d is transformed as B<sup>T</sup>dB. The 16 elements
+ *     of the transformed tiles are multiplied with the transformed kernels Gg<sup>T</sup>G<sup>T</sup> as 16
+ *     independent [outDepth,inDepth] x [inDepth,numTiles] matrix multiplications, and the products are transformed
+ *     back to 2x2 output tiles as A<sup>T</sup>mA. This needs 16 instead of 36 multiplications per output tile.
+ *     Tiles are processed in blocks of at most {@link #WINOGRAD_BLOCK_SIZE} transformed elements: other than the
+ *     zero padded input and the transformed kernels, the working memory is bounded by the block size, rather than
+ *     growing with the minibatch and input size. The backward pass for the input gradients is itself a 3x3 stride 1
+ *     convolution (with the flipped kernel) and also uses Winograd; weight gradients are calculated one kernel
+ *     position at a time, which needs an array of the size of the input rather than the full im2col array</li>
+ * </ul>
+ * The algorithm is chosen for each call with {@link #selectAlgorithm(CpuAlgo, int[], int[], int[], int[], long, long,
+ * int, int)}. If no alternative algorithm applies, null is returned and the layer falls back on the built-in
+ * implementation.<br>
+ * See: Lavin and Gray, Fast Algorithms for Convolutional Neural Networks (2015) - https://arxiv.org/abs/1509.09308
+ */
+public class CpuConvolutionHelper implements ConvolutionHelper {
+
+    /** Minimum number of input and output channels for Winograd to be selected in AUTO mode */
+    public static final int AUTO_WINOGRAD_MIN_CHANNELS = 8;
+    /** Minimum output height and width for Winograd to be selected in AUTO mode */
+    public static final int AUTO_WINOGRAD_MIN_OUTPUT_SIZE = 4;
+    /** Maximum number of elements (transformed input tiles and products) of each block of tiles, for Winograd */
+    public static final int WINOGRAD_BLOCK_SIZE = 1 << 22;
+
+    private final CpuAlgo cpuAlgo;
+
+    public CpuConvolutionHelper(CpuAlgo cpuAlgo) {
+        this.cpuAlgo = (cpuAlgo == null ? CpuAlgo.IM2COL : cpuAlgo);
+    }
+
+    @Override
+    public boolean checkSupported() {
+        return cpuAlgo != CpuAlgo.IM2COL;
+    }
+
+    /**
+     * Select the algorithm to use for the given convolution configuration
+     *
+     * @param cpuAlgo   Configured algorithm. AUTO: select based on the kernel, stride, padding and number of channels
+     * @param kernel    Kernel size
+     * @param strides   Strides
+     * @param pad       Padding (top/left)
+     * @param dilation  Dilation
+     * @param inDepth   Number of input channels
+     * @param outDepth  Number of output channels
+     * @param outH      Output height
+     * @param outW      Output width
+     * @return The algorithm to use: DIRECT, WINOGRAD or IM2COL (if neither alternative applies)
+     */
+    public static CpuAlgo selectAlgorithm(CpuAlgo cpuAlgo, int[] kernel, int[] strides, int[] pad, int[] dilation,
+                                          long inDepth, long outDepth, int outH, int outW) {
+        boolean direct = kernel[0] == 1 && kernel[1] == 1 && pad[0] == 0 && pad[1] == 0;
+        boolean winograd = kernel[0] == 3 && kernel[1] == 3 && strides[0] == 1 && strides[1] == 1
+                        && dilation[0] == 1 && dilation[1] == 1;
+        switch (cpuAlgo) {
+            case DIRECT:
+                return direct ? CpuAlgo.DIRECT : CpuAlgo.IM2COL;
+            case WINOGRAD:
+                return winograd ? CpuAlgo.WINOGRAD : CpuAlgo.IM2COL;
+            case AUTO:
+                if (direct) {
+                    return CpuAlgo.DIRECT;
+                }
+                //For few channels or small outputs, the transforms dominate the (relatively small) gemms
+                if (winograd && inDepth >= AUTO_WINOGRAD_MIN_CHANNELS && outDepth >= AUTO_WINOGRAD_MIN_CHANNELS
+                                && outH >= AUTO_WINOGRAD_MIN_OUTPUT_SIZE && outW >= AUTO_WINOGRAD_MIN_OUTPUT_SIZE) {
+                    return CpuAlgo.WINOGRAD;
+                }
+                return CpuAlgo.IM2COL;
+            default:
+                return CpuAlgo.IM2COL;
+        }
+    }
+
+    @Override
+    public Pair<Gradient, INDArray> backpropGradient(INDArray input, INDArray weights, INDArray delta, int[] kernel,
+                    int[] strides, int[] pad, INDArray biasGradView, INDArray weightGradView, IActivation afn,
+                    AlgoMode mode, BwdFilterAlgo bwdFilterAlgo, BwdDataAlgo bwdDataAlgo,
+                    ConvolutionMode convolutionMode, int[] dilation, LayerWorkspaceMgr workspaceMgr) {
+        // FIXME: int cast
+        int miniBatch = (int) input.size(0);
+        int inH = (int) input.size(2);
+        int inW = (int) input.size(3);
+        int outDepth = (int) weights.size(0);
+        int inDepth = (int) weights.size(1);
+        int outH = (int) delta.size(2);
+        int outW = (int) delta.size(3);
+
+        CpuAlgo algo = selectAlgorithm(cpuAlgo, kernel, strides, pad, dilation, inDepth, outDepth, outH, outW);
+        if (algo == CpuAlgo.IM2COL) {
+            return null;
+        }
+
+        //Delta as [outDepth, miniBatch*outH*outW]; zero-copy for the activations layout used by preOutput
+        INDArray delta2d = delta.permute(1, 0, 2, 3).reshape('c', outDepth, miniBatch * outH * outW);
+
+        INDArray epsNext;
+        if (algo == CpuAlgo.DIRECT) {
+            INDArray in2d = channelsFirst2d(input, strides, outH, outW, workspaceMgr, ArrayType.BP_WORKING_MEM);
+            INDArray w2d = weights.reshape('c', outDepth, inDepth);
+
+            //Weight gradients: [inDepth, outDepth] f order view of the c order [outDepth, inDepth, 1, 1] gradient view
+            INDArray weightGradView2df =
+                            Shape.newShapeNoCopy(weightGradView, new int[] {outDepth, inDepth}, false).transpose();
+            in2d.mmuli(delta2d.transpose(), weightGradView2df);
+
+            //Epsilons: eps^T = delta2d^T * w2d, in f order [miniBatch*outH*outW, inDepth]. This has the same memory
+            // layout as c order [inDepth, miniBatch, outH, outW]
+            if (strides[0] == 1 && strides[1] == 1) {
+                INDArray eps2d = workspaceMgr.createUninitialized(ArrayType.ACTIVATION_GRAD,
+                                new long[] {miniBatch * outH * outW, inDepth}, 'f');
+                delta2d.transpose().mmuli(w2d, eps2d);
+                epsNext = Shape.newShapeNoCopy(eps2d, new int[] {inW, inH, miniBatch, inDepth}, true)
+                                .permute(2, 3, 1, 0);
+            } else {
+                INDArray eps2d = workspaceMgr.createUninitialized(ArrayType.BP_WORKING_MEM,
+                                new long[] {miniBatch * outH * outW, inDepth}, 'f');
+                delta2d.transpose().mmuli(w2d, eps2d);
+                INDArray epsNextOrig = workspaceMgr.create(ArrayType.ACTIVATION_GRAD,
+                                new long[] {inDepth, miniBatch, inH, inW}, 'c');
+                epsNext = epsNextOrig.permute(1, 0, 2, 3);
+                epsNext.get(subsample(strides, outH, outW)).assign(
+                                Shape.newShapeNoCopy(eps2d, new int[] {outW, outH, miniBatch, inDepth}, true)
+                                                .permute(2, 3, 1, 0));
+            }
+        } else {
+            //Weight gradients, one kernel position at a time:
+            // dW[:,:,i,j] = delta2d * in2d(i,j) where in2d(i,j) is the padded input offset by (i,j), as a
+            // [miniBatch*outH*outW, inDepth] matrix. Only one such array (the size of the input) is needed at a time
+            INDArray padded = pad(input, pad[0], pad[1], outH + 2, outW + 2, workspaceMgr, ArrayType.BP_WORKING_MEM);
+            INDArray shifted = workspaceMgr.createUninitialized(ArrayType.BP_WORKING_MEM,
+                            new long[] {miniBatch, outH, outW, inDepth}, 'c');
+            INDArray shifted2d = shifted.reshape('c', miniBatch * outH * outW, inDepth);
+            INDArray dW = workspaceMgr.createUninitialized(ArrayType.BP_WORKING_MEM, new long[] {outDepth, inDepth}, 'f');
+            for (int i = 0; i < 3; i++) {
+                for (int j = 0; j < 3; j++) {
+                    shifted.permute(0, 3, 1, 2)
+                                    .assign(padded.get(all(), all(), interval(i, i + outH), interval(j, j + outW)));
+                    delta2d.mmuli(shifted2d, dW);
+                    weightGradView.get(all(), all(), point(i), point(j)).assign(dW);
+                }
+            }
+
+            //Input gradients: a 3x3 stride 1 convolution of the deltas, with the kernel flipped (and input and output
+            // channels swapped): eps[c,y,x] = sum_{k,i,j} delta[k, y+pad-i, x+pad-j] * w[k,c,i,j]
+            INDArray wFlipped = workspaceMgr.createUninitialized(ArrayType.BP_WORKING_MEM,
+                            new long[] {inDepth, outDepth, 3, 3}, 'c');
+            for (int i = 0; i < 3; i++) {
+                for (int j = 0; j < 3; j++) {
+                    wFlipped.get(all(), all(), point(i), point(j))
+                                    .assign(weights.get(all(), all(), point(2 - i), point(2 - j)).transpose());
+                }
+            }
+            epsNext = winograd(delta, wFlipped, null, 2 - pad[0], 2 - pad[1], inH, inW, workspaceMgr,
+                            ArrayType.ACTIVATION_GRAD, ArrayType.BP_WORKING_MEM, WINOGRAD_BLOCK_SIZE);
+        }
+
+        delta2d.sum(biasGradView, 1); //biasGradView is initialized/zeroed first in sum op
+
+        Gradient retGradient = new DefaultGradient();
+        retGradient.setGradientFor(ConvolutionParamInitializer.BIAS_KEY, biasGradView);
+        retGradient.setGradientFor(ConvolutionParamInitializer.WEIGHT_KEY, weightGradView, 'c');
+        return new Pair<>(retGradient, epsNext);
+    }
+
+    @Override
+    public INDArray preOutput(INDArray input, INDArray weights, INDArray bias, int[] kernel, int[] strides, int[] pad,
+                    AlgoMode mode, FwdAlgo fwdAlgo, ConvolutionMode convolutionMode, int[] dilation,
+                    LayerWorkspaceMgr workspaceMgr) {
+        // FIXME: int cast
+        int miniBatch = (int) input.size(0);
+        int outDepth = (int) weights.size(0);
+        int inDepth = (int) weights.size(1);
+        int[] outSize = ConvolutionUtils.getOutputSize(input, kernel, strides,
+                        convolutionMode == ConvolutionMode.Same ? null : pad, convolutionMode, dilation);
+        int outH = outSize[0];
+        int outW = outSize[1];
+
+        CpuAlgo algo = selectAlgorithm(cpuAlgo, kernel, strides, pad, dilation, inDepth, outDepth, outH, outW);
+        if (algo == CpuAlgo.DIRECT) {
+            INDArray in2d = channelsFirst2d(input, strides, outH, outW, workspaceMgr, ArrayType.FF_WORKING_MEM);
+            INDArray w2d = weights.reshape('c', outDepth, inDepth);
+
+            //z^T = in2d^T * w2d^T, in f order [miniBatch*outH*outW, outDepth]: the same layout as the im2col
+            // implementation, which allows zero-copy reshaping of the deltas during backprop
+            INDArray z = workspaceMgr.createUninitialized(ArrayType.ACTIVATIONS,
+                            new long[] {miniBatch * outH * outW, outDepth}, 'f');
+            Nd4j.gemm(in2d, w2d, z, true, true, 1.0, 0.0);
+            z.addiRowVector(bias);
+            return Shape.newShapeNoCopy(z, new int[] {outW, outH, miniBatch, outDepth}, true).permute(2, 3, 1, 0);
+        } else if (algo == CpuAlgo.WINOGRAD) {
+            return winograd(input, weights, bias, pad[0], pad[1], outH, outW, workspaceMgr, ArrayType.ACTIVATIONS,
+                            ArrayType.FF_WORKING_MEM, WINOGRAD_BLOCK_SIZE);
+        }
+        return null;
+    }
+
+    @Override
+    public INDArray activate(INDArray z, IActivation afn) {
+        //Use the layer's activation function implementation
+        return null;
+    }
+
+    /**
+     * Winograd F(2x2,3x3) for the cross-correlation out[m,k,y,x] = sum_{c,i,j} w[k,c,i,j] * in[m,c,y+i-padTop,x+j-padLeft]
+     * (plus bias), where the input is zero outside of its bounds.<br>
+     * Tiles are transformed and multiplied in blocks - of whole examples, or of rows of tiles of a single example -
+     * with at most blockSize elements of transformed input tiles and products (or a single row of tiles, if larger).
+     * The working arrays are allocated once, for the largest block, and reused for all blocks.
+     *
+     * @param input          Input, shape [miniBatch, inDepth, inH, inW]
+     * @param weights        Weights, shape [outDepth, inDepth, 3, 3]
+     * @param bias           Bias, shape [1, outDepth]. May be null
+     * @param padTop         Input padding (top). May be negative
+     * @param padLeft        Input padding (left). May be negative
+     * @param outH           Output height
+     * @param outW           Output width
+     * @param arrayType      Array type (workspace) for the output
+     * @param workingMemType Array type (workspace) for the working arrays
+     * @param blockSize      Maximum number of elements of the working arrays for each block of tiles
+     * @return Output, shape [miniBatch, outDepth, outH, outW]
+     */
+    static INDArray winograd(INDArray input, INDArray weights, INDArray bias, int padTop, int padLeft, int outH,
+                    int outW, LayerWorkspaceMgr workspaceMgr, ArrayType arrayType, ArrayType workingMemType,
+                    int blockSize) {
+        // FIXME: int cast
+        int miniBatch = (int) input.size(0);
+        int outDepth = (int) weights.size(0);
+        int inDepth = (int) weights.size(1);
+        int tilesH = (outH + 1) / 2;
+        int tilesW = (outW + 1) / 2;
+
+        //Zero padded input, reshaped (zero copy) to [miniBatch, inDepth, tilesH+1, 2, tilesW+1, 2] so that
+        // padded[m, c, 2a+b, 2e+f] is at [m, c, a, b, e, f]
+        INDArray padded = pad(input, padTop, padLeft, 2 * tilesH + 2, 2 * tilesW + 2, workspaceMgr, workingMemType)
+                        .reshape('c', miniBatch, inDepth, tilesH + 1, 2, tilesW + 1, 2);
+
+        //Kernel transform: U = G g G^T, as 16 [outDepth, inDepth] matrices. Shared by all blocks
+        INDArray[][] gg = new INDArray[3][];
+        for (int j = 0; j < 3; j++) {
+            gg[j] = kernelTransform(weights.get(all(), all(), point(0), point(j)),
+                            weights.get(all(), all(), point(1), point(j)), weights.get(all(), all(), point(2), point(j)),
+                            workspaceMgr, workingMemType);
+        }
+        INDArray[][] u = new INDArray[4][];
+        for (int a = 0; a < 4; a++) {
+            u[a] = kernelTransform(gg[0][a], gg[1][a], gg[2][a], workspaceMgr, workingMemType);
+        }
+
+        //Block size: each tile needs 16 * inDepth transformed input elements and 16 * outDepth products
+        int tilesPerExample = tilesH * tilesW;
+        int maxBlockTiles = Math.max(tilesW, blockSize / (16 * (inDepth + outDepth)));
+        int blockExamples = Math.max(1, Math.min(miniBatch, maxBlockTiles / tilesPerExample));
+        int blockRows = Math.min(tilesH, maxBlockTiles / tilesW);
+        long maxTiles = (long) blockExamples * blockRows * tilesW;
+
+        //Transformed input tiles, as [16, inDepth, blockTiles]: each of the 16 transformed tile elements is a
+        // contiguous [inDepth, blockTiles] matrix. Products: 16 f order [blockTiles, outDepth] arrays
+        INDArray vBuffer = workspaceMgr.createUninitialized(workingMemType, new long[] {16, inDepth * maxTiles}, 'c');
+        INDArray[] mBuffers = new INDArray[16];
+        for (int k = 0; k < 16; k++) {
+            mBuffers[k] = workspaceMgr.createUninitialized(workingMemType, new long[] {maxTiles, outDepth}, 'f');
+        }
+
+        boolean exact = (2 * tilesH == outH && 2 * tilesW == outW);
+        long[] fullShape = new long[] {miniBatch, outDepth, 2 * tilesH, 2 * tilesW};
+        INDArray out = exact ? workspaceMgr.createUninitialized(arrayType, fullShape, 'c')
+                        : workspaceMgr.createUninitialized(workingMemType, fullShape, 'c');
+        INDArray out6d = out.reshape('c', miniBatch, outDepth, tilesH, 2, tilesW, 2);
+
+        for (int m0 = 0; m0 < miniBatch; m0 += blockExamples) {
+            int m1 = Math.min(miniBatch, m0 + blockExamples);
+            for (int r0 = 0; r0 < tilesH; r0 += blockRows) {
+                int r1 = Math.min(tilesH, r0 + blockRows);
+                int numTiles = (m1 - m0) * (r1 - r0) * tilesW;
+
+                //Element (i,j) of all 4x4 input tiles of the block, shape [m1-m0, inDepth, r1-r0, tilesW], copied to
+                // v[4i+j]; then the input transform V = B^T d B, in place
+                INDArray v = view(vBuffer, 'c', 16, inDepth, m1 - m0, r1 - r0, tilesW);
+                INDArray[] vk = new INDArray[16];
+                for (int i = 0; i < 4; i++) {
+                    for (int j = 0; j < 4; j++) {
+                        vk[4 * i + j] = v.get(point(4 * i + j));
+                        vk[4 * i + j].permute(1, 0, 2, 3).assign(padded.get(interval(m0, m1), all(),
+                                        interval(r0 + i / 2, r1 + i / 2), point(i % 2), interval(j / 2, j / 2 + tilesW),
+                                        point(j % 2)));
+                    }
+                }
+                for (int j = 0; j < 4; j++) {
+                    inputTransform(vk[j], vk[4 + j], vk[8 + j], vk[12 + j]);
+                }
+                for (int a = 0; a < 4; a++) {
+                    inputTransform(vk[4 * a], vk[4 * a + 1], vk[4 * a + 2], vk[4 * a + 3]);
+                }
+
+                //Element-wise products (over tiles) as 16 gemms: m^T = V^T U^T, f order [numTiles, outDepth]
+                INDArray[][] m = new INDArray[4][4];
+                for (int a = 0; a < 4; a++) {
+                    for (int b = 0; b < 4; b++) {
+                        INDArray v2d = vk[4 * a + b].reshape('c', inDepth, numTiles);
+                        m[a][b] = view(mBuffers[4 * a + b], 'f', numTiles, outDepth);
+                        Nd4j.gemm(v2d, u[a][b], m[a][b], true, true, 1.0, 0.0);
+                    }
+                }
+
+                //Output transform: Y = A^T m A, in place. Y[p][q] ends up in m[p][q]
+                for (int b = 0; b < 4; b++) {
+                    outputTransform(m[0][b], m[1][b], m[2][b], m[3][b]);
+                }
+                for (int p = 0; p < 2; p++) {
+                    outputTransform(m[p][0], m[p][1], m[p][2], m[p][3]);
+                }
+
+                for (int p = 0; p < 2; p++) {
+                    for (int q = 0; q < 2; q++) {
+                        INDArray y = m[p][q];
+                        if (bias != null) {
+                            y.addiRowVector(bias);
+                        }
+                        //f order [numTiles, outDepth] has the same layout as c order [outDepth, m1-m0, r1-r0, tilesW]
+                        out6d.get(interval(m0, m1), all(), interval(r0, r1), point(p), all(), point(q)).assign(y
+                                        .transpose().reshape('c', outDepth, m1 - m0, r1 - r0, tilesW)
+                                        .permute(1, 0, 2, 3));
+                    }
+                }
+            }
+        }
+
+        if (exact) {
+            return out;
+        }
+        return workspaceMgr.dup(arrayType, out.get(all(), all(), interval(0, outH), interval(0, outW)), 'c');
+    }
+
+    /**
+     * Rows of B^T (for F(2x2,3x3)): [1,0,-1,0], [0,1,1,0], [0,-1,1,0], [0,1,0,-1]. Results are stored in x0..x3
+     */
+    private static void inputTransform(INDArray x0, INDArray x1, INDArray x2, INDArray x3) {
+        x0.subi(x2);
+        x3.rsubi(x1);
+        x1.addi(x2);
+        //x2 - x1 = 2 * x2 - (x1 + x2)
+        x2.muli(2.0).subi(x1);
+    }
+
+    /**
+     * Rows of G (for F(2x2,3x3)): [1,0,0], [0.5,0.5,0.5], [0.5,-0.5,0.5], [0,0,1]
+     */
+    private static INDArray[] kernelTransform(INDArray x0, INDArray x1, INDArray x2, LayerWorkspaceMgr workspaceMgr,
+                    ArrayType workingMemType) {
+        INDArray[] out = new INDArray[4];
+        for (int i = 0; i < 4; i++) {
+            out[i] = workspaceMgr.createUninitialized(workingMemType, x0.shape(), 'c');
+        }
+        out[0].assign(x0);
+        x0.addi(x1, out[1]).addi(x2).muli(0.5);
+        x0.subi(x1, out[2]).addi(x2).muli(0.5);
+        out[3].assign(x2);
+        return out;
+    }
+
+    /**
+     * Rows of A^T (for F(2x2,3x3)): [1,1,1,0], [0,1,-1,-1]. Results are stored in x0 and x1 respectively
+     */
+    private static void outputTransform(INDArray x0, INDArray x1, INDArray x2, INDArray x3) {
+        x0.addi(x1).addi(x2);
+        x1.subi(x2).subi(x3);
+    }
+
+    /**
+     * Zero pad the input: out[m,c,r,s] = in[m,c,r-padTop,s-padLeft], or 0 if outside of the input
+     */
+    private static INDArray pad(INDArray input, int padTop, int padLeft, int rows, int cols,
+                    LayerWorkspaceMgr workspaceMgr, ArrayType workingMemType) {
+        INDArray out = workspaceMgr.create(workingMemType, new long[] {input.size(0), input.size(1), rows, cols}, 'c');
+        // FIXME: int cast
+        int r0 = Math.max(0, padTop);
+        int r1 = Math.min(rows, (int) input.size(2) + padTop);
+        int c0 = Math.max(0, padLeft);
+        int c1 = Math.min(cols, (int) input.size(3) + padLeft);
+        if (r1 > r0 && c1 > c0) {
+            out.get(all(), all(), interval(r0, r1), interval(c0, c1)).assign(input.get(all(), all(),
+                            interval(r0 - padTop, r1 - padTop), interval(c0 - padLeft, c1 - padLeft)));
+        }
+        return out;
+    }
+
+    /**
+     * @return The (strided) input for a 1x1 convolution, as a c order [inDepth, miniBatch*outH*outW] array
+     */
+    private static INDArray channelsFirst2d(INDArray input, int[] strides, int outH, int outW,
+                    LayerWorkspaceMgr workspaceMgr, ArrayType workingMemType) {
+        INDArray in = input;
+        if (strides[0] != 1 || strides[1] != 1) {
+            in = input.get(subsample(strides, outH, outW));
+        }
+        INDArray out = workspaceMgr.createUninitialized(workingMemType,
+                        new long[] {input.size(1), input.size(0), outH, outW}, 'c');
+        out.permute(1, 0, 2, 3).assign(in);
+        return out.reshape('c', input.size(1), input.size(0) * outH * outW);
+    }
+
+    /**
+     * @return A view of the first elements of the (contiguous, zero offset) working array, with the given shape
+     */
+    private static INDArray view(INDArray buffer, char order, long... shape) {
+        return Nd4j.create(buffer.data(), shape, Nd4j.getStrides(shape, order), 0, order);
+    }
+
+    private static INDArrayIndex[] subsample(int[] strides, int outH, int outW) {
+        return new INDArrayIndex[] {all(), all(), interval(0, strides[0], (outH - 1) * strides[0] + 1, false),
+                        interval(0, strides[1], (outW - 1) * strides[1] + 1, false)};
+    }
+}
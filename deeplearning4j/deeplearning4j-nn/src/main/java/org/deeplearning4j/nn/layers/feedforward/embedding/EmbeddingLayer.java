@@ -23,10 +23,12 @@ import lombok.val;
 import org.nd4j.linalg.api.ops.custom.ScatterUpdate;
 import org.nd4j.linalg.primitives.Pair;
 import org.deeplearning4j.exception.DL4JInvalidInputException;
+import org.deeplearning4j.nn.api.layers.SparseGradientLayer;
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
 import org.deeplearning4j.nn.gradient.DefaultGradient;
 import org.deeplearning4j.nn.gradient.Gradient;
 import org.deeplearning4j.nn.layers.BaseLayer;
+import org.deeplearning4j.nn.layers.SparseRowTracker;
 import org.deeplearning4j.nn.params.DefaultParamInitializer;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
@@ -44,9 +46,12 @@ import org.deeplearning4j.nn.workspace.ArrayType;
  * @author Alex Black
  */
 @Slf4j
-public class EmbeddingLayer extends BaseLayer<org.deeplearning4j.nn.conf.layers.EmbeddingLayer> {
+public class EmbeddingLayer extends BaseLayer<org.deeplearning4j.nn.conf.layers.EmbeddingLayer>
+                implements SparseGradientLayer {
     private static final int[] DIM_1 = new int[]{1};
 
+    private final SparseRowTracker sparseRows = new SparseRowTracker();
+
     public EmbeddingLayer(NeuralNetConfiguration conf) {
         super(conf);
     }
@@ -63,7 +68,12 @@ public class EmbeddingLayer extends BaseLayer<org.deeplearning4j.nn.conf.layers.
         }
 
         INDArray weightGradients = gradientViews.get(DefaultParamInitializer.WEIGHT_KEY);
-        weightGradients.assign(0);
+        if (layerConf().isSparseUpdates()) {
+            //Only the rows used in the last iteration (if known) need to be zeroed
+            sparseRows.zeroGradientView(weightGradients);
+        } else {
+            weightGradients.assign(0);
+        }
 
         // FIXME: int cast
         int[] indexes = new int[(int) input.length()];
@@ -71,6 +81,10 @@ public class EmbeddingLayer extends BaseLayer<org.deeplearning4j.nn.conf.layers.
             indexes[i] = input.getInt(i, 0);
         }
 
+        if (layerConf().isSparseUpdates()) {
+            sparseRows.addGradientRows(indexes);
+        }
+
         ScatterUpdate op = new ScatterUpdate(weightGradients, delta, indexes, DIM_1, ScatterUpdate.UpdateOp.ADD);
         Nd4j.getExecutioner().exec(op);
 
@@ -140,6 +154,52 @@ public class EmbeddingLayer extends BaseLayer<org.deeplearning4j.nn.conf.layers.
         return layerConf().hasBias();
     }
 
+    @Override
+    public boolean isSparseGradientParam(String paramName) {
+        return layerConf().isSparseUpdates() && DefaultParamInitializer.WEIGHT_KEY.equals(paramName);
+    }
+
+    @Override
+    public int getSparseGradientDimension(String paramName) {
+        return 0;
+    }
+
+    @Override
+    public int[] getSparseGradientRows(String paramName) {
+        return sparseRows.getGradientRows();
+    }
+
+    @Override
+    public void markSparseGradientRowsApplied(String paramName) {
+        sparseRows.markGradientRowsApplied();
+    }
+
+    @Override
+    public int[] getSparseStepRows(String paramName) {
+        return sparseRows.getStepRows();
+    }
+
+    @Override
+    public void markSparseStepApplied(String paramName) {
+        sparseRows.markStepApplied();
+    }
+
+    @Override
+    public void setBackpropGradientsViewArray(INDArray gradients) {
+        super.setBackpropGradientsViewArray(gradients);
+        sparseRows.resetGradientView();
+    }
+
+    @Override
+    public int[] getRowsModifiedSinceSync(String paramName) {
+        return sparseRows.getModifiedRows();
+    }
+
+    @Override
+    public void clearRowsModifiedSinceSync() {
+        sparseRows.clearModifiedRows();
+    }
+
     @Override
     public boolean isPretrainLayer() {
         return false;
@@ -21,10 +21,12 @@ package org.deeplearning4j.nn.layers.feedforward.embedding;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.deeplearning4j.exception.DL4JInvalidInputException;
+import org.deeplearning4j.nn.api.layers.SparseGradientLayer;
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
 import org.deeplearning4j.nn.gradient.DefaultGradient;
 import org.deeplearning4j.nn.gradient.Gradient;
 import org.deeplearning4j.nn.layers.BaseLayer;
+import org.deeplearning4j.nn.layers.SparseRowTracker;
 import org.deeplearning4j.nn.params.DefaultParamInitializer;
 import org.deeplearning4j.nn.workspace.ArrayType;
 import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
@@ -47,9 +49,12 @@ import static org.nd4j.linalg.api.shape.Shape.hasDefaultStridesForShape;
  * @author Max Pumperla
  */
 @Slf4j
-public class EmbeddingSequenceLayer extends BaseLayer<org.deeplearning4j.nn.conf.layers.EmbeddingSequenceLayer> {
+public class EmbeddingSequenceLayer extends BaseLayer<org.deeplearning4j.nn.conf.layers.EmbeddingSequenceLayer>
+                implements SparseGradientLayer {
     private static final int[] WEIGHT_DIM = new int[]{1};
 
+    private final SparseRowTracker sparseRows = new SparseRowTracker();
+
     public EmbeddingSequenceLayer(NeuralNetConfiguration conf) {
         super(conf);
     }
@@ -72,12 +77,21 @@ public class EmbeddingSequenceLayer extends BaseLayer<org.deeplearning4j.nn.conf
         }
 
         INDArray weightGradients = gradientViews.get(DefaultParamInitializer.WEIGHT_KEY);
-        weightGradients.assign(0);
+        if (layerConf().isSparseUpdates()) {
+            //Only the rows used in the last iteration (if known) need to be zeroed
+            sparseRows.zeroGradientView(weightGradients);
+        } else {
+            weightGradients.assign(0);
+        }
 
         if (!hasDefaultStridesForShape(input))
             input = workspaceMgr.dup(ArrayType.ACTIVATIONS, input, 'f');
         int[] indexes = input.data().asInt();
 
+        if (layerConf().isSparseUpdates()) {
+            sparseRows.addGradientRows(indexes);
+        }
+
         ScatterUpdate op = new ScatterUpdate(weightGradients, delta, indexes, WEIGHT_DIM, ScatterUpdate.UpdateOp.ADD);
         Nd4j.getExecutioner().exec(op);
 
@@ -165,6 +179,52 @@ public class EmbeddingSequenceLayer extends BaseLayer<org.deeplearning4j.nn.conf
         return layerConf().hasBias();
     }
 
+    @Override
+    public boolean isSparseGradientParam(String paramName) {
+        return layerConf().isSparseUpdates() && DefaultParamInitializer.WEIGHT_KEY.equals(paramName);
+    }
+
+    @Override
+    public int getSparseGradientDimension(String paramName) {
+        return 0;
+    }
+
+    @Override
+    public int[] getSparseGradientRows(String paramName) {
+        return sparseRows.getGradientRows();
+    }
+
+    @Override
+    public void markSparseGradientRowsApplied(String paramName) {
+        sparseRows.markGradientRowsApplied();
+    }
+
+    @Override
+    public int[] getSparseStepRows(String paramName) {
+        return sparseRows.getStepRows();
+    }
+
+    @Override
+    public void markSparseStepApplied(String paramName) {
+        sparseRows.markStepApplied();
+    }
+
+    @Override
+    public void setBackpropGradientsViewArray(INDArray gradients) {
+        super.setBackpropGradientsViewArray(gradients);
+        sparseRows.resetGradientView();
+    }
+
+    @Override
+    public int[] getRowsModifiedSinceSync(String paramName) {
+        return sparseRows.getModifiedRows();
+    }
+
+    @Override
+    public void clearRowsModifiedSinceSync() {
+        sparseRows.clearModifiedRows();
+    }
+
     @Override
     public boolean isPretrainLayer() {
         return false;
@@ -195,6 +195,18 @@ public class LSTMHelpers {
             }
         }
 
+        //Input contribution (plus bias) for all time steps, in one gemm. Shape: [timeSeriesLength*miniBatch, 4*hiddenLayerSize]
+        INDArray inputProjection = inputProjection(input, inputWeights, biases, is2dInput, workspaceMgr);
+
+        if (!forBackprop) {
+            activateFused(layer, gateActivationFn, inputProjection, recurrentWeightsIFOG, wFFTranspose, wOOTranspose,
+                            wGGTranspose, hasPeepholeConnections, prevOutputActivations, prevMemCellState, maskArray,
+                            forwards, training, outputActivations, toReturn, workspaceMgr);
+            toReturn.prevAct = originalPrevOutputActivations;
+            toReturn.prevMemCell = originalPrevMemCellState;
+            return toReturn;
+        }
+
         for (int iTimeIndex = 0; iTimeIndex < timeSeriesLength; iTimeIndex++) {
             try(MemoryWorkspace ws = workspaceMgr.notifyScopeEntered(ArrayType.RNN_FF_LOOP_WORKING_MEM)) {
                 int time = iTimeIndex;
@@ -204,18 +216,15 @@ public class LSTMHelpers {
                 }
 
 
-                INDArray miniBatchData = (is2dInput ? input : input.tensorAlongDimension(time, 1, 0)); //[Expected shape: [m,nIn]. Also deals with edge case of T=1, with 'time series' data of shape [m,nIn], equiv. to [m,nIn,1]
-                miniBatchData = Shape.toMmulCompatible(miniBatchData);
-
                 // if we're using cache here - let's create ifogActivations within cache workspace, so all views from this array will be valid in cache
                 cacheEnter(training, cacheMode, workspaceMgr);
 
-                //Calculate activations for: network input + forget, output, input modulation gates. Next 3 lines are first part of those
-                INDArray ifogActivations = miniBatchData.mmul(inputWeights); //Shape: [miniBatch,4*layerSize]
+                //Calculate activations for: network input + forget, output, input modulation gates. Input contribution
+                // and bias are already in the precomputed input projection; add the recurrent contribution
+                INDArray ifogActivations = timeStepProjection(inputProjection, time, miniBatchSize); //Shape: [miniBatch,4*layerSize]
                 cacheExit(training, cacheMode, workspaceMgr);
 
                 Nd4j.gemm(prevOutputActivations, recurrentWeightsIFOG, ifogActivations, false, false, 1.0, 1.0);
-                ifogActivations.addiRowVector(biases);
 
                 INDArray inputActivations =
                         ifogActivations.get(NDArrayIndex.all(), NDArrayIndex.interval(0, hiddenLayerSize));
@@ -395,6 +404,123 @@ public class LSTMHelpers {
         return toReturn;
     }
 
+    /**
+     * Compute the input contribution to the gate pre-activations for all time steps as a single gemm:
+     * [timeSeriesLength*miniBatch, nIn] x [nIn, 4*hiddenLayerSize], plus the bias.<br>
+     * Rows [t*miniBatch, (t+1)*miniBatch) of the returned (c order) array are for time step t
+     */
+    private static INDArray inputProjection(INDArray input, INDArray inputWeights, INDArray biases, boolean is2dInput,
+                    LayerWorkspaceMgr workspaceMgr) {
+        INDArray input2d;
+        if (is2dInput) {
+            input2d = Shape.toMmulCompatible(input);
+        } else {
+            //[m,nIn,T] -> [T,m,nIn] -> [T*m,nIn]
+            val shape = input.shape();
+            input2d = workspaceMgr.dup(ArrayType.FF_WORKING_MEM, input.permute(2, 0, 1), 'c')
+                            .reshape('c', shape[2] * shape[0], shape[1]);
+        }
+
+        INDArray projection = workspaceMgr.createUninitialized(ArrayType.FF_WORKING_MEM,
+                        new long[] {input2d.size(0), inputWeights.size(1)}, 'c');
+        input2d.mmuli(inputWeights, projection);
+        projection.addiRowVector(biases);
+        return projection;
+    }
+
+    /**
+     * Copy of the input projection for one time step, as an f order [miniBatch, 4*hiddenLayerSize] array
+     */
+    private static INDArray timeStepProjection(INDArray inputProjection, int time, int miniBatchSize) {
+        return inputProjection.get(interval(time * miniBatchSize, (time + 1) * miniBatchSize), NDArrayIndex.all())
+                        .dup('f');
+    }
+
+    /**
+     * Fused forward pass, used when no backprop is required (inference and rnnTimeStep).<br>
+     * The input contribution to all gates has already been computed for the whole sequence, hence each time step is a
+     * single gemm (recurrent contribution to all 4 gates at once), followed by the gate activations and the cell/output
+     * update, all in place on views of that one [miniBatch, 4*hiddenLayerSize] array. Without peephole connections the
+     * forget, output and input modulation gates are adjacent and activated in a single op.<br>
+     * Memory cell state alternates between two preallocated buffers and the hidden unit activations are written directly
+     * to the output array; the only per time step allocation is the gate pre-activation array.
+     */
+    private static void activateFused(BaseLayer layer, IActivation gateActivationFn, INDArray inputProjection,
+                    INDArray recurrentWeightsIFOG, INDArray wFFTranspose, INDArray wOOTranspose, INDArray wGGTranspose,
+                    boolean hasPeepholeConnections, INDArray prevOutputActivations, INDArray prevMemCellState,
+                    INDArray maskArray, boolean forwards, boolean training, INDArray outputActivations,
+                    FwdPassReturn toReturn, LayerWorkspaceMgr workspaceMgr) {
+        int miniBatchSize = (int) outputActivations.size(0);
+        int hiddenLayerSize = (int) outputActivations.size(1);
+        int timeSeriesLength = (int) outputActivations.size(2);
+        IActivation afn = layer.layerConf().getActivationFn();
+
+        int[] stateShape = new int[] {miniBatchSize, hiddenLayerSize};
+        INDArray[] memCellBuffers = new INDArray[] {
+                        workspaceMgr.createUninitialized(ArrayType.FF_WORKING_MEM, stateShape, 'f'),
+                        workspaceMgr.createUninitialized(ArrayType.FF_WORKING_MEM, stateShape, 'f')};
+
+        INDArray currHiddenUnitActivations = null;
+        INDArray currentMemoryCellState = null;
+        for (int iTimeIndex = 0; iTimeIndex < timeSeriesLength; iTimeIndex++) {
+            try (MemoryWorkspace ws = workspaceMgr.notifyScopeEntered(ArrayType.RNN_FF_LOOP_WORKING_MEM)) {
+                int time = (forwards ? iTimeIndex : timeSeriesLength - iTimeIndex - 1);
+
+                INDArray ifogActivations = timeStepProjection(inputProjection, time, miniBatchSize);
+                Nd4j.gemm(prevOutputActivations, recurrentWeightsIFOG, ifogActivations, false, false, 1.0, 1.0);
+
+                INDArray inputActivations = ifogActivations.get(NDArrayIndex.all(), interval(0, hiddenLayerSize));
+                INDArray forgetGateActivations = ifogActivations.get(NDArrayIndex.all(),
+                                interval(hiddenLayerSize, 2 * hiddenLayerSize));
+                INDArray outputGateActivations = ifogActivations.get(NDArrayIndex.all(),
+                                interval(2 * hiddenLayerSize, 3 * hiddenLayerSize));
+                INDArray inputModGateActivations = ifogActivations.get(NDArrayIndex.all(),
+                                interval(3 * hiddenLayerSize, 4 * hiddenLayerSize));
+
+                afn.getActivation(inputActivations, training);
+                if (hasPeepholeConnections) {
+                    forgetGateActivations.addi(prevMemCellState.mulRowVector(wFFTranspose));
+                    inputModGateActivations.addi(prevMemCellState.mulRowVector(wGGTranspose));
+                    gateActivationFn.getActivation(forgetGateActivations, training);
+                    gateActivationFn.getActivation(inputModGateActivations, training);
+                } else {
+                    gateActivationFn.getActivation(ifogActivations.get(NDArrayIndex.all(),
+                                    interval(hiddenLayerSize, 4 * hiddenLayerSize)), training);
+                }
+
+                //Memory cell state: c = f * c_prev + i * g
+                currentMemoryCellState = memCellBuffers[iTimeIndex % 2];
+                forgetGateActivations.mul(prevMemCellState, currentMemoryCellState);
+                currentMemoryCellState.addi(inputModGateActivations.muli(inputActivations));
+
+                if (hasPeepholeConnections) {
+                    outputGateActivations.addi(currentMemoryCellState.mulRowVector(wOOTranspose));
+                    gateActivationFn.getActivation(outputGateActivations, training);
+                }
+
+                //LSTM unit outputs: h = o * afn(c), computed in place in the output array
+                currHiddenUnitActivations = outputActivations.tensorAlongDimension(time, 1, 0);
+                currHiddenUnitActivations.assign(currentMemoryCellState);
+                afn.getActivation(currHiddenUnitActivations, training);
+                currHiddenUnitActivations.muli(outputGateActivations);
+
+                if (maskArray != null) {
+                    //Mask array is present: bidirectional RNN -> need to zero out these activations and memory cells
+                    INDArray timeStepMaskColumn = maskArray.getColumn(time);
+                    currHiddenUnitActivations.muliColumnVector(timeStepMaskColumn);
+                    currentMemoryCellState.muliColumnVector(timeStepMaskColumn);
+                }
+
+                prevOutputActivations = currHiddenUnitActivations;
+                prevMemCellState = currentMemoryCellState;
+            }
+        }
+
+        //Last activations are stored as state for rnnTimeStep: copy, rather than a view of the output array
+        toReturn.lastAct = workspaceMgr.dup(ArrayType.FF_WORKING_MEM, currHiddenUnitActivations, 'f');
+        toReturn.lastMemCell = currentMemoryCellState;
+    }
+
     private static boolean shouldCache(boolean training, CacheMode cacheMode, LayerWorkspaceMgr workspaceMgr){
         return training && cacheMode != CacheMode.NONE && workspaceMgr.hasConfiguration(ArrayType.FF_CACHE) && workspaceMgr.isWorkspaceOpen(ArrayType.FF_CACHE);
     }
@@ -747,7 +873,7 @@ public class LSTMHelpers {
         int updaterSize = (int) lstmLayer.getIUpdater().stateSize(numParams);
 
         //Memory use during forward pass:
-        //ifogActivations: nTimeSteps * [minibatch,4*layerSize] (not cached during inference fwd pass)
+        //input projection/ifogActivations: nTimeSteps * [minibatch,4*layerSize] (not cached during inference fwd pass)
         val workingMemInferencePerEx = tsLength * 4 * lstmLayer.getNOut(); //Reduced by factor of tsLength if using workspace
 
         //For training, we also have
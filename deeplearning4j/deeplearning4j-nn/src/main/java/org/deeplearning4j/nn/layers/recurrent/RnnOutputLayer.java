@@ -151,16 +151,16 @@ public class RnnOutputLayer extends BaseOutputLayer<org.deeplearning4j.nn.conf.l
             //(a) per time step masking - rank 2 mask array -> reshape to rank 1 (column vector)
             //(b) per output masking - rank 3 mask array  -> reshape to rank 2 (
             if (maskArray.rank() == 2) {
-                this.maskArray = TimeSeriesUtils.reshapeTimeSeriesMaskToVector(maskArray, LayerWorkspaceMgr.noWorkspacesImmutable(), ArrayType.INPUT);
+                super.setMaskArray(TimeSeriesUtils.reshapeTimeSeriesMaskToVector(maskArray, LayerWorkspaceMgr.noWorkspacesImmutable(), ArrayType.INPUT));
             } else if (maskArray.rank() == 3) {
-                this.maskArray = TimeSeriesUtils.reshape3dTo2d(maskArray, LayerWorkspaceMgr.noWorkspacesImmutable(), ArrayType.INPUT);
+                super.setMaskArray(TimeSeriesUtils.reshape3dTo2d(maskArray, LayerWorkspaceMgr.noWorkspacesImmutable(), ArrayType.INPUT));
             } else {
                 throw new UnsupportedOperationException(
                                 "Invalid mask array: must be rank 2 or 3 (got: rank " + maskArray.rank() + ", shape = "
                                                 + Arrays.toString(maskArray.shape()) + ") " + layerId());
             }
         } else {
-            this.maskArray = null;
+            super.setMaskArray(null);
         }
     }
 
@@ -0,0 +1,395 @@
+package org.deeplearning4j.nn.layers.training;
+
+import org.deeplearning4j.exception.DL4JInvalidInputException;
+import org.deeplearning4j.nn.api.layers.SparseGradientLayer;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.sampling.ICandidateSampler;
+import org.deeplearning4j.nn.conf.sampling.SampledCandidates;
+import org.deeplearning4j.nn.gradient.DefaultGradient;
+import org.deeplearning4j.nn.gradient.Gradient;
+import org.deeplearning4j.nn.layers.BaseOutputLayer;
+import org.deeplearning4j.nn.layers.SparseRowTracker;
+import org.deeplearning4j.nn.params.DefaultParamInitializer;
+import org.deeplearning4j.nn.workspace.ArrayType;
+import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.custom.ScatterUpdate;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.nd4j.linalg.lossfunctions.SoftmaxCrossEntropy;
+import org.nd4j.linalg.lossfunctions.impl.LossMCXENT;
+import org.nd4j.linalg.primitives.Pair;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+
+/**
+ * Sampled softmax output layer. At training time, the loss and gradients are calculated only for the true class of
+ * each example, plus a set of sampled negative classes; at test time, this is the same as a standard
+ * {@link org.deeplearning4j.nn.layers.OutputLayer} with softmax activation.<br>
+ * With sparse updates enabled, the weight and bias parameters are sparse along columns: only the columns of the
+ * candidate classes have a non-zero gradient, and only those are zeroed, updated and stepped.
+ * See {@link org.deeplearning4j.nn.conf.layers.SampledSoftmaxOutputLayer} for details.
+ */
+public class SampledSoftmaxOutputLayer extends BaseOutputLayer<org.deeplearning4j.nn.conf.layers.SampledSoftmaxOutputLayer>
+                implements SparseGradientLayer {
+
+    /** Logit used for sampled classes that are equal to the true class of an example (accidental hits) */
+    private static final double ACCIDENTAL_HIT_LOGIT = -1e9;
+    private static final int[] DIM_1 = new int[] {1};
+
+    private transient Random rng;
+
+    private double fullNetworkL1;
+    private double fullNetworkL2;
+    //Sum of the sampled per-example scores, as calculated during backprop for the current input and labels
+    private double sampledScore = Double.NaN;
+    //Candidate classes (i.e., columns of the weights and biases) with non-zero gradients, for sparse updates
+    private final SparseRowTracker weightColumns = new SparseRowTracker();
+    private final SparseRowTracker biasColumns = new SparseRowTracker();
+
+    public SampledSoftmaxOutputLayer(NeuralNetConfiguration conf) {
+        super(conf);
+    }
+
+    public SampledSoftmaxOutputLayer(NeuralNetConfiguration conf, INDArray input) {
+        super(conf, input);
+    }
+
+    @Override
+    public void setInput(INDArray input, LayerWorkspaceMgr workspaceMgr) {
+        super.setInput(input, workspaceMgr);
+        sampledScore = Double.NaN;
+    }
+
+    @Override
+    public void setLabels(INDArray labels) {
+        super.setLabels(labels);
+        sampledScore = Double.NaN;
+    }
+
+    /** Compute score after labels and input have been set.
+     * At training time, this is the sampled softmax loss: if backprop has already been performed for the current
+     * input and labels, the score is that of the same set of sampled classes. At test time, this is the full softmax
+     * loss.
+     * @param fullNetworkL1 L1 regularization term for the entire network
+     * @param fullNetworkL2 L2 regularization term for the entire network
+     * @param training whether score should be calculated at train or test time
+     * @return score (loss function)
+     */
+    @Override
+    public double computeScore(double fullNetworkL1, double fullNetworkL2, boolean training, LayerWorkspaceMgr workspaceMgr) {
+        if (!training)
+            return super.computeScore(fullNetworkL1, fullNetworkL2, false, workspaceMgr);
+
+        if (input == null || labels == null)
+            throw new IllegalStateException("Cannot calculate score without input and labels " + layerId());
+        this.fullNetworkL1 = fullNetworkL1;
+        this.fullNetworkL2 = fullNetworkL2;
+
+        if (Double.isNaN(sampledScore)) {
+            sampledScore = sampledForward(false, workspaceMgr).score;
+        }
+
+        double score = sampledScore + fullNetworkL1 + fullNetworkL2;
+        if (conf().isMiniBatch())
+            score /= getInputMiniBatchSize();
+
+        this.score = score;
+
+        return score;
+    }
+
+    @Override
+    public void computeGradientAndScore(LayerWorkspaceMgr workspaceMgr) {
+        if (input == null || labels == null)
+            return;
+
+        this.gradient = sampledGradients(workspaceMgr).getFirst();
+        score = computeScore(fullNetworkL1, fullNetworkL2, true, workspaceMgr);
+    }
+
+    @Override
+    public Pair<Gradient, INDArray> backpropGradient(INDArray epsilon, LayerWorkspaceMgr workspaceMgr) {
+        assertInputSet(true);
+        Pair<Gradient, INDArray> pair = sampledGradients(workspaceMgr);
+
+        //Normally we would clear weightNoiseParams here - but we want to reuse them for forward + backward + score
+        // So this is instead done in MultiLayerNetwork/CompGraph backprop methods
+
+        INDArray epsilonNext = backpropDropOutIfPresent(pair.getSecond());
+        return new Pair<>(pair.getFirst(), epsilonNext);
+    }
+
+    /** Returns tuple: {Gradient, epsilon} for the sampled loss */
+    private Pair<Gradient, INDArray> sampledGradients(LayerWorkspaceMgr workspaceMgr) {
+        SampledForward f = sampledForward(true, workspaceMgr);
+        sampledScore = f.score;
+
+        int numSampled = f.sampled.length;
+        INDArray dTrue = f.delta.getColumn(0);
+        INDArray dSampled = f.delta.get(NDArrayIndex.all(), NDArrayIndex.interval(1, numSampled + 1));
+
+        //Only the weight and bias columns of the true and sampled classes have non-zero gradients: these are
+        // scatter-added to the rows of the transposed gradient views (row c: gradient for the parameters of class c)
+        Gradient gradient = new DefaultGradient();
+        INDArray weightGradView = gradientViews.get(DefaultParamInitializer.WEIGHT_KEY);
+        INDArray weightGradRows = weightGradView.transpose();
+        zeroGradientView(weightColumns, weightGradRows);
+        scatterAdd(weightGradRows, input.mulColumnVector(dTrue), f.trueClasses);
+        scatterAdd(weightGradRows, dSampled.transpose().mmul(input), f.sampled);
+        gradient.gradientForVariable().put(DefaultParamInitializer.WEIGHT_KEY, weightGradView);
+
+        if (hasBias()) {
+            INDArray biasGradView = gradientViews.get(DefaultParamInitializer.BIAS_KEY);
+            INDArray biasGradRows = biasGradView.transpose();
+            zeroGradientView(biasColumns, biasGradRows);
+            scatterAdd(biasGradRows, dTrue, f.trueClasses);
+            scatterAdd(biasGradRows, dSampled.sum(0).reshape(numSampled, 1), f.sampled);
+            gradient.gradientForVariable().put(DefaultParamInitializer.BIAS_KEY, biasGradView);
+        }
+
+        if (layerConf().isSparseUpdates()) {
+            weightColumns.addGradientRows(f.trueClasses);
+            weightColumns.addGradientRows(f.sampled);
+            if (hasBias()) {
+                biasColumns.addGradientRows(f.trueClasses);
+                biasColumns.addGradientRows(f.sampled);
+            }
+        }
+
+        INDArray epsilonNext = workspaceMgr.createUninitialized(ArrayType.ACTIVATION_GRAD, new long[]{input.size(0), input.size(1)}, 'f');
+        dSampled.mmul(f.wSampled.transpose(), epsilonNext);
+        epsilonNext.addi(f.wTrue.transpose().muliColumnVector(dTrue));
+
+        return new Pair<>(gradient, epsilonNext);
+    }
+
+    private void zeroGradientView(SparseRowTracker tracker, INDArray gradRows) {
+        if (layerConf().isSparseUpdates()) {
+            //Only the columns of the candidate classes of the last iteration (if known) need to be zeroed
+            tracker.zeroGradientView(gradRows);
+        } else {
+            gradRows.assign(0);
+        }
+    }
+
+    private static void scatterAdd(INDArray target, INDArray updates, int[] rows) {
+        //Duplicate indices (for example, examples with the same true class) are accumulated
+        Nd4j.getExecutioner().exec(new ScatterUpdate(target, updates.dup('c'), rows, DIM_1,
+                        ScatterUpdate.UpdateOp.ADD));
+    }
+
+    /**
+     * Forward pass for the sampled loss: calculates the logits of the true class of each example (column 0) and
+     * the sampled classes (columns 1 to numSampled), corrected for the sampling probabilities, then the softmax cross
+     * entropy score and (optionally) its gradient with respect to these logits
+     */
+    private SampledForward sampledForward(boolean computeGradient, LayerWorkspaceMgr workspaceMgr) {
+        applyDropOutIfNecessary(true, workspaceMgr);
+        INDArray W = getParamWithNoise(DefaultParamInitializer.WEIGHT_KEY, true, workspaceMgr);
+        if (input.rank() != 2 || input.size(1) != W.size(0)) {
+            throw new DL4JInvalidInputException("Invalid input: expected matrix with " + W.size(0) + " columns, got "
+                            + "array with shape " + Arrays.toString(input.shape()) + " " + layerId());
+        }
+        if (maskArray != null && !maskArray.isColumnVectorOrScalar()) {
+            throw new UnsupportedOperationException("Per output masking is not supported for sampled softmax " + layerId());
+        }
+
+        // FIXME: int cast
+        int nOut = (int) W.size(1);
+        SampledForward f = new SampledForward();
+        f.trueClasses = trueClasses(nOut);
+        ICandidateSampler sampler = layerConf().getSampler();
+        SampledCandidates candidates = sampler.sample(layerConf().getNumSampled(), nOut, getRng());
+        f.sampled = candidates.getSampled();
+        int minibatch = f.trueClasses.length;
+        int numSampled = f.sampled.length;
+
+        f.wTrue = W.getColumns(f.trueClasses);
+        f.wSampled = W.getColumns(f.sampled);
+
+        INDArray logits = Nd4j.create(minibatch, numSampled + 1);
+        INDArray trueLogits = logits.getColumn(0);
+        INDArray sampledLogits = logits.get(NDArrayIndex.all(), NDArrayIndex.interval(1, numSampled + 1));
+        trueLogits.assign(input.mul(f.wTrue.transpose()).sum(1));
+        sampledLogits.assign(input.mmul(f.wSampled));
+        if (hasBias()) {
+            INDArray b = getParamWithNoise(DefaultParamInitializer.BIAS_KEY, true, workspaceMgr);
+            trueLogits.addi(b.getColumns(f.trueClasses).reshape(minibatch, 1));
+            sampledLogits.addiRowVector(b.getColumns(f.sampled));
+        }
+
+        //Correct for the sampling bias: subtract log of the expected count of each class
+        INDArray logExpectedTrue = Nd4j.create(minibatch, 1);
+        for (int i = 0; i < minibatch; i++) {
+            logExpectedTrue.putScalar(i, Math.log(candidates.expectedCount(sampler.probability(f.trueClasses[i], nOut))));
+        }
+        INDArray logExpectedSampled = Nd4j.create(1, numSampled);
+        for (int j = 0; j < numSampled; j++) {
+            logExpectedSampled.putScalar(j, Math.log(candidates.expectedCount(sampler.probability(f.sampled[j], nOut))));
+        }
+        trueLogits.subi(logExpectedTrue);
+        sampledLogits.subiRowVector(logExpectedSampled);
+
+        if (layerConf().isRemoveAccidentalHits()) {
+            Map<Integer, Integer> sampledIdx = new HashMap<>();
+            for (int j = 0; j < numSampled; j++) {
+                sampledIdx.put(f.sampled[j], j);
+            }
+            for (int i = 0; i < minibatch; i++) {
+                Integer j = sampledIdx.get(f.trueClasses[i]);
+                if (j != null) {
+                    logits.putScalar(i, j + 1, ACCIDENTAL_HIT_LOGIT);
+                }
+            }
+        }
+
+        INDArray candidateLabels = Nd4j.zeros(minibatch, numSampled + 1);
+        candidateLabels.getColumn(0).assign(1.0);
+
+        double clipEps = ((LossMCXENT) layerConf().getLossFn()).getSoftmaxClipEps();
+        if (computeGradient) {
+            Pair<INDArray, INDArray> p = SoftmaxCrossEntropy.scoreArrayAndGradient(candidateLabels, logits, null,
+                            maskArray, clipEps);
+            f.score = p.getFirst().sumNumber().doubleValue();
+            f.delta = p.getSecond();
+        } else {
+            f.score = SoftmaxCrossEntropy.scoreArray(candidateLabels, logits, null, maskArray, clipEps).sumNumber()
+                            .doubleValue();
+        }
+        return f;
+    }
+
+    /**
+     * @return Index of the true class for each example, from either one-hot labels or class index labels
+     */
+    private int[] trueClasses(int nOut) {
+        INDArray classIdxs;
+        if (labels.size(1) == nOut) {
+            classIdxs = Nd4j.argMax(labels, 1);
+        } else if (labels.size(1) == 1) {
+            classIdxs = labels;
+        } else {
+            throw new DL4JInvalidInputException("Labels array numColumns (size(1) = " + labels.size(1) + ") does not "
+                            + "match output layer number of outputs (nOut = " + nOut + "), and labels are not class "
+                            + "indices (size(1) = 1) " + layerId());
+        }
+
+        // FIXME: int cast
+        int[] out = new int[(int) labels.size(0)];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = classIdxs.getInt(i, 0);
+            if (out[i] < 0 || out[i] >= nOut) {
+                throw new DL4JInvalidInputException("Invalid class index for example " + i + ": got " + out[i]
+                                + ", must be in range 0 to " + (nOut - 1) + " " + layerId());
+            }
+        }
+        return out;
+    }
+
+    private Random getRng() {
+        if (rng == null) {
+            rng = new Random(conf().getSeed());
+        }
+        return rng;
+    }
+
+    @Override
+    public int numLabels() {
+        // FIXME: int cast
+        return (int) layerConf().getNOut();
+    }
+
+    @Override
+    public boolean isSparseGradientParam(String paramName) {
+        return layerConf().isSparseUpdates() && (DefaultParamInitializer.WEIGHT_KEY.equals(paramName)
+                        || DefaultParamInitializer.BIAS_KEY.equals(paramName));
+    }
+
+    @Override
+    public int getSparseGradientDimension(String paramName) {
+        //Weights [nIn, nOut] and biases [1, nOut]: one column per class
+        return 1;
+    }
+
+    @Override
+    public int[] getSparseGradientRows(String paramName) {
+        return columns(paramName).getGradientRows();
+    }
+
+    @Override
+    public void markSparseGradientRowsApplied(String paramName) {
+        columns(paramName).markGradientRowsApplied();
+    }
+
+    @Override
+    public int[] getSparseStepRows(String paramName) {
+        return columns(paramName).getStepRows();
+    }
+
+    @Override
+    public void markSparseStepApplied(String paramName) {
+        columns(paramName).markStepApplied();
+    }
+
+    @Override
+    public int[] getRowsModifiedSinceSync(String paramName) {
+        return columns(paramName).getModifiedRows();
+    }
+
+    @Override
+    public void clearRowsModifiedSinceSync() {
+        weightColumns.clearModifiedRows();
+        biasColumns.clearModifiedRows();
+    }
+
+    @Override
+    public void setBackpropGradientsViewArray(INDArray gradients) {
+        super.setBackpropGradientsViewArray(gradients);
+        weightColumns.resetGradientView();
+        biasColumns.resetGradientView();
+    }
+
+    private SparseRowTracker columns(String paramName) {
+        if (DefaultParamInitializer.WEIGHT_KEY.equals(paramName)) {
+            return weightColumns;
+        } else if (DefaultParamInitializer.BIAS_KEY.equals(paramName)) {
+            return biasColumns;
+        }
+        throw new IllegalArgumentException("Not a sparse parameter: " + paramName + " " + layerId());
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        sampledScore = Double.NaN;
+    }
+
+    @Override
+    protected INDArray getLabels2d(LayerWorkspaceMgr workspaceMgr, ArrayType arrayType) {
+        long nOut = layerConf().getNOut();
+        if (labels.size(1) == 1 && nOut != 1) {
+            //Class index labels: convert to one-hot for the full softmax loss
+            int[] classes = trueClasses((int) nOut);
+            INDArray oneHot = workspaceMgr.create(arrayType, labels.size(0), nOut);
+            for (int i = 0; i < classes.length; i++) {
+                oneHot.putScalar(i, classes[i], 1.0);
+            }
+            return oneHot;
+        }
+        return labels;
+    }
+
+    private static class SampledForward {
+        private int[] trueClasses;
+        private int[] sampled;
+        private INDArray wTrue;
+        private INDArray wSampled;
+        private double score;
+        private INDArray delta;
+    }
+}
@@ -38,11 +38,14 @@ import org.deeplearning4j.nn.api.layers.IOutputLayer;
 import org.deeplearning4j.nn.api.layers.RecurrentLayer;
 import org.deeplearning4j.nn.conf.*;
 import org.deeplearning4j.nn.conf.inputs.InputType;
+import org.deeplearning4j.nn.conf.memory.MemoryUseMode;
+import org.deeplearning4j.nn.conf.memory.WorkspaceMemoryPlan;
 import org.deeplearning4j.nn.conf.layers.FeedForwardLayer;
 import org.deeplearning4j.nn.conf.layers.recurrent.Bidirectional;
 import org.deeplearning4j.nn.gradient.DefaultGradient;
 import org.deeplearning4j.nn.gradient.Gradient;
 import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.inference.InferenceModel;
 import org.deeplearning4j.nn.layers.FrozenLayer;
 import org.deeplearning4j.nn.layers.FrozenLayerWithBackprop;
 import org.deeplearning4j.nn.layers.recurrent.BidirectionalLayer;
@@ -58,6 +61,7 @@ import org.deeplearning4j.util.ModelSerializer;
 import org.deeplearning4j.util.NetworkUtils;
 import org.nd4j.base.Preconditions;
 import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.memory.MemoryWorkspaceManager;
 import org.nd4j.linalg.api.memory.conf.WorkspaceConfiguration;
 import org.nd4j.linalg.api.memory.enums.AllocationPolicy;
 import org.nd4j.linalg.api.memory.enums.LearningPolicy;
@@ -156,18 +160,11 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
     protected static final String WS_RNN_LOOP_WORKING_MEM = "WS_RNN_LOOP_WORKING_MEM";
 
 
-    protected final WorkspaceConfiguration WS_LAYER_WORKING_MEM_CONFIG;
+    protected WorkspaceConfiguration WS_LAYER_WORKING_MEM_CONFIG;
 
-    protected static final WorkspaceConfiguration WS_ALL_LAYERS_ACT_CONFIG = WorkspaceConfiguration.builder()
-            .initialSize(0)
-            .overallocationLimit(0.05)
-            .policyLearning(LearningPolicy.FIRST_LOOP)
-            .policyReset(ResetPolicy.BLOCK_LEFT)
-            .policySpill(SpillPolicy.REALLOCATE)
-            .policyAllocation(AllocationPolicy.OVERALLOCATE)
-            .build();
+    protected WorkspaceConfiguration WS_ALL_LAYERS_ACT_CONFIG;
 
-    protected final WorkspaceConfiguration WS_LAYER_ACT_X_CONFIG;
+    protected WorkspaceConfiguration WS_LAYER_ACT_X_CONFIG;
 
     protected static final WorkspaceConfiguration WS_RNN_LOOP_WORKING_MEM_CONFIG = WorkspaceConfiguration.builder()
             .initialSize(0).overallocationLimit(0.05).policyReset(ResetPolicy.BLOCK_LEFT)
@@ -175,15 +172,30 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
             .policyLearning(LearningPolicy.FIRST_LOOP).build();
 
 
+    /**
+     * Workspace plan (initial workspace sizes), if set via {@link #planWorkspaces(InputType, int, MemoryUseMode)} or
+     * {@link #setWorkspaceMemoryPlan(WorkspaceMemoryPlan)}
+     */
+    @Getter
+    protected transient WorkspaceMemoryPlan workspaceMemoryPlan;
+
+
     public MultiLayerNetwork(MultiLayerConfiguration conf) {
         this.layerWiseConfigurations = conf;
         this.defaultConfiguration = conf.getConf(0).clone();
+        initWorkspaceConfigurations(null);
+    }
 
+    /**
+     * Create the workspace configurations. Initial sizes are 0 (learned over the first iterations) unless a
+     * workspace plan is provided
+     */
+    private void initWorkspaceConfigurations(WorkspaceMemoryPlan plan) {
         //Working memory: should learn over course of: (a) full forward pass, and (b) full backward pass
         //Working memory should be opened once per layer and once per preprocessor, for each of forward and backward passes
         int numWorkingMem = 2 * (layerWiseConfigurations.getConfs().size() + layerWiseConfigurations.getInputPreProcessors().size());
         WS_LAYER_WORKING_MEM_CONFIG = WorkspaceConfiguration.builder()
-                .initialSize(0)
+                .initialSize(plan == null ? 0 : plan.getWorkingMemoryBytes())
                 .overallocationLimit(0.02)
                 .policyLearning(LearningPolicy.OVER_TIME)
                 .cyclesBeforeInitialization(numWorkingMem)
@@ -196,7 +208,7 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
         //Technically we could set learning to numLayers / 2, but will set to numLayers for simplicity, and also to
         // account for a backward pass
         WS_LAYER_ACT_X_CONFIG = WorkspaceConfiguration.builder()
-                .initialSize(0)
+                .initialSize(plan == null ? 0 : plan.getLayerActivationsBytes())
                 .overallocationLimit(0.02)
                 .policyLearning(LearningPolicy.OVER_TIME)
                 .cyclesBeforeInitialization(layerWiseConfigurations.getConfs().size())
@@ -204,6 +216,91 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
                 .policySpill(SpillPolicy.REALLOCATE)
                 .policyAllocation(AllocationPolicy.OVERALLOCATE)
                 .build();
+
+        WS_ALL_LAYERS_ACT_CONFIG = WorkspaceConfiguration.builder()
+                .initialSize(plan == null ? 0 : plan.getAllActivationsBytes())
+                .overallocationLimit(0.05)
+                .policyLearning(LearningPolicy.FIRST_LOOP)
+                .policyReset(ResetPolicy.BLOCK_LEFT)
+                .policySpill(SpillPolicy.REALLOCATE)
+                .policyAllocation(AllocationPolicy.OVERALLOCATE)
+                .build();
+    }
+
+    /**
+     * Plan the sizes of this network's workspaces up front, from the network memory report
+     * ({@link MultiLayerConfiguration#getMemoryReport(InputType)}) for the given input type and minibatch size, and
+     * (re)allocate the workspaces for the current thread accordingly. This avoids the workspace reallocations
+     * that otherwise occur over the first iterations, while workspace sizes are learned.<br>
+     * Workspaces are still allowed to grow if the memory report underestimates the actual memory use.
+     *
+     * @param inputType     Input type for the network (excluding minibatch size)
+     * @param minibatchSize Minibatch size to plan for
+     * @param memoryUseMode Training (fit) or inference (output)
+     * @return The workspace plan
+     */
+    public WorkspaceMemoryPlan planWorkspaces(@NonNull InputType inputType, int minibatchSize,
+                    @NonNull MemoryUseMode memoryUseMode) {
+        CacheMode cm = layerWiseConfigurations.getCacheMode() == null ? CacheMode.NONE : layerWiseConfigurations.getCacheMode();
+        WorkspaceMemoryPlan plan = WorkspaceMemoryPlan.fromReport(layerWiseConfigurations.getMemoryReport(inputType),
+                        minibatchSize, memoryUseMode, cm, Nd4j.dataType());
+        setWorkspaceMemoryPlan(plan);
+        return plan;
+    }
+
+    /**
+     * Set the workspace plan (initial workspace sizes) for this network, and (re)allocate the workspaces for the current
+     * thread accordingly. Workspaces in other threads are allocated with the planned sizes when first created.
+     * Set to null to revert to learning the workspace sizes over the first iterations.
+     *
+     * @param plan Workspace plan. May be null
+     */
+    public void setWorkspaceMemoryPlan(WorkspaceMemoryPlan plan) {
+        this.workspaceMemoryPlan = plan;
+        initWorkspaceConfigurations(plan);
+        if (plan == null) {
+            return;
+        }
+
+        WorkspaceMode wsm = (plan.getMemoryUseMode() == MemoryUseMode.TRAINING
+                        ? layerWiseConfigurations.getTrainingWorkspaceMode()
+                        : layerWiseConfigurations.getInferenceWorkspaceMode());
+        if (wsm == WorkspaceMode.NONE) {
+            return;
+        }
+        reallocateWorkspace(WS_LAYER_WORKING_MEM, WS_LAYER_WORKING_MEM_CONFIG);
+        reallocateWorkspace(WS_LAYER_ACT_1, WS_LAYER_ACT_X_CONFIG);
+        reallocateWorkspace(WS_LAYER_ACT_2, WS_LAYER_ACT_X_CONFIG);
+        if (plan.getMemoryUseMode() == MemoryUseMode.TRAINING) {
+            reallocateWorkspace(WS_ALL_LAYERS_ACT, WS_ALL_LAYERS_ACT_CONFIG);
+        }
+    }
+
+    private static void reallocateWorkspace(String id, WorkspaceConfiguration configuration) {
+        MemoryWorkspaceManager wsm = Nd4j.getWorkspaceManager();
+        if (wsm.checkIfWorkspaceExists(id)) {
+            MemoryWorkspace ws = wsm.getWorkspaceForCurrentThread(id);
+            if (ws.isScopeActive()) {
+                throw new IllegalStateException("Cannot reallocate workspace \"" + id + "\": workspace is currently open");
+            }
+            wsm.destroyWorkspace(ws);
+        }
+        wsm.getWorkspaceForCurrentThread(configuration, id);
+    }
+
+    /**
+     * Get the largest minibatch size for which the estimated total memory use of this network (see
+     * {@link MultiLayerConfiguration#getMemoryReport(InputType)}) does not exceed the specified budget
+     *
+     * @param inputType         Input type for the network (excluding minibatch size)
+     * @param memoryBudgetBytes Memory budget, in bytes
+     * @param memoryUseMode     Training (fit) or inference (output)
+     * @return Maximum minibatch size, or 0 if a minibatch size of 1 exceeds the budget
+     */
+    public int maxBatchSizeFor(@NonNull InputType inputType, long memoryBudgetBytes, @NonNull MemoryUseMode memoryUseMode) {
+        CacheMode cm = layerWiseConfigurations.getCacheMode() == null ? CacheMode.NONE : layerWiseConfigurations.getCacheMode();
+        return layerWiseConfigurations.getMemoryReport(inputType).maxBatchSizeFor(memoryBudgetBytes, memoryUseMode,
+                        cm, Nd4j.dataType());
     }
 
     /**
@@ -1212,6 +1309,18 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
     }
 
 
+    /**
+     * Create an immutable, inference-only copy of this network: BatchNormalization and ActivationLayers are folded
+     * into the preceding layers where possible, dropout and other training-only state is removed, and output arrays
+     * are reused between calls. See {@link InferenceModel} for details.<br>
+     * This network is not modified.
+     *
+     * @return Inference model for this network
+     */
+    public InferenceModel compileForInference() {
+        return InferenceModel.compile(this);
+    }
+
     /**
      * Clones the multilayernetwork
      * @return
@@ -1221,6 +1330,11 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
         MultiLayerConfiguration conf = this.layerWiseConfigurations.clone();
         MultiLayerNetwork ret = new MultiLayerNetwork(conf);
         ret.init(this.params().dup(), false);
+        if (workspaceMemoryPlan != null) {
+            //Only the configurations: clones are often used in other threads, where workspaces are created on first use
+            ret.workspaceMemoryPlan = workspaceMemoryPlan;
+            ret.initWorkspaceConfigurations(workspaceMemoryPlan);
+        }
 
         if (solver != null) {
             //If  solver is null: updater hasn't been initialized -> getUpdater call will force initialization, however
@@ -2849,6 +2963,7 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
      * If no previous state is present in RNN layers (i.e., initially or after calling rnnClearPreviousState()),
      * the default initialization (usually 0) is used.<br>
      * Supports mini-batch (i.e., multiple predictions/forward pass in parallel) as well as for single examples.<br>
+     * To maintain separate state for many independent streams (sessions) with one network, see {@link RnnSessionManager}<br>
      * @param input Input to network. May be for one or multiple time steps. For single time step:
      *  input has shape [miniBatchSize,inputSize] or [miniBatchSize,inputSize,1]. miniBatchSize=1 for single example.<br>
      *  For multiple time steps: [miniBatchSize,inputSize,inputTimeSeriesLength]
@@ -3084,63 +3199,116 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
         boolean useRnnSegments = (layerWiseConfigurations.getBackpropType() == BackpropType.TruncatedBPTT);
 
         while (iter.hasNext()) {
-            DataSet next = iter.next();
+            doEvaluationBatch(iter.next(), useRnnSegments, evaluations);
+        }
 
-            if (next.getFeatureMatrix() == null || next.getLabels() == null)
-                continue;
+        if (iterator.asyncSupported())
+            ((AsyncDataSetIterator) iter).shutdown();
 
+        layerWiseConfigurations.setTrainingWorkspaceMode(cMode);
 
-            INDArray features = next.getFeatures();
-            INDArray labels = next.getLabels();
-            INDArray fMask = next.getFeaturesMaskArray();
-            INDArray lMask = next.getLabelsMaskArray();
+        return evaluations;
+    }
 
+    /**
+     * Perform evaluation using arbitrary IEvaluation instances, running inference on multiple threads.<br>
+     * Data is read from the iterator on the calling thread. Each worker thread uses its own copy of the network (sharing
+     * this network's parameters, so parameter memory is not duplicated) and its own copy of the evaluations, which
+     * are merged into the provided instances once all data has been evaluated. Results are the same as for
+     * {@link #doEvaluation(DataSetIterator, IEvaluation[])}, other than the order in which examples are evaluated.<br>
+     * Note that the iterator must not reuse DataSet objects (or their arrays) between calls to next(), as multiple
+     * DataSets are evaluated at once. For bounded memory ROC evaluation on large data sets, see {@link StreamingROC}.
+     *
+     * @param iterator    Data to evaluate on
+     * @param numThreads  Number of inference threads. If 1: equivalent to {@link #doEvaluation(DataSetIterator, IEvaluation[])}
+     * @param evaluations IEvaluation instances to evaluate into. Must be serializable, to be copied for each thread
+     * @return The evaluation instances, after evaluating all data
+     */
+    public <T extends IEvaluation> T[] doEvaluationParallel(DataSetIterator iterator, int numThreads, T... evaluations) {
+        if (numThreads <= 1) {
+            return doEvaluation(iterator, evaluations);
+        }
+        if (!iterator.hasNext() && iterator.resetSupported()) {
+            iterator.reset();
+        }
 
-            if (!useRnnSegments) {
-                //Standard/non-RNN case:
-                INDArray out = outputOfLayerDetached(false, FwdPassType.STANDARD,layers.length - 1, features, fMask, lMask);
+        //No workspace for async prefetch here: DataSets are handed over to other threads
+        DataSetIterator iter = iterator.asyncSupported() ? new AsyncDataSetIterator(iterator, 2, false) : iterator;
 
-                try (MemoryWorkspace wsO = Nd4j.getWorkspaceManager().scopeOutOfWorkspaces()) {
-                    for (T evaluation : evaluations)
-                        evaluation.eval(labels, out, lMask);
+        final boolean useRnnSegments = (layerWiseConfigurations.getBackpropType() == BackpropType.TruncatedBPTT);
+        List<ParallelEvaluationUtils.BatchEvaluator<DataSet>> workers = new ArrayList<>(numThreads);
+        for (int i = 0; i < numThreads; i++) {
+            MultiLayerConfiguration conf = layerWiseConfigurations.clone();
+            conf.setTrainingWorkspaceMode(conf.getInferenceWorkspaceMode());
+            final MultiLayerNetwork worker = new MultiLayerNetwork(conf);
+            worker.init(params(), false);
+            if (workspaceMemoryPlan != null) {
+                worker.initWorkspaceConfigurations(workspaceMemoryPlan);
+            }
+            workers.add(new ParallelEvaluationUtils.BatchEvaluator<DataSet>() {
+                @Override
+                public void eval(DataSet batch, IEvaluation[] evaluations) {
+                    worker.doEvaluationBatch(batch, useRnnSegments, evaluations);
                 }
-            } else {
-                rnnClearPreviousState();
+            });
+        }
 
+        try {
+            return ParallelEvaluationUtils.evaluate(iter, workers, 2 * numThreads, evaluations);
+        } finally {
+            if (iterator.asyncSupported())
+                ((AsyncDataSetIterator) iter).shutdown();
+        }
+    }
 
-                //Get subset of features and labels:
-                val fwdLen = layerWiseConfigurations.getTbpttFwdLength();
-                val tsLength = features.size(2);
-                long nSubsets = tsLength / fwdLen;
-                if (tsLength % fwdLen != 0)
-                    nSubsets++; //Example: 100 fwdLen with timeSeriesLength=120 -> want 2 subsets (1 of size 100, 1 of size 20)
-                for (int i = 0; i < nSubsets; i++) {
-                    val startTimeIdx = i * fwdLen;
-                    val endTimeIdx = Math.min(startTimeIdx + fwdLen, tsLength);
+    /**
+     * Evaluate a single DataSet, splitting time series into segments if using truncated BPTT
+     */
+    private void doEvaluationBatch(DataSet next, boolean useRnnSegments, IEvaluation[] evaluations) {
+        if (next.getFeatureMatrix() == null || next.getLabels() == null)
+            return;
 
-                    // FIXME: int cast
-                    INDArray[] subsets = getSubsetsForTbptt(startTimeIdx, (int) endTimeIdx, features, labels, fMask, lMask);
+        INDArray features = next.getFeatures();
+        INDArray labels = next.getLabels();
+        INDArray fMask = next.getFeaturesMaskArray();
+        INDArray lMask = next.getLabelsMaskArray();
 
-                    setLayerMaskArrays(subsets[2], subsets[3]);
+        if (!useRnnSegments) {
+            //Standard/non-RNN case:
+            INDArray out = outputOfLayerDetached(false, FwdPassType.STANDARD,layers.length - 1, features, fMask, lMask);
 
-                    INDArray outSub = rnnTimeStep(subsets[0]);
-                    try (MemoryWorkspace wsO = Nd4j.getWorkspaceManager().scopeOutOfWorkspaces()) {
-                        for (T evaluation : evaluations)
-                            evaluation.eval(subsets[1], outSub, subsets[3]);
-                    }
-                }
+            try (MemoryWorkspace wsO = Nd4j.getWorkspaceManager().scopeOutOfWorkspaces()) {
+                for (IEvaluation evaluation : evaluations)
+                    evaluation.eval(labels, out, lMask);
             }
+        } else {
+            rnnClearPreviousState();
+
+            //Get subset of features and labels:
+            val fwdLen = layerWiseConfigurations.getTbpttFwdLength();
+            val tsLength = features.size(2);
+            long nSubsets = tsLength / fwdLen;
+            if (tsLength % fwdLen != 0)
+                nSubsets++; //Example: 100 fwdLen with timeSeriesLength=120 -> want 2 subsets (1 of size 100, 1 of size 20)
+            for (int i = 0; i < nSubsets; i++) {
+                val startTimeIdx = i * fwdLen;
+                val endTimeIdx = Math.min(startTimeIdx + fwdLen, tsLength);
 
-            //Clear inputs, masks etc. Important to avoid leaking invalidated/out of scope arrays between iterations
-            clearLayersStates();
-        }
+                // FIXME: int cast
+                INDArray[] subsets = getSubsetsForTbptt(startTimeIdx, (int) endTimeIdx, features, labels, fMask, lMask);
 
-        if (iterator.asyncSupported())
-            ((AsyncDataSetIterator) iter).shutdown();
+                setLayerMaskArrays(subsets[2], subsets[3]);
 
-        layerWiseConfigurations.setTrainingWorkspaceMode(cMode);
+                INDArray outSub = rnnTimeStep(subsets[0]);
+                try (MemoryWorkspace wsO = Nd4j.getWorkspaceManager().scopeOutOfWorkspaces()) {
+                    for (IEvaluation evaluation : evaluations)
+                        evaluation.eval(subsets[1], outSub, subsets[3]);
+                }
+            }
+        }
 
-        return evaluations;
+        //Clear inputs, masks etc. Important to avoid leaking invalidated/out of scope arrays between iterations
+        clearLayersStates();
     }
 
     /**
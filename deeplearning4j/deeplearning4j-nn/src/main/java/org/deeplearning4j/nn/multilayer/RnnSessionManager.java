@@ -0,0 +1,346 @@
+package org.deeplearning4j.nn.multilayer;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.api.layers.RecurrentLayer;
+import org.nd4j.base.Preconditions;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.INDArrayIndex;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.util.*;
+
+/**
+ * Stateful session API for {@link MultiLayerNetwork#rnnTimeStep(INDArray)}, for serving recurrent networks to many
+ * concurrent streams (for example, one stream per user) with a single network instance.<br>
+ * {@link MultiLayerNetwork#rnnTimeStep(INDArray)} stores one RNN state per layer; this class instead stores the state
+ * (for example h/c for LSTM and GravesLSTM, h for SimpleRnn) of each session in a pooled store: one off-heap
+ * [capacity, stateSize] array per layer and state key, with one row (slot) per session. Slots of removed sessions
+ * are reused, and the store grows as required, up to the maximum number of sessions.<br>
+ * {@link #rnnTimeStep(Map)} batches the inputs of many sessions into a single forward pass: the sessions' states are
+ * gathered into the network's RNN layers, rnnTimeStep is called once, and the resulting states are scattered back to
+ * the sessions' slots. New sessions start from the default (zero) state.<br>
+ * <br>
+ * Methods are synchronized; the network's own rnnTimeStep state is cleared after each call, and the network should
+ * not be used for rnnTimeStep elsewhere while sessions are being served.
+ */
+@Slf4j
+public class RnnSessionManager {
+
+    public static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    private final MultiLayerNetwork network;
+    private final int maxSessions;
+    private final List<Integer> recurrentLayers = new ArrayList<>();
+
+    private final Map<String, Integer> sessionSlots = new LinkedHashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private int nextSlot = 0;
+    private int capacity;
+    //Key: layer index, then state key (e.g., "prevAct", "prevMem")
+    private final Map<Integer, Map<String, StateStore>> stores = new LinkedHashMap<>();
+
+    /**
+     * Pooled state for one layer + state key: row i is the state for the session in slot i
+     */
+    private static class StateStore {
+        private INDArray states;
+        private final long[] exampleShape;
+        private final long exampleLength;
+
+        private StateStore(long[] exampleShape, int capacity) {
+            this.exampleShape = exampleShape;
+            long length = 1;
+            for (long l : exampleShape) {
+                length *= l;
+            }
+            this.exampleLength = length;
+            this.states = Nd4j.zeros(capacity, length);
+        }
+    }
+
+    /**
+     * @param network Network to serve. Must contain at least one recurrent layer
+     */
+    public RnnSessionManager(MultiLayerNetwork network) {
+        this(network, DEFAULT_INITIAL_CAPACITY, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param network         Network to serve. Must contain at least one recurrent layer
+     * @param initialCapacity Number of session slots to allocate initially
+     * @param maxSessions     Maximum number of concurrent sessions
+     */
+    public RnnSessionManager(@NonNull MultiLayerNetwork network, int initialCapacity, int maxSessions) {
+        Preconditions.checkArgument(initialCapacity > 0, "Initial capacity must be > 0, got %s", initialCapacity);
+        Preconditions.checkArgument(maxSessions > 0, "Maximum number of sessions must be > 0, got %s", maxSessions);
+        this.network = network;
+        this.capacity = initialCapacity;
+        this.maxSessions = maxSessions;
+        for (int i = 0; i < network.getnLayers(); i++) {
+            if (network.getLayer(i) instanceof RecurrentLayer) {
+                recurrentLayers.add(i);
+            }
+        }
+        if (recurrentLayers.isEmpty()) {
+            throw new IllegalArgumentException("Network does not have any recurrent layers");
+        }
+    }
+
+    /**
+     * Do one or more time steps for a single session. See {@link #rnnTimeStep(Map)}
+     *
+     * @param sessionId Session ID. A new session is created if it does not exist
+     * @param input     Input for the session: shape [1, nIn] or [1, nIn, timeSeriesLength]
+     * @return Output for the session
+     */
+    public synchronized INDArray rnnTimeStep(@NonNull String sessionId, @NonNull INDArray input) {
+        return rnnTimeStep(Collections.singletonMap(sessionId, input)).get(sessionId);
+    }
+
+    /**
+     * Do one or more time steps for each of the specified sessions, using (and updating) each session's stored state.
+     * Inputs with the same shape are batched into one {@link MultiLayerNetwork#rnnTimeStep(INDArray)} call.<br>
+     * Sessions that do not exist are created, starting from the default (zero) state.
+     *
+     * @param inputs Inputs, keyed by session ID. Each input has shape [1, nIn] or [1, nIn, timeSeriesLength]
+     * @return Outputs, keyed by session ID. Same shapes as {@link MultiLayerNetwork#rnnTimeStep(INDArray)} for
+     * minibatch size 1
+     */
+    public synchronized Map<String, INDArray> rnnTimeStep(@NonNull Map<String, INDArray> inputs) {
+        //Group sessions by input shape: each group is one forward pass
+        Map<String, List<String>> groups = new LinkedHashMap<>();
+        for (Map.Entry<String, INDArray> e : inputs.entrySet()) {
+            INDArray in = e.getValue();
+            if (in.size(0) != 1) {
+                throw new IllegalArgumentException("Input for session \"" + e.getKey() + "\" must have minibatch "
+                                + "size 1: got input with shape " + Arrays.toString(in.shape()));
+            }
+            String shape = Arrays.toString(in.shape());
+            if (!groups.containsKey(shape)) {
+                groups.put(shape, new ArrayList<String>());
+            }
+            groups.get(shape).add(e.getKey());
+        }
+
+        Map<String, INDArray> out = new LinkedHashMap<>();
+        try (MemoryWorkspace ws = Nd4j.getWorkspaceManager().scopeOutOfWorkspaces()) {
+            for (List<String> sessions : groups.values()) {
+                int[] slots = new int[sessions.size()];
+                INDArray[] toConcat = new INDArray[sessions.size()];
+                for (int i = 0; i < slots.length; i++) {
+                    slots[i] = slotFor(sessions.get(i));
+                    toConcat[i] = inputs.get(sessions.get(i));
+                }
+                INDArray batchInput = (toConcat.length == 1 ? toConcat[0] : Nd4j.concat(0, toConcat));
+
+                INDArray batchOutput;
+                try {
+                    gather(slots);
+                    batchOutput = network.rnnTimeStep(batchInput);
+                    scatter(slots);
+                } finally {
+                    network.rnnClearPreviousState();
+                }
+
+                INDArrayIndex[] idx = new INDArrayIndex[batchOutput.rank()];
+                for (int j = 1; j < idx.length; j++) {
+                    idx[j] = NDArrayIndex.all();
+                }
+                for (int i = 0; i < slots.length; i++) {
+                    idx[0] = NDArrayIndex.interval(i, i + 1);
+                    out.put(sessions.get(i), batchOutput.get(idx).dup());
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Get a copy of the stored state for the specified session
+     *
+     * @param sessionId Session ID
+     * @return State, keyed by layer index and then by state key (as per {@link MultiLayerNetwork#rnnGetPreviousState(int)}),
+     * or null if the session does not exist
+     */
+    public synchronized Map<Integer, Map<String, INDArray>> getSessionState(@NonNull String sessionId) {
+        Integer slot = sessionSlots.get(sessionId);
+        if (slot == null) {
+            return null;
+        }
+        Map<Integer, Map<String, INDArray>> ret = new LinkedHashMap<>();
+        try (MemoryWorkspace ws = Nd4j.getWorkspaceManager().scopeOutOfWorkspaces()) {
+            for (Map.Entry<Integer, Map<String, StateStore>> e : stores.entrySet()) {
+                Map<String, INDArray> m = new LinkedHashMap<>();
+                for (Map.Entry<String, StateStore> s : e.getValue().entrySet()) {
+                    m.put(s.getKey(), gather(s.getValue(), new int[] {slot}));
+                }
+                ret.put(e.getKey(), m);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Set the stored state for the specified session (for example, state previously obtained from
+     * {@link #getSessionState(String)}). The session is created if it does not exist
+     *
+     * @param sessionId Session ID
+     * @param state     State, keyed by layer index and then by state key. Arrays have minibatch size 1
+     */
+    public synchronized void setSessionState(@NonNull String sessionId,
+                    @NonNull Map<Integer, Map<String, INDArray>> state) {
+        int slot = slotFor(sessionId);
+        try (MemoryWorkspace ws = Nd4j.getWorkspaceManager().scopeOutOfWorkspaces()) {
+            for (Map.Entry<Integer, Map<String, INDArray>> e : state.entrySet()) {
+                if (!recurrentLayers.contains(e.getKey())) {
+                    throw new IllegalArgumentException("Layer " + e.getKey() + " is not a recurrent layer");
+                }
+                for (Map.Entry<String, INDArray> s : e.getValue().entrySet()) {
+                    scatter(e.getKey(), s.getKey(), s.getValue(), new int[] {slot});
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove the specified session, releasing its slot for reuse
+     *
+     * @param sessionId Session ID
+     * @return True if the session existed
+     */
+    public synchronized boolean removeSession(@NonNull String sessionId) {
+        Integer slot = sessionSlots.remove(sessionId);
+        if (slot == null) {
+            return false;
+        }
+        freeSlots.add(slot);
+        return true;
+    }
+
+    /**
+     * Remove all sessions
+     */
+    public synchronized void clear() {
+        sessionSlots.clear();
+        freeSlots.clear();
+        nextSlot = 0;
+    }
+
+    public synchronized boolean hasSession(@NonNull String sessionId) {
+        return sessionSlots.containsKey(sessionId);
+    }
+
+    public synchronized int numSessions() {
+        return sessionSlots.size();
+    }
+
+    public synchronized Set<String> getSessionIds() {
+        return new LinkedHashSet<>(sessionSlots.keySet());
+    }
+
+    /**
+     * @return Number of session slots currently allocated in the state store
+     */
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    private int slotFor(String sessionId) {
+        Integer slot = sessionSlots.get(sessionId);
+        if (slot != null) {
+            return slot;
+        }
+        if (sessionSlots.size() >= maxSessions) {
+            throw new IllegalStateException("Maximum number of sessions (" + maxSessions + ") reached. Remove "
+                            + "sessions using removeSession(String) before creating new sessions");
+        }
+
+        if (!freeSlots.isEmpty()) {
+            slot = freeSlots.poll();
+        } else {
+            slot = nextSlot++;
+            if (slot >= capacity) {
+                grow(Math.min(Math.max(2 * capacity, slot + 1), maxSessions));
+            }
+        }
+        //New session: default (zero) state
+        for (Map<String, StateStore> m : stores.values()) {
+            for (StateStore s : m.values()) {
+                s.states.getRow(slot).assign(0);
+            }
+        }
+        sessionSlots.put(sessionId, slot);
+        return slot;
+    }
+
+    private void grow(int newCapacity) {
+        log.debug("Growing RNN session state store: {} -> {} sessions", capacity, newCapacity);
+        for (Map<String, StateStore> m : stores.values()) {
+            for (StateStore s : m.values()) {
+                INDArray newStates = Nd4j.zeros(newCapacity, s.exampleLength);
+                newStates.get(NDArrayIndex.interval(0, capacity), NDArrayIndex.all()).assign(s.states);
+                s.states = newStates;
+            }
+        }
+        capacity = newCapacity;
+    }
+
+    /**
+     * Set the network RNN layers' state from the specified session slots
+     */
+    private void gather(int[] slots) {
+        network.rnnClearPreviousState();
+        for (Map.Entry<Integer, Map<String, StateStore>> e : stores.entrySet()) {
+            Map<String, INDArray> state = new HashMap<>();
+            for (Map.Entry<String, StateStore> s : e.getValue().entrySet()) {
+                state.put(s.getKey(), gather(s.getValue(), slots));
+            }
+            network.rnnSetPreviousState(e.getKey(), state);
+        }
+    }
+
+    private static INDArray gather(StateStore store, int[] slots) {
+        INDArray rows = Nd4j.pullRows(store.states, 1, slots);
+        long[] shape = new long[store.exampleShape.length + 1];
+        shape[0] = slots.length;
+        System.arraycopy(store.exampleShape, 0, shape, 1, store.exampleShape.length);
+        return (shape.length == 2 ? rows : rows.reshape('c', shape));
+    }
+
+    /**
+     * Store the network RNN layers' state to the specified session slots
+     */
+    private void scatter(int[] slots) {
+        for (Integer layer : recurrentLayers) {
+            Map<String, INDArray> state = network.rnnGetPreviousState(layer);
+            for (Map.Entry<String, INDArray> s : state.entrySet()) {
+                scatter(layer, s.getKey(), s.getValue(), slots);
+            }
+        }
+    }
+
+    private void scatter(int layer, String key, INDArray state, int[] slots) {
+        if (state.size(0) != slots.length) {
+            throw new IllegalStateException("Expected state for layer " + layer + ", key \"" + key + "\" with "
+                            + "minibatch size " + slots.length + ", got shape " + Arrays.toString(state.shape()));
+        }
+        Map<String, StateStore> layerStores = stores.get(layer);
+        if (layerStores == null) {
+            layerStores = new LinkedHashMap<>();
+            stores.put(layer, layerStores);
+        }
+        StateStore store = layerStores.get(key);
+        if (store == null) {
+            store = new StateStore(Arrays.copyOfRange(state.shape(), 1, state.rank()), capacity);
+            layerStores.put(key, store);
+        }
+
+        INDArray state2d = state.reshape('c', slots.length, store.exampleLength);
+        for (int i = 0; i < slots.length; i++) {
+            store.states.putRow(slots[i], state2d.getRow(i));
+        }
+    }
+}
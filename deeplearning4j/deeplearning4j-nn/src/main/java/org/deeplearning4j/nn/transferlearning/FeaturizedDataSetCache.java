@@ -0,0 +1,457 @@
+package org.deeplearning4j.nn.transferlearning;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A single-file, memory-mapped cache of featurized data (i.e., the output of the frozen part of a network, see
+ * {@link TransferLearningHelper#featurize(DataSet)}), as an alternative to saving each featurized minibatch with
+ * {@link DataSet#save(File)}.<br>
+ * The frozen part of the network is run only once, when the cache is created; the cache can then be iterated over
+ * any number of times (and reopened later with {@link #open(File)}) via {@link FeaturizedDataSetIterator}, which
+ * reads individual examples directly from the memory-mapped file, hence supports shuffling at the example level,
+ * and any minibatch size.<br>
+ * Features can optionally be stored as 16-bit floats ({@link Precision#HALF}), halving the size of the cache at the
+ * cost of precision. Labels are always stored as 32-bit floats.
+ * <p>
+ * Storage format: a header (features and labels shapes, precision, number of examples), followed by one fixed size
+ * record (features, then labels) per example.<br>
+ * Feature masks and label masks are not supported.
+ */
+@Slf4j
+public class FeaturizedDataSetCache implements Closeable {
+    private static final int MAGIC = 0x44344643;
+    private static final int VERSION = 1;
+
+    public enum Precision {
+        /**
+         * 32-bit floats
+         */
+        FLOAT,
+        /**
+         * 16-bit (IEEE 754 half precision) floats
+         */
+        HALF
+    }
+
+    @Getter
+    private final File file;
+    @Getter
+    private final Precision precision;
+    private final long[] featureShape;
+    private final long[] labelShape;
+    @Getter
+    private final int numExamples;
+    private final int featureLength;
+    private final int labelLength;
+    private final int recordBytes;
+
+    private RandomAccessFile raf;
+    private MappedByteBuffer[] segments;
+    private int examplesPerSegment;
+
+    private FeaturizedDataSetCache(File file, Precision precision, long[] featureShape, long[] labelShape,
+                    int numExamples, long headerBytes) throws IOException {
+        this.file = file;
+        this.precision = precision;
+        this.featureShape = featureShape;
+        this.labelShape = labelShape;
+        this.numExamples = numExamples;
+        this.featureLength = (int) length(featureShape);
+        this.labelLength = (int) length(labelShape);
+        this.recordBytes = recordBytes(precision, featureLength, labelLength);
+
+        this.raf = new RandomAccessFile(file, "r");
+        FileChannel channel = raf.getChannel();
+        examplesPerSegment = Math.max(1, Integer.MAX_VALUE / recordBytes);
+        int numSegments = Math.max(1, (numExamples + examplesPerSegment - 1) / examplesPerSegment);
+        segments = new MappedByteBuffer[numSegments];
+        for (int i = 0; i < numSegments; i++) {
+            long start = headerBytes + (long) i * examplesPerSegment * recordBytes;
+            long size = (long) Math.min(examplesPerSegment, numExamples - i * examplesPerSegment) * recordBytes;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.max(0, size));
+        }
+    }
+
+    /**
+     * Featurize all data from the iterator using a single thread, and store it with 32-bit precision.
+     * See {@link #create(TransferLearningHelper, DataSetIterator, File, Precision, int)}
+     */
+    public static FeaturizedDataSetCache create(@NonNull TransferLearningHelper helper,
+                    @NonNull DataSetIterator iterator, @NonNull File file) throws IOException {
+        return create(helper, iterator, file, Precision.FLOAT, 1);
+    }
+
+    /**
+     * Featurize all data from the iterator, and store it in the specified file.<br>
+     * The iterator is not reset before or after featurizing. With more than one worker, each additional worker uses
+     * its own copy of the network, and the order of the examples in the cache is not deterministic.
+     *
+     * @param helper     Transfer learning helper to featurize the data with
+     * @param iterator   Data to featurize
+     * @param file       File to store the featurized data in. Will be overwritten if it exists
+     * @param precision  Precision of the stored features
+     * @param numWorkers Number of threads running the frozen part of the network
+     * @return The cache, open for reading
+     */
+    public static FeaturizedDataSetCache create(@NonNull TransferLearningHelper helper,
+                    @NonNull final DataSetIterator iterator, @NonNull File file, @NonNull Precision precision,
+                    int numWorkers) throws IOException {
+        if (numWorkers < 1)
+            throw new IllegalArgumentException("Number of workers should be positive value, got " + numWorkers);
+
+        final Writer writer = new Writer(file, precision);
+        try {
+            if (numWorkers == 1) {
+                while (iterator.hasNext()) {
+                    writer.append(helper.featurize(iterator.next()));
+                }
+            } else {
+                final AtomicReference<Throwable> error = new AtomicReference<>();
+                Thread[] threads = new Thread[numWorkers];
+                for (int i = 0; i < numWorkers; i++) {
+                    final TransferLearningHelper h = (i == 0 ? helper : helper.copyForFeaturizing());
+                    threads[i] = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                while (error.get() == null) {
+                                    DataSet ds;
+                                    synchronized (iterator) {
+                                        if (!iterator.hasNext())
+                                            return;
+                                        ds = iterator.next();
+                                    }
+                                    writer.append(h.featurize(ds));
+                                }
+                            } catch (Throwable t) {
+                                error.compareAndSet(null, t);
+                            }
+                        }
+                    }, "FeaturizedDataSetCache worker " + i);
+                    threads[i].setDaemon(true);
+                    threads[i].start();
+                }
+                for (Thread t : threads) {
+                    t.join();
+                }
+                if (error.get() != null) {
+                    if (error.get() instanceof IOException)
+                        throw (IOException) error.get();
+                    throw new RuntimeException("Error featurizing data", error.get());
+                }
+            }
+            writer.finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            writer.close();
+        }
+
+        log.info("Featurized {} examples to {} ({} bytes)", writer.numExamples, file, file.length());
+        return open(file);
+    }
+
+    /**
+     * Open a cache previously created with
+     * {@link #create(TransferLearningHelper, DataSetIterator, File, Precision, int)}
+     *
+     * @param file Cache file
+     */
+    public static FeaturizedDataSetCache open(@NonNull File file) throws IOException {
+        try (DataInputStream dis = new DataInputStream(new FileInputStream(file))) {
+            if (dis.readInt() != MAGIC)
+                throw new IOException("Not a featurized data cache file: " + file);
+            int version = dis.readInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported featurized data cache version: " + version);
+            Precision precision = Precision.values()[dis.readInt()];
+            long[] featureShape = readShape(dis);
+            long[] labelShape = readShape(dis);
+            long numExamples = dis.readLong();
+            long headerBytes = headerBytes(featureShape, labelShape);
+
+            long expected = headerBytes + numExamples * recordBytes(precision, (int) length(featureShape),
+                            (int) length(labelShape));
+            if (file.length() < expected)
+                throw new IOException("Featurized data cache file is truncated: expected " + expected
+                                + " bytes, got " + file.length());
+
+            return new FeaturizedDataSetCache(file, precision, featureShape, labelShape, (int) numExamples,
+                            headerBytes);
+        }
+    }
+
+    /**
+     * @return Shape of the features of a single example (excluding the minibatch dimension)
+     */
+    public long[] getFeatureShape() {
+        return featureShape.clone();
+    }
+
+    /**
+     * @return Shape of the labels of a single example (excluding the minibatch dimension)
+     */
+    public long[] getLabelShape() {
+        return labelShape.clone();
+    }
+
+    /**
+     * Load the specified examples as a single DataSet. Safe to call from multiple threads.
+     *
+     * @param examples Indices of the examples to load, in the order in which they should be returned
+     */
+    public DataSet get(@NonNull int[] examples) {
+        if (segments == null)
+            throw new IllegalStateException("Cache has been closed");
+
+        float[] features = new float[examples.length * featureLength];
+        float[] labels = new float[examples.length * labelLength];
+        short[] half = (precision == Precision.HALF ? new short[featureLength] : null);
+
+        for (int i = 0; i < examples.length; i++) {
+            int ex = examples[i];
+            if (ex < 0 || ex >= numExamples)
+                throw new IllegalArgumentException("Invalid example index " + ex + ", cache has " + numExamples
+                                + " examples");
+
+            ByteBuffer bb = segments[ex / examplesPerSegment].duplicate();
+            bb.position((ex % examplesPerSegment) * recordBytes);
+            if (precision == Precision.HALF) {
+                ShortBuffer sb = bb.asShortBuffer();
+                sb.get(half);
+                for (int j = 0; j < featureLength; j++) {
+                    features[i * featureLength + j] = halfToFloat(half[j]);
+                }
+                bb.position(bb.position() + 2 * featureLength);
+            } else {
+                FloatBuffer fb = bb.asFloatBuffer();
+                fb.get(features, i * featureLength, featureLength);
+                bb.position(bb.position() + 4 * featureLength);
+            }
+            bb.asFloatBuffer().get(labels, i * labelLength, labelLength);
+        }
+
+        return new DataSet(Nd4j.create(features, withMinibatch(examples.length, featureShape), 'c'),
+                        Nd4j.create(labels, withMinibatch(examples.length, labelShape), 'c'));
+    }
+
+    /**
+     * @param batchSize Minibatch size
+     * @param shuffle   If true: the order of the examples is randomized on each reset
+     * @param seed      Seed for shuffling
+     * @return An iterator over all the examples in this cache
+     */
+    public FeaturizedDataSetIterator iterator(int batchSize, boolean shuffle, long seed) {
+        return new FeaturizedDataSetIterator(this, batchSize, shuffle, seed);
+    }
+
+    /**
+     * Close the cache file. Note that the memory-mapped data is released only once garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        segments = null;
+        if (raf != null) {
+            raf.close();
+            raf = null;
+        }
+    }
+
+    private static long[] withMinibatch(int minibatch, long[] shape) {
+        long[] out = new long[shape.length + 1];
+        out[0] = minibatch;
+        System.arraycopy(shape, 0, out, 1, shape.length);
+        return out;
+    }
+
+    private static long length(long[] shape) {
+        long l = 1;
+        for (long s : shape)
+            l *= s;
+        return l;
+    }
+
+    private static int recordBytes(Precision precision, int featureLength, int labelLength) {
+        long bytes = (precision == Precision.HALF ? 2L : 4L) * featureLength + 4L * labelLength;
+        if (bytes > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Single example is too large to be cached: " + bytes + " bytes");
+        return (int) bytes;
+    }
+
+    private static long headerBytes(long[] featureShape, long[] labelShape) {
+        //magic, version, precision, 2x rank + shape, number of examples
+        return 3 * 4 + 4 + 8 * featureShape.length + 4 + 8 * labelShape.length + 8;
+    }
+
+    private static long[] readShape(DataInputStream dis) throws IOException {
+        long[] shape = new long[dis.readInt()];
+        for (int i = 0; i < shape.length; i++) {
+            shape[i] = dis.readLong();
+        }
+        return shape;
+    }
+
+    /**
+     * Convert a float to IEEE 754 half precision, rounding to nearest even. Values too large to be represented are
+     * converted to infinity.
+     */
+    static short floatToHalf(float f) {
+        int bits = Float.floatToIntBits(f);
+        int sign = (bits >>> 16) & 0x8000;
+        int val = bits & 0x7fffffff;
+
+        if (val >= 0x7f800000) {
+            //Infinity or NaN
+            return (short) (sign | 0x7c00 | (val > 0x7f800000 ? 0x200 : 0));
+        }
+        if (val >= 0x477ff000) {
+            //Rounds to a value >= 65520: overflow
+            return (short) (sign | 0x7c00);
+        }
+        if (val < 0x38800000) {
+            //Subnormal in half precision: multiples of 2^-24
+            return (short) (sign | Math.round(Float.intBitsToFloat(val) * 16777216f));
+        }
+        int rounded = val + 0xfff + ((val >>> 13) & 1);
+        return (short) (sign | ((rounded - 0x38000000) >>> 13));
+    }
+
+    /**
+     * Convert an IEEE 754 half precision value to float
+     */
+    static float halfToFloat(short h) {
+        int sign = (h & 0x8000) << 16;
+        int exp = (h >>> 10) & 0x1f;
+        int mantissa = h & 0x3ff;
+
+        if (exp == 0x1f) {
+            return Float.intBitsToFloat(sign | 0x7f800000 | (mantissa << 13));
+        }
+        if (exp == 0) {
+            float f = mantissa / 16777216f;
+            return sign == 0 ? f : -f;
+        }
+        return Float.intBitsToFloat(sign | ((exp + 112) << 23) | (mantissa << 13));
+    }
+
+    /**
+     * Appends featurized minibatches to the cache file, from any number of threads
+     */
+    private static class Writer implements Closeable {
+        private final Precision precision;
+        private final RandomAccessFile raf;
+        private final FileChannel channel;
+        private long[] featureShape;
+        private long[] labelShape;
+        private long numExamplesOffset;
+        private long numExamples;
+
+        private Writer(File file, Precision precision) throws IOException {
+            this.precision = precision;
+            if (file.exists() && !file.delete())
+                throw new IOException("Unable to delete existing file: " + file);
+            this.raf = new RandomAccessFile(file, "rw");
+            this.channel = raf.getChannel();
+        }
+
+        private synchronized void append(DataSet ds) throws IOException {
+            if (ds.getFeaturesMaskArray() != null || ds.getLabelsMaskArray() != null)
+                throw new UnsupportedOperationException("Feature and label masks are not supported by "
+                                + FeaturizedDataSetCache.class.getSimpleName());
+            if (ds.getLabels() == null)
+                throw new IllegalArgumentException("Featurized data should have labels");
+
+            INDArray f = ds.getFeatures();
+            INDArray l = ds.getLabels();
+            long[] fShape = Arrays.copyOfRange(f.shape(), 1, f.rank());
+            long[] lShape = Arrays.copyOfRange(l.shape(), 1, l.rank());
+            if (featureShape == null) {
+                featureShape = fShape;
+                labelShape = lShape;
+                writeHeader();
+            } else if (!Arrays.equals(featureShape, fShape) || !Arrays.equals(labelShape, lShape)) {
+                throw new IllegalStateException("All examples should have the same shape: got features/labels "
+                                + Arrays.toString(featureShape) + "/" + Arrays.toString(labelShape) + " and "
+                                + Arrays.toString(fShape) + "/" + Arrays.toString(lShape));
+            }
+
+            int mb = (int) f.size(0);
+            int fLength = (int) length(fShape);
+            int lLength = (int) length(lShape);
+            float[] fData = f.dup('c').data().asFloat();
+            float[] lData = l.dup('c').data().asFloat();
+
+            ByteBuffer bb = ByteBuffer.allocate(mb * recordBytes(precision, fLength, lLength));
+            for (int i = 0; i < mb; i++) {
+                if (precision == Precision.HALF) {
+                    for (int j = 0; j < fLength; j++) {
+                        bb.putShort(floatToHalf(fData[i * fLength + j]));
+                    }
+                } else {
+                    bb.asFloatBuffer().put(fData, i * fLength, fLength);
+                    bb.position(bb.position() + 4 * fLength);
+                }
+                bb.asFloatBuffer().put(lData, i * lLength, lLength);
+                bb.position(bb.position() + 4 * lLength);
+            }
+            bb.flip();
+            while (bb.hasRemaining()) {
+                channel.write(bb);
+            }
+            numExamples += mb;
+        }
+
+        private void writeHeader() throws IOException {
+            ByteBuffer bb = ByteBuffer.allocate((int) headerBytes(featureShape, labelShape));
+            bb.putInt(MAGIC).putInt(VERSION).putInt(precision.ordinal());
+            bb.putInt(featureShape.length);
+            for (long s : featureShape)
+                bb.putLong(s);
+            bb.putInt(labelShape.length);
+            for (long s : labelShape)
+                bb.putLong(s);
+            numExamplesOffset = bb.position();
+            bb.putLong(0);
+            bb.flip();
+            while (bb.hasRemaining()) {
+                channel.write(bb);
+            }
+        }
+
+        private synchronized void finish() throws IOException {
+            if (featureShape == null)
+                throw new IllegalStateException("No data to featurize: iterator is empty");
+            ByteBuffer bb = ByteBuffer.allocate(8);
+            bb.putLong(numExamples);
+            bb.flip();
+            channel.write(bb, numExamplesOffset);
+            channel.force(false);
+        }
+
+        @Override
+        public void close() throws IOException {
+            raf.close();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.deeplearning4j.nn.transferlearning;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Iterate over the examples stored in a {@link FeaturizedDataSetCache}, for use with
+ * {@link TransferLearningHelper#fitFeaturized(DataSetIterator)}.<br>
+ * Minibatches are assembled from individual examples read from the memory-mapped cache file; if shuffling is
+ * enabled, the order of the examples is randomized on creation and on each {@link #reset()}.
+ */
+public class FeaturizedDataSetIterator implements DataSetIterator {
+
+    private final FeaturizedDataSetCache cache;
+    private final int batchSize;
+    private final boolean shuffle;
+    private final Random rng;
+    private final int[] order;
+    private int cursor = 0;
+
+    @Getter
+    @Setter
+    private DataSetPreProcessor preProcessor;
+    @Getter
+    @Setter
+    private List<String> labels;
+
+    /**
+     * @param cache     Cache to iterate over
+     * @param batchSize Minibatch size
+     * @param shuffle   If true: the order of the examples is randomized on each reset
+     * @param seed      Seed for shuffling
+     */
+    public FeaturizedDataSetIterator(@NonNull FeaturizedDataSetCache cache, int batchSize, boolean shuffle,
+                    long seed) {
+        if (batchSize <= 0)
+            throw new IllegalArgumentException("Batch size should be positive value, got " + batchSize);
+        this.cache = cache;
+        this.batchSize = batchSize;
+        this.shuffle = shuffle;
+        this.rng = new Random(seed);
+        this.order = new int[cache.getNumExamples()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        if (shuffle)
+            shuffle();
+    }
+
+    private void shuffle() {
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = rng.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+    }
+
+    @Override
+    public DataSet next(int num) {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        int end = Math.min(order.length, cursor + num);
+        DataSet ds = cache.get(Arrays.copyOfRange(order, cursor, end));
+        cursor = end;
+        if (preProcessor != null)
+            preProcessor.preProcess(ds);
+        return ds;
+    }
+
+    @Override
+    public int inputColumns() {
+        long columns = 1;
+        for (long s : cache.getFeatureShape()) {
+            columns *= s;
+        }
+        return (int) columns;
+    }
+
+    @Override
+    public int totalOutcomes() {
+        long[] shape = cache.getLabelShape();
+        return (int) shape[0];
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return true;
+    }
+
+    @Override
+    public boolean asyncSupported() {
+        return true;
+    }
+
+    @Override
+    public void reset() {
+        cursor = 0;
+        if (shuffle)
+            shuffle();
+    }
+
+    @Override
+    public int batch() {
+        return batchSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return cursor < order.length;
+    }
+
+    @Override
+    public DataSet next() {
+        return next(batchSize);
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -14,6 +14,8 @@ import org.nd4j.linalg.dataset.MultiDataSet;
 import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
 import org.nd4j.linalg.dataset.api.iterator.MultiDataSetIterator;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -364,6 +366,34 @@ public class TransferLearningHelper {
         }
     }
 
+    /**
+     * Featurize all data from the iterator once, and store it in a memory-mapped cache file. The returned cache can be
+     * iterated over (with shuffling) any number of times, see {@link FeaturizedDataSetCache#iterator(int, boolean, long)}
+     * and {@link #fitFeaturized(DataSetIterator)}.
+     * Currently does not support datasets with feature or label masks
+     *
+     * @param iter       data to featurize
+     * @param file       file to store the featurized data in
+     * @param precision  precision of the stored features
+     * @param numWorkers number of threads featurizing the data. Each additional thread uses a copy of the original model
+     * @return the cache, open for reading
+     */
+    public FeaturizedDataSetCache featurize(DataSetIterator iter, File file, FeaturizedDataSetCache.Precision precision,
+                    int numWorkers) throws IOException {
+        return FeaturizedDataSetCache.create(this, iter, file, precision, numWorkers);
+    }
+
+    /**
+     * Returns a helper with a copy of the original model, frozen at the same point, for featurizing from another thread
+     */
+    TransferLearningHelper copyForFeaturizing() {
+        if (isGraph) {
+            return new TransferLearningHelper(origGraph.clone(), frozenInputVertices.toArray(new String[0]));
+        } else {
+            return new TransferLearningHelper(origMLN.clone(), frozenInputLayer);
+        }
+    }
+
     /**
      * Fit from a featurized dataset.
      * The fit is conducted on an internally instantiated subset model that is representative of the unfrozen part of the original model.
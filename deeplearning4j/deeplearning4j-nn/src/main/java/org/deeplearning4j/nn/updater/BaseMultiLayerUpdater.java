@@ -17,6 +17,7 @@ import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.linalg.indexing.NDArrayIndex;
 import org.deeplearning4j.nn.workspace.ArrayType;
 import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
+import org.deeplearning4j.optimize.api.StepFunction;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -42,6 +43,8 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
     protected Map<String, Layer> layersByName;
     protected final List<UpdaterBlock> updaterBlocks;
     protected INDArray updaterStateViewArray;
+    //Updater blocks updated via UpdaterBlock.updateSparse in the last update, or null if none
+    protected transient boolean[] sparseBlocks;
 
     public BaseMultiLayerUpdater(T network) {
         this(network, null);
@@ -269,7 +272,10 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
         //Apply the updaters in blocks. This also applies LR and momentum schedules, L1 and L2
 
         workspaceMgr.assertNotOpen(ArrayType.UPDATER_WORKING_MEM, "Updater working memory");
-        for (UpdaterBlock ub : updaterBlocks) {
+        //Blocks with row-sparse params (embedding layers with sparse updates) are also divided by minibatch size
+        sparseBlocks = null;
+        for (int i = 0; i < updaterBlocks.size(); i++) {
+            UpdaterBlock ub = updaterBlocks.get(i);
             if (ub.skipDueToPretrainConfig()) {
                 //Should skip some updater blocks sometimes
                 //For example, VAE decoder params while doing supervised backprop
@@ -279,6 +285,12 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
                 if (isExternal) {
                     //RL4J etc type case: calculate gradients in 1 net, update them in another
                     ub.updateExternalGradient(iteration, epoch, gradient.gradient(), getParams());
+                } else if (ub.updateSparse(iteration, epoch, isMiniBatch() ? batchSize : 1)) {
+                    //Row-sparse case: only rows with a non-zero gradient are updated
+                    if (sparseBlocks == null) {
+                        sparseBlocks = new boolean[updaterBlocks.size()];
+                    }
+                    sparseBlocks[i] = true;
                 } else {
                     //Standard case
                     ub.update(iteration, epoch);
@@ -294,7 +306,13 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
             } else {
                 //Standard case
                 INDArray grad = getFlattenedGradientsView();
-                if(grad != null) {
+                if (sparseBlocks != null) {
+                    for (int i = 0; i < updaterBlocks.size(); i++) {
+                        if (!sparseBlocks[i]) {
+                            updaterBlocks.get(i).getGradientView().divi(batchSize);
+                        }
+                    }
+                } else if(grad != null) {
                     //May be null for nets with no parameters
                     grad.divi(batchSize);
                 }
@@ -302,6 +320,26 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
         }
     }
 
+    /**
+     * Apply the step function to the network parameters, after {@link #update(Gradient, int, int, int, LayerWorkspaceMgr)}.
+     * If any updater blocks contain row-sparse parameters (see {@link UpdaterBlock#updateSparse(int, int, int)}), the
+     * step is applied block by block, and only to the updated rows of the row-sparse parameters.
+     *
+     * @param stepFunction Step function to apply
+     * @return False if no updater block was updated sparsely in the last update. Nothing is done in this case, and
+     * the step function should be applied to the full parameters array as usual
+     */
+    public boolean stepSparse(StepFunction stepFunction) {
+        if (sparseBlocks == null) {
+            return false;
+        }
+        for (UpdaterBlock ub : updaterBlocks) {
+            ub.step(stepFunction);
+        }
+        sparseBlocks = null;
+        return true;
+    }
+
     protected boolean isSingleLayerUpdater() {
         return false;
     }
@@ -0,0 +1,171 @@
+package org.deeplearning4j.nn.updater;
+
+import lombok.NonNull;
+import org.nd4j.linalg.api.environment.Nd4jEnvironment;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Multi-threaded averaging of copies of the same flattened parameters (or updater state) view, as an alternative to
+ * {@code Nd4j.averageAndPropagate}.<br>
+ * Each array is split into contiguous chunks, and each chunk is processed by a single pool thread: the chunk is summed
+ * over all arrays (into the first array), divided by the number of arrays, and the mean is propagated back to the
+ * other arrays. Chunks are processed in parallel, so that the averaging time is reduced on hosts with many cores.<br>
+ * No copies of the full arrays are made: all reductions are done in-place, over views of the original arrays.<br>
+ * Note that the pool threads are not pinned to cores or NUMA nodes: each chunk is reduced by whichever thread picks it
+ * up, reading from the memory of all workers.<br>
+ * CPU backend only: arrays are expected to be in host memory. The ND4J ops executed for each chunk are themselves
+ * multi-threaded (OpenMP), as is {@code Nd4j.averageAndPropagate}: use {@link #defaultNumThreads()} to avoid
+ * oversubscribing the cores. Hence this is only useful if ND4J ops are configured to use fewer threads than there are
+ * cores (for example, OMP_NUM_THREADS set low to reduce contention between ParallelWrapper workers); otherwise
+ * averaging time is the same or worse than with {@code Nd4j.averageAndPropagate}.
+ * <p>
+ * Instances hold a thread pool, and should be closed once no longer required.
+ */
+public class ChunkedAveraging implements AutoCloseable {
+    public static final int DEFAULT_MIN_CHUNK_SIZE = 32768;
+
+    private final int numThreads;
+    private final int minChunkSize;
+    private ExecutorService executor;
+
+    /**
+     * @return True if the current ND4J backend is supported (i.e., CPU)
+     */
+    public static boolean isSupported() {
+        String backend = Nd4j.getExecutioner().getEnvironmentInformation().getProperty(Nd4jEnvironment.BACKEND_KEY);
+        return !"CUDA".equalsIgnoreCase(backend);
+    }
+
+    /**
+     * @return Number of threads that doesn't oversubscribe the cores, given the number of threads used by each ND4J op
+     */
+    public static int defaultNumThreads() {
+        Object ompThreads = Nd4j.getExecutioner().getEnvironmentInformation().get(Nd4jEnvironment.OMP_THREADS_KEY);
+        int threadsPerOp = (ompThreads == null ? 1 : Math.max(1, Integer.parseInt(ompThreads.toString())));
+        return Math.max(1, Runtime.getRuntime().availableProcessors() / threadsPerOp);
+    }
+
+    /**
+     * @param numThreads Number of threads used to process the chunks
+     */
+    public ChunkedAveraging(int numThreads) {
+        this(numThreads, DEFAULT_MIN_CHUNK_SIZE);
+    }
+
+    /**
+     * @param numThreads   Number of threads used to process the chunks
+     * @param minChunkSize Minimum number of elements per chunk
+     */
+    public ChunkedAveraging(int numThreads, int minChunkSize) {
+        if (numThreads < 1)
+            throw new IllegalArgumentException("Number of threads should be positive value, got " + numThreads);
+        if (minChunkSize < 1)
+            throw new IllegalArgumentException("Chunk size should be positive value, got " + minChunkSize);
+        this.numThreads = numThreads;
+        this.minChunkSize = minChunkSize;
+    }
+
+    /**
+     * Average the arrays, and set each array to the average
+     *
+     * @param arrays Row vectors, all of the same length
+     */
+    public void averageAndPropagate(@NonNull final List<INDArray> arrays) {
+        if (arrays.size() <= 1)
+            return;
+
+        long length = arrays.get(0).length();
+        for (INDArray arr : arrays) {
+            if (!arr.isRowVector())
+                throw new IllegalArgumentException("Only row vectors can be averaged, got array with shape "
+                                + Arrays.toString(arr.shape()));
+            if (arr.length() != length)
+                throw new IllegalArgumentException("All arrays should have the same length: got " + length + " and "
+                                + arr.length());
+        }
+
+        long chunkSize = Math.max(minChunkSize, (length + numThreads - 1) / numThreads);
+        int numChunks = (int) ((length + chunkSize - 1) / chunkSize);
+        if (numChunks <= 1 || numThreads == 1) {
+            averageChunk(arrays, 0, length);
+            return;
+        }
+
+        List<Callable<Void>> tasks = new ArrayList<>(numChunks);
+        for (long start = 0; start < length; start += chunkSize) {
+            final long from = start;
+            final long to = Math.min(length, start + chunkSize);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    averageChunk(arrays, from, to);
+                    return null;
+                }
+            });
+        }
+
+        try {
+            for (Future<Void> f : executor().invokeAll(tasks)) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static void averageChunk(List<INDArray> arrays, long from, long to) {
+        List<INDArray> views = new ArrayList<>(arrays.size());
+        for (INDArray arr : arrays) {
+            views.add(arr.get(NDArrayIndex.point(0), NDArrayIndex.interval(from, to)));
+        }
+
+        INDArray mean = views.get(0);
+        for (int i = 1; i < views.size(); i++) {
+            mean.addi(views.get(i));
+        }
+        mean.divi(views.size());
+        for (int i = 1; i < views.size(); i++) {
+            views.get(i).assign(mean);
+        }
+    }
+
+    private synchronized ExecutorService executor() {
+        if (executor == null) {
+            final AtomicInteger counter = new AtomicInteger(0);
+            executor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = Executors.defaultThreadFactory().newThread(r);
+                    t.setName("ChunkedAveraging thread " + counter.getAndIncrement());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return executor;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+}
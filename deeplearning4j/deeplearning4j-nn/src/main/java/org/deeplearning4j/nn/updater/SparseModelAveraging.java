@@ -0,0 +1,241 @@
+package org.deeplearning4j.nn.updater;
+
+import lombok.NonNull;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.api.Updater;
+import org.deeplearning4j.nn.api.layers.SparseGradientLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.updater.UpdaterBlock.ParamState;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.custom.ScatterUpdate;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Parameter and updater state averaging for copies of the same network (MultiLayerNetwork or ComputationGraph) with
+ * row-sparse parameters ({@link SparseGradientLayer}, for example embedding layers with sparse updates enabled).<br>
+ * With sparse updates, only the rows used in a minibatch are modified; hence, only the rows modified (by any of the
+ * copies) since the last synchronization can differ between the copies, and only those rows are averaged. All other
+ * (dense) parameters and their updater state are averaged in full.<br>
+ * Usage: {@link #averageParams(List)}, optionally {@link #averageUpdaterState(List)}, then
+ * {@link #clearRowsModifiedSinceSync(List)}
+ */
+public class SparseModelAveraging {
+
+    private SparseModelAveraging() {}
+
+    /**
+     * @param model Model to check
+     * @return True if the model is a MultiLayerNetwork or ComputationGraph with any row-sparse parameters with sparse
+     * updates enabled
+     */
+    public static boolean hasSparseParams(@NonNull Model model) {
+        if (!(model instanceof MultiLayerNetwork) && !(model instanceof ComputationGraph)) {
+            return false;
+        }
+        for (Layer l : getLayers(model)) {
+            if (l instanceof SparseGradientLayer) {
+                for (String paramName : l.paramTable().keySet()) {
+                    if (((SparseGradientLayer) l).isSparseGradientParam(paramName)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Average the parameters of the models, and set the parameters of each model to the average. Row-sparse
+     * parameters are only averaged for the rows modified (in any of the models) since the last synchronization.
+     *
+     * @param models Copies of the same network
+     */
+    public static void averageParams(@NonNull List<? extends Model> models) {
+        if (models.size() <= 1) {
+            return;
+        }
+        List<List<UpdaterBlock>> blocks = getUpdaterBlocks(models);
+        int nBlocks = blocks.get(0).size();
+        int denseStart = -1;
+        int denseEnd = -1;
+        for (int b = 0; b < nBlocks; b++) {
+            List<ParamState> params0 = blocks.get(0).get(b).getLayersAndVariablesInBlock();
+            for (int i = 0; i < params0.size(); i++) {
+                ParamState p = params0.get(i);
+                if (!UpdaterBlock.isSparseParam(p)) {
+                    //Combine contiguous dense params into as few ops as possible
+                    if (p.getParamOffsetStart() != denseEnd) {
+                        averageParamRange(models, denseStart, denseEnd);
+                        denseStart = p.getParamOffsetStart();
+                    }
+                    denseEnd = p.getParamOffsetEnd();
+                    continue;
+                }
+
+                int[] rows = modifiedRows(blocks, b, i);
+                if (rows.length > 0) {
+                    List<INDArray> arrays = new ArrayList<>();
+                    for (List<UpdaterBlock> l : blocks) {
+                        ParamState pl = l.get(b).getLayersAndVariablesInBlock().get(i);
+                        arrays.add(UpdaterBlock.asParamMatrix(pl, pl.getParamView()));
+                    }
+                    averageRows(arrays, rows);
+                }
+            }
+        }
+        averageParamRange(models, denseStart, denseEnd);
+    }
+
+    /**
+     * Average the updater state of the models, and set the updater state of each model to the average. The state of
+     * row-sparse parameters is only averaged for the rows modified (in any of the models) since the last
+     * synchronization.
+     *
+     * @param models Copies of the same network
+     */
+    public static void averageUpdaterState(@NonNull List<? extends Model> models) {
+        if (models.size() <= 1) {
+            return;
+        }
+        List<List<UpdaterBlock>> blocks = getUpdaterBlocks(models);
+        for (int b = 0; b < blocks.get(0).size(); b++) {
+            UpdaterBlock block0 = blocks.get(0).get(b);
+            if (block0.getUpdaterView() == null) {
+                //No updater state, e.g., SGD
+                continue;
+            }
+
+            int blockLength = block0.getParamOffsetEnd() - block0.getParamOffsetStart();
+            int nStateChunks = (int) (block0.getUpdaterView().length() / blockLength);
+            List<ParamState> params0 = block0.getLayersAndVariablesInBlock();
+            for (int i = 0; i < params0.size(); i++) {
+                ParamState p = params0.get(i);
+                int localStart = p.getParamOffsetStart() - block0.getParamOffsetStart();
+                int localEnd = p.getParamOffsetEnd() - block0.getParamOffsetStart();
+                boolean sparse = UpdaterBlock.isSparseParam(p);
+                int[] rows = sparse ? modifiedRows(blocks, b, i) : null;
+                if (sparse && rows.length == 0) {
+                    continue;
+                }
+
+                for (int j = 0; j < nStateChunks; j++) {
+                    List<INDArray> arrays = new ArrayList<>();
+                    for (List<UpdaterBlock> l : blocks) {
+                        INDArray stateView = l.get(b).getUpdaterView().get(NDArrayIndex.point(0), NDArrayIndex
+                                        .interval(j * blockLength + localStart, j * blockLength + localEnd));
+                        if (sparse) {
+                            stateView = UpdaterBlock.asParamMatrix(p, stateView);
+                        }
+                        arrays.add(stateView);
+                    }
+                    if (sparse) {
+                        averageRows(arrays, rows);
+                    } else {
+                        averageArrays(arrays);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Clear the rows modified since the last synchronization for all row-sparse layers of the models. Should be
+     * called after averaging.
+     *
+     * @param models Copies of the same network
+     */
+    public static void clearRowsModifiedSinceSync(@NonNull List<? extends Model> models) {
+        for (Model m : models) {
+            for (Layer l : getLayers(m)) {
+                if (l instanceof SparseGradientLayer) {
+                    ((SparseGradientLayer) l).clearRowsModifiedSinceSync();
+                }
+            }
+        }
+    }
+
+    private static int[] modifiedRows(List<List<UpdaterBlock>> blocks, int block, int param) {
+        BitSet union = new BitSet();
+        for (List<UpdaterBlock> l : blocks) {
+            ParamState p = l.get(block).getLayersAndVariablesInBlock().get(param);
+            for (int r : ((SparseGradientLayer) p.getLayer()).getRowsModifiedSinceSync(p.getParamName())) {
+                union.set(r);
+            }
+        }
+        int[] out = new int[union.cardinality()];
+        int j = 0;
+        for (int r = union.nextSetBit(0); r >= 0; r = union.nextSetBit(r + 1)) {
+            out[j++] = r;
+        }
+        return out;
+    }
+
+    private static void averageParamRange(List<? extends Model> models, int start, int end) {
+        if (start < 0 || end <= start) {
+            return;
+        }
+        List<INDArray> arrays = new ArrayList<>();
+        for (Model m : models) {
+            arrays.add(m.params().get(NDArrayIndex.point(0), NDArrayIndex.interval(start, end)));
+        }
+        averageArrays(arrays);
+    }
+
+    private static void averageArrays(List<INDArray> arrays) {
+        INDArray mean = arrays.get(0).dup();
+        for (int i = 1; i < arrays.size(); i++) {
+            mean.addi(arrays.get(i));
+        }
+        mean.divi(arrays.size());
+        for (INDArray arr : arrays) {
+            arr.assign(mean);
+        }
+    }
+
+    private static void averageRows(List<INDArray> matrices, int[] rows) {
+        INDArray mean = Nd4j.pullRows(matrices.get(0), 1, rows, 'c');
+        for (int i = 1; i < matrices.size(); i++) {
+            mean.addi(Nd4j.pullRows(matrices.get(i), 1, rows, 'c'));
+        }
+        mean.divi(matrices.size());
+        for (INDArray m : matrices) {
+            Nd4j.getExecutioner().exec(new ScatterUpdate(m, mean, rows, new int[] {1}, ScatterUpdate.UpdateOp.ASSIGN));
+        }
+    }
+
+    private static List<List<UpdaterBlock>> getUpdaterBlocks(List<? extends Model> models) {
+        List<List<UpdaterBlock>> out = new ArrayList<>();
+        for (Model m : models) {
+            Updater u;
+            if (m instanceof MultiLayerNetwork) {
+                u = ((MultiLayerNetwork) m).getUpdater();
+            } else if (m instanceof ComputationGraph) {
+                u = ((ComputationGraph) m).getUpdater();
+            } else {
+                throw new IllegalArgumentException("Unsupported model type: " + m.getClass());
+            }
+            if (!(u instanceof BaseMultiLayerUpdater)) {
+                throw new IllegalStateException("Unsupported updater type: "
+                                + (u == null ? null : u.getClass().getName()));
+            }
+            out.add(((BaseMultiLayerUpdater<?>) u).getUpdaterBlocks());
+        }
+        return out;
+    }
+
+    private static Layer[] getLayers(Model model) {
+        if (model instanceof MultiLayerNetwork) {
+            return ((MultiLayerNetwork) model).getLayers();
+        } else if (model instanceof ComputationGraph) {
+            return ((ComputationGraph) model).getLayers();
+        }
+        throw new IllegalArgumentException("Unsupported model type: " + model.getClass());
+    }
+}
@@ -4,16 +4,23 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.val;
 import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.api.layers.SparseGradientLayer;
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
 import org.deeplearning4j.nn.conf.layers.BaseLayer;
 import org.deeplearning4j.nn.layers.FrozenLayer;
+import org.deeplearning4j.optimize.api.StepFunction;
+import org.deeplearning4j.optimize.stepfunctions.NegativeDefaultStepFunction;
+import org.deeplearning4j.optimize.stepfunctions.NegativeGradientStepFunction;
 import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.custom.ScatterUpdate;
+import org.nd4j.linalg.api.shape.Shape;
 import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.linalg.indexing.NDArrayIndex;
 import org.nd4j.linalg.learning.GradientUpdater;
 import org.nd4j.linalg.ops.transforms.Transforms;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -35,6 +42,8 @@ public class UpdaterBlock {
     private boolean updaterViewRequiresInitialization;
 
     private GradientUpdater gradientUpdater;
+    //Updater over the compact gradient and state arrays of updateSparse: re-bound to the new arrays on each call
+    private GradientUpdater sparseGradientUpdater;
 
 
     @AllArgsConstructor
@@ -160,6 +169,218 @@ public class UpdaterBlock {
         }
     }
 
+    /**
+     * Update the gradient for this block, applying the updater only to the rows with a non-zero gradient for any
+     * row-sparse parameters in the block (see {@link SparseGradientLayer}). The gradient and updater state of those
+     * rows (and of any other, dense parameters in the block) are gathered into compact arrays, the updater and L1/L2
+     * are applied to them, and the results are scattered back. The updater state for all other rows of the row-sparse
+     * parameters is not modified, and their gradient is left at zero.<br>
+     * Unlike {@link #update(int, int)}, the gradient is also divided by the specified divisor (usually the minibatch
+     * size), as the rest of the block's gradient view is not modified.
+     *
+     * @param iteration The current iteration (i.e., total number of parameter updates so far)
+     * @param epoch     The current epoch
+     * @param divisor   Value to divide the updated gradient by: minibatch size, or 1 if the gradient should not be divided
+     * @return True if the block contains row-sparse parameters and has been updated; false otherwise (in which case
+     * nothing has been modified, and {@link #update(int, int)} should be used instead)
+     */
+    public boolean updateSparse(int iteration, int epoch, int divisor) {
+        boolean anySparse = false;
+        for (ParamState p : layersAndVariablesInBlock) {
+            anySparse |= isSparseParam(p);
+        }
+        if (!anySparse) {
+            return false;
+        }
+
+        if (gradientUpdater == null) {
+            init();
+        }
+
+        int blockLength = paramOffsetEnd - paramOffsetStart;
+        int nStateChunks = updaterView == null ? 0 : (int) (updaterView.length() / blockLength);
+
+        //Gather the gradient and updater state: sparse rows for the row-sparse params, everything for the others
+        int n = layersAndVariablesInBlock.size();
+        int[][] rows = new int[n][];
+        INDArray[][] stateViews = new INDArray[n][nStateChunks];
+        List<INDArray> gradPieces = new ArrayList<>();
+        List<List<INDArray>> statePieces = new ArrayList<>();
+        for (int j = 0; j < nStateChunks; j++) {
+            statePieces.add(new ArrayList<INDArray>());
+        }
+        for (int i = 0; i < n; i++) {
+            ParamState p = layersAndVariablesInBlock.get(i);
+            int localStart = p.getParamOffsetStart() - paramOffsetStart;
+            int localEnd = p.getParamOffsetEnd() - paramOffsetStart;
+            boolean sparse = isSparseParam(p);
+            if (sparse) {
+                rows[i] = ((SparseGradientLayer) p.getLayer()).getSparseGradientRows(p.getParamName());
+                if (rows[i].length == 0) {
+                    continue;
+                }
+                gradPieces.add(Nd4j.pullRows(asParamMatrix(p, p.getGradView()), 1, rows[i], 'c'));
+            } else {
+                gradPieces.add(gradientView.get(NDArrayIndex.point(0), NDArrayIndex.interval(localStart, localEnd)));
+            }
+
+            for (int j = 0; j < nStateChunks; j++) {
+                INDArray stateView = updaterView.get(NDArrayIndex.point(0), NDArrayIndex.interval(
+                                j * blockLength + localStart, j * blockLength + localEnd));
+                if (sparse) {
+                    //Same shape and order as the parameter: elements of state and gradient correspond
+                    stateView = asParamMatrix(p, stateView);
+                    statePieces.get(j).add(Nd4j.pullRows(stateView, 1, rows[i], 'c'));
+                } else {
+                    statePieces.get(j).add(stateView);
+                }
+                stateViews[i][j] = stateView;
+            }
+        }
+
+        if (!gradPieces.isEmpty()) {
+            INDArray compactGrad = Nd4j.toFlattened('c', gradPieces);
+            INDArray compactState = null;
+            if (nStateChunks > 0) {
+                List<INDArray> allState = new ArrayList<>();
+                for (List<INDArray> l : statePieces) {
+                    allState.addAll(l);
+                }
+                compactState = Nd4j.toFlattened('c', allState);
+            }
+
+            //Updater over the compact arrays: same configuration (and hence same state layout) as the block
+            if (sparseGradientUpdater == null) {
+                ParamState p0 = layersAndVariablesInBlock.get(0);
+                sparseGradientUpdater = p0.getLayer().conf().getLayer().getUpdaterByParam(p0.getParamName())
+                                .instantiate(compactState, false);
+            } else if (compactState != null) {
+                sparseGradientUpdater.setStateViewArray(compactState, compactGrad.shape(), compactGrad.ordering(),
+                                false);
+            }
+            sparseGradientUpdater.applyUpdater(compactGrad, iteration, epoch);
+
+            //Scatter the results back
+            long compactLength = compactGrad.length();
+            long offset = 0;
+            for (int i = 0; i < n; i++) {
+                ParamState p = layersAndVariablesInBlock.get(i);
+                boolean sparse = isSparseParam(p);
+                if (sparse && rows[i].length == 0) {
+                    continue;
+                }
+                long length = sparse ? rows[i].length * asParamMatrix(p, p.getParamView()).size(1)
+                                : p.getParamOffsetEnd() - p.getParamOffsetStart();
+
+                if (sparse) {
+                    INDArray g = getCompactPiece(compactGrad, 0, offset, length, rows[i].length);
+                    INDArray paramRows = Nd4j.pullRows(asParamMatrix(p, p.getParamView()), 1, rows[i], 'c');
+                    postApply(p.getLayer(), p.getParamName(), g, paramRows);
+                    if (divisor != 1) {
+                        g.divi(divisor);
+                    }
+                    scatterAssign(asParamMatrix(p, p.getGradView()), g, rows[i]);
+                    for (int j = 0; j < nStateChunks; j++) {
+                        scatterAssign(stateViews[i][j],
+                                        getCompactPiece(compactState, j * compactLength, offset, length, rows[i].length),
+                                        rows[i]);
+                    }
+                } else {
+                    INDArray g = compactGrad.get(NDArrayIndex.point(0), NDArrayIndex.interval(offset, offset + length));
+                    INDArray gradView = gradientView.get(NDArrayIndex.point(0), NDArrayIndex.interval(
+                                    p.getParamOffsetStart() - paramOffsetStart, p.getParamOffsetEnd() - paramOffsetStart));
+                    gradView.assign(g);
+                    for (int j = 0; j < nStateChunks; j++) {
+                        stateViews[i][j].assign(compactState.get(NDArrayIndex.point(0),
+                                        NDArrayIndex.interval(j * compactLength + offset, j * compactLength + offset + length)));
+                    }
+                    postApply(p.getLayer(), p.getParamName(), p.getGradView(), p.getParamView());
+                    if (divisor != 1) {
+                        p.getGradView().divi(divisor);
+                    }
+                }
+                offset += length;
+            }
+        }
+
+        for (ParamState p : layersAndVariablesInBlock) {
+            if (isSparseParam(p)) {
+                ((SparseGradientLayer) p.getLayer()).markSparseGradientRowsApplied(p.getParamName());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Apply the step function to the parameters of this block, after {@link #updateSparse(int, int, int)}. For
+     * row-sparse parameters, the step is only applied to the rows updated by the last updater application (all other
+     * rows of the update are zero); other parameters are stepped in full.
+     *
+     * @param stepFunction Step function to apply to the parameters, given the update (gradient view)
+     */
+    public void step(StepFunction stepFunction) {
+        for (ParamState p : layersAndVariablesInBlock) {
+            if (!isSparseParam(p)) {
+                stepFunction.step(p.getParamView(), p.getGradView());
+                continue;
+            }
+
+            SparseGradientLayer l = (SparseGradientLayer) p.getLayer();
+            int[] rows = l.getSparseStepRows(p.getParamName());
+            if (rows.length > 0) {
+                INDArray paramMatrix = asParamMatrix(p, p.getParamView());
+                INDArray updateRows = Nd4j.pullRows(asParamMatrix(p, p.getGradView()), 1, rows, 'c');
+                if (stepFunction instanceof NegativeGradientStepFunction
+                                || stepFunction instanceof NegativeDefaultStepFunction) {
+                    //params -= update, for the updated rows only
+                    Nd4j.getExecutioner().exec(new ScatterUpdate(paramMatrix, updateRows, rows, new int[] {1},
+                                    ScatterUpdate.UpdateOp.SUBTRACT));
+                } else {
+                    INDArray paramRows = Nd4j.pullRows(paramMatrix, 1, rows, 'c');
+                    stepFunction.step(paramRows, updateRows);
+                    scatterAssign(paramMatrix, paramRows, rows);
+                }
+            }
+            l.markSparseStepApplied(p.getParamName());
+        }
+    }
+
+    static boolean isSparseParam(ParamState p) {
+        return p.getLayer() instanceof SparseGradientLayer
+                        && ((SparseGradientLayer) p.getLayer()).isSparseGradientParam(p.getParamName());
+    }
+
+    /**
+     * Reshape a flat (row vector) view of a row-sparse parameter, or its gradient or updater state, to the shape and
+     * order of the parameter itself, without copying. For parameters that are sparse along columns (see
+     * {@link SparseGradientLayer#getSparseGradientDimension(String)}), the transpose is returned, so that the sparse
+     * rows of the returned matrix are always the sparse slices of the parameter.
+     */
+    static INDArray asParamMatrix(ParamState p, INDArray flatView) {
+        INDArray param = p.getLayer().getParam(p.getParamName());
+        INDArray ret = Shape.newShapeNoCopy(flatView, param.shape(), param.ordering() == 'f');
+        if (ret == null) {
+            throw new IllegalStateException("Could not reshape view array for parameter \"" + p.getParamName()
+                            + "\" to shape " + Arrays.toString(param.shape()));
+        }
+        if (((SparseGradientLayer) p.getLayer()).getSparseGradientDimension(p.getParamName()) == 1) {
+            ret = ret.transpose();
+        }
+        return ret;
+    }
+
+    private static INDArray getCompactPiece(INDArray compact, long chunkOffset, long offset, long length, int numRows) {
+        INDArray piece = compact.get(NDArrayIndex.point(0),
+                        NDArrayIndex.interval(chunkOffset + offset, chunkOffset + offset + length));
+        return piece.reshape('c', numRows, length / numRows);
+    }
+
+    private static void scatterAssign(INDArray target, INDArray updates, int[] rows) {
+        //Updates may be a view of the compact arrays: ensure a contiguous array for the scatter op
+        Nd4j.getExecutioner().exec(new ScatterUpdate(target, updates.dup('c'), rows, new int[] {1},
+                        ScatterUpdate.UpdateOp.ASSIGN));
+    }
+
     /**
      * Apply L1 and L2 regularization, if necessary. Note that L1/L2 may differ for different layers in the same block
      *
@@ -10,11 +10,15 @@ import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
 import org.deeplearning4j.optimize.api.BaseTrainingListener;
 import org.deeplearning4j.optimize.api.TrainingListener;
 import org.deeplearning4j.util.ModelSerializer;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
 import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
 
 import java.io.*;
 import java.nio.charset.Charset;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -65,13 +69,41 @@ import java.util.concurrent.TimeUnit;
  * {@code .saveEveryEpoch().saveEvery(15, TimeUnit.MINUTES, true)}<br>
  * Note that is this last example, the <i>sinceLast</i> parameter is true. This means the 15-minute counter will be
  * reset any time a model is saved.<br>
+ * <br>
+ * <b>Asynchronous saving</b>: by default, models are saved on the training thread, which blocks training until the
+ * model file has been written. With {@link Builder#asyncSaving(boolean)}, the parameters and updater state are
+ * instead copied into reusable buffers (one set per pending checkpoint, see {@link Builder#asyncQueueSize(int)}),
+ * and the checkpoint is written to disk (and synced) by a background thread while training continues. If the
+ * background thread falls behind, the {@link FallBehindPolicy} determines whether training blocks or the checkpoint is
+ * skipped. Use {@link #flush()} to wait for all pending checkpoints to be written, and {@link #close()} at the end of
+ * training to write any pending checkpoints, stop the background thread and release the checkpoint buffers. Pending
+ * checkpoints are also written (via a shutdown hook) if the JVM exits before the listener has been closed.<br>
+ * <pre>
+ * {@code CheckpointListener l = new CheckpointListener.Builder(new File("/save/directory"))
+ *          .saveEveryNIterations(1000)
+ *          .asyncSaving(true)
+ *          .fallBehindPolicy(CheckpointListener.FallBehindPolicy.SKIP)
+ *          .build();
+ * }
+ * </pre>
  *
  * @author Alex Black
  */
 @Slf4j
-public class CheckpointListener extends BaseTrainingListener implements Serializable {
+public class CheckpointListener extends BaseTrainingListener implements Serializable, Closeable {
 
     private enum KeepMode {ALL, LAST, LAST_AND_EVERY};
+
+    /**
+     * Policy for asynchronous saving, used when a checkpoint should be saved but all checkpoint buffers are still
+     * in use (i.e., the background writer has fallen behind):<br>
+     * BLOCK: block training until the oldest pending checkpoint has been written<br>
+     * SKIP: skip (don't save) the new checkpoint, and log a warning. Saving is attempted again at each following
+     * iteration, until a checkpoint is saved: checkpoints due at a specific iteration or epoch (i.e., not "since last")
+     * are saved late, rather than not at all
+     */
+    public enum FallBehindPolicy {BLOCK, SKIP};
+
     private static final String[] MODEL_TYPES = new String[]{"MultiLayerNetwork", "ComputationGraph", "Model"};
 
     private File rootDir;
@@ -95,6 +127,20 @@ public class CheckpointListener extends BaseTrainingListener implements Serializ
     private long startTime = -1;
     private int startIter = -1;
     private Long lastSaveEveryMsNoSinceLast;
+    private boolean pendingCheckpoint;
+
+    private boolean asyncSaving;
+    private int asyncQueueSize;
+    private FallBehindPolicy fallBehindPolicy;
+    private boolean syncToDisk;
+    private long skippedCheckpoints;
+
+    private transient BlockingQueue<Snapshot> freeSnapshots;
+    private transient BlockingQueue<Snapshot> saveQueue;
+    private transient CheckpointWriterThread writerThread;
+    private transient Thread shutdownHook;
+    private transient volatile Throwable asyncError;
+    private transient int pendingSaves;
 
     private CheckpointListener(Builder builder){
         this.rootDir = builder.rootDir;
@@ -110,6 +156,11 @@ public class CheckpointListener extends BaseTrainingListener implements Serializ
         this.saveEveryUnit = builder.saveEveryUnit;
         this.saveEverySinceLast = builder.saveEverySinceLast;
 
+        this.asyncSaving = builder.asyncSaving;
+        this.asyncQueueSize = builder.asyncQueueSize;
+        this.fallBehindPolicy = builder.fallBehindPolicy;
+        this.syncToDisk = builder.syncToDisk;
+
         if(saveEveryAmount != null){
             saveEveryMs = TimeUnit.MILLISECONDS.convert(saveEveryAmount, saveEveryUnit);
         }
@@ -123,7 +174,9 @@ public class CheckpointListener extends BaseTrainingListener implements Serializ
         int epochsDone = getEpoch(model) + 1;
         if(saveEveryNEpochs != null && epochsDone > 0 && epochsDone % saveEveryNEpochs == 0){
             //Save:
-            saveCheckpoint(model);
+            if(!saveCheckpoint(model)){
+                pendingCheckpoint = true;
+            }
         }
         //General saving conditions: don't need to check here - will check in iterationDone
     }
@@ -136,6 +189,14 @@ public class CheckpointListener extends BaseTrainingListener implements Serializ
             return;
         }
 
+        //Retry a checkpoint that was skipped at a specific iteration or epoch (FallBehindPolicy.SKIP)
+        if(pendingCheckpoint){
+            if(saveCheckpoint(model)){
+                pendingCheckpoint = false;
+            }
+            return;
+        }
+
         //Check iterations saving condition:
         if(saveEveryNIterations != null){
             if(saveEveryNIterSinceLast){
@@ -148,7 +209,9 @@ public class CheckpointListener extends BaseTrainingListener implements Serializ
             } else {
                 //Same every N iterations, regardless of saving time
                 if(iteration > 0 && iteration % saveEveryNIterations == 0){
-                    saveCheckpoint(model);
+                    if(!saveCheckpoint(model)){
+                        pendingCheckpoint = true;
+                    }
                     return;
                 }
             }
@@ -168,33 +231,204 @@ public class CheckpointListener extends BaseTrainingListener implements Serializ
                 //Save periodically, regardless of when last model was saved
                 long lastSave = (lastSaveEveryMsNoSinceLast != null ? lastSaveEveryMsNoSinceLast : startTime);
                 if((time - lastSave) > saveEveryMs){
-                    saveCheckpoint(model);
-                    lastSaveEveryMsNoSinceLast = time;
+                    //If skipped, the condition still holds at the next iteration
+                    if(saveCheckpoint(model)){
+                        lastSaveEveryMsNoSinceLast = time;
+                    }
                     return;
                 }
             }
         }
     }
 
-    private void saveCheckpoint(Model model) {
+    /**
+     * @return True if the checkpoint was saved (or queued for saving), false if it was skipped
+     */
+    private boolean saveCheckpoint(Model model) {
+        if(asyncSaving){
+            return saveCheckpointAsync(model);
+        }
         try{
             saveCheckpointHelper(model);
         } catch (Exception e){
             throw new RuntimeException("Error saving checkpoint", e);
         }
+        return true;
     }
 
     private void saveCheckpointHelper(Model model) throws Exception {
-        if(!checkpointRecordFile.exists()){
-            checkpointRecordFile.createNewFile();
-            write(Checkpoint.getFileHeader() + "\n", checkpointRecordFile);
+        Checkpoint c = new Checkpoint(++lastCheckpointNum, System.currentTimeMillis(), getIter(model), getEpoch(model),
+                getModelType(model), null);
+        setFileName(c);
+
+        ModelSerializer.writeModel(model, new File(rootDir, c.getFilename()), true);
+        this.lastCheckpoint = c;
+
+        recordCheckpoint(c);
+    }
+
+    private boolean saveCheckpointAsync(Model model) {
+        checkAsyncError();
+        initAsync();
+
+        Snapshot snapshot;
+        if(fallBehindPolicy == FallBehindPolicy.SKIP){
+            snapshot = freeSnapshots.poll();
+            if(snapshot == null){
+                skippedCheckpoints++;
+                log.warn("Skipping model checkpoint at epoch {}, iteration {}: checkpoint writer has fallen behind " +
+                        "({} checkpoints pending)", getEpoch(model), getIter(model), asyncQueueSize);
+                return false;
+            }
+        } else {
+            try {
+                snapshot = freeSnapshots.take();
+            } catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for checkpoint writer", e);
+            }
         }
 
         Checkpoint c = new Checkpoint(++lastCheckpointNum, System.currentTimeMillis(), getIter(model), getEpoch(model),
                 getModelType(model), null);
         setFileName(c);
+        snapshot.copyFrom(model, c);
+        this.lastCheckpoint = c;
 
-        ModelSerializer.writeModel(model, new File(rootDir, c.getFilename()), true);
+        synchronized (this){
+            pendingSaves++;
+        }
+        saveQueue.add(snapshot);
+        return true;
+    }
+
+    private synchronized void initAsync(){
+        if(writerThread != null){
+            return;
+        }
+        freeSnapshots = new ArrayBlockingQueue<>(asyncQueueSize);
+        saveQueue = new ArrayBlockingQueue<>(asyncQueueSize);
+        for( int i=0; i<asyncQueueSize; i++ ){
+            freeSnapshots.add(new Snapshot());
+        }
+        writerThread = new CheckpointWriterThread();
+        Nd4j.getAffinityManager().attachThreadToDevice(writerThread, Nd4j.getAffinityManager().getDeviceForCurrentThread());
+        writerThread.start();
+
+        //Pending checkpoints would otherwise be lost when the JVM exits, as the writer is a daemon thread
+        shutdownHook = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                close();
+            }
+        }, "CheckpointListener shutdown hook");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    private void checkAsyncError(){
+        Throwable t = asyncError;
+        if(t != null){
+            asyncError = null;
+            throw new RuntimeException("Error saving checkpoint", t);
+        }
+    }
+
+    /**
+     * Wait until all pending checkpoints (if any) have been written to disk. This only needs to be called when
+     * asynchronous saving is used - for example, at the end of training.
+     */
+    public void flush(){
+        if(asyncSaving && Thread.currentThread() != writerThread) {
+            synchronized (this) {
+                while (pendingSaves > 0) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException("Interrupted while waiting for checkpoints to be saved", e);
+                    }
+                }
+            }
+            checkAsyncError();
+        }
+    }
+
+    /**
+     * Write any pending checkpoints, then stop the background checkpoint writer thread and release the checkpoint
+     * buffers. This only needs to be called when asynchronous saving is used - for example, at the end of training.
+     * The listener may still be used after it has been closed: the writer thread is restarted when the next checkpoint
+     * is saved.
+     */
+    @Override
+    public void close(){
+        CheckpointWriterThread t;
+        Thread hook;
+        synchronized (this){
+            t = writerThread;
+            hook = shutdownHook;
+        }
+        if(t == null || Thread.currentThread() == t){
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            t.interrupt();
+            try {
+                t.join();
+            } catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this){
+                if(writerThread == t) {
+                    writerThread = null;
+                    shutdownHook = null;
+                    freeSnapshots = null;
+                    saveQueue = null;
+                }
+            }
+            if(hook != null && Thread.currentThread() != hook){
+                try {
+                    Runtime.getRuntime().removeShutdownHook(hook);
+                } catch (IllegalStateException e){
+                    //JVM is already shutting down
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Number of times a checkpoint was skipped with {@link FallBehindPolicy#SKIP} because the background
+     * checkpoint writer had fallen behind (including skipped retries)
+     */
+    public long getSkippedCheckpoints(){
+        return skippedCheckpoints;
+    }
+
+    private void writeSnapshot(Snapshot snapshot) throws IOException {
+        Checkpoint c = snapshot.checkpoint;
+        File f = new File(rootDir, c.getFilename());
+        //Write to a temporary file first, so a partially written checkpoint is never considered available
+        File tmp = new File(rootDir, c.getFilename() + ".tmp");
+        try(FileOutputStream fos = new FileOutputStream(tmp)){
+            BufferedOutputStream bos = new BufferedOutputStream(fos);
+            ModelSerializer.writeModel(snapshot.configJson, snapshot.hasParams ? snapshot.params : null,
+                    snapshot.hasUpdaterState ? snapshot.updaterState : null, bos, null);
+            bos.flush();
+            if(syncToDisk){
+                fos.getFD().sync();
+            }
+        }
+        if(!tmp.renameTo(f)){
+            throw new IOException("Could not rename checkpoint file " + tmp.getAbsolutePath() + " to " + f.getAbsolutePath());
+        }
+        recordCheckpoint(c);
+    }
+
+    private synchronized void recordCheckpoint(Checkpoint c) {
+        if(!checkpointRecordFile.exists()){
+            write(Checkpoint.getFileHeader() + "\n", checkpointRecordFile);
+        }
 
         String s = c.toFileString();
         write(s + "\n", checkpointRecordFile);
@@ -203,14 +437,13 @@ public class CheckpointListener extends BaseTrainingListener implements Serializ
             log.info("Model checkpoint saved: epoch {}, iteration {}, path: {}", c.getEpoch(), c.getIteration(),
                     new File(rootDir, c.getFilename()).getPath() );
         }
-        this.lastCheckpoint = c;
 
 
         //Finally: determine if we should delete some old models...
         if(keepMode == null || keepMode == KeepMode.ALL){
             return;
         } else if(keepMode == KeepMode.LAST){
-            List<Checkpoint> checkpoints = availableCheckpoints();
+            List<Checkpoint> checkpoints = savedCheckpoints();
             Iterator<Checkpoint> iter = checkpoints.iterator();
             while(checkpoints.size() > keepLast){
                 Checkpoint toRemove = iter.next();
@@ -220,11 +453,11 @@ public class CheckpointListener extends BaseTrainingListener implements Serializ
             }
         } else {
             //Keep mode: last N and every M
-            for(Checkpoint cp : availableCheckpoints()){
+            for(Checkpoint cp : savedCheckpoints()){
                 if(cp.getCheckpointNum() > 0 && (cp.getCheckpointNum()+1) % keepEvery == 0){
                     //One of the "every M to keep" models
                     continue;
-                } else if(cp.getCheckpointNum() > lastCheckpointNum - keepLast ){        //Example: latest is 5, keep last 2 -> keep checkpoints 4 and 5
+                } else if(cp.getCheckpointNum() > c.getCheckpointNum() - keepLast ){        //Example: latest is 5, keep last 2 -> keep checkpoints 4 and 5
                     //One of last N to keep
                     continue;
                 }
@@ -288,11 +521,17 @@ public class CheckpointListener extends BaseTrainingListener implements Serializ
 
     /**
      * List all available checkpoints. A checkpoint is 'available' if the file can be loaded. Any checkpoint files that
-     * have been automatically deleted (given the configuration) will not be returned here.
+     * have been automatically deleted (given the configuration) will not be returned here.<br>
+     * When asynchronous saving is used, this waits for any pending checkpoints to be written first.
      *
      * @return List of checkpoint files that can be loaded
      */
     public List<Checkpoint> availableCheckpoints(){
+        flush();
+        return savedCheckpoints();
+    }
+
+    private synchronized List<Checkpoint> savedCheckpoints(){
         if(!checkpointRecordFile.exists()){
             return Collections.emptyList();
         }
@@ -345,6 +584,7 @@ public class CheckpointListener extends BaseTrainingListener implements Serializ
         if(checkpointNum < 0){
             throw new IllegalArgumentException("Invalid checkpoint number: " + checkpointNum);
         }
+        flush();
         File f = null;
         for(String s : MODEL_TYPES){
             f = new File(rootDir, getFileName(checkpointNum, s));
@@ -405,6 +645,88 @@ public class CheckpointListener extends BaseTrainingListener implements Serializ
         }
     }
 
+    /**
+     * Reusable buffers for a copy of the model state, written to disk by the {@link CheckpointWriterThread}
+     */
+    private static class Snapshot {
+        private Checkpoint checkpoint;
+        private String configJson;
+        private INDArray params;
+        private boolean hasParams;
+        private INDArray updaterState;
+        private boolean hasUpdaterState;
+
+        private void copyFrom(Model model, Checkpoint checkpoint){
+            this.checkpoint = checkpoint;
+            INDArray updaterView = null;
+            if (model instanceof MultiLayerNetwork) {
+                configJson = ((MultiLayerNetwork) model).getLayerWiseConfigurations().toJson();
+                updaterView = ((MultiLayerNetwork) model).getUpdater().getStateViewArray();
+            } else if (model instanceof ComputationGraph) {
+                configJson = ((ComputationGraph) model).getConfiguration().toJson();
+                updaterView = ((ComputationGraph) model).getUpdater().getStateViewArray();
+            } else {
+                configJson = "";
+            }
+
+            INDArray p = model.params();
+            hasParams = p != null;
+            if(hasParams){
+                params = copy(p, params);
+            }
+            hasUpdaterState = updaterView != null && updaterView.length() > 0;
+            if(hasUpdaterState){
+                updaterState = copy(updaterView, updaterState);
+            }
+            //Copies must be complete before the arrays are used by the writer thread
+            Nd4j.getExecutioner().commit();
+        }
+
+        private static INDArray copy(INDArray from, INDArray buffer){
+            if(buffer == null || buffer.ordering() != from.ordering() || !Arrays.equals(buffer.shape(), from.shape())){
+                try(MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()){
+                    buffer = Nd4j.createUninitialized(from.shape(), from.ordering());
+                }
+            }
+            return buffer.assign(from);
+        }
+    }
+
+    private class CheckpointWriterThread extends Thread {
+
+        private CheckpointWriterThread(){
+            setName("CheckpointListener writer thread");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while(true){
+                Snapshot snapshot;
+                try {
+                    snapshot = saveQueue.take();
+                } catch (InterruptedException e){
+                    return;
+                }
+
+                try {
+                    writeSnapshot(snapshot);
+                } catch (Throwable t){
+                    log.error("Error saving checkpoint {}", snapshot.checkpoint.getCheckpointNum(), t);
+                    asyncError = t;
+                } finally {
+                    snapshot.checkpoint = null;
+                    snapshot.configJson = null;
+                    freeSnapshots.add(snapshot);
+                    synchronized (CheckpointListener.this){
+                        pendingSaves--;
+                        CheckpointListener.this.notifyAll();
+                    }
+                }
+            }
+        }
+    }
+
     public static class Builder {
 
         private File rootDir;
@@ -419,6 +741,10 @@ public class CheckpointListener extends BaseTrainingListener implements Serializ
         private Long saveEveryAmount;
         private TimeUnit saveEveryUnit;
         private boolean saveEverySinceLast;
+        private boolean asyncSaving;
+        private int asyncQueueSize = 1;
+        private FallBehindPolicy fallBehindPolicy = FallBehindPolicy.BLOCK;
+        private boolean syncToDisk = true;
 
         /**
          * @param rootDir Root directory to save models to
@@ -545,6 +871,53 @@ public class CheckpointListener extends BaseTrainingListener implements Serializ
             return this;
         }
 
+        /**
+         * If true: copy the model parameters and updater state when a checkpoint is due, and write the model file on
+         * a background thread, so training does not block on disk I/O. Default: false (save on the training thread)
+         *
+         * @param asyncSaving Whether checkpoints should be saved asynchronously
+         */
+        public Builder asyncSaving(boolean asyncSaving){
+            this.asyncSaving = asyncSaving;
+            return this;
+        }
+
+        /**
+         * Maximum number of checkpoints pending (copied but not yet written to disk) when using asynchronous saving.
+         * Each pending checkpoint requires a copy of the model parameters and updater state. Default: 1
+         *
+         * @param queueSize Maximum number of pending checkpoints
+         */
+        public Builder asyncQueueSize(int queueSize){
+            if(queueSize <= 0){
+                throw new IllegalArgumentException("Queue size should be > 0 (got: " + queueSize + ")");
+            }
+            this.asyncQueueSize = queueSize;
+            return this;
+        }
+
+        /**
+         * What to do when a checkpoint is due with asynchronous saving, but {@link #asyncQueueSize(int)} checkpoints
+         * are still pending. Default: {@link FallBehindPolicy#BLOCK}
+         *
+         * @param policy Policy to use when the checkpoint writer falls behind
+         */
+        public Builder fallBehindPolicy(@NonNull FallBehindPolicy policy){
+            this.fallBehindPolicy = policy;
+            return this;
+        }
+
+        /**
+         * If true (the default), model files written asynchronously are synced to disk (fsync) before they are
+         * recorded as available checkpoints
+         *
+         * @param syncToDisk Whether to sync asynchronously written checkpoints to disk
+         */
+        public Builder syncToDisk(boolean syncToDisk){
+            this.syncToDisk = syncToDisk;
+            return this;
+        }
+
         public CheckpointListener build(){
             if(saveEveryNEpochs == null && saveEveryAmount == null && saveEveryNIterations == null){
                 throw new IllegalStateException("Cannot construct listener: no models will be saved (must use at least" +
@@ -352,6 +352,20 @@ public abstract class BaseOptimizer implements ConvexOptimizer {
         }
     }
 
+    /**
+     * @return Number of minibatches to accumulate gradients over before a parameter update, for the given model.
+     * Always 1 for models other than MultiLayerNetwork and ComputationGraph
+     */
+    public static int getGradientAccumulationSteps(Model model) {
+        if (model instanceof MultiLayerNetwork) {
+            return ((MultiLayerNetwork) model).getLayerWiseConfigurations().getGradientAccumulationSteps();
+        } else if (model instanceof ComputationGraph) {
+            return ((ComputationGraph) model).getConfiguration().getGradientAccumulationSteps();
+        } else {
+            return 1;
+        }
+    }
+
     public static void applyConstraints(Model model){
         int iter = getIterationCount(model);
         int epoch = getEpochCount(model);
@@ -22,6 +22,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.deeplearning4j.nn.api.Model;
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
 import org.deeplearning4j.nn.gradient.Gradient;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.updater.BaseMultiLayerUpdater;
 import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
 import org.deeplearning4j.optimize.api.StepFunction;
 import org.deeplearning4j.optimize.api.TrainingListener;
@@ -41,6 +44,11 @@ import java.util.Collection;
 @Slf4j
 public class StochasticGradientDescent extends BaseOptimizer {
 
+    //Gradient accumulation state: sum of raw (pre-updater) gradients, examples and score over the micro-batches so far
+    private INDArray accumulatedGradient;
+    private int accumulatedMicroBatches;
+    private int accumulatedExamples;
+    private double accumulatedScore;
 
     public StochasticGradientDescent(NeuralNetConfiguration conf, StepFunction stepFunction,
                     Collection<TrainingListener> trainingListeners, Model model) {
@@ -50,7 +58,17 @@ public class StochasticGradientDescent extends BaseOptimizer {
 
     @Override
     public boolean optimize(LayerWorkspaceMgr workspaceMgr) {
-        Pair<Gradient, Double> pair = gradientAndScore(workspaceMgr);
+        int accumulationSteps = BaseOptimizer.getGradientAccumulationSteps(model);
+        Pair<Gradient, Double> pair;
+        if (accumulationSteps > 1) {
+            pair = accumulatedGradientAndScore(accumulationSteps, workspaceMgr);
+            if (pair == null) {
+                //Micro-batch only: no parameter update, listener notification or iteration count increment
+                return true;
+            }
+        } else {
+            pair = gradientAndScore(workspaceMgr);
+        }
 
         Gradient gradient = pair.getFirst();
 
@@ -67,7 +85,7 @@ public class StochasticGradientDescent extends BaseOptimizer {
             accumulator.applyUpdate(stepFunction, params, gradient.gradient());
 
             // if there's no update available - just go on then
-        } else {
+        } else if (!stepSparse()) {
             // if accumulator isn't used - we just to for direct updates application
             stepFunction.step(params, gradient.gradient());
         }
@@ -89,6 +107,80 @@ public class StochasticGradientDescent extends BaseOptimizer {
         return true;
     }
 
+    /**
+     * Compute the gradient for the current micro-batch and add it to the accumulated gradient. Once the configured
+     * number of micro-batches has been accumulated, the accumulated gradient is placed in the model's gradient view
+     * and the updater is applied (with the total number of examples as the minibatch size).
+     *
+     * @return The gradient and (example-weighted average) score, after applying the updater - or null if more
+     * micro-batches are required before the next parameter update
+     */
+    protected Pair<Gradient, Double> accumulatedGradientAndScore(int accumulationSteps, LayerWorkspaceMgr workspaceMgr) {
+        oldScore = score;
+        model.computeGradientAndScore(workspaceMgr);
+
+        if (trainingListeners != null && !trainingListeners.isEmpty()) {
+            try (MemoryWorkspace workspace = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+                for (TrainingListener l : trainingListeners) {
+                    l.onGradientCalculation(model);
+                }
+            }
+        }
+
+        Pair<Gradient, Double> pair = model.gradientAndScore();
+        INDArray gradient = pair.getFirst().gradient();
+        int batchSize = model.batchSize();
+        if (accumulatedGradient == null || !accumulatedGradient.equalShapes(gradient)) {
+            try (MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+                accumulatedGradient = gradient.dup(gradient.ordering());
+            }
+            accumulatedMicroBatches = 0;
+            accumulatedExamples = 0;
+            accumulatedScore = 0.0;
+        } else if (accumulatedMicroBatches == 0) {
+            accumulatedGradient.assign(gradient);
+        } else {
+            accumulatedGradient.addi(gradient);
+        }
+        accumulatedMicroBatches++;
+        accumulatedExamples += batchSize;
+        accumulatedScore += pair.getSecond() * batchSize;
+
+        if (accumulatedMicroBatches < accumulationSteps) {
+            return null;
+        }
+
+        //Raw gradients are sums over examples: the updater divides by the total number of examples (if minibatch)
+        gradient.assign(accumulatedGradient);
+        score = accumulatedScore / accumulatedExamples;
+        setModelScore(score);
+        updateGradientAccordingToParams(pair.getFirst(), model, accumulatedExamples, workspaceMgr);
+
+        accumulatedMicroBatches = 0;
+        accumulatedExamples = 0;
+        accumulatedScore = 0.0;
+        return new Pair<>(pair.getFirst(), score);
+    }
+
+    /**
+     * Apply the step function only to the updated rows of row-sparse parameters (embedding layers with sparse
+     * updates), if any were updated in this iteration
+     *
+     * @return True if the step has been applied; false if the full parameters should be stepped instead
+     */
+    private boolean stepSparse() {
+        Object u = (model instanceof ComputationGraph ? computationGraphUpdater : updater);
+        return u instanceof BaseMultiLayerUpdater && ((BaseMultiLayerUpdater<?>) u).stepSparse(stepFunction);
+    }
+
+    private void setModelScore(double score) {
+        if (model instanceof MultiLayerNetwork) {
+            ((MultiLayerNetwork) model).setScore(score);
+        } else if (model instanceof ComputationGraph) {
+            ((ComputationGraph) model).setScore(score);
+        }
+    }
+
     @Override
     public void preProcessLine() {}
 
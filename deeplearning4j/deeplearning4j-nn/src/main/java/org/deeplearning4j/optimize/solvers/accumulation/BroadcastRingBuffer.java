@@ -0,0 +1,413 @@
+package org.deeplearning4j.optimize.solvers.accumulation;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free, multi-consumer broadcast alternative to {@link FancyBlockingQueue}: suited only for symmetric gradients
+ * updates, and should NOT be used as a general purpose queue.
+ *
+ * Basic idea: elements are stored in a ring buffer, under a monotonically increasing sequence number. Each consumer
+ * thread has its own cursor over that sequence, hence every consumer gets every element, in the same order, without
+ * waiting for the other consumers. A slot is reclaimed once all consumers have moved past it, and at least as many
+ * consumers as specified via {@link #registerConsumers(int)} have joined the current cycle (so that late consumers
+ * don't miss updates). As with {@link FancyBlockingQueue}, {@link #isEmpty()} reports only elements that were present
+ * when {@link #registerConsumers(int)} was last called, so that all consumers apply the same number of updates in each
+ * cycle. Unlike FancyBlockingQueue, consumers that skipped up to {@link #MAX_IDLE_CYCLES} cycles will still receive
+ * their updates in their next cycle.
+ *
+ * Consumers are registered on their first call to {@link #poll()}, {@link #peek()} or {@link #isEmpty()}. Liveness is
+ * tracked per {@link #registerConsumers(int)} cycle, not per thread: a consumer that hasn't accessed the buffer during
+ * the last {@link #MAX_IDLE_CYCLES} cycles is detached, and no longer holds back slot reclamation (so that pooled
+ * threads that stopped consuming can't block producers). If a detached consumer comes back, it's registered again,
+ * from its previous position - or from the oldest element still in the buffer, if elements were released meanwhile.
+ *
+ * Within this module, the ring buffer is used by {@link EncodedGradientsAccumulator} for updates shared between local
+ * workers, and as its external updates source (i.e. for updates received from other nodes, see SilentTrainingDriver).
+ * A single copy of each update is stored, and decoded by all workers.
+ *
+ * @param <E> Element type
+ */
+public class BroadcastRingBuffer<E> implements BlockingQueue<E>, Registerable {
+    protected static final long WAIT_NANOS = 50000L;
+    /**
+     * Number of {@link #registerConsumers(int)} cycles a consumer may skip before being detached
+     */
+    public static final int MAX_IDLE_CYCLES = 2;
+
+    protected final int capacity;
+    protected final int mask;
+    protected final AtomicReferenceArray<E> buffer;
+    protected final AtomicLongArray published;
+
+    // next sequence number to be claimed by producers
+    protected final AtomicLong tail = new AtomicLong(0);
+    // oldest sequence number not yet consumed by all consumers
+    protected final AtomicLong head = new AtomicLong(0);
+    // consumers can't advance past this sequence number, unless in bypass mode
+    protected volatile long limit = 0;
+    protected volatile int consumers;
+    // incremented on each registerConsumers() call
+    protected final AtomicLong cycle = new AtomicLong(0);
+
+    protected final List<Consumer> consumerList = new CopyOnWriteArrayList<>();
+    protected final ThreadLocal<Consumer> currentConsumer = new ThreadLocal<>();
+    protected final AtomicBoolean reclaiming = new AtomicBoolean(false);
+    protected final AtomicBoolean reclaimRequested = new AtomicBoolean(false);
+    protected final AtomicBoolean bypassMode = new AtomicBoolean(false);
+
+    protected static class Consumer {
+        protected final AtomicLong sequence;
+        // last cycle this consumer accessed the buffer in
+        protected volatile long cycle;
+        protected volatile boolean detached = false;
+
+        protected Consumer(long sequence) {
+            this.sequence = new AtomicLong(sequence);
+        }
+    }
+
+    /**
+     * @param capacity Maximum number of elements that haven't been consumed by all consumers yet. Rounded up to the
+     *                 next power of 2
+     */
+    public BroadcastRingBuffer(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity should be positive value");
+
+        int c = Integer.highestOneBit(capacity);
+        if (c < capacity)
+            c <<= 1;
+
+        this.capacity = c;
+        this.mask = c - 1;
+        this.buffer = new AtomicReferenceArray<>(c);
+        this.published = new AtomicLongArray(c);
+        for (int i = 0; i < c; i++)
+            published.set(i, -1);
+    }
+
+    protected Consumer consumer() {
+        Consumer c = currentConsumer.get();
+        if (c == null || c.detached) {
+            // detached consumer resumes from its previous position, unless those elements were released meanwhile
+            c = new Consumer(c == null ? head.get() : Math.max(c.sequence.get(), head.get()));
+            c.cycle = cycle.get();
+            consumerList.add(c);
+            // reclamation might have happened before we've been added to the list
+            long h = head.get();
+            if (c.sequence.get() < h)
+                c.sequence.set(h);
+            currentConsumer.set(c);
+        }
+        c.cycle = cycle.get();
+        return c;
+    }
+
+    /**
+     * This method advances head of the buffer to the slowest attached consumer, releasing the slots before it.
+     * Consumers idle for more than {@link #MAX_IDLE_CYCLES} cycles are detached here
+     *
+     * @return head of the buffer
+     */
+    protected long reclaim() {
+        // if another thread is reclaiming, it'll do another pass for us
+        reclaimRequested.set(true);
+        while (reclaimRequested.get() && reclaiming.compareAndSet(false, true)) {
+            try {
+                reclaimRequested.set(false);
+
+                long h = head.get();
+                long cur = cycle.get();
+                long min = Long.MAX_VALUE;
+                int joined = 0;
+                for (Consumer c : consumerList) {
+                    if (cur - c.cycle > MAX_IDLE_CYCLES) {
+                        c.detached = true;
+                        consumerList.remove(c);
+                        continue;
+                    }
+                    if (c.cycle == cur)
+                        joined++;
+                    min = Math.min(min, c.sequence.get());
+                }
+
+                // until all expected consumers have joined the current cycle, elements are kept for consumers to come
+                if (min == Long.MAX_VALUE || joined < (bypassMode.get() ? 1 : consumers) || min <= h)
+                    continue;
+
+                for (long s = h; s < min; s++)
+                    buffer.lazySet((int) (s & mask), null);
+
+                head.set(min);
+            } finally {
+                reclaiming.set(false);
+            }
+        }
+        return head.get();
+    }
+
+    protected long available() {
+        return bypassMode.get() ? tail.get() : limit;
+    }
+
+    @Override
+    public void fallbackToSingleConsumerMode(boolean reallyFallback) {
+        bypassMode.set(reallyFallback);
+    }
+
+    @Override
+    public void registerConsumers(int consumers) {
+        this.consumers = consumers;
+        this.limit = tail.get();
+        cycle.incrementAndGet();
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null)
+            throw new NullPointerException();
+
+        while (true) {
+            long t = tail.get();
+            if (t - head.get() >= capacity && t - reclaim() >= capacity)
+                return false;
+
+            if (tail.compareAndSet(t, t + 1)) {
+                int idx = (int) (t & mask);
+                buffer.set(idx, e);
+                published.set(idx, t);
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean add(E e) {
+        if (!offer(e))
+            throw new IllegalStateException("Queue full");
+        return true;
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        while (!offer(e)) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            LockSupport.parkNanos(WAIT_NANOS);
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!offer(e)) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if (System.nanoTime() >= deadline)
+                return false;
+            LockSupport.parkNanos(WAIT_NANOS);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        Consumer c = consumer();
+        return Math.max(c.sequence.get(), head.get()) >= available();
+    }
+
+    protected E get(Consumer c, boolean advance) {
+        while (true) {
+            long seq = c.sequence.get();
+            long h = head.get();
+            if (seq < h) {
+                // consumer was registered (or detached) concurrently with reclamation
+                seq = h;
+                c.sequence.set(h);
+            }
+
+            if (seq >= available())
+                return null;
+
+            int idx = (int) (seq & mask);
+
+            // element might be claimed, but not yet stored by producer
+            long p;
+            while ((p = published.get(idx)) < seq)
+                Thread.yield();
+
+            E element = buffer.get(idx);
+
+            // slot was reused after this consumer was detached: skip to the new head
+            if (p != seq)
+                continue;
+
+            if (advance) {
+                c.sequence.set(seq + 1);
+
+                // slowest consumer releases slots. head is read again: reclamation might have happened while we were
+                // reading, with our previous position
+                if (seq == head.get())
+                    reclaim();
+            }
+
+            return element;
+        }
+    }
+
+    @Override
+    public E poll() {
+        return get(consumer(), true);
+    }
+
+    @Override
+    public E peek() {
+        return get(consumer(), false);
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        while (true) {
+            E e = get(consumer(), true);
+            if (e != null)
+                return e;
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            LockSupport.parkNanos(WAIT_NANOS);
+        }
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            E e = get(consumer(), true);
+            if (e != null)
+                return e;
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if (System.nanoTime() >= deadline)
+                return null;
+            LockSupport.parkNanos(WAIT_NANOS);
+        }
+    }
+
+    @Override
+    public E remove() {
+        E e = poll();
+        if (e == null)
+            throw new NoSuchElementException();
+        return e;
+    }
+
+    @Override
+    public E element() {
+        E e = peek();
+        if (e == null)
+            throw new NoSuchElementException();
+        return e;
+    }
+
+    /**
+     * This method discards all elements, for all consumers. Should not be called concurrently with consumers.
+     */
+    @Override
+    public void clear() {
+        long t = tail.get();
+        for (Consumer c : consumerList)
+            c.sequence.set(t);
+        limit = t;
+
+        // released even if no consumers are attached
+        for (long s = head.get(); s < t; s++)
+            buffer.lazySet((int) (s & mask), null);
+        head.set(t);
+    }
+
+    /**
+     * @return Number of elements not yet consumed by all consumers
+     */
+    @Override
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        for (E e : c)
+            add(e);
+        return !c.isEmpty();
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        int cnt = 0;
+        E e;
+        while (cnt < maxElements && (e = poll()) != null) {
+            c.add(e);
+            cnt++;
+        }
+        return cnt;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Object[] toArray() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -16,11 +16,7 @@ import org.nd4j.linalg.exception.ND4JIllegalStateException;
 import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.linalg.util.AtomicThrowable;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Queue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
@@ -36,12 +32,11 @@ public class EncodedGradientsAccumulator implements GradientsAccumulator, Regist
 
     protected int parties;
     protected MessageHandler handler;
-    protected List<BlockingQueue<INDArray>> messages = new ArrayList<>();
-    protected List<MemoryWorkspace> workspaces = new ArrayList<>();
-    protected List<ReentrantLock> locks = new ArrayList<>();
+    // updates shared by local workers: a single copy of each update, read by all workers
+    protected BroadcastRingBuffer<INDArray> messages;
+    protected MemoryWorkspace workspace;
+    protected ReentrantLock lock = new ReentrantLock();
 
-    protected AtomicInteger workersCounter = new AtomicInteger(0);
-    protected ThreadLocal<Integer> index = new ThreadLocal<>();
     protected long initialMemory = 100 * 1024 * 1024L;
     protected int queueSize = 5;
     protected Double boundary = 1.0;
@@ -87,12 +82,6 @@ public class EncodedGradientsAccumulator implements GradientsAccumulator, Regist
         this.queueSize = queueSize;
         this.boundary = boundary;
 
-        // maybe not the best idea in the world, but we'll use cyclic workspace of 25MB to receive updates
-        WorkspaceConfiguration configuration = WorkspaceConfiguration.builder().initialSize(initialMemory)
-                        .policyReset(ResetPolicy.ENDOFBUFFER_REACHED).policyAllocation(AllocationPolicy.STRICT)
-                        .policySpill(SpillPolicy.FAIL).policyLearning(LearningPolicy.NONE).build();
-
-
         // we want to know, if we'll have to relocate data if accessed from different threads/devices
         relocatable = Nd4j.getAffinityManager().getNumberOfDevices() > 1
                         && !Nd4j.getAffinityManager().isCrossDeviceAccessSupported();
@@ -104,23 +93,19 @@ public class EncodedGradientsAccumulator implements GradientsAccumulator, Regist
             throw new ND4JIllegalStateException("Number of parties [" + parties
                             + "] should be less or equal to number of devices [" + numDevices + "]");
 
-        // pre-create Queues for local workers
-        int curDev = Nd4j.getAffinityManager().getDeviceForCurrentThread();
-
-        for (int i = 0; i < parties; i++) {
-            messages.add(new LinkedBlockingQueue<INDArray>(queueSize));
-
-            // we don't want device index to step out of boundaries here
-            int cDevice = numDevices > 1 ? i % numDevices : 0;
-
-            Nd4j.getAffinityManager().unsafeSetDevice(cDevice);
-            MemoryWorkspace ws = Nd4j.getWorkspaceManager().createNewWorkspace(configuration, "CGA-" + i, cDevice);
-            //ws.enableDebug(true);
-            workspaces.add(ws);
+        /*
+            Each worker publishes one update per iteration, and all of them must fit: at least NUM_WORKERS slots.
+            Workspace is sized for a full buffer of updates, of up to (initialMemory / queueSize) bytes each
+         */
+        messages = new BroadcastRingBuffer<>(Math.max(Integer.highestOneBit(queueSize * parties), parties));
+        long workspaceSize = Math.max(initialMemory * parties, initialMemory / queueSize * messages.capacity);
 
-            locks.add(new ReentrantLock());
-        }
-        Nd4j.getAffinityManager().unsafeSetDevice(curDev);
+        // maybe not the best idea in the world, but we'll use cyclic workspace to receive updates
+        WorkspaceConfiguration configuration = WorkspaceConfiguration.builder().initialSize(workspaceSize)
+                        .policyReset(ResetPolicy.ENDOFBUFFER_REACHED).policyAllocation(AllocationPolicy.STRICT)
+                        .policySpill(SpillPolicy.FAIL).policyLearning(LearningPolicy.NONE).build();
+        workspace = Nd4j.getWorkspaceManager().createNewWorkspace(configuration, "CGA",
+                        Nd4j.getAffinityManager().getDeviceForCurrentThread());
 
         handler.initialize(this);
     }
@@ -155,6 +140,8 @@ public class EncodedGradientsAccumulator implements GradientsAccumulator, Regist
         if (externalSource != null && externalSource instanceof Registerable)
             ((Registerable) externalSource).fallbackToSingleConsumerMode(reallyFallback);
 
+        messages.fallbackToSingleConsumerMode(reallyFallback);
+
         bypassMode.set(reallyFallback);
     }
 
@@ -191,6 +178,8 @@ public class EncodedGradientsAccumulator implements GradientsAccumulator, Regist
         if (consumers == 1 || bypassMode.get()) {
             if (finalLock)
                 registered.set(false);
+            else
+                messages.registerConsumers(consumers);
 
             return;
         }
@@ -203,6 +192,10 @@ public class EncodedGradientsAccumulator implements GradientsAccumulator, Regist
 
         // last thread will set isDone to true
         if (barrier.incrementAndGet() == consumers) {
+            // all workers have published their updates: make them visible to consumers
+            if (!finalLock)
+                messages.registerConsumers(consumers);
+
             secondary.set(0);
             barrier.set(0);
             isFirst.set(false);
@@ -249,17 +242,8 @@ public class EncodedGradientsAccumulator implements GradientsAccumulator, Regist
             //updates.assign(0.0);
 
             int cnt = 0;
-            while (!messages.get(index.get()).isEmpty()) {
-                INDArray compressed = messages.get(index.get()).poll();
-
-                int encoding = compressed.data().getInt(3);
-                if (encoding == ThresholdCompression.FLEXIBLE_ENCODING)
-                    Nd4j.getExecutioner().thresholdDecode(compressed, updates);
-                else if (encoding == ThresholdCompression.BITMAP_ENCODING)
-                    Nd4j.getExecutioner().bitmapDecode(compressed, updates);
-                else
-                    throw new DL4JInvalidConfigException("Unknown compression header received: " + encoding);
-
+            while (!messages.isEmpty()) {
+                decodeUpdate(messages.poll(), updates);
                 cnt++;
             }
 
@@ -269,32 +253,7 @@ public class EncodedGradientsAccumulator implements GradientsAccumulator, Regist
             if (externalSource != null) {
                 int ent = 0;
                 while (!externalSource.isEmpty()) {
-                    INDArray compressed = externalSource.poll();
-
-                    // if we have multiple devices without p2p support - just duplicate messages right from host side
-                    if (relocatable) {
-                        try (MemoryWorkspace workspace = Nd4j.getWorkspaceManager()
-                                        .getAndActivateWorkspace(appliedConfiguration, "CGA_APPLY")) {
-                            INDArray compressed_copy = compressed.unsafeDuplication(true);
-
-                            int encoding = compressed.data().getInt(3);
-                            if (encoding == ThresholdCompression.FLEXIBLE_ENCODING)
-                                Nd4j.getExecutioner().thresholdDecode(compressed_copy, updates);
-                            else if (encoding == ThresholdCompression.BITMAP_ENCODING)
-                                Nd4j.getExecutioner().bitmapDecode(compressed_copy, updates);
-                            else
-                                throw new DL4JInvalidConfigException(
-                                                "Unknown compression header received: " + encoding);
-                        }
-                    } else {
-                        int encoding = compressed.data().getInt(3);
-                        if (encoding == ThresholdCompression.FLEXIBLE_ENCODING)
-                            Nd4j.getExecutioner().thresholdDecode(compressed, updates);
-                        else if (encoding == ThresholdCompression.BITMAP_ENCODING)
-                            Nd4j.getExecutioner().bitmapDecode(compressed, updates);
-                        else
-                            throw new DL4JInvalidConfigException("Unknown compression header received: " + encoding);
-                    }
+                    decodeUpdate(externalSource.poll(), updates);
                     cnt++;
                     ent++;
                 }
@@ -333,17 +292,8 @@ public class EncodedGradientsAccumulator implements GradientsAccumulator, Regist
             //updates.assign(0.0);
 
             int cnt = 0;
-            while (!messages.get(index.get()).isEmpty()) {
-                INDArray compressed = messages.get(index.get()).poll();
-
-                int encoding = compressed.data().getInt(3);
-                if (encoding == ThresholdCompression.FLEXIBLE_ENCODING)
-                    Nd4j.getExecutioner().thresholdDecode(compressed, updates);
-                else if (encoding == ThresholdCompression.BITMAP_ENCODING)
-                    Nd4j.getExecutioner().bitmapDecode(compressed, updates);
-                else
-                    throw new DL4JInvalidConfigException("Unknown compression header received: " + encoding);
-
+            while (!messages.isEmpty()) {
+                decodeUpdate(messages.poll(), updates);
                 cnt++;
             }
 
@@ -353,32 +303,7 @@ public class EncodedGradientsAccumulator implements GradientsAccumulator, Regist
             if (externalSource != null) {
                 int ent = 0;
                 while (!externalSource.isEmpty()) {
-                    INDArray compressed = externalSource.poll();
-
-
-                    // if we have multiple devices without p2p support - just duplicate messages right from host side
-                    if (relocatable) {
-                        try (MemoryWorkspace workspace = Nd4j.getWorkspaceManager()
-                                        .getAndActivateWorkspace(appliedConfiguration, "CGA_APPLY")) {
-                            INDArray compressed_copy = compressed.unsafeDuplication(true);
-                            int encoding = compressed.data().getInt(3);
-                            if (encoding == ThresholdCompression.FLEXIBLE_ENCODING)
-                                Nd4j.getExecutioner().thresholdDecode(compressed_copy, updates);
-                            else if (encoding == ThresholdCompression.BITMAP_ENCODING)
-                                Nd4j.getExecutioner().bitmapDecode(compressed_copy, updates);
-                            else
-                                throw new DL4JInvalidConfigException(
-                                                "Unknown compression header received: " + encoding);
-                        }
-                    } else {
-                        int encoding = compressed.data().getInt(3);
-                        if (encoding == ThresholdCompression.FLEXIBLE_ENCODING)
-                            Nd4j.getExecutioner().thresholdDecode(compressed, updates);
-                        else if (encoding == ThresholdCompression.BITMAP_ENCODING)
-                            Nd4j.getExecutioner().bitmapDecode(compressed, updates);
-                        else
-                            throw new DL4JInvalidConfigException("Unknown compression header received: " + encoding);
-                    }
+                    decodeUpdate(externalSource.poll(), updates);
                     cnt++;
                     ent++;
                 }
@@ -399,6 +324,35 @@ public class EncodedGradientsAccumulator implements GradientsAccumulator, Regist
         }
     }
 
+    /**
+     * This method decodes given update into the updates array
+     *
+     * @param compressed encoded update, shared by all workers
+     * @param updates
+     */
+    protected void decodeUpdate(INDArray compressed, INDArray updates) {
+        int encoding = compressed.data().getInt(3);
+        if (encoding != ThresholdCompression.FLEXIBLE_ENCODING && encoding != ThresholdCompression.BITMAP_ENCODING)
+            throw new DL4JInvalidConfigException("Unknown compression header received: " + encoding);
+
+        // if we have multiple devices without p2p support - just duplicate messages right from host side
+        if (relocatable) {
+            try (MemoryWorkspace workspace = Nd4j.getWorkspaceManager()
+                            .getAndActivateWorkspace(appliedConfiguration, "CGA_APPLY")) {
+                decode(encoding, compressed.unsafeDuplication(true), updates);
+            }
+        } else {
+            decode(encoding, compressed, updates);
+        }
+    }
+
+    private static void decode(int encoding, INDArray compressed, INDArray updates) {
+        if (encoding == ThresholdCompression.FLEXIBLE_ENCODING)
+            Nd4j.getExecutioner().thresholdDecode(compressed, updates);
+        else
+            Nd4j.getExecutioner().bitmapDecode(compressed, updates);
+    }
+
     /**
      * This method allows to pass external updates to accumulator, they will be populated across all workers using this GradientsAccumulator instance
      *
@@ -414,22 +368,8 @@ public class EncodedGradientsAccumulator implements GradientsAccumulator, Regist
      */
     @Override
     public void touch() {
-        if (index.get() == null) {
-            // set index
-            int numDevces = Nd4j.getAffinityManager().getNumberOfDevices();
-
-            /*
-                if we have > 1 computational device, we assign workers to workspaces "as is", as provided via AffinityManager
-             */
-            if (numDevces > 1 && parties > 1) {
-                int localIndex = Nd4j.getAffinityManager().getDeviceForCurrentThread();
-
-                index.set(localIndex);
-            } else {
-                // if we have only 1 device (like cpu system, or single gpu), just attach consumer via flat index
-                index.set(workersCounter.getAndIncrement());
-            }
-        }
+        // registers current thread as consumer of local updates
+        messages.isEmpty();
     }
 
     /**
@@ -485,35 +425,30 @@ public class EncodedGradientsAccumulator implements GradientsAccumulator, Regist
     @Override
     public void receiveUpdate(INDArray array) {
         try {
-            // we're replicating COMPRESSED MESSAGES, decompression will be thread-local
-            for (int i = 0; i < parties; i++) {
-                // we don't want to have same workspace to be accessible by 2 different threads for now
-                /*
-                    With synchronized external data, it's impossible to deadlock here.
-                    Each worker is guaranteed to have at least NUM_WORKERS slots in buffer.
-                    So we use this lock just to ensure thread-safety of corresponding workspaces
-                */
-                locks.get(i).lock();
-
-                try (MemoryWorkspace workspace = workspaces.get(i).notifyScopeEntered()) {
-                    // we might just scope out of workspace here, instead of throwing error out
-                    if (array.data().length() > (initialMemory / queueSize)
-                                    / Nd4j.sizeOfDataType(array.data().dataType()))
-                        throw new ND4JIllegalStateException("Not enough memory to handle update: ["
-                                        + array.data().length() * Nd4j.sizeOfDataType(array.data().dataType())
-                                        + " bytes required]. Please increase memory amount for GradientsAccumulator");
-
-                    INDArray compressed = array.unsafeDuplication();
-                    try {
-                        messages.get(i).put(compressed);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        log.info("Something bad at index_{}", i);
-                        throw new RuntimeException(e);
-                    }
+            // we're storing single copy of COMPRESSED MESSAGE, decompression will be thread-local
+            /*
+                With synchronized external data, it's impossible to deadlock here.
+                Buffer is guaranteed to have at least NUM_WORKERS slots.
+                So we use this lock just to ensure thread-safety of the workspace
+            */
+            lock.lock();
+            try (MemoryWorkspace ws = workspace.notifyScopeEntered()) {
+                // we might just scope out of workspace here, instead of throwing error out
+                if (array.data().length() > (initialMemory / queueSize)
+                                / Nd4j.sizeOfDataType(array.data().dataType()))
+                    throw new ND4JIllegalStateException("Not enough memory to handle update: ["
+                                    + array.data().length() * Nd4j.sizeOfDataType(array.data().dataType())
+                                    + " bytes required]. Please increase memory amount for GradientsAccumulator");
+
+                INDArray compressed = array.unsafeDuplication();
+                try {
+                    messages.put(compressed);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
                 }
-
-                locks.get(i).unlock();
+            } finally {
+                lock.unlock();
             }
         } catch (Exception e) {
             throwable.setIfFirst(e);
@@ -529,16 +464,8 @@ public class EncodedGradientsAccumulator implements GradientsAccumulator, Regist
         // just replace accumulator, gc will do the rest
         accumulator = new ThreadLocal<>();
 
-        // resetting this counter too
-        workersCounter.set(0);
-
-        // reset indexes too
-        index = new ThreadLocal<>();
-
-        // throw away message queues
-        for (int i = 0; i < parties; i++) {
-            messages.get(i).clear();
-        }
+        // throw away pending messages
+        messages.clear();
     }
 
     public static class Builder {
@@ -2,10 +2,18 @@ package org.deeplearning4j.optimize.solvers.accumulation;
 
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
+import org.deeplearning4j.optimize.api.StepFunction;
 import org.junit.Test;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -40,14 +48,88 @@ public class EncodedGradientsAccumulatorTest {
                 accumulator.receiveUpdate(encoded);
 
                 // just purge updates, like they were consumed
-                for (int i = 0; i < accumulator.messages.size(); i++) {
-                    accumulator.messages.get(i).clear();
-                }
+                accumulator.messages.clear();
             }
         }
     }
 
 
+    /**
+     * This test ensures, that each worker applies the updates of all workers, in each iteration
+     * @throws Exception
+     */
+    @Test
+    public void testSharedUpdates() throws Exception {
+        final int numParams = 1000;
+        final int numWorkers = 3;
+        final int numIterations = 5;
+        final double threshold = 1e-3;
+
+        final EncodedGradientsAccumulator accumulator = new EncodedGradientsAccumulator.Builder(numWorkers)
+                        .encodingThreshold(threshold)
+                        .memoryParameters(EncodedGradientsAccumulator.getOptimalBufferSize(numParams, numWorkers, 5), 5)
+                        .build();
+
+        // each worker has a gradient above threshold for its own two parameters only (single values aren't encoded)
+        INDArray expected = Nd4j.create(1, numParams);
+        for (int k = 0; k < 2 * numWorkers; k++)
+            expected.putScalar(k, threshold);
+
+        final List<INDArray> applied = new CopyOnWriteArrayList<>();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int k = 0; k < numWorkers; k++) {
+            final int worker = k;
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        accumulator.touch();
+                        INDArray params = Nd4j.create(1, numParams);
+                        INDArray updates = Nd4j.create(1, numParams);
+                        for (int i = 0; i < numIterations; i++) {
+                            INDArray gradient = Nd4j.create(1, numParams);
+                            gradient.putScalar(2 * worker, 10 * threshold);
+                            gradient.putScalar(2 * worker + 1, 10 * threshold);
+                            accumulator.storeUpdate(gradient);
+                            accumulator.applyUpdate(new StepFunction() {
+                                @Override
+                                public void step(INDArray x, INDArray line, double step) {
+                                    step(x, line);
+                                }
+
+                                @Override
+                                public void step(INDArray x, INDArray line) {
+                                    applied.add(line.dup());
+                                }
+
+                                @Override
+                                public void step() {
+                                }
+                            }, params, updates);
+                        }
+                    } catch (Throwable e) {
+                        error.compareAndSet(null, e);
+                    }
+                }
+            });
+            t.setDaemon(true);
+            t.start();
+            threads.add(t);
+        }
+
+        for (int i = 0; i < numIterations && error.get() == null; i++)
+            accumulator.registerConsumers(numWorkers);
+
+        for (Thread t : threads)
+            t.join(30000);
+
+        assertNull(error.get());
+        assertEquals(numWorkers * numIterations, applied.size());
+        for (INDArray updates : applied)
+            assertTrue(expected.equalsWithEps(updates, 1e-6));
+    }
+
     /**
      * Here we ensure that no matter how dense/sparse our updates are - we're never going above 1/16 of original elements of gradients array
      *
@@ -16,6 +16,8 @@ import org.deeplearning4j.nn.api.Updater;
 import org.deeplearning4j.nn.conf.WorkspaceMode;
 import org.deeplearning4j.nn.graph.ComputationGraph;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.updater.ChunkedAveraging;
+import org.deeplearning4j.nn.updater.SparseModelAveraging;
 import org.deeplearning4j.nn.updater.graph.ComputationGraphUpdater;
 import org.deeplearning4j.optimize.api.TrainingListener;
 import org.deeplearning4j.optimize.listeners.SharedGradient;
@@ -92,6 +94,8 @@ public class ParallelWrapper implements AutoCloseable {
     protected WorkspaceMode workspaceMode;
     protected Object[] trainerContextArgs;
     protected boolean debug = false;
+    protected boolean chunkedAveraging = false;
+    protected ChunkedAveraging averaging;
 
     protected ThreadPoolExecutor executorService;
 
@@ -156,6 +160,11 @@ public class ParallelWrapper implements AutoCloseable {
             executorService = null;
         }
 
+        if (averaging != null) {
+            averaging.close();
+            averaging = null;
+        }
+
         if (gradientsAccumulator != null)
             gradientsAccumulator.reset();
     }
@@ -323,7 +332,12 @@ public class ParallelWrapper implements AutoCloseable {
             score += zoo[cnt].getModel().score();
         }
 
-        Nd4j.averageAndPropagate(null, params);
+        if (SparseModelAveraging.hasSparseParams(model)) {
+            //Sparse embedding updates: only rows modified since the last averaging can differ between workers
+            SparseModelAveraging.averageParams(averagedModels(locker));
+        } else {
+            averageAndPropagate(params);
+        }
 
 
         score /= Math.min(workers, locker.get());
@@ -335,7 +349,52 @@ public class ParallelWrapper implements AutoCloseable {
         return score;
     }
 
+    private void averageAndPropagate(List<INDArray> arrays) {
+        if (!chunkedAveraging) {
+            Nd4j.averageAndPropagate(null, arrays);
+            return;
+        }
+
+        if (averaging == null) {
+            int numThreads = ChunkedAveraging.defaultNumThreads();
+            if (!ChunkedAveraging.isSupported() || numThreads <= 1) {
+                //A single chunk thread is slower than native averaging
+                log.warn("Chunked averaging requires the CPU backend and OMP_NUM_THREADS lower than the number of "
+                                + "cores: using Nd4j.averageAndPropagate instead");
+                chunkedAveraging = false;
+                Nd4j.averageAndPropagate(null, arrays);
+                return;
+            }
+            averaging = new ChunkedAveraging(numThreads);
+        }
+
+        averaging.averageAndPropagate(arrays);
+    }
+
+    private List<Model> averagedModels(AtomicInteger locker) {
+        List<Model> models = new ArrayList<>();
+        for (int cnt = 0; cnt < workers && cnt < locker.get(); cnt++) {
+            models.add(zoo[cnt].getModel());
+        }
+        return models;
+    }
+
     private void averageUpdatersState(AtomicInteger locker, double score) {
+        if (SparseModelAveraging.hasSparseParams(model)) {
+            List<Model> models = averagedModels(locker);
+            if (averageUpdaters) {
+                SparseModelAveraging.averageUpdaterState(models);
+            }
+            SparseModelAveraging.clearRowsModifiedSinceSync(models);
+
+            if (model instanceof MultiLayerNetwork) {
+                ((MultiLayerNetwork) model).setScore(score);
+            } else if (model instanceof ComputationGraph) {
+                ((ComputationGraph) model).setScore(score);
+            }
+            return;
+        }
+
         // averaging updaters state
         if (model instanceof MultiLayerNetwork) {
             if (averageUpdaters) {
@@ -350,7 +409,7 @@ public class ParallelWrapper implements AutoCloseable {
                         batchSize += workerModel.batchSize();
                     }
 
-                    Nd4j.averageAndPropagate(null, updaters);
+                    averageAndPropagate(updaters);
                 }
             }
 
@@ -367,7 +426,7 @@ public class ParallelWrapper implements AutoCloseable {
                         updaters.add(workerModel.getUpdater().getStateViewArray());
                         batchSize += workerModel.batchSize();
                     }
-                    Nd4j.averageAndPropagate(null, updaters);
+                    averageAndPropagate(updaters);
                 }
             }
 
@@ -660,6 +719,7 @@ public class ParallelWrapper implements AutoCloseable {
         protected TrainerContext trainerContext = new DefaultTrainerContext();
         protected Object[] trainerContextArgs;
         protected WorkspaceMode workspaceMode = WorkspaceMode.ENABLED;
+        protected boolean chunkedAveraging = false;
 
         protected GradientsAccumulator accumulator;
 
@@ -794,6 +854,26 @@ public class ParallelWrapper implements AutoCloseable {
         }
 
 
+        /**
+         * This method enables/disables chunked parallel averaging of parameters and updater state.
+         * If enabled, the flattened parameters are split into chunks, which are averaged in parallel over all workers
+         * by a pool of threads, in-place, using {@link ChunkedAveraging}. The number of threads is the number of cores
+         * divided by the number of OpenMP threads used by ND4J ops, so this only has an effect if OMP_NUM_THREADS is
+         * set lower than the number of cores.
+         *
+         * Default value: FALSE
+         *
+         * PLEASE NOTE: This method is applicable to parameters averaging training on CPU only: on other backends,
+         * Nd4j.averageAndPropagate is used. Averaging threads are not pinned to NUMA nodes.
+         *
+         * @param reallyUse
+         * @return
+         */
+        public Builder chunkedAveraging(boolean reallyUse) {
+            this.chunkedAveraging = reallyUse;
+            return this;
+        }
+
         /**
          * This method enables/disables averaged model score reporting
          *
@@ -818,6 +898,7 @@ public class ParallelWrapper implements AutoCloseable {
             wrapper.legacyAveraging = this.legacyAveraging;
             wrapper.isMQ = this.isMQ;
             wrapper.workspaceMode = this.workspaceMode;
+            wrapper.chunkedAveraging = this.chunkedAveraging;
 
 
             switch (trainingMode) {
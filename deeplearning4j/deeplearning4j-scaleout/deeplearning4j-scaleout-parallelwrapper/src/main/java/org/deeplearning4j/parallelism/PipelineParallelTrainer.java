@@ -0,0 +1,634 @@
+package org.deeplearning4j.parallelism;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.api.OptimizationAlgorithm;
+import org.deeplearning4j.nn.api.layers.IOutputLayer;
+import org.deeplearning4j.nn.conf.BackpropType;
+import org.deeplearning4j.nn.conf.InputPreProcessor;
+import org.deeplearning4j.nn.gradient.DefaultGradient;
+import org.deeplearning4j.nn.gradient.Gradient;
+import org.deeplearning4j.nn.layers.normalization.BatchNormalization;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.params.BatchNormalizationParamInitializer;
+import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
+import org.deeplearning4j.optimize.api.StepFunction;
+import org.deeplearning4j.optimize.api.TrainingListener;
+import org.deeplearning4j.optimize.solvers.BaseOptimizer;
+import org.deeplearning4j.optimize.solvers.StochasticGradientDescent;
+import org.deeplearning4j.optimize.stepfunctions.StepFunctions;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.DataSet;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.INDArrayIndex;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.nd4j.linalg.primitives.Pair;
+import org.nd4j.linalg.primitives.Triple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Pipeline-parallel trainer for {@link MultiLayerNetwork}.<br>
+ * Unlike {@link ParallelWrapper} (data parallelism), there is only one copy of the model: its layers are split into
+ * consecutive stages, and each stage is executed by its own thread. Each minibatch is split into micro-batches that
+ * are streamed through the stages, so that different stages work on different micro-batches concurrently.
+ * This allows training of models that don't fit in memory N times (once per data parallel worker).<br>
+ * <br>
+ * Scheduling is as in GPipe (Huang et al. 2018, <a href="https://arxiv.org/abs/1811.06965">https://arxiv.org/abs/1811.06965</a>):
+ * <ul>
+ * <li>Forward pass: micro-batches flow from the first to the last stage. Only the input activations of each stage
+ * are stored.</li>
+ * <li>Backward pass: once the last stage has received all micro-batches, the errors flow back from the last stage
+ * to the first. Each stage re-computes its forward pass for the micro-batch (re-materialization) before backprop,
+ * with the same random number generator seed as the original forward pass, so that dropout etc is consistent.</li>
+ * <li>Gradients are summed over all micro-batches within each stage, and a single synchronous parameter update is
+ * applied per minibatch using the network's updater - i.e., the result is the same as for a standard
+ * {@link MultiLayerNetwork#fit(DataSet)} call, other than for batch normalization.</li>
+ * </ul>
+ * Batch normalization: at training time, activations are normalized using the mean and variance of each micro-batch,
+ * rather than of the full minibatch. The global (running) mean and variance estimates are updated once per
+ * micro-batch (re-materialization does not update them again), i.e., numMicroBatches times per parameter update
+ * rather than once, each time with the statistics of a micro-batch. Consider a higher decay value to compensate.
+ * With one micro-batch, results are the same as for standard training.<br>
+ * By default, layers are assigned to stages such that the number of parameters in each stage is approximately
+ * balanced; alternatively, stage boundaries can be specified via {@link Builder#stageBoundaries(int...)}.<br>
+ * Limitations: stochastic gradient descent optimization only; truncated BPTT and feature mask arrays are not
+ * supported. The network should not be used elsewhere while the trainer is fitting. Call {@link #close()} to stop
+ * the stage threads when done.
+ */
+@Slf4j
+public class PipelineParallelTrainer implements AutoCloseable {
+
+    protected final MultiLayerNetwork model;
+    protected final int numMicroBatches;
+    //First layer index of each stage, plus the number of layers
+    protected final int[] stageStarts;
+
+    protected Stage[] stages;
+    protected volatile Throwable throwable;
+    protected CountDownLatch stepLatch;
+
+    //State for the current step: written before the step starts, read by the stage threads
+    protected INDArray[] microBatchLabels;
+    protected INDArray[] microBatchLabelsMasks;
+    protected int[] microBatchSizes;
+    protected double[] microBatchScores;
+    protected long stepSeed;
+
+    protected PipelineParallelTrainer(@NonNull MultiLayerNetwork model, int numStages, int numMicroBatches,
+                    int[] stageBoundaries) {
+        if (model.getLayerWiseConfigurations().getBackpropType() == BackpropType.TruncatedBPTT) {
+            throw new UnsupportedOperationException("Truncated BPTT is not supported for pipeline parallel training");
+        }
+        if (model.conf().getOptimizationAlgo() != OptimizationAlgorithm.STOCHASTIC_GRADIENT_DESCENT) {
+            throw new UnsupportedOperationException("Only stochastic gradient descent is supported for pipeline "
+                            + "parallel training, got " + model.conf().getOptimizationAlgo());
+        }
+        if (!(model.getOutputLayer() instanceof IOutputLayer)) {
+            throw new IllegalArgumentException("Cannot train network: final layer is not an output layer");
+        }
+        if (numMicroBatches < 1) {
+            throw new IllegalArgumentException("Number of micro-batches must be >= 1, got " + numMicroBatches);
+        }
+
+        this.model = model;
+        this.numMicroBatches = numMicroBatches;
+        this.stageStarts = stageBoundaries != null ? stageStarts(stageBoundaries, model.getnLayers())
+                        : balancedStageStarts(model.getLayers(), numStages);
+        log.info("Pipeline stages (first layer index of each stage): {}",
+                        Arrays.toString(Arrays.copyOf(stageStarts, stageStarts.length - 1)));
+    }
+
+    /**
+     * @return Number of stages (threads) in the pipeline
+     */
+    public int getNumStages() {
+        return stageStarts.length - 1;
+    }
+
+    /**
+     * @return First layer index of each stage
+     */
+    public int[] getStageBoundaries() {
+        return Arrays.copyOf(stageStarts, stageStarts.length - 1);
+    }
+
+    /**
+     * Fit the network for one epoch of the given iterator
+     *
+     * @param iterator Training data
+     */
+    public void fit(@NonNull DataSetIterator iterator) {
+        if (!iterator.hasNext() && iterator.resetSupported()) {
+            iterator.reset();
+        }
+
+        for (TrainingListener l : model.getListeners()) {
+            l.onEpochStart(model);
+        }
+        while (iterator.hasNext()) {
+            fit(iterator.next());
+        }
+        for (TrainingListener l : model.getListeners()) {
+            l.onEpochEnd(model);
+        }
+        model.incrementEpochCount();
+    }
+
+    /**
+     * Perform one parameter update for the given minibatch, split into micro-batches
+     *
+     * @param dataSet Training data
+     */
+    public synchronized void fit(@NonNull DataSet dataSet) {
+        if (dataSet.getFeaturesMaskArray() != null) {
+            throw new UnsupportedOperationException("Feature mask arrays are not supported for pipeline parallel training");
+        }
+        if (dataSet.getLabels() == null) {
+            throw new IllegalArgumentException("Cannot fit network: labels are null");
+        }
+        if (throwable != null) {
+            throw new IllegalStateException("Pipeline trainer cannot be used after a previous failure", throwable);
+        }
+        if (stages == null) {
+            init();
+        }
+
+        int iteration = model.getIterationCount();
+        int epoch = model.getEpochCount();
+        for (Layer l : model.getLayers()) {
+            l.setIterationCount(iteration);
+            l.setEpochCount(epoch);
+        }
+
+        // FIXME: int cast
+        int minibatch = (int) dataSet.getFeatures().size(0);
+        int nMicro = Math.min(numMicroBatches, minibatch);
+        INDArray[] features = new INDArray[nMicro];
+        microBatchLabels = new INDArray[nMicro];
+        microBatchLabelsMasks = new INDArray[nMicro];
+        microBatchSizes = new int[nMicro];
+        microBatchScores = new double[nMicro];
+        for (int m = 0; m < nMicro; m++) {
+            int from = (int) ((long) m * minibatch / nMicro);
+            int to = (int) ((long) (m + 1) * minibatch / nMicro);
+            microBatchSizes[m] = to - from;
+            features[m] = getRows(dataSet.getFeatures(), from, to);
+            microBatchLabels[m] = getRows(dataSet.getLabels(), from, to);
+            if (dataSet.getLabelsMaskArray() != null) {
+                microBatchLabelsMasks[m] = getRows(dataSet.getLabelsMaskArray(), from, to);
+            }
+        }
+        stepSeed = model.conf().getSeed() + 1000003L * iteration;
+
+        stepLatch = new CountDownLatch(1);
+        for (Stage s : stages) {
+            s.startStep(nMicro);
+        }
+        for (int m = 0; m < nMicro; m++) {
+            stages[0].inbox.add(new Message(Message.Type.FORWARD, m, features[m]));
+        }
+
+        try {
+            stepLatch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        if (throwable != null) {
+            close();
+            throw new RuntimeException("Exception in pipeline stage", throwable);
+        }
+
+        update(minibatch, iteration, epoch);
+    }
+
+    /**
+     * Combine the gradients of all stages, then apply the updater and update the parameters - as per
+     * {@link StochasticGradientDescent}
+     */
+    protected void update(int minibatch, int iteration, int epoch) {
+        Gradient gradient = new DefaultGradient(model.getGradientsViewArray());
+        for (Stage s : stages) {
+            for (Triple<String, INDArray, Character> t : s.gradientVariables) {
+                gradient.setGradientFor(t.getFirst(), t.getSecond(), t.getThird());
+            }
+        }
+
+        //Scores are per micro-batch, not including regularization
+        double lossSum = 0.0;
+        for (double d : microBatchScores) {
+            lossSum += d;
+        }
+        double score = lossSum + model.calcL1(true) + model.calcL2(true);
+        if (model.conf().isMiniBatch()) {
+            score /= minibatch;
+        }
+        model.setScore(score);
+
+        for (TrainingListener l : model.getListeners()) {
+            l.onGradientCalculation(model);
+        }
+
+        LayerWorkspaceMgr mgr = LayerWorkspaceMgr.noWorkspaces();
+        model.getUpdater().update(model, gradient, iteration, epoch, minibatch, mgr);
+
+        StepFunction stepFunction = model.conf().getStepFunction() != null
+                        ? StepFunctions.createStepFunction(model.conf().getStepFunction())
+                        : BaseOptimizer.getDefaultStepFunctionForOptimizer(StochasticGradientDescent.class);
+        stepFunction.step(model.params(), gradient.gradient());
+        model.clearNoiseWeightParams();
+
+        for (TrainingListener l : model.getListeners()) {
+            l.iterationDone(model, iteration, epoch);
+        }
+        BaseOptimizer.incrementIterationCount(model, 1);
+        model.applyConstraints(iteration, epoch);
+    }
+
+    protected void init() {
+        if (model.getGradientsViewArray() == null) {
+            //Gradient views are initialized lazily by MultiLayerNetwork
+            model.initGradientsView();
+        }
+
+        int numStages = getNumStages();
+        stages = new Stage[numStages];
+        for (int i = 0; i < numStages; i++) {
+            stages[i] = new Stage(i, stageStarts[i], stageStarts[i + 1]);
+        }
+        for (int i = 0; i < numStages; i++) {
+            stages[i].setName("PipelineStage-" + i);
+            stages[i].setDaemon(true);
+            stages[i].start();
+        }
+    }
+
+    private static INDArray getRows(INDArray arr, int from, int to) {
+        if (from == 0 && to == arr.size(0)) {
+            return arr;
+        }
+        INDArrayIndex[] idx = new INDArrayIndex[arr.rank()];
+        idx[0] = NDArrayIndex.interval(from, to);
+        for (int i = 1; i < idx.length; i++) {
+            idx[i] = NDArrayIndex.all();
+        }
+        return arr.get(idx).dup();
+    }
+
+    private static int[] stageStarts(int[] stageBoundaries, int numLayers) {
+        int[] starts = new int[stageBoundaries.length + 2];
+        for (int i = 0; i < stageBoundaries.length; i++) {
+            int prev = i == 0 ? 0 : stageBoundaries[i - 1];
+            if (stageBoundaries[i] <= prev || stageBoundaries[i] >= numLayers) {
+                throw new IllegalArgumentException("Invalid stage boundaries: must be strictly increasing, in range "
+                                + "1 to numLayers-1 = " + (numLayers - 1) + ", got " + Arrays.toString(stageBoundaries));
+            }
+            starts[i + 1] = stageBoundaries[i];
+        }
+        starts[starts.length - 1] = numLayers;
+        return starts;
+    }
+
+    /**
+     * Split the layers into consecutive stages, minimizing the maximum number of parameters of any stage (each layer
+     * also counts as one, to avoid empty stages and to account for layers without parameters)
+     *
+     * @return First layer index of each stage, plus the number of layers
+     */
+    protected static int[] balancedStageStarts(Layer[] layers, int numStages) {
+        int n = layers.length;
+        if (numStages < 1 || numStages > n) {
+            throw new IllegalArgumentException("Invalid number of stages: must be between 1 and the number of "
+                            + "layers (" + n + "), got " + numStages);
+        }
+        long[] cumulative = new long[n + 1];
+        for (int i = 0; i < n; i++) {
+            cumulative[i + 1] = cumulative[i] + layers[i].numParams() + 1;
+        }
+
+        //cost[s][i]: minimum over splits of the first i layers into s stages, of the maximum stage cost
+        long[][] cost = new long[numStages + 1][n + 1];
+        int[][] split = new int[numStages + 1][n + 1];
+        for (long[] row : cost) {
+            Arrays.fill(row, Long.MAX_VALUE);
+        }
+        cost[0][0] = 0;
+        for (int s = 1; s <= numStages; s++) {
+            for (int i = s; i <= n; i++) {
+                for (int j = s - 1; j < i; j++) {
+                    if (cost[s - 1][j] == Long.MAX_VALUE)
+                        continue;
+                    long c = Math.max(cost[s - 1][j], cumulative[i] - cumulative[j]);
+                    if (c < cost[s][i]) {
+                        cost[s][i] = c;
+                        split[s][i] = j;
+                    }
+                }
+            }
+        }
+
+        int[] starts = new int[numStages + 1];
+        starts[numStages] = n;
+        for (int s = numStages, i = n; s > 0; s--) {
+            i = split[s][i];
+            starts[s - 1] = i;
+        }
+        return starts;
+    }
+
+    /**
+     * Stop the stage threads
+     */
+    @Override
+    public void close() {
+        if (stages != null) {
+            for (Stage s : stages) {
+                s.inbox.add(new Message(Message.Type.SHUTDOWN, -1, null));
+            }
+            stages = null;
+        }
+    }
+
+    /**
+     * Alias for {@link #close()}
+     */
+    public void shutdown() {
+        close();
+    }
+
+    private void fail(Throwable t) {
+        log.error("Exception in pipeline stage", t);
+        if (throwable == null) {
+            throwable = t;
+        }
+        stepLatch.countDown();
+    }
+
+
+    protected static class Message {
+        protected enum Type {
+            FORWARD, BACKWARD, SHUTDOWN
+        }
+
+        protected final Type type;
+        protected final int microBatch;
+        protected final INDArray array;
+
+        protected Message(Type type, int microBatch, INDArray array) {
+            this.type = type;
+            this.microBatch = microBatch;
+            this.array = array;
+        }
+    }
+
+    /**
+     * A stage: layers [firstLayer, lastLayer) of the network, executed on its own thread
+     */
+    protected class Stage extends Thread {
+        protected final int stageIdx;
+        protected final int firstLayer;
+        protected final int endLayer;
+        protected final boolean isLast;
+        protected final LinkedBlockingQueue<Message> inbox = new LinkedBlockingQueue<>();
+        protected final LayerWorkspaceMgr mgr = LayerWorkspaceMgr.noWorkspaces();
+
+        //Gradient keys, arrays and flattening order, in the format used by MultiLayerNetwork
+        protected final List<Triple<String, INDArray, Character>> gradientVariables = new ArrayList<>();
+        protected final INDArray[] gradientSums;
+
+        protected int numMicroBatches;
+        protected INDArray[] stageInputs;
+        protected int numForward;
+        protected int numBackward;
+
+        protected Stage(int stageIdx, int firstLayer, int endLayer) {
+            this.stageIdx = stageIdx;
+            this.firstLayer = firstLayer;
+            this.endLayer = endLayer;
+            this.isLast = endLayer == model.getnLayers();
+            this.gradientSums = new INDArray[endLayer - firstLayer];
+        }
+
+        protected void startStep(int numMicroBatches) {
+            this.numMicroBatches = numMicroBatches;
+            this.stageInputs = new INDArray[numMicroBatches];
+            this.numForward = 0;
+            this.numBackward = 0;
+            //Layers without parameters don't add gradients: clear for the stage, not for a specific layer
+            gradientVariables.clear();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Message msg;
+                try {
+                    msg = inbox.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (msg.type == Message.Type.SHUTDOWN) {
+                    return;
+                }
+
+                try {
+                    if (msg.type == Message.Type.FORWARD) {
+                        stageInputs[msg.microBatch] = msg.array;
+                        numForward++;
+                        if (!isLast) {
+                            INDArray out = forward(msg.microBatch, msg.array, endLayer, false);
+                            stages[stageIdx + 1].inbox.add(new Message(Message.Type.FORWARD, msg.microBatch, out));
+                        } else if (numForward == numMicroBatches) {
+                            //GPipe schedule: backward pass starts once all micro-batches have been received
+                            for (int m = numMicroBatches - 1; m >= 0; m--) {
+                                backward(m, null);
+                            }
+                        }
+                    } else {
+                        backward(msg.microBatch, msg.array);
+                    }
+                } catch (Throwable t) {
+                    fail(t);
+                }
+            }
+        }
+
+        /**
+         * Forward pass for layers firstLayer (inclusive) to toLayer (exclusive). Sets the input of each layer, as
+         * required for backprop
+         *
+         * @param rematerialize If true: this is the second forward pass for this micro-batch. Batch normalization
+         *                      global mean/variance estimates are restored afterwards, so they are only updated once
+         */
+        protected INDArray forward(int microBatch, INDArray input, int toLayer, boolean rematerialize) {
+            //Same RNG seed for the forward pass and re-materialization, for consistent dropout etc
+            Nd4j.getRandom().setSeed(stepSeed + 7919L * microBatch + stageIdx);
+            int mbSize = microBatchSizes[microBatch];
+            INDArray current = input;
+            for (int i = firstLayer; i < toLayer; i++) {
+                InputPreProcessor preProcessor = model.getLayerWiseConfigurations().getInputPreProcess(i);
+                if (preProcessor != null) {
+                    current = preProcessor.preProcess(current, mbSize, mgr);
+                }
+                Layer layer = model.getLayer(i);
+                layer.setInputMiniBatchSize(mbSize);
+                if (rematerialize && layer instanceof BatchNormalization) {
+                    INDArray globalMean = layer.getParam(BatchNormalizationParamInitializer.GLOBAL_MEAN);
+                    INDArray globalVar = layer.getParam(BatchNormalizationParamInitializer.GLOBAL_VAR);
+                    INDArray meanBefore = globalMean.dup();
+                    INDArray varBefore = globalVar.dup();
+                    current = layer.activate(current, true, mgr);
+                    globalMean.assign(meanBefore);
+                    globalVar.assign(varBefore);
+                } else {
+                    current = layer.activate(current, true, mgr);
+                }
+            }
+            return current;
+        }
+
+        protected void backward(int microBatch, INDArray epsilon) {
+            INDArray input = stageInputs[microBatch];
+            stageInputs[microBatch] = null;
+            int mbSize = microBatchSizes[microBatch];
+
+            //Epsilon may be null if backprop is not required below some layer (frozen layers, for example)
+            if (isLast || epsilon != null) {
+                int lastLayer = endLayer - 1;
+                if (isLast) {
+                    //The last stage doesn't do a forward pass until backprop: this is the only forward pass. Then
+                    // set the output layer input and labels
+                    INDArray outInput = forward(microBatch, input, lastLayer, false);
+                    InputPreProcessor preProcessor = model.getLayerWiseConfigurations().getInputPreProcess(lastLayer);
+                    if (preProcessor != null) {
+                        outInput = preProcessor.preProcess(outInput, mbSize, mgr);
+                    }
+                    Layer outputLayer = model.getLayer(lastLayer);
+                    outputLayer.setInputMiniBatchSize(mbSize);
+                    outputLayer.setInput(outInput, mgr);
+                    ((IOutputLayer) outputLayer).setLabels(microBatchLabels[microBatch]);
+                    outputLayer.setMaskArray(microBatchLabelsMasks[microBatch]);
+                } else {
+                    forward(microBatch, input, endLayer, true);
+                }
+
+                for (int i = lastLayer; i >= firstLayer && (epsilon != null || i == lastLayer); i--) {
+                    Layer layer = model.getLayer(i);
+                    Pair<Gradient, INDArray> p = layer.backpropGradient(epsilon, mgr);
+                    if (isLast && i == lastLayer) {
+                        double s = ((IOutputLayer) layer).computeScore(0.0, 0.0, true, mgr);
+                        microBatchScores[microBatch] = model.conf().isMiniBatch() ? s * mbSize : s;
+                    }
+                    accumulateGradient(i, p.getFirst());
+
+                    epsilon = p.getSecond();
+                    InputPreProcessor preProcessor = model.getLayerWiseConfigurations().getInputPreProcess(i);
+                    if (preProcessor != null && epsilon != null) {
+                        epsilon = preProcessor.backprop(epsilon, mbSize, mgr);
+                    }
+                }
+            }
+
+            numBackward++;
+            if (numBackward == numMicroBatches) {
+                //Place the summed gradients for all micro-batches in the network's gradient view arrays
+                for (int i = firstLayer; i < endLayer; i++) {
+                    INDArray view = model.getLayer(i).getGradientsViewArray();
+                    INDArray sum = gradientSums[i - firstLayer];
+                    if (view != null && sum != null) {
+                        view.assign(sum);
+                    }
+                }
+            }
+
+            if (stageIdx > 0) {
+                stages[stageIdx - 1].inbox.add(new Message(Message.Type.BACKWARD, microBatch, epsilon));
+            } else if (numBackward == numMicroBatches) {
+                stepLatch.countDown();
+            }
+        }
+
+        protected void accumulateGradient(int layerIdx, Gradient g) {
+            INDArray view = model.getLayer(layerIdx).getGradientsViewArray();
+            if (view == null || view.length() == 0) {
+                return;
+            }
+
+            int idx = layerIdx - firstLayer;
+            if (numBackward == 0) {
+                if (gradientSums[idx] == null || !gradientSums[idx].equalShapes(view)) {
+                    gradientSums[idx] = view.dup(view.ordering());
+                } else {
+                    gradientSums[idx].assign(view);
+                }
+                for (String name : g.gradientForVariable().keySet()) {
+                    gradientVariables.add(new Triple<>(layerIdx + "_" + name, g.getGradientFor(name),
+                                    g.flatteningOrderForVariable(name)));
+                }
+            } else {
+                gradientSums[idx].addi(view);
+            }
+        }
+    }
+
+
+    public static class Builder {
+        protected MultiLayerNetwork model;
+        protected int numStages = 2;
+        protected int numMicroBatches = 4;
+        protected int[] stageBoundaries;
+
+        /**
+         * @param model Network to train. Must be initialized
+         */
+        public Builder(@NonNull MultiLayerNetwork model) {
+            this.model = model;
+        }
+
+        /**
+         * Number of pipeline stages (threads). Layers are assigned to stages such that the number of parameters in
+         * each stage is approximately balanced. Default: 2
+         *
+         * @param numStages Number of stages, between 1 and the number of layers
+         */
+        public Builder numStages(int numStages) {
+            this.numStages = numStages;
+            return this;
+        }
+
+        /**
+         * Specify the stages explicitly, as the index of the first layer of each stage after the first. For example,
+         * stageBoundaries(2, 5) means 3 stages: layers 0 and 1, layers 2 to 4, and layers 5 onwards.
+         * Overrides {@link #numStages(int)}
+         *
+         * @param stageBoundaries First layer index of stages 1 to numStages-1
+         */
+        public Builder stageBoundaries(int... stageBoundaries) {
+            this.stageBoundaries = stageBoundaries;
+            return this;
+        }
+
+        /**
+         * Number of micro-batches each minibatch is split into. More micro-batches means more stages can work
+         * concurrently (a smaller pipeline "bubble"), at the cost of smaller matrix operations. Default: 4
+         *
+         * @param numMicroBatches Number of micro-batches per minibatch
+         */
+        public Builder numMicroBatches(int numMicroBatches) {
+            this.numMicroBatches = numMicroBatches;
+            return this;
+        }
+
+        public PipelineParallelTrainer build() {
+            return new PipelineParallelTrainer(model, numStages, numMicroBatches, stageBoundaries);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package org.deeplearning4j.parallelism;
+
+import org.deeplearning4j.datasets.iterator.ExistingDataSetIterator;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.inputs.InputType;
+import org.deeplearning4j.nn.conf.layers.BatchNormalization;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.conf.layers.SubsamplingLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.weights.WeightInit;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PipelineParallelTrainerTest {
+    private static final Logger log = LoggerFactory.getLogger(PipelineParallelTrainerTest.class);
+
+    private static MultiLayerConfiguration getDenseConf(double dropOut) {
+        return new NeuralNetConfiguration.Builder().seed(12345).updater(new Adam(0.01)).l2(1e-3)
+                        .weightInit(WeightInit.XAVIER).list()
+                        .layer(new DenseLayer.Builder().nIn(4).nOut(10).activation(Activation.TANH).build())
+                        .layer(new DenseLayer.Builder().nIn(10).nOut(20).activation(Activation.TANH)
+                                        .dropOut(dropOut).build())
+                        .layer(new DenseLayer.Builder().nIn(20).nOut(10).activation(Activation.TANH).build())
+                        .layer(new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT).nIn(10).nOut(3)
+                                        .activation(Activation.SOFTMAX).build())
+                        .build();
+    }
+
+    private static DataSet getData(int minibatch, int nIn, int nOut) {
+        INDArray features = Nd4j.rand(minibatch, nIn);
+        INDArray labels = Nd4j.create(minibatch, nOut);
+        for (int i = 0; i < minibatch; i++) {
+            labels.putScalar(i, i % nOut, 1.0);
+        }
+        return new DataSet(features, labels);
+    }
+
+    @Test
+    public void testEquivalentToSingleThreadedFit() {
+        //Without dropout etc, pipeline training should give the same result as standard training
+        Nd4j.getRandom().setSeed(12345);
+        List<DataSet> data = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            data.add(getData(10, 4, 3));
+        }
+
+        MultiLayerNetwork expected = new MultiLayerNetwork(getDenseConf(0.0));
+        expected.init();
+        INDArray initialParams = expected.params().dup();
+        for (DataSet ds : data) {
+            expected.fit(ds);
+        }
+
+        for (int numStages : new int[] {1, 2, 4}) {
+            for (int numMicroBatches : new int[] {1, 3, 10}) {
+                String msg = "stages=" + numStages + ", microBatches=" + numMicroBatches;
+                log.info("Testing: {}", msg);
+
+                MultiLayerNetwork net = new MultiLayerNetwork(getDenseConf(0.0));
+                net.init(initialParams.dup(), false);
+
+                try (PipelineParallelTrainer trainer = new PipelineParallelTrainer.Builder(net).numStages(numStages)
+                                .numMicroBatches(numMicroBatches).build()) {
+                    assertEquals(numStages, trainer.getNumStages());
+                    for (DataSet ds : data) {
+                        trainer.fit(ds);
+                    }
+                }
+
+                assertEquals(msg, expected.score(), net.score(), 1e-5);
+                assertEquals(msg, 3, net.getIterationCount());
+                assertTrue(msg, expected.params().equalsWithEps(net.params(), 1e-5));
+                assertTrue(msg, expected.getUpdater().getStateViewArray()
+                                .equalsWithEps(net.getUpdater().getStateViewArray(), 1e-5));
+            }
+        }
+    }
+
+    @Test
+    public void testCnnWithPreprocessors() {
+        Nd4j.getRandom().setSeed(12345);
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345).updater(new Adam(0.01))
+                        .weightInit(WeightInit.XAVIER).list()
+                        .layer(new ConvolutionLayer.Builder(3, 3).nOut(4).activation(Activation.RELU).build())
+                        .layer(new SubsamplingLayer.Builder().kernelSize(2, 2).stride(2, 2).build())
+                        .layer(new DenseLayer.Builder().nOut(8).activation(Activation.TANH).build())
+                        .layer(new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT).nOut(3)
+                                        .activation(Activation.SOFTMAX).build())
+                        .setInputType(InputType.convolutionalFlat(8, 8, 1)).build();
+
+        MultiLayerNetwork expected = new MultiLayerNetwork(conf);
+        expected.init();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf.clone());
+        net.init(expected.params().dup(), false);
+
+        DataSet ds = getData(8, 64, 3);
+        expected.fit(ds);
+        expected.fit(ds);
+
+        //Preprocessors: within stage 0 (layer 0, flat to CNN) and at the start of stage 1 (layer 2, CNN to FF)
+        try (PipelineParallelTrainer trainer = new PipelineParallelTrainer.Builder(net).stageBoundaries(2, 3)
+                        .numMicroBatches(4).build()) {
+            assertArrayEquals(new int[] {0, 2, 3}, trainer.getStageBoundaries());
+            trainer.fit(ds);
+            trainer.fit(ds);
+
+            //Stage 0 ends in a layer without parameters: gradients must not accumulate across steps
+            for (int i = 0; i < 3; i++) {
+                int numGradients = 0;
+                for (PipelineParallelTrainer.Stage s : trainer.stages) {
+                    numGradients += s.gradientVariables.size();
+                }
+                assertEquals(6, numGradients);
+                assertEquals(2, trainer.stages[0].gradientVariables.size());
+                expected.fit(ds);
+                trainer.fit(ds);
+            }
+        }
+
+        assertEquals(expected.score(), net.score(), 1e-5);
+        assertTrue(expected.params().equalsWithEps(net.params(), 1e-5));
+    }
+
+    @Test
+    public void testBatchNormGlobalStats() {
+        //Re-materialization should not update the batch norm global mean/variance a second time: with one micro-batch,
+        // results (including the global mean/variance estimates) are the same as for standard training
+        Nd4j.getRandom().setSeed(12345);
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345).updater(new Adam(0.01))
+                        .weightInit(WeightInit.XAVIER).list()
+                        .layer(new DenseLayer.Builder().nIn(4).nOut(6).activation(Activation.TANH).build())
+                        .layer(new BatchNormalization.Builder().decay(0.5).build())
+                        .layer(new DenseLayer.Builder().nOut(6).activation(Activation.TANH).build())
+                        .layer(new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT).nOut(3)
+                                        .activation(Activation.SOFTMAX).build())
+                        .setInputType(InputType.feedForward(4)).build();
+
+        MultiLayerNetwork expected = new MultiLayerNetwork(conf);
+        expected.init();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf.clone());
+        net.init(expected.params().dup(), false);
+
+        DataSet ds = getData(8, 4, 3);
+        expected.fit(ds);
+        expected.fit(ds);
+
+        //Batch norm layer is in the first stage: forward pass, then re-materialization before backprop
+        try (PipelineParallelTrainer trainer = new PipelineParallelTrainer.Builder(net).stageBoundaries(2)
+                        .numMicroBatches(1).build()) {
+            trainer.fit(ds);
+            trainer.fit(ds);
+        }
+
+        assertEquals(expected.getLayer(1).getParam("mean"), net.getLayer(1).getParam("mean"));
+        assertEquals(expected.getLayer(1).getParam("var"), net.getLayer(1).getParam("var"));
+        assertTrue(expected.params().equalsWithEps(net.params(), 1e-5));
+    }
+
+    @Test
+    public void testBalancedStages() {
+        MultiLayerNetwork net = new MultiLayerNetwork(getDenseConf(0.0));
+        net.init();
+        //Parameters per layer (+1): 51, 221, 211, 34
+        assertArrayEquals(new int[] {0, 4},
+                        PipelineParallelTrainer.balancedStageStarts(net.getLayers(), 1));
+        assertArrayEquals(new int[] {0, 2, 4},
+                        PipelineParallelTrainer.balancedStageStarts(net.getLayers(), 2));
+        assertArrayEquals(new int[] {0, 1, 2, 4},
+                        PipelineParallelTrainer.balancedStageStarts(net.getLayers(), 3));
+        assertArrayEquals(new int[] {0, 1, 2, 3, 4},
+                        PipelineParallelTrainer.balancedStageStarts(net.getLayers(), 4));
+
+        try {
+            new PipelineParallelTrainer.Builder(net).numStages(5).build();
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            //OK
+        }
+        try {
+            new PipelineParallelTrainer.Builder(net).stageBoundaries(2, 2).build();
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            //OK
+        }
+    }
+
+    @Test
+    public void testTrainingWithDropout() {
+        Nd4j.getRandom().setSeed(12345);
+        MultiLayerNetwork net = new MultiLayerNetwork(getDenseConf(0.8));
+        net.init();
+
+        List<DataSet> data = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            data.add(getData(16, 4, 3));
+        }
+        DataSet all = DataSet.merge(data);
+        double scoreBefore = net.score(all);
+
+        try (PipelineParallelTrainer trainer = new PipelineParallelTrainer.Builder(net).numStages(3)
+                        .numMicroBatches(4).build()) {
+            for (int epoch = 0; epoch < 20; epoch++) {
+                trainer.fit(new ExistingDataSetIterator(data));
+            }
+        }
+
+        double scoreAfter = net.score(all);
+        assertEquals(20, net.getEpochCount());
+        assertEquals(80, net.getIterationCount());
+        assertTrue(scoreBefore + " vs. " + scoreAfter, scoreAfter < scoreBefore);
+    }
+}
@@ -4,7 +4,7 @@ import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.deeplearning4j.exception.DL4JInvalidConfigException;
 import org.deeplearning4j.optimize.api.StepFunction;
-import org.deeplearning4j.optimize.solvers.accumulation.FancyBlockingQueue;
+import org.deeplearning4j.optimize.solvers.accumulation.BroadcastRingBuffer;
 import org.deeplearning4j.optimize.solvers.accumulation.GradientsAccumulator;
 import org.deeplearning4j.spark.parameterserver.networking.messages.SilentUpdatesMessage;
 import org.nd4j.linalg.api.memory.MemoryWorkspace;
@@ -19,7 +19,6 @@ import org.nd4j.parameterserver.distributed.training.TrainingDriver;
 import org.nd4j.parameterserver.distributed.transport.Transport;
 
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -63,9 +62,9 @@ public class SilentTrainingDriver implements TrainingDriver<SilentUpdatesMessage
         this.updatesCount = new AtomicLong(0);
 
         // TODO: make this configurable
-        this.updatesBuffer = new FancyBlockingQueue<>(new LinkedBlockingQueue<>(1024));
+        this.updatesBuffer = new BroadcastRingBuffer<>(1024);
 
-        // FBQ will guarantee that all workers using given queue will be applying the same updates in the same order
+        // the ring buffer guarantees that all workers using given queue will be applying the same updates in the same order
         this.accumulator.setExternalSource(updatesBuffer);
     }
 
@@ -115,7 +114,7 @@ public class SilentTrainingDriver implements TrainingDriver<SilentUpdatesMessage
             1) silently update params via given StepFunction
             2) propagate this message to everyone
         
-            on workers, it just enqueues updates into the FancyBlockingQueue
+            on workers, it just enqueues updates into the BroadcastRingBuffer
          */
         // if accumulator is defined, we're working at Worker level, so it's not our problem what happens inside
         if (accumulator != null) {
@@ -4,6 +4,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.spark.TaskContext;
 import org.apache.spark.TaskContextHelper;
 import org.deeplearning4j.datasets.iterator.AsyncDataSetIterator;
+import org.deeplearning4j.datasets.iterator.AsyncPrefetchStats;
 import org.deeplearning4j.datasets.iterator.callbacks.DataSetCallback;
 import org.deeplearning4j.datasets.iterator.callbacks.DefaultCallback;
 import org.nd4j.linalg.api.memory.MemoryWorkspace;
@@ -73,6 +74,7 @@ public class SparkADSI extends AsyncDataSetIterator {
         this.useWorkspace = useWorkspace;
         this.buffer = queue;
         this.prefetchSize = queueSize;
+        this.stats = new AsyncPrefetchStats(queueSize);
         this.backedIterator = iterator;
         this.workspaceId = "SADSI_ITER-" + java.util.UUID.randomUUID().toString();
 
@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.spark.TaskContext;
 import org.apache.spark.TaskContextHelper;
 import org.deeplearning4j.datasets.iterator.AsyncMultiDataSetIterator;
+import org.deeplearning4j.datasets.iterator.AsyncPrefetchStats;
 import org.deeplearning4j.datasets.iterator.callbacks.DataSetCallback;
 import org.deeplearning4j.datasets.iterator.callbacks.DefaultCallback;
 import org.nd4j.linalg.dataset.api.MultiDataSet;
@@ -75,6 +76,7 @@ public class SparkAMDSI extends AsyncMultiDataSetIterator {
         this.backedIterator = iterator;
         this.useWorkspaces = useWorkspace;
         this.prefetchSize = queueSize;
+        this.stats = new AsyncPrefetchStats(queueSize);
         this.workspaceId = "SAMDSI_ITER-" + java.util.UUID.randomUUID().toString();
         this.deviceId = deviceId;
 
@@ -0,0 +1,30 @@
+package org.nd4j.autodiff.listeners;
+
+import org.nd4j.autodiff.functions.DifferentialFunction;
+import org.nd4j.autodiff.samediff.SameDiff;
+
+/**
+ * A listener that is notified before and after each op is executed by {@link SameDiff}.<br>
+ * Listeners are registered using {@link SameDiff#addListener(OpExecutionListener)}. They are called on the thread
+ * executing the graph, and may be called concurrently when the same listener is used by several
+ * {@link org.nd4j.autodiff.samediff.InferenceSession}s.
+ */
+public interface OpExecutionListener {
+
+    /**
+     * Called immediately before the inputs and outputs of the function are resolved and the function is executed
+     *
+     * @param sameDiff SameDiff instance executing the function
+     * @param function The function about to be executed
+     */
+    void preOpExecution(SameDiff sameDiff, DifferentialFunction function);
+
+    /**
+     * Called immediately after the function has been executed
+     *
+     * @param sameDiff SameDiff instance that executed the function
+     * @param function The function that was executed
+     */
+    void postOpExecution(SameDiff sameDiff, DifferentialFunction function);
+
+}
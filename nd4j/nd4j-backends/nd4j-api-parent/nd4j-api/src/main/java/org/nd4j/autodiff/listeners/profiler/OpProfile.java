@@ -0,0 +1,42 @@
+package org.nd4j.autodiff.listeners.profiler;
+
+import lombok.Data;
+
+/**
+ * Aggregated execution statistics for a single function (node) of a SameDiff graph,
+ * as collected by {@link ProfilingListener}
+ */
+@Data
+public class OpProfile {
+    private final String name;
+    private final String opName;
+    private final String className;
+    private long count;
+    private long totalNanos;
+    private long minNanos = Long.MAX_VALUE;
+    private long maxNanos;
+    private long totalOutputBytes;
+    private long allocations;
+
+    public OpProfile(String name, String opName, String className) {
+        this.name = name;
+        this.opName = opName;
+        this.className = className;
+    }
+
+    protected void record(long nanos, long outputBytes, int allocations) {
+        count++;
+        totalNanos += nanos;
+        minNanos = Math.min(minNanos, nanos);
+        maxNanos = Math.max(maxNanos, nanos);
+        totalOutputBytes += outputBytes;
+        this.allocations += allocations;
+    }
+
+    /**
+     * @return Mean execution time in nanoseconds, or 0 if the function was not executed
+     */
+    public double getMeanNanos() {
+        return count == 0 ? 0.0 : totalNanos / (double) count;
+    }
+}
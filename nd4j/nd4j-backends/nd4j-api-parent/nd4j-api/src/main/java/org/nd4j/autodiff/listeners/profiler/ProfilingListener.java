@@ -0,0 +1,246 @@
+package org.nd4j.autodiff.listeners.profiler;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.nd4j.autodiff.functions.DifferentialFunction;
+import org.nd4j.autodiff.listeners.OpExecutionListener;
+import org.nd4j.autodiff.samediff.SameDiff;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.shade.jackson.core.JsonProcessingException;
+import org.nd4j.shade.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * A {@link OpExecutionListener} that records, for every function (node) of a SameDiff graph, the wall clock
+ * execution time, the size of the output arrays and the number of output arrays allocated during execution.<br>
+ * Statistics are aggregated across executions (and across threads, when the listener is shared between
+ * inference sessions). They can be reported as a table of the most expensive nodes ({@link #summary(int)}), or
+ * exported in the Chrome trace event format ({@link #exportChromeTrace(File)}), which can be opened with
+ * chrome://tracing or other trace viewers.<br>
+ * <br>
+ * Usage:
+ * <pre>
+ * {@code
+ * ProfilingListener profiler = new ProfilingListener();
+ * sameDiff.addListener(profiler);
+ * sameDiff.execAndEndResult();
+ * System.out.println(profiler.summary(20));
+ * profiler.exportChromeTrace(new File("trace.json"));
+ * }
+ * </pre>
+ */
+@Slf4j
+public class ProfilingListener implements OpExecutionListener {
+
+    public static final int DEFAULT_MAX_TRACE_EVENTS = 100000;
+
+    private final int maxTraceEvents;
+    private final long startNanos = System.nanoTime();
+    private final Map<String, OpProfile> profiles = new LinkedHashMap<>();
+    private final List<TraceEvent> events = new ArrayList<>();
+    private final ThreadLocal<Pending> pending = new ThreadLocal<>();
+    private long droppedEvents;
+
+    public ProfilingListener() {
+        this(DEFAULT_MAX_TRACE_EVENTS);
+    }
+
+    /**
+     * @param maxTraceEvents Maximum number of individual executions to keep for the Chrome trace. Aggregated
+     *                       statistics are always recorded. Set to 0 to disable trace collection
+     */
+    public ProfilingListener(int maxTraceEvents) {
+        this.maxTraceEvents = maxTraceEvents;
+    }
+
+    @Override
+    public void preOpExecution(SameDiff sameDiff, DifferentialFunction function) {
+        String[] outputs = sameDiff.getOutputsForFunction(function);
+        boolean[] hadArray = new boolean[outputs == null ? 0 : outputs.length];
+        for (int i = 0; i < hadArray.length; i++) {
+            hadArray[i] = sameDiff.getArrForVarName(outputs[i]) != null;
+        }
+
+        Pending p = new Pending();
+        p.hadArray = hadArray;
+        p.start = System.nanoTime();
+        pending.set(p);
+    }
+
+    @Override
+    public void postOpExecution(SameDiff sameDiff, DifferentialFunction function) {
+        long end = System.nanoTime();
+        Pending p = pending.get();
+        if (p == null)
+            return;
+        pending.remove();
+
+        String[] outputs = sameDiff.getOutputsForFunction(function);
+        long bytes = 0;
+        int allocations = 0;
+        if (outputs != null) {
+            for (int i = 0; i < outputs.length; i++) {
+                INDArray arr = sameDiff.getArrForVarName(outputs[i]);
+                if (arr == null)
+                    continue;
+                bytes += arr.length() * arr.data().getElementSize();
+                if (i >= p.hadArray.length || !p.hadArray[i])
+                    allocations++;
+            }
+        }
+
+        String name = function.getOwnName();
+        long duration = end - p.start;
+        synchronized (this) {
+            OpProfile profile = profiles.get(name);
+            if (profile == null) {
+                profile = new OpProfile(name, function.opName(), function.getClass().getSimpleName());
+                profiles.put(name, profile);
+            }
+            profile.record(duration, bytes, allocations);
+
+            if (events.size() < maxTraceEvents) {
+                events.add(new TraceEvent(name, function.opName(), p.start - startNanos, duration,
+                        Thread.currentThread().getId(), bytes));
+            } else {
+                droppedEvents++;
+            }
+        }
+    }
+
+    /**
+     * Clear all recorded statistics and trace events
+     */
+    public synchronized void reset() {
+        profiles.clear();
+        events.clear();
+        droppedEvents = 0;
+    }
+
+    /**
+     * @return Aggregated statistics for all functions, in order of first execution
+     */
+    public synchronized List<OpProfile> getProfiles() {
+        return new ArrayList<>(profiles.values());
+    }
+
+    /**
+     * @return Aggregated statistics for the given function, or null if it has not been executed
+     */
+    public synchronized OpProfile getProfile(String functionName) {
+        return profiles.get(functionName);
+    }
+
+    /**
+     * @param n Maximum number of entries to return
+     * @return Statistics for the n functions with the largest total execution time, in descending order
+     */
+    public synchronized List<OpProfile> topN(int n) {
+        List<OpProfile> list = new ArrayList<>(profiles.values());
+        Collections.sort(list, new Comparator<OpProfile>() {
+            @Override
+            public int compare(OpProfile o1, OpProfile o2) {
+                return Long.compare(o2.getTotalNanos(), o1.getTotalNanos());
+            }
+        });
+        return list.subList(0, Math.min(n, list.size()));
+    }
+
+    /**
+     * @param n Number of functions to include
+     * @return A table of the n functions with the largest total execution time
+     */
+    public synchronized String summary(int n) {
+        long total = 0;
+        for (OpProfile p : profiles.values()) {
+            total += p.getTotalNanos();
+        }
+
+        String format = "%-40s %-24s %10s %14s %14s %8s %16s %10s%n";
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(format, "Name", "Op", "Count", "Total (ms)", "Mean (us)", "% Time",
+                "Output bytes", "Allocs"));
+        for (OpProfile p : topN(n)) {
+            double pc = total == 0 ? 0.0 : 100.0 * p.getTotalNanos() / total;
+            sb.append(String.format(format, truncate(p.getName(), 40), truncate(p.getOpName(), 24), p.getCount(),
+                    String.format("%.3f", p.getTotalNanos() / 1e6), String.format("%.1f", p.getMeanNanos() / 1e3),
+                    String.format("%.2f", pc), p.getTotalOutputBytes(), p.getAllocations()));
+        }
+        sb.append(String.format("Total: %d functions, %.3f ms%n", profiles.size(), total / 1e6));
+        if (droppedEvents > 0) {
+            sb.append("Trace events dropped (limit reached): ").append(droppedEvents).append("\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return The recorded executions, in the Chrome trace event JSON format
+     */
+    public synchronized String toChromeTrace() {
+        List<Map<String, Object>> traceEvents = new ArrayList<>(events.size());
+        for (TraceEvent e : events) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("name", e.name);
+            m.put("cat", e.opName);
+            m.put("ph", "X");
+            m.put("ts", e.startNanos / 1000.0);
+            m.put("dur", e.durationNanos / 1000.0);
+            m.put("pid", 0);
+            m.put("tid", e.threadId);
+            m.put("args", Collections.singletonMap("outputBytes", e.outputBytes));
+            traceEvents.add(m);
+        }
+
+        Map<String, Object> trace = new LinkedHashMap<>();
+        trace.put("traceEvents", traceEvents);
+        trace.put("displayTimeUnit", "ms");
+        try {
+            return new ObjectMapper().writeValueAsString(trace);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error converting trace events to JSON", e);
+        }
+    }
+
+    /**
+     * Write the recorded executions to the specified file, in the Chrome trace event JSON format
+     *
+     * @param file File to write to
+     */
+    public void exportChromeTrace(@NonNull File file) throws IOException {
+        FileUtils.writeStringToFile(file, toChromeTrace(), StandardCharsets.UTF_8);
+    }
+
+    private static String truncate(String s, int length) {
+        if (s == null)
+            return "";
+        return s.length() <= length ? s : s.substring(0, length - 3) + "...";
+    }
+
+    private static class Pending {
+        private long start;
+        private boolean[] hadArray;
+    }
+
+    private static class TraceEvent {
+        private final String name;
+        private final String opName;
+        private final long startNanos;
+        private final long durationNanos;
+        private final long threadId;
+        private final long outputBytes;
+
+        private TraceEvent(String name, String opName, long startNanos, long durationNanos, long threadId, long outputBytes) {
+            this.name = name;
+            this.opName = opName;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+            this.threadId = threadId;
+            this.outputBytes = outputBytes;
+        }
+    }
+}
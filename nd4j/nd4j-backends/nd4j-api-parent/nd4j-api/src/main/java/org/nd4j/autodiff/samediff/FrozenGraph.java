@@ -0,0 +1,148 @@
+package org.nd4j.autodiff.samediff;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.*;
+
+/**
+ * A read-only view of a {@link SameDiff} graph, for serving inference from many threads.<br>
+ * The arrays of variables that are not the output of any function (weights and constants) are shared by
+ * reference between the original graph and all sessions: only a single copy of the parameters is held in memory.
+ * Each thread executes in its own {@link InferenceSession}, which holds a structural copy of the graph and
+ * its own intermediate (activation) arrays.<br>
+ * <br>
+ * Usage:
+ * <pre>
+ * {@code
+ * FrozenGraph frozen = sameDiff.freeze();
+ * //From any thread:
+ * Map<String,INDArray> out = frozen.output(Collections.singletonMap("input", features), "output");
+ * //When no longer needed:
+ * frozen.close();
+ * }
+ * </pre>
+ * The per-thread sessions are tracked by the frozen graph: a session is released when its thread terminates, or when
+ * {@link #close()} is called. Instances are created using {@link SameDiff#freeze()}.
+ */
+@Slf4j
+public class FrozenGraph implements AutoCloseable {
+
+    private final SameDiff template;
+    private final List<INDArray> sharedArrays;
+    private final Set<String> sharedVariables;
+    //Weak keys: the session of a thread is released when the thread terminates
+    private final Map<Thread, InferenceSession> sessions = new WeakHashMap<>();
+
+    protected FrozenGraph(@NonNull SameDiff sameDiff) {
+        sharedArrays = new ArrayList<>();
+        Set<String> names = new LinkedHashSet<>();
+        for (SDVariable v : sameDiff.variables()) {
+            String name = v.getVarName();
+            if (sameDiff.getVariableOutputFunction(name) != null || sameDiff.isPlaceHolder(name))
+                continue;
+            INDArray arr = sameDiff.getArrForVarName(name);
+            if (arr != null) {
+                sharedArrays.add(arr);
+                names.add(name);
+            }
+        }
+        sharedVariables = Collections.unmodifiableSet(names);
+        template = sameDiff.cloneForInference(sharedArrays);
+
+        if (log.isDebugEnabled()) {
+            log.debug("Froze graph with {} functions and {} shared variables", template.functions().length, sharedVariables.size());
+        }
+    }
+
+    /**
+     * @return Names of the variables whose arrays are shared between all sessions
+     */
+    public Set<String> sharedVariables() {
+        return sharedVariables;
+    }
+
+    /**
+     * Create a new session. Sessions are not thread safe: each session must only be used by one thread at a time.
+     * Prefer {@link #session()} or {@link #output(Map, String...)}, which manage one session per thread.
+     * Sessions created with this method are not tracked: use {@link InferenceSession#close()} to release them.
+     *
+     * @return A new inference session for this graph
+     */
+    public InferenceSession newSession() {
+        return new InferenceSession(this);
+    }
+
+    /**
+     * @return The inference session associated with the current thread - created on first use
+     */
+    public InferenceSession session() {
+        Thread t = Thread.currentThread();
+        synchronized (sessions) {
+            InferenceSession s = sessions.get(t);
+            if (s == null) {
+                s = newSession();
+                sessions.put(t, s);
+            }
+            return s;
+        }
+    }
+
+    /**
+     * @return Number of per-thread sessions currently held by this frozen graph
+     */
+    public int numSessions() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+
+    /**
+     * Release the session of the current thread (if any) - for example, before returning a thread to a pool.
+     * A new session is created if the current thread is used for inference again.
+     */
+    public void releaseSession() {
+        InferenceSession s;
+        synchronized (sessions) {
+            s = sessions.remove(Thread.currentThread());
+        }
+        if (s != null) {
+            s.close();
+        }
+    }
+
+    /**
+     * Release the sessions of all threads, and their activation arrays. Must not be called while inference is in
+     * progress. The frozen graph may still be used after it has been closed: new sessions are created on first use.
+     */
+    @Override
+    public void close() {
+        List<InferenceSession> toClose;
+        synchronized (sessions) {
+            toClose = new ArrayList<>(sessions.values());
+            sessions.clear();
+        }
+        for (InferenceSession s : toClose) {
+            s.close();
+        }
+    }
+
+    /**
+     * Execute the graph using the current thread's session. This method is thread safe.
+     *
+     * @param placeholders Arrays for the placeholder variables. May be empty if the graph has no placeholders
+     * @param outputs      Names of the variables to return
+     * @return Map of output variable name to (detached) output array
+     */
+    public Map<String, INDArray> output(@NonNull Map<String, INDArray> placeholders, @NonNull String... outputs) {
+        return session().output(placeholders, outputs);
+    }
+
+    /**
+     * Create a new SameDiff instance for a session: a structural copy of the frozen graph sharing the variable arrays
+     */
+    protected SameDiff instantiate() {
+        return template.cloneForInference(sharedArrays);
+    }
+}
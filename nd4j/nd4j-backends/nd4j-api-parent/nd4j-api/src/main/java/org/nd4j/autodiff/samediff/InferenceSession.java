@@ -0,0 +1,95 @@
+package org.nd4j.autodiff.samediff;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.exception.ND4JIllegalStateException;
+
+import java.util.*;
+
+/**
+ * An execution session for a {@link FrozenGraph}.<br>
+ * A session holds a structural copy of the frozen graph: variable arrays are shared with the frozen graph,
+ * while activation arrays belong to the session and are reused between calls with the same placeholder shapes.
+ * When the placeholder shapes change (for example, a different minibatch size), the activation arrays and shapes are
+ * cleared and recalculated on the next execution; the structural copy itself is only created once per session.<br>
+ * Sessions are not thread safe; use {@link FrozenGraph#session()} to get the session for the current thread.
+ */
+public class InferenceSession implements AutoCloseable {
+
+    private final FrozenGraph frozenGraph;
+    @Getter
+    private SameDiff sameDiff;
+    private Map<String, long[]> lastShapes;
+
+    protected InferenceSession(@NonNull FrozenGraph frozenGraph) {
+        this.frozenGraph = frozenGraph;
+    }
+
+    /**
+     * Execute the graph.
+     *
+     * @param placeholders Arrays for the placeholder variables. May be empty if the graph has no placeholders
+     * @param outputs      Names of the variables to return
+     * @return Map of output variable name to output array. Returned arrays are detached copies, and remain valid
+     * after subsequent calls
+     */
+    public Map<String, INDArray> output(@NonNull Map<String, INDArray> placeholders, @NonNull String... outputs) {
+        if (outputs.length == 0) {
+            throw new ND4JIllegalStateException("No outputs were specified");
+        }
+
+        Map<String, long[]> shapes = new HashMap<>();
+        for (Map.Entry<String, INDArray> e : placeholders.entrySet()) {
+            shapes.put(e.getKey(), e.getValue().shape());
+        }
+
+        if (sameDiff == null) {
+            sameDiff = frozenGraph.instantiate();
+            lastShapes = shapes;
+        } else if (!sameShapes(shapes)) {
+            //Activation shapes are derived from placeholder shapes: recalculate them
+            sameDiff.clearPlaceholderDependentState();
+            lastShapes = shapes;
+        }
+
+        for (String s : outputs) {
+            if (!sameDiff.variableMap().containsKey(s)) {
+                throw new ND4JIllegalStateException("Cannot get output \"" + s + "\": no variable with this name exists");
+            }
+        }
+
+        sameDiff.resolveVariablesWith(placeholders);
+        sameDiff.exec();
+
+        Map<String, INDArray> ret = new LinkedHashMap<>();
+        for (String s : outputs) {
+            INDArray arr = sameDiff.getArrForVarName(s);
+            if (arr == null) {
+                throw new ND4JIllegalStateException("No array was produced for output \"" + s + "\"");
+            }
+            ret.put(s, arr.dup());
+        }
+        return ret;
+    }
+
+    /**
+     * Release the structural copy of the graph and the activation arrays. The session may still be used after it has
+     * been closed: the copy is created again on the next execution.
+     */
+    @Override
+    public void close() {
+        sameDiff = null;
+        lastShapes = null;
+    }
+
+    private boolean sameShapes(Map<String, long[]> shapes) {
+        if (lastShapes == null || !lastShapes.keySet().equals(shapes.keySet()))
+            return false;
+        for (Map.Entry<String, long[]> e : shapes.entrySet()) {
+            if (!Arrays.equals(e.getValue(), lastShapes.get(e.getKey())))
+                return false;
+        }
+        return true;
+    }
+}
@@ -15,6 +15,10 @@ import org.nd4j.autodiff.execution.conf.OutputMode;
 import org.nd4j.autodiff.functions.DifferentialFunction;
 import org.nd4j.autodiff.functions.DifferentialFunctionFactory;
 import org.nd4j.autodiff.functions.FunctionProperties;
+import org.nd4j.autodiff.listeners.OpExecutionListener;
+import org.nd4j.autodiff.samediff.amp.LossScaler;
+import org.nd4j.autodiff.samediff.amp.MixedPrecisionConfig;
+import org.nd4j.autodiff.samediff.checkpoint.CheckpointPlan;
 import org.nd4j.autodiff.samediff.flow.FlowPath;
 import org.nd4j.autodiff.util.cloner.DataBufferFastCloner;
 import org.nd4j.autodiff.util.cloner.INDArrayFastCloner;
@@ -175,6 +179,25 @@ public class SameDiff {
     private Map<int[], Op> opsForResult;
     private boolean resolvedVariables = false;
 
+    //gradient checkpointing (rematerialization) variables
+    @Getter
+    private boolean gradientCheckpointing;
+    private Set<String> checkpointVariables;
+    @Getter
+    private transient CheckpointPlan checkpointPlan;
+
+    //listeners notified before and after each function is executed
+    private List<OpExecutionListener> listeners;
+
+    //automatic mixed precision variables
+    @Getter
+    private MixedPrecisionConfig mixedPrecisionConfig;
+    @Getter
+    private LossScaler lossScaler;
+    private transient Set<String> halfPrecisionVars;
+    private transient Map<String, INDArray> halfPrecisionStore;
+    private static final String HALF_PRECISION_CODEC = "FLOAT16";
+
 
     @Getter
     @Setter
@@ -351,6 +374,193 @@ public class SameDiff {
         return this;
     }
 
+    /**
+     * Enables gradient checkpointing (rematerialization) for {@link #execBackwards()}.<br>
+     * When enabled, intermediate activations are released during the forward part of the backward
+     * function as soon as they are no longer needed by the forward pass, and are recomputed from the
+     * nearest retained ancestor when a gradient op requires them. Variables marked using
+     * {@link #markAsCheckpoint(String...)}, trainable variables and placeholders are always retained.<br>
+     * This trades extra computation for a lower peak memory use on deep graphs. Note that released
+     * activations are not available via {@link #getArrForVarName(String)} after execution.
+     */
+    public SameDiff enableGradientCheckpointing() {
+        gradientCheckpointing = true;
+        return this;
+    }
+
+    /**
+     * Disables gradient checkpointing: all activations are retained during {@link #execBackwards()}
+     */
+    public SameDiff disableGradientCheckpointing() {
+        gradientCheckpointing = false;
+        return this;
+    }
+
+    /**
+     * Mark the specified variables as checkpoints: when gradient checkpointing is enabled,
+     * these activations are retained during the forward pass, and recomputation of released
+     * activations starts from them.
+     *
+     * @param varNames Names of the variables to mark as checkpoints
+     */
+    public SameDiff markAsCheckpoint(String... varNames) {
+        for (String s : varNames) {
+            if (!variableMap.containsKey(s)) {
+                throw new ND4JIllegalStateException("Cannot mark variable \"" + s + "\" as a checkpoint: no variable with this name exists");
+            }
+            checkpointVariables.add(s);
+        }
+        return this;
+    }
+
+    /**
+     * See {@link #markAsCheckpoint(String...)}
+     */
+    public SameDiff markAsCheckpoint(SDVariable... variables) {
+        for (SDVariable v : variables) {
+            markAsCheckpoint(v.getVarName());
+        }
+        return this;
+    }
+
+    /**
+     * @return Names of the variables marked as checkpoints for gradient checkpointing
+     */
+    public Set<String> getCheckpointVariables() {
+        return Collections.unmodifiableSet(checkpointVariables);
+    }
+
+    /**
+     * Enable automatic mixed precision with the default configuration.
+     * See {@link #enableMixedPrecision(MixedPrecisionConfig)}
+     */
+    public SameDiff enableMixedPrecision() {
+        return enableMixedPrecision(MixedPrecisionConfig.builder().build());
+    }
+
+    /**
+     * Enable automatic mixed precision (AMP).<br>
+     * Ops in the allow list of the configuration - and ops downstream of them, unless in the deny list - produce
+     * half precision outputs, while variables are kept in full precision. When executing the backward function,
+     * the loss gradient is scaled by the current loss scale of {@link #getLossScaler()}, and the gradients of
+     * variables and placeholders are unscaled after execution. If they overflow, the gradients are set to zero
+     * (the step should be skipped - see {@link LossScaler#isLastStepSkipped()}) and the loss scale is reduced.<br>
+     * <br>
+     * Note that ops are executed by the native backend in the global data type ({@link Nd4j#dataType()}):
+     * half precision results are obtained by converting the op outputs to FLOAT16 and back (using the FLOAT16
+     * compression codec, which is also available on CPU). When enabled in
+     * the configuration, half precision activations needed for backprop are held as HALF arrays between the
+     * forward and backward passes, halving their memory use. Half precision activations that are not needed by
+     * the backward pass are not available after execution of the backward function.
+     *
+     * @param config Mixed precision configuration
+     */
+    public SameDiff enableMixedPrecision(@NonNull MixedPrecisionConfig config) {
+        this.mixedPrecisionConfig = config;
+        this.lossScaler = new LossScaler(config);
+        return this;
+    }
+
+    /**
+     * Disable automatic mixed precision
+     */
+    public void disableMixedPrecision() {
+        this.mixedPrecisionConfig = null;
+        this.lossScaler = null;
+    }
+
+    /**
+     * @return True if automatic mixed precision is enabled
+     */
+    public boolean isMixedPrecision() {
+        return mixedPrecisionConfig != null;
+    }
+
+    /**
+     * Add a listener, to be notified before and after each function is executed.
+     * Listeners are also used for the backward pass, and by the sessions of a {@link FrozenGraph}
+     * created from this instance.
+     *
+     * @param listener Listener to add
+     */
+    public SameDiff addListener(@NonNull OpExecutionListener listener) {
+        if (listeners == null)
+            listeners = new ArrayList<>();
+        listeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Remove a listener previously added with {@link #addListener(OpExecutionListener)}
+     *
+     * @param listener Listener to remove
+     * @return True if the listener was removed
+     */
+    public boolean removeListener(OpExecutionListener listener) {
+        return listeners != null && listeners.remove(listener);
+    }
+
+    /**
+     * @return The listeners for this instance
+     */
+    public List<OpExecutionListener> getListeners() {
+        if (listeners == null)
+            return Collections.emptyList();
+        return Collections.unmodifiableList(listeners);
+    }
+
+    /**
+     * Select and mark checkpoints automatically, based on activation sizes.<br>
+     * The forward activations are split into approximately sqrt(N) segments of similar total size
+     * (in bytes), and the last activation of each segment is marked as a checkpoint. This bounds
+     * both the retained and the recomputed memory to O(sqrt(N)) activations.<br>
+     * Activation shapes should be known (for example, by executing the graph once with {@link #exec()});
+     * if no shape is available, each activation is considered to be of equal size.
+     *
+     * @return Names of the variables that were marked as checkpoints
+     */
+    public List<String> markCheckpointsBySize() {
+        List<String> names = new ArrayList<>();
+        List<Long> sizes = new ArrayList<>();
+        long total = 0;
+        for (DifferentialFunction df : functionInstancesById.values()) {
+            if (df instanceof SDVariable || df instanceof GradientBackwardsMarker)
+                continue;
+            String[] outputs = getOutputsForFunction(df);
+            if (outputs == null)
+                continue;
+            for (String s : outputs) {
+                long[] shape = getShapeForVarName(s);
+                long bytes = (shape == null ? 1 : ArrayUtil.prodLong(shape) * Nd4j.sizeOfDataType());
+                names.add(s);
+                sizes.add(bytes);
+                total += bytes;
+            }
+        }
+
+        List<String> marked = new ArrayList<>();
+        if (names.isEmpty())
+            return marked;
+
+        int numSegments = (int) Math.ceil(Math.sqrt(names.size()));
+        double segmentSize = total / (double) numSegments;
+        long current = 0;
+        //Last activation is the loss, which is always retained - don't use it as a checkpoint
+        for (int i = 0; i < names.size() - 1; i++) {
+            current += sizes.get(i);
+            if (current >= segmentSize) {
+                checkpointVariables.add(names.get(i));
+                marked.add(names.get(i));
+                current = 0;
+            }
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Marked {} of {} activations as checkpoints: {}", marked.size(), names.size(), marked);
+        }
+        return marked;
+    }
+
     /**
      * Returns this samediff instance's
      * {@link DifferentialFunctionFactory}
@@ -860,6 +1070,8 @@ public class SameDiff {
         propertiesToResolve = new LinkedHashMap<>();
         propertiesForFunction = new LinkedHashMap<>();
         fieldVariableResolutionMapping = HashBasedTable.create();
+        checkpointVariables = new LinkedHashSet<>();
+        listeners = new ArrayList<>();
 
     }
 
@@ -1318,6 +1530,84 @@ public class SameDiff {
     }
 
 
+    /**
+     * Freeze this graph for concurrent inference.<br>
+     * The returned {@link FrozenGraph} shares the arrays of all variables that are not the output of a function
+     * (weights and constants) with this instance, and executes each call in a per-thread
+     * {@link InferenceSession} that holds its own intermediate (activation) arrays.
+     * Variable arrays must not be modified while the frozen graph is in use.
+     *
+     * @return The frozen graph
+     */
+    public FrozenGraph freeze() {
+        return new FrozenGraph(this);
+    }
+
+    /**
+     * Create a structural copy of this instance for inference: the arrays passed in are shared by reference,
+     * everything else is deep copied. Sub functions (such as the "grad" function) are not copied, and
+     * activation arrays are cleared in the copy.
+     *
+     * @param sharedArrays Arrays to share between this instance and the copy
+     */
+    SameDiff cloneForInference(Collection<INDArray> sharedArrays) {
+        List<Object> dontClone = new ArrayList<Object>(sharedArrays);
+        dontClone.add(sameDiffFunctionInstances);
+        dontClone.add(sameDiffFunctionDefinitionMap);
+        if (listeners != null)
+            dontClone.addAll(listeners);
+        if (parent != null)
+            dontClone.add(parent);
+
+        SameDiff copy = newCloner().deepCloneDontCloneInstances(this, dontClone.toArray());
+        copy.sameDiffFunctionInstances = new LinkedHashMap<>();
+        copy.sameDiffFunctionDefinitionMap = new LinkedHashMap<>();
+        copy.parent = null;
+        copy.exec_cache = null;
+        copy.clearActivationArrays();
+        return copy;
+    }
+
+    /**
+     * Remove the arrays of all activations (variables that are the output of a function), and drop the references
+     * functions hold to their input and output arrays. The arrays of trainable variables, constants and
+     * placeholders are not affected.
+     */
+    public void clearActivationArrays() {
+        for (String name : new ArrayList<>(variableNameToArr.keySet())) {
+            if (getVariableOutputFunction(name) != null) {
+                INDArray arr = variableNameToArr.remove(name);
+                if (arr != null)
+                    reverseArrayLookup.remove(arr);
+            }
+        }
+
+        for (DifferentialFunction df : functionInstancesById.values()) {
+            clearFunctionArrays(df);
+        }
+    }
+
+    /**
+     * Remove the arrays of all placeholders and activations, along with the recorded activation shapes (which were
+     * derived from the placeholder shapes), so that they are recalculated on the next execution. Call this before
+     * executing with placeholder arrays of a different shape than in the previous execution.
+     * Other variable arrays are not affected.
+     */
+    public void clearPlaceholderDependentState() {
+        clearActivationArrays();
+        for (String name : placeHolderVarNames) {
+            INDArray arr = variableNameToArr.remove(name);
+            if (arr != null)
+                reverseArrayLookup.remove(arr);
+        }
+        for (String name : new ArrayList<>(variableNameToShape.keySet())) {
+            if (getVariableOutputFunction(name) != null)
+                variableNameToShape.remove(name);
+        }
+        resolvedVariables = false;
+        exec_cache = null;
+    }
+
     /**
      * @return
      */
@@ -5534,12 +5824,26 @@ public class SameDiff {
             createGradFunction();
         }
 
+        SameDiff grad = getFunction("grad");
+        grad.gradientCheckpointing = gradientCheckpointing;
+        grad.checkpointVariables = new LinkedHashSet<>(checkpointVariables);
+        grad.listeners = listeners;
+        grad.mixedPrecisionConfig = mixedPrecisionConfig;
+        grad.lossScaler = lossScaler;
+
+        double lossScale = (lossScaler == null ? 1.0 : lossScaler.getLossScale());
+        INDArray initialGrad = grad.getArrForVarName("one-var");
+        if (initialGrad != null && initialGrad.getDouble(0) != lossScale) {
+            initialGrad.assign(lossScale);
+        }
 
         if(log.isTraceEnabled()){
             log.trace("About to execute backward function");
         }
         Pair<Map<SDVariable, DifferentialFunction>, List<DifferentialFunction>> forward = exec("grad");
-        SameDiff grad = getFunction("grad");
+        if (lossScaler != null) {
+            grad.unscaleGradients(lossScale);
+        }
         if (grad.isDebugMode()) {
             //ensure all gradients are present for all variables
             for (SDVariable sdVariable : grad.variables()) {
@@ -5550,6 +5854,29 @@ public class SameDiff {
         return forward;
     }
 
+    /**
+     * Divide the gradients of variables and placeholders by the loss scale used for the backward pass, and update the
+     * loss scaler. On overflow, the gradients are set to zero.
+     */
+    private void unscaleGradients(double lossScale) {
+        List<INDArray> grads = new ArrayList<>();
+        for (Map.Entry<String, SDVariable> e : gradients.entrySet()) {
+            if (getVariableOutputFunction(e.getKey()) != null)
+                continue;
+            INDArray arr = e.getValue().getArr();
+            if (arr != null)
+                grads.add(arr);
+        }
+
+        boolean apply = lossScaler.update(LossScaler.hasOverflow(grads));
+        for (INDArray arr : grads) {
+            if (apply)
+                arr.divi(lossScale);
+            else
+                arr.assign(0.0);
+        }
+    }
+
     public void createGradFunction(){
         if(log.isTraceEnabled()){
             log.trace("Defining function \"grad\"");
@@ -6058,6 +6385,18 @@ public class SameDiff {
         val funcs = new ArrayList<DifferentialFunction>(functionInstancesById.values());
         boolean onBackward = false;
 
+        checkpointPlan = null;
+        halfPrecisionVars = (mixedPrecisionConfig == null ? null : new HashSet<String>());
+        halfPrecisionStore = null;
+        if (mixedPrecisionConfig != null && mixedPrecisionConfig.isHalfPrecisionStorage() && !gradientCheckpointing) {
+            halfPrecisionStore = new HashMap<>();
+            checkpointPlan = CheckpointPlan.create(this, funcs, Collections.<String>emptySet());
+        }
+        if (gradientCheckpointing) {
+            Set<String> checkpoints = (checkpointVariables == null ? Collections.<String>emptySet() : checkpointVariables);
+            checkpointPlan = CheckpointPlan.create(this, funcs, checkpoints);
+        }
+
         // dequeue for Frames (nested, probably)
         val frames = new ArrayDeque<String>();
 
@@ -6158,6 +6497,11 @@ public class SameDiff {
                 continue;
             }
 
+            if (checkpointPlan != null && onBackward) {
+                //Recompute any activations required by this op that were released during the forward pass
+                rematerializeInputs(differentialFunction);
+            }
+
             differentialFunction.resolvePropertiesFromSameDiffBeforeExecution();
             flowPath.markActive(differentialFunction.getOwnName(), true);
 
@@ -6489,17 +6833,7 @@ public class SameDiff {
                     log.trace("Starting execution of CustomOp op");
 
                 DynamicCustomOp customOp = (DynamicCustomOp) differentialFunction;
-                try {
-                    customOp.populateInputsAndOutputsFromSameDiff();
-                } catch (Throwable t){
-                    throw new RuntimeException("Error populating inputs and outputs for function \"" + differentialFunction.getOwnName()
-                            + "\" of type " + differentialFunction.getClass().getName(), t);
-                }
-                customOp.assertValidForExecution();
-
-                customOp.updateInputsFromSameDiff();
-
-                Nd4j.getExecutioner().exec(customOp);
+                execCustomOp(customOp);
 
                 /*
                 if (customOp instanceof LessThanOrEqual) {
@@ -6516,46 +6850,7 @@ public class SameDiff {
                 if(log.isTraceEnabled())
                     log.trace("Starting execution of Op op");
 
-                val inputs = getInputVariablesForFunction(differentialFunction);
-
-                Op op = (Op) differentialFunction;
-
-                // ops in differential function might have stale NDArrays used. we should renew them
-                op.setX(inputs[0].getArr());
-                if (inputs.length == 2)
-                    op.setY(inputs[1].getArr());
-
-                if (differentialFunction.getDimensions() == null)
-                    Nd4j.getExecutioner().exec(op);
-                else if (op.isExecSpecial()) {
-                    op.exec();
-                } else {
-                    int[] axes = differentialFunction.getDimensions();
-                    if (differentialFunction instanceof Accumulation) {
-                        Accumulation accumulation = (Accumulation) differentialFunction;
-
-                        Nd4j.getExecutioner().exec(accumulation, axes);
-
-                        if (differentialFunction.outputVariables()[0].getArr() == null) {
-                            val var = differentialFunction.outputVariables()[0];
-                            updateVariable(var.getVarName(), accumulation.z());
-                            updateShapeForVarName(var.getVarName(), accumulation.z().shape());
-                        }
-                    } else if (differentialFunction instanceof BroadcastOp) {
-                        BroadcastOp broadcastOp = (BroadcastOp) differentialFunction;
-                        Nd4j.getExecutioner().exec(broadcastOp, axes);
-                    } else if (differentialFunction instanceof GradientOp) {
-                        Nd4j.getExecutioner().exec(op);
-                    } else if (differentialFunction instanceof IndexAccumulation) {
-                        IndexAccumulation indexAccumulation = (IndexAccumulation) differentialFunction;
-                        Nd4j.getExecutioner().exec(indexAccumulation, axes);
-
-                    } else if (differentialFunction instanceof TransformOp) {
-                        TransformOp t = (TransformOp) differentialFunction;
-                        Nd4j.getExecutioner().exec(t, axes);
-                    }
-                }
-
+                execLegacyOp(differentialFunction);
 
                 flowPath.markExecuted(differentialFunction.getOwnName(), true);
 
@@ -6576,11 +6871,25 @@ public class SameDiff {
                     log.trace("--> output {} - {}: array shape {}", x, outputVars[x].getVarName(), arrShape);
                 }
             }
+
+            if (mixedPrecisionConfig != null) {
+                applyMixedPrecision(differentialFunction);
+            }
+
+            if (checkpointPlan != null) {
+                releaseActivations(differentialFunction, i, onBackward);
+            }
         }
+        //Half precision activations that were not needed by the backward pass
+        halfPrecisionStore = null;
 
         if(log.isTraceEnabled()){
             log.trace("Execution complete");
         }
+        if (checkpointPlan != null && log.isDebugEnabled()) {
+            log.debug("Gradient checkpointing: released {} activations, recomputed {} functions",
+                    checkpointPlan.getNumReleased(), checkpointPlan.getNumRecomputedFunctions());
+        }
 
         val ret = new Pair<>(opMap, ops);
         exec_cache = ret;
@@ -6593,6 +6902,232 @@ public class SameDiff {
     }
 
 
+    private void execCustomOp(DynamicCustomOp customOp) {
+        notifyPreOpExecution(customOp);
+        try {
+            customOp.populateInputsAndOutputsFromSameDiff();
+        } catch (Throwable t){
+            throw new RuntimeException("Error populating inputs and outputs for function \"" + customOp.getOwnName()
+                    + "\" of type " + customOp.getClass().getName(), t);
+        }
+        customOp.assertValidForExecution();
+
+        customOp.updateInputsFromSameDiff();
+
+        Nd4j.getExecutioner().exec(customOp);
+        notifyPostOpExecution(customOp);
+    }
+
+    private void execLegacyOp(DifferentialFunction differentialFunction) {
+        notifyPreOpExecution(differentialFunction);
+        val inputs = getInputVariablesForFunction(differentialFunction);
+
+        Op op = (Op) differentialFunction;
+
+        // ops in differential function might have stale NDArrays used. we should renew them
+        op.setX(inputs[0].getArr());
+        if (inputs.length == 2)
+            op.setY(inputs[1].getArr());
+
+        if (differentialFunction.getDimensions() == null)
+            Nd4j.getExecutioner().exec(op);
+        else if (op.isExecSpecial()) {
+            op.exec();
+        } else {
+            int[] axes = differentialFunction.getDimensions();
+            if (differentialFunction instanceof Accumulation) {
+                Accumulation accumulation = (Accumulation) differentialFunction;
+
+                Nd4j.getExecutioner().exec(accumulation, axes);
+
+                if (differentialFunction.outputVariables()[0].getArr() == null) {
+                    val var = differentialFunction.outputVariables()[0];
+                    updateVariable(var.getVarName(), accumulation.z());
+                    updateShapeForVarName(var.getVarName(), accumulation.z().shape());
+                }
+            } else if (differentialFunction instanceof BroadcastOp) {
+                BroadcastOp broadcastOp = (BroadcastOp) differentialFunction;
+                Nd4j.getExecutioner().exec(broadcastOp, axes);
+            } else if (differentialFunction instanceof GradientOp) {
+                Nd4j.getExecutioner().exec(op);
+            } else if (differentialFunction instanceof IndexAccumulation) {
+                IndexAccumulation indexAccumulation = (IndexAccumulation) differentialFunction;
+                Nd4j.getExecutioner().exec(indexAccumulation, axes);
+
+            } else if (differentialFunction instanceof TransformOp) {
+                TransformOp t = (TransformOp) differentialFunction;
+                Nd4j.getExecutioner().exec(t, axes);
+            }
+        }
+        notifyPostOpExecution(differentialFunction);
+    }
+
+    private void notifyPreOpExecution(DifferentialFunction function) {
+        if (listeners == null)
+            return;
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).preOpExecution(this, function);
+        }
+    }
+
+    private void notifyPostOpExecution(DifferentialFunction function) {
+        if (listeners == null)
+            return;
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).postOpExecution(this, function);
+        }
+    }
+
+    /**
+     * Recompute the released inputs (if any) of the given function. Used for gradient checkpointing.
+     */
+    private void rematerializeInputs(DifferentialFunction function) {
+        for (String in : getInputsForFunction(function)) {
+            if (halfPrecisionStore != null && halfPrecisionStore.containsKey(in)) {
+                putArrayForVarName(in, Nd4j.getCompressor().decompress(halfPrecisionStore.remove(in)));
+            } else if (checkpointPlan.isReleased(in)) {
+                rematerialize(in);
+            }
+        }
+    }
+
+    /**
+     * Recompute the array for a released activation, by executing the function that produced it again.
+     * Released inputs of that function are recomputed first, recursively, up to the nearest retained ancestors.
+     */
+    private void rematerialize(String varName) {
+        DifferentialFunction producer = getVariableOutputFunction(varName);
+        if (producer == null) {
+            throw new ND4JIllegalStateException("Cannot recompute released activation \"" + varName + "\": no function produces it");
+        }
+
+        rematerializeInputs(producer);
+
+        for (String out : getOutputsForFunction(producer)) {
+            if (checkpointPlan.isReleased(out)) {
+                long[] shape = checkpointPlan.markRecomputed(out);
+                putArrayForVarName(out, Nd4j.create(shape));
+            }
+        }
+
+        if(log.isTraceEnabled()){
+            log.trace("Recomputing function {} ({}) for released activation {}", producer.opName(), producer.getOwnName(), varName);
+        }
+
+        clearFunctionArrays(producer);
+        producer.resolvePropertiesFromSameDiffBeforeExecution();
+        if (producer instanceof DynamicCustomOp) {
+            execCustomOp((DynamicCustomOp) producer);
+        } else {
+            execLegacyOp(producer);
+        }
+        if (mixedPrecisionConfig != null) {
+            applyMixedPrecision(producer);
+        }
+        checkpointPlan.incrementRecomputed();
+    }
+
+    /**
+     * Release activations that are no longer needed after the function with the given index has been executed.
+     * Used for gradient checkpointing.
+     */
+    private void releaseActivations(DifferentialFunction function, int opIdx, boolean onBackward) {
+        if (!onBackward) {
+            for (String in : getInputsForFunction(function)) {
+                if (checkpointPlan.canReleaseAfterForward(in, opIdx)) {
+                    if (halfPrecisionStore == null) {
+                        releaseArray(in);
+                    } else if (halfPrecisionVars.contains(in) && !halfPrecisionStore.containsKey(in)) {
+                        storeAsHalf(in);
+                    }
+                }
+            }
+        } else {
+            for (String s : checkpointPlan.getRematerialized()) {
+                if (checkpointPlan.canReleaseAfter(s, opIdx)) {
+                    releaseArray(s);
+                }
+            }
+        }
+    }
+
+    private void releaseArray(String varName) {
+        INDArray arr = variableNameToArr.remove(varName);
+        if (arr == null)
+            return;
+        reverseArrayLookup.remove(arr);
+        checkpointPlan.markReleased(varName, arr.shape());
+        clearFunctionArrays(varName);
+    }
+
+    /**
+     * Replace the array of the specified activation by a HALF copy, until it is needed by the backward pass.
+     * Used for mixed precision.
+     */
+    private void storeAsHalf(String varName) {
+        INDArray arr = variableNameToArr.remove(varName);
+        if (arr == null)
+            return;
+        reverseArrayLookup.remove(arr);
+        halfPrecisionStore.put(varName, Nd4j.getCompressor().compress(arr, HALF_PRECISION_CODEC));
+        clearFunctionArrays(varName);
+    }
+
+    /**
+     * Round the outputs of the given function to half precision, if required by the mixed precision configuration
+     */
+    private void applyMixedPrecision(DifferentialFunction function) {
+        String opName = function.opName();
+        if (mixedPrecisionConfig.isDenied(opName))
+            return;
+
+        boolean half = mixedPrecisionConfig.isAllowed(opName);
+        if (!half) {
+            for (String in : getInputsForFunction(function)) {
+                if (halfPrecisionVars.contains(in)) {
+                    half = true;
+                    break;
+                }
+            }
+        }
+        String[] outputs = getOutputsForFunction(function);
+        if (!half || outputs == null)
+            return;
+
+        for (String out : outputs) {
+            INDArray arr = getArrForVarName(out);
+            if (arr == null)
+                continue;
+            if (Nd4j.dataType() != DataBuffer.Type.HALF) {
+                arr.assign(Nd4j.getCompressor().decompress(Nd4j.getCompressor().compress(arr, HALF_PRECISION_CODEC)));
+            }
+            halfPrecisionVars.add(out);
+        }
+    }
+
+    /**
+     * Ops hold references to their input and output arrays: drop them for the functions producing and consuming the
+     * specified variable, otherwise the memory of a released array can't be reclaimed
+     */
+    private void clearFunctionArrays(String varName) {
+        clearFunctionArrays(getVariableOutputFunction(varName));
+        List<DifferentialFunction> consumers = functionsArgsFor.get(varName);
+        if (consumers != null) {
+            for (DifferentialFunction df : consumers) {
+                clearFunctionArrays(df);
+            }
+        }
+    }
+
+    private static void clearFunctionArrays(DifferentialFunction function) {
+        if (function instanceof DynamicCustomOp) {
+            ((DynamicCustomOp) function).clearArrays();
+        } else if (function instanceof BaseOp) {
+            ((BaseOp) function).clearArrays();
+        }
+    }
+
+
     /**
      * Print the given function for debugging (will not print functions)
      *
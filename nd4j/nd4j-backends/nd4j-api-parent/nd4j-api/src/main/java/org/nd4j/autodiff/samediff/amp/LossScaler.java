@@ -0,0 +1,76 @@
+package org.nd4j.autodiff.samediff.amp;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.indexing.BooleanIndexing;
+import org.nd4j.linalg.indexing.conditions.Conditions;
+
+import java.util.Collection;
+
+/**
+ * Dynamic loss scaling for mixed precision training.<br>
+ * Gradients computed in half precision may underflow to zero. To avoid this, the gradient of the loss is multiplied
+ * by the loss scale before backpropagation, and the resulting gradients are divided by it afterwards.
+ * If the scaled gradients overflow (contain NaN or infinite values), the step is skipped and the loss scale
+ * is reduced. After a number of consecutive steps without overflow, the loss scale is increased again.
+ */
+@Slf4j
+public class LossScaler {
+
+    private final MixedPrecisionConfig config;
+    @Getter
+    private double lossScale;
+    @Getter
+    private int stepsSinceOverflow;
+    @Getter
+    private long numSkippedSteps;
+    @Getter
+    private boolean lastStepSkipped;
+
+    public LossScaler(@NonNull MixedPrecisionConfig config) {
+        this.config = config;
+        this.lossScale = config.getInitialLossScale();
+    }
+
+    /**
+     * @return True if any of the arrays contains NaN or infinite values
+     */
+    public static boolean hasOverflow(@NonNull Collection<INDArray> gradients) {
+        for (INDArray arr : gradients) {
+            if (arr == null)
+                continue;
+            if (BooleanIndexing.or(arr, Conditions.isNan()) || BooleanIndexing.or(arr, Conditions.isInfinite()))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Update the loss scale after a backward pass.
+     *
+     * @param overflow Whether the scaled gradients of the step overflowed
+     * @return True if the step should be applied, false if it should be skipped
+     */
+    public boolean update(boolean overflow) {
+        lastStepSkipped = overflow;
+        if (overflow) {
+            numSkippedSteps++;
+            stepsSinceOverflow = 0;
+            if (config.isDynamicLossScaling()) {
+                double next = Math.max(config.getMinLossScale(), lossScale * config.getBackoffFactor());
+                log.debug("Gradient overflow detected: skipping step, reducing loss scale from {} to {}", lossScale, next);
+                lossScale = next;
+            }
+            return false;
+        }
+
+        stepsSinceOverflow++;
+        if (config.isDynamicLossScaling() && stepsSinceOverflow >= config.getGrowthInterval()) {
+            lossScale = Math.min(config.getMaxLossScale(), lossScale * config.getGrowthFactor());
+            stepsSinceOverflow = 0;
+        }
+        return true;
+    }
+}
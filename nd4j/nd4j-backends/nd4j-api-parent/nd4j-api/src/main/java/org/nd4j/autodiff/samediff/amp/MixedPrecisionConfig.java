@@ -0,0 +1,102 @@
+package org.nd4j.autodiff.samediff.amp;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Configuration for automatic mixed precision (AMP) execution of a SameDiff graph.<br>
+ * <br>
+ * Ops are classified by op name:
+ * <ul>
+ *     <li>Allow list: ops that are safe and fast in half precision (matrix multiplication, convolutions).
+ *     Their outputs are computed in half precision</li>
+ *     <li>Deny list: numerically sensitive ops (exponentials, logarithms, softmax, reductions, losses).
+ *     Their outputs are always kept in full precision</li>
+ *     <li>All other ops follow their inputs: their outputs are in half precision if any input is</li>
+ * </ul>
+ * Variables (master weights) are always kept in full precision, and gradients are computed with dynamic
+ * loss scaling (see {@link LossScaler}).<br>
+ * If {@link #isHalfPrecisionStorage()} is set, half precision activations that are needed by the backward pass are
+ * stored as HALF arrays between their last forward use and the backward pass, halving their memory footprint.
+ */
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MixedPrecisionConfig implements Serializable {
+
+    public static final Set<String> DEFAULT_ALLOW_LIST = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "mmul", "tensordot", "conv1d", "conv2d", "conv2d_bp", "conv3dnew", "conv3dnew_bp", "deconv2d",
+            "deconv2d_bp", "sconv2d", "sconv2d_bp", "depthwise_conv2d", "linear")));
+
+    public static final Set<String> DEFAULT_DENY_LIST = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "exp", "log", "log1p", "pow", "sqrt", "rsqrt", "Reciprocal", "softmax", "logsoftmax", "softmax_bp",
+            "softplus", "logsigmoid", "logexpsum", "sum", "mean", "norm1", "norm2", "normmax", "var", "std",
+            "batchnorm", "batchnorm_bp", "cosinesimilarity", "euclidean", "log_loss", "mean_sqerr_loss",
+            "sigm_cross_entropy_loss", "softmax_cross_entropy_loss", "absolute_difference_loss", "cosine_distance_loss",
+            "hinge_loss", "huber_loss", "mean_pairwssqerr_loss", "weighted_cross_entropy_with_logits")));
+
+    /**
+     * Names (as per opName()) of the ops to execute in half precision
+     */
+    @Builder.Default private Set<String> allowList = DEFAULT_ALLOW_LIST;
+    /**
+     * Names (as per opName()) of the ops to always execute in full precision
+     */
+    @Builder.Default private Set<String> denyList = DEFAULT_DENY_LIST;
+    /**
+     * If true: store half precision activations as HALF arrays until they are needed by the backward pass
+     */
+    @Builder.Default private boolean halfPrecisionStorage = true;
+
+    /**
+     * Initial loss scale. Should be a power of 2
+     */
+    @Builder.Default private double initialLossScale = 65536.0;
+    /**
+     * If false: the loss scale is fixed to {@link #getInitialLossScale()}
+     */
+    @Builder.Default private boolean dynamicLossScaling = true;
+    /**
+     * Number of consecutive steps without overflow before the loss scale is increased
+     */
+    @Builder.Default private int growthInterval = 2000;
+    /**
+     * Factor to multiply the loss scale by after {@link #getGrowthInterval()} steps without overflow
+     */
+    @Builder.Default private double growthFactor = 2.0;
+    /**
+     * Factor to multiply the loss scale by when an overflow is detected
+     */
+    @Builder.Default private double backoffFactor = 0.5;
+    /**
+     * Minimum loss scale
+     */
+    @Builder.Default private double minLossScale = 1.0;
+    /**
+     * Maximum loss scale
+     */
+    @Builder.Default private double maxLossScale = 16777216.0;
+
+    /**
+     * @return True if the outputs of the specified op are always kept in full precision
+     */
+    public boolean isDenied(String opName) {
+        return denyList != null && denyList.contains(opName);
+    }
+
+    /**
+     * @return True if the specified op is always executed in half precision
+     */
+    public boolean isAllowed(String opName) {
+        return allowList != null && allowList.contains(opName) && !isDenied(opName);
+    }
+}
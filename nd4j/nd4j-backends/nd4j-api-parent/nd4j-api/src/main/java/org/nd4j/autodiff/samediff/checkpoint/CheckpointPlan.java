@@ -0,0 +1,193 @@
+package org.nd4j.autodiff.samediff.checkpoint;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.nd4j.autodiff.functions.DifferentialFunction;
+import org.nd4j.autodiff.samediff.SDVariable;
+import org.nd4j.autodiff.samediff.SameDiff;
+import org.nd4j.linalg.api.ops.CustomOp;
+import org.nd4j.linalg.api.ops.DynamicCustomOp;
+import org.nd4j.linalg.api.ops.Op;
+import org.nd4j.linalg.api.ops.RandomOp;
+import org.nd4j.linalg.api.ops.impl.controlflow.If;
+import org.nd4j.linalg.api.ops.impl.controlflow.While;
+import org.nd4j.linalg.api.ops.impl.controlflow.compat.BaseCompatOp;
+import org.nd4j.linalg.api.ops.impl.shape.tensorops.BaseTensorOp;
+import org.nd4j.linalg.api.ops.impl.transforms.gradient.GradientBackwardsMarker;
+
+import java.util.*;
+
+/**
+ * This class holds liveness information for a single execution of a backward ("grad") function
+ * with gradient checkpointing (rematerialization) enabled.<br>
+ * <br>
+ * During the forward part of the execution, every intermediate activation that is not a checkpoint is released
+ * as soon as the last forward op consuming it has been executed. During the backward part, released activations
+ * are recomputed on demand from the nearest retained ancestors (checkpoints, variables or placeholders),
+ * and released again once the last op that needs them has been executed.<br>
+ * <br>
+ * Graphs containing control flow (Enter/Exit/Switch/Merge/NextIteration/LoopCond, If, While, TensorArray ops)
+ * rewind or skip steps, which breaks index based liveness analysis. No plan is created for such graphs, and
+ * execution falls back to keeping all activations.
+ */
+@Slf4j
+public class CheckpointPlan {
+
+    @Getter
+    protected int backwardStart;
+    protected Map<String, Integer> lastForwardUse = new HashMap<>();    //Key: variable name. Value: index of last forward op using it
+    protected Map<String, Integer> lastUse = new HashMap<>();           //Key: variable name. Value: index of last op (forward or backward) using it
+    protected Set<String> releasable = new HashSet<>();
+    protected Map<String, long[]> releasedShapes = new HashMap<>();
+    protected Set<String> rematerialized = new LinkedHashSet<>();
+
+    @Getter
+    protected int numReleased;
+    @Getter
+    protected int numRecomputedFunctions;
+
+    protected CheckpointPlan() {
+    }
+
+    /**
+     * Create a plan for the given list of functions (in execution order).
+     *
+     * @param sameDiff    SameDiff instance that owns the functions - usually the "grad" function instance
+     * @param funcs       Functions, in execution order. Must contain a {@link GradientBackwardsMarker}
+     * @param checkpoints Names of the variables that must be kept during the forward pass
+     * @return The plan, or null if checkpointing is not applicable to this graph
+     */
+    public static CheckpointPlan create(@NonNull SameDiff sameDiff, @NonNull List<DifferentialFunction> funcs,
+                                        @NonNull Set<String> checkpoints) {
+        int marker = -1;
+        for (int i = 0; i < funcs.size(); i++) {
+            DifferentialFunction f = funcs.get(i);
+            if (f instanceof BaseCompatOp || f instanceof If || f instanceof While || f instanceof BaseTensorOp) {
+                log.warn("Gradient checkpointing is not supported for graphs with control flow ops (found {} - {}): " +
+                        "all activations will be retained", f.opName(), f.getOwnName());
+                return null;
+            }
+            if (marker < 0 && GradientBackwardsMarker.OP_NAME.equals(f.opName())) {
+                marker = i;
+            }
+        }
+
+        if (marker < 0) {
+            //Not a backward function: nothing to recompute
+            return null;
+        }
+
+        CheckpointPlan plan = new CheckpointPlan();
+        plan.backwardStart = marker;
+
+        //The loss (input to the backward marker) must always be retained
+        Set<String> retain = new HashSet<>(checkpoints);
+        retain.addAll(Arrays.asList(sameDiff.getInputsForFunction(funcs.get(marker))));
+
+        for (int i = 0; i < funcs.size(); i++) {
+            DifferentialFunction f = funcs.get(i);
+            if (f instanceof SDVariable || i == marker) {
+                continue;
+            }
+
+            String[] inputs = sameDiff.getInputsForFunction(f);
+            boolean inplace = f instanceof CustomOp && ((CustomOp) f).isInplaceCall();
+            for (String in : inputs) {
+                plan.lastUse.put(in, i);
+                if (i < marker) {
+                    plan.lastForwardUse.put(in, i);
+                }
+                if (inplace) {
+                    //Output of in-place op shares the input buffer
+                    retain.add(in);
+                }
+            }
+
+            //Outputs of random ops can't be recomputed deterministically, so they are always retained
+            boolean random = f instanceof RandomOp || f.opName().startsWith("random");
+            if (i < marker && !inplace && !random && (f instanceof Op || f instanceof DynamicCustomOp)) {
+                String[] outputs = sameDiff.getOutputsForFunction(f);
+                if (outputs != null) {
+                    plan.releasable.addAll(Arrays.asList(outputs));
+                }
+            }
+        }
+
+        plan.releasable.removeAll(retain);
+        for (String s : sameDiff.variableMap().keySet()) {
+            if (sameDiff.isPlaceHolder(s)) {
+                plan.releasable.remove(s);
+            }
+        }
+
+        return plan;
+    }
+
+    /**
+     * @return True if the specified variable is an intermediate activation that may be released
+     */
+    public boolean isReleasable(String varName) {
+        return releasable.contains(varName);
+    }
+
+    /**
+     * @return True if the array for the specified variable has been released and not yet recomputed
+     */
+    public boolean isReleased(String varName) {
+        return releasedShapes.containsKey(varName);
+    }
+
+    /**
+     * Returns true if the array for the variable can be released after the forward op with the given index
+     * has been executed
+     */
+    public boolean canReleaseAfterForward(String varName, int opIdx) {
+        if (!releasable.contains(varName) || releasedShapes.containsKey(varName))
+            return false;
+        Integer last = lastForwardUse.get(varName);
+        return last != null && last <= opIdx;
+    }
+
+    /**
+     * Returns true if the (recomputed) array for the variable is no longer required after the op with the
+     * given index has been executed
+     */
+    public boolean canReleaseAfter(String varName, int opIdx) {
+        Integer last = lastUse.get(varName);
+        return last == null || last <= opIdx;
+    }
+
+    /**
+     * Record that the array (with the given shape) for the specified variable has been released
+     */
+    public void markReleased(String varName, long[] shape) {
+        releasedShapes.put(varName, shape);
+        rematerialized.remove(varName);
+        numReleased++;
+    }
+
+    /**
+     * Record that the array for the specified variable has been recomputed
+     *
+     * @return The shape of the released array
+     */
+    public long[] markRecomputed(String varName) {
+        rematerialized.add(varName);
+        return releasedShapes.remove(varName);
+    }
+
+    /**
+     * Record that a function has been executed again to recompute a released array
+     */
+    public void incrementRecomputed() {
+        numRecomputedFunctions++;
+    }
+
+    /**
+     * @return Names of the variables that have been recomputed and are currently held in memory
+     */
+    public List<String> getRematerialized() {
+        return new ArrayList<>(rematerialized);
+    }
+}
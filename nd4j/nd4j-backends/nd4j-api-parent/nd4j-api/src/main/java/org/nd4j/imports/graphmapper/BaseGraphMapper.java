@@ -10,11 +10,13 @@ import org.nd4j.autodiff.samediff.SameDiff;
 import org.nd4j.imports.NoOpNameFoundException;
 import org.nd4j.imports.descriptors.properties.PropertyMapping;
 import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.api.ops.Op;
 import org.nd4j.linalg.exception.ND4JIllegalStateException;
 import org.nd4j.weightinit.impl.ZeroInitScheme;
 
 import java.io.*;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -144,6 +146,18 @@ public abstract class BaseGraphMapper<GRAPH_TYPE,NODE_TYPE,ATTR_TYPE,TENSOR_TYPE
      */
     @Override
     public SameDiff importGraph(GRAPH_TYPE tfGraph) {
+        return importGraph(tfGraph, Collections.<String,INDArray>emptyMap());
+    }
+
+    /**
+     * Import the given graph, using already decoded arrays for some of its constants
+     * instead of decoding them from the graph
+     * @param tfGraph the graph to import
+     * @param constantArrays map of variable name to array, for constants that were decoded
+     *                       ahead of time (see streaming import)
+     * @return the imported graph
+     */
+    protected SameDiff importGraph(GRAPH_TYPE tfGraph, Map<String,INDArray> constantArrays) {
         SameDiff diff = SameDiff.create();
         ImportState<GRAPH_TYPE,TENSOR_TYPE> importState = new ImportState<>();
         importState.setSameDiff(diff);
@@ -168,7 +182,8 @@ public abstract class BaseGraphMapper<GRAPH_TYPE,NODE_TYPE,ATTR_TYPE,TENSOR_TYPE
                 continue;
             }
 
-            val arr = getNDArrayFromTensor(entry.getKey(), entry.getValue(), tfGraph);
+            val arr = constantArrays.containsKey(entry.getKey()) ? constantArrays.get(entry.getKey())
+                    : getNDArrayFromTensor(entry.getKey(), entry.getValue(), tfGraph);
             if(arr != null) {
                 val var = importState.getSameDiff().var(entry.getKey(),arr);
                 //ensure the array is made available for later processing
@@ -1,8 +1,13 @@
 package org.nd4j.imports.graphmapper.tf;
 
+import com.github.os72.protobuf351.ByteString;
+import com.github.os72.protobuf351.CodedInputStream;
+import com.github.os72.protobuf351.CodedOutputStream;
+import com.github.os72.protobuf351.ExtensionRegistryLite;
 import com.github.os72.protobuf351.Message;
 import com.google.common.primitives.Floats;
 import com.google.common.primitives.Ints;
+import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.nd4j.autodiff.functions.DifferentialFunction;
@@ -14,6 +19,7 @@ import org.nd4j.imports.descriptors.properties.PropertyMapping;
 import org.nd4j.imports.graphmapper.BaseGraphMapper;
 import org.nd4j.imports.graphmapper.ImportState;
 import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.concurrency.AffinityManager;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.api.ops.impl.controlflow.IfImportState;
 import org.nd4j.linalg.exception.ND4JIllegalStateException;
@@ -24,6 +30,8 @@ import org.tensorflow.framework.*;
 
 import java.io.*;
 import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.*;
 
 /**
@@ -38,7 +46,15 @@ public class TFGraphMapper extends BaseGraphMapper<GraphDef,NodeDef,AttrValue,No
     private Set<String> seenNodes = new LinkedHashSet<>();
     public final static String VALUE_ATTR_KEY = "value";
     public final static String SHAPE_KEY = "shape";
+    /**
+     * Default minimum size of the constants decoded while streaming, see {@link #importGraphStreaming(File, long)}
+     */
+    public final static long DEFAULT_STREAMING_CONSTANT_BYTES = 64 * 1024;
+    //GraphDef field 1 (node), length delimited
+    private final static int NODE_TAG = (GraphDef.NODE_FIELD_NUMBER << 3) | 2;
     private static TFGraphMapper MAPPER_INSTANCE = new TFGraphMapper();
+    //Constants decoded (and stripped from the graph) by the streaming import in progress on this thread, if any
+    private final ThreadLocal<Map<String,INDArray>> streamedConstants = new ThreadLocal<>();
     private Set<String> graphMapper = new HashSet<String>(){{
         //While and If
         //While -> Enter
@@ -428,6 +444,111 @@ public class TFGraphMapper extends BaseGraphMapper<GraphDef,NodeDef,AttrValue,No
         return GraphDef.parseFrom(inputStream);
     }
 
+    /**
+     * See {@link #importGraphStreaming(File, long)}, using {@link #DEFAULT_STREAMING_CONSTANT_BYTES}
+     */
+    public SameDiff importGraphStreaming(@NonNull File graphFile) {
+        return importGraphStreaming(graphFile, DEFAULT_STREAMING_CONSTANT_BYTES);
+    }
+
+    /**
+     * Import a binary (frozen) graph, with a lower peak memory use than {@link #importGraph(File)}.<br>
+     * The file is memory mapped, and nodes are parsed one at a time: the content of constant tensors larger than
+     * the specified size is decoded directly from the mapped file into the array for the variable,
+     * and is then dropped from the node. The full serialized graph is never held on the heap, and each large tensor
+     * is copied only once.<br>
+     * Note that the text protobuf format is not supported by this method.
+     *
+     * @param graphFile          Binary GraphDef file to import
+     * @param minConstantBytes   Constants with a serialized tensor of at least this many bytes are decoded
+     *                           while streaming. Smaller constants (axis arguments, shapes, etc) are kept in
+     *                           the graph. Op mappers can use either kind, see
+     *                           {@link #getNDArrayFromTensor(String, NodeDef, GraphDef)}
+     * @return The imported graph
+     */
+    public SameDiff importGraphStreaming(@NonNull File graphFile, long minConstantBytes) {
+        try (FileInputStream fis = new FileInputStream(graphFile); FileChannel channel = fis.getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new ND4JIllegalStateException("Cannot import graph: file " + graphFile.getAbsolutePath()
+                        + " is larger than the maximum protobuf message size (2GB)");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CodedInputStream cis = CodedInputStream.newInstance(mapped);
+            //tensor content is not copied to the heap, but referenced in the mapped buffer
+            cis.enableAliasing(true);
+            return importGraphStreaming(cis, minConstantBytes);
+        } catch (IOException e) {
+            throw new ND4JIllegalStateException("Error importing graph from file " + graphFile.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * As per {@link #importGraphStreaming(File, long)}, but reading from a stream: the serialized graph is
+     * never held in memory as a whole, but each large tensor is read into the heap before being decoded.
+     *
+     * @param inputStream        Stream of a binary GraphDef
+     * @param minConstantBytes   Minimum serialized size of constants to decode while streaming
+     * @return The imported graph
+     */
+    public SameDiff importGraphStreaming(@NonNull InputStream inputStream, long minConstantBytes) {
+        try {
+            return importGraphStreaming(CodedInputStream.newInstance(inputStream), minConstantBytes);
+        } catch (IOException e) {
+            throw new ND4JIllegalStateException("Error importing graph from stream", e);
+        }
+    }
+
+    protected SameDiff importGraphStreaming(CodedInputStream cis, long minConstantBytes) throws IOException {
+        cis.setSizeLimit(Integer.MAX_VALUE);
+        GraphDef.Builder graphBuilder = GraphDef.newBuilder();
+        Map<String,INDArray> constants = new HashMap<>();
+        //fields other than nodes (versions, library) are copied as-is
+        ByteString.Output otherFields = ByteString.newOutput();
+        CodedOutputStream otherOut = CodedOutputStream.newInstance(otherFields);
+
+        int tag;
+        while ((tag = cis.readTag()) != 0) {
+            if (tag == NODE_TAG) {
+                NodeDef node = cis.readMessage(NodeDef.parser(), ExtensionRegistryLite.getEmptyRegistry());
+                graphBuilder.addNode(decodeConstant(node, constants, minConstantBytes));
+            } else {
+                cis.skipField(tag, otherOut);
+            }
+        }
+        otherOut.flush();
+        graphBuilder.mergeFrom(otherFields.toByteString());
+
+        if (log.isDebugEnabled()) {
+            log.debug("Read {} nodes, decoded {} constants while streaming", graphBuilder.getNodeCount(), constants.size());
+        }
+        //op mappers read constant inputs (shapes, axes, permutations) from the graph: see getNDArrayFromTensor
+        streamedConstants.set(constants);
+        try {
+            return importGraph(graphBuilder.build(), constants);
+        } finally {
+            streamedConstants.remove();
+        }
+    }
+
+    /**
+     * Decode the value of a large constant node into an array, returning the node without its tensor content
+     */
+    private NodeDef decodeConstant(NodeDef node, Map<String,INDArray> constants, long minConstantBytes) {
+        if (!"Const".equals(node.getOp()) || !node.containsAttr(VALUE_ATTR_KEY))
+            return node;
+        TensorProto tensor = node.getAttrOrThrow(VALUE_ATTR_KEY).getTensor();
+        if (tensor.getSerializedSize() < minConstantBytes)
+            return node;
+
+        constants.put(translateToSameDiffName(node.getName(), node), mapTensorProto(tensor));
+        //shape and data type are still required for import
+        TensorProto stripped = TensorProto.newBuilder()
+                .setDtype(tensor.getDtype())
+                .setTensorShape(tensor.getTensorShape())
+                .build();
+        return node.toBuilder().putAttr(VALUE_ATTR_KEY, AttrValue.newBuilder().setTensor(stripped).build()).build();
+    }
+
     protected void importCondition(String conditionName, NodeDef tfNode, ImportState<GraphDef,NodeDef> importState) {
         /**
          * Cond structure:
@@ -781,6 +902,14 @@ public class TFGraphMapper extends BaseGraphMapper<GraphDef,NodeDef,AttrValue,No
             return null;
         }
 
+        //content of large constants is not in the graph during streaming import
+        Map<String,INDArray> decoded = streamedConstants.get();
+        if(decoded != null && "Const".equals(node.getOp())) {
+            INDArray arr = decoded.get(translateToSameDiffName(node.getName(), node));
+            if(arr != null)
+                return arr;
+        }
+
         val tfTensor = node.getAttrOrThrow("value").getTensor();
         return mapTensorProto(tfTensor);
     }
@@ -809,6 +938,10 @@ public class TFGraphMapper extends BaseGraphMapper<GraphDef,NodeDef,AttrValue,No
 
         arrayShape = Ints.toArray(dimensions);
 
+        INDArray direct = mapTensorContent(tfTensor, arrayShape);
+        if (direct != null)
+            return direct;
+
         if (tfTensor.getDtype() == DataType.DT_INT32 || tfTensor.getDtype() == DataType.DT_INT16 || tfTensor.getDtype() == DataType.DT_INT8) {
             // valueOf
             if (tfTensor.getIntValCount() == 1 || ArrayUtil.prod(arrayShape) == 1) {
@@ -989,6 +1122,46 @@ public class TFGraphMapper extends BaseGraphMapper<GraphDef,NodeDef,AttrValue,No
         throw new ND4JIllegalStateException("Invalid method state");
     }
 
+    /**
+     * Copy the binary content of a floating point tensor directly into the buffer of a new array, without
+     * intermediate java arrays.
+     * @return the array, or null if the tensor cannot be decoded this way (scalars, vectors, values stored
+     * in the typed value fields, or types other than float/double)
+     */
+    protected INDArray mapTensorContent(TensorProto tfTensor, int[] arrayShape) {
+        val dtype = tfTensor.getDtype();
+        val target = Nd4j.dataType();
+        if (arrayShape.length < 2 || (dtype != DataType.DT_FLOAT && dtype != DataType.DT_DOUBLE)
+                || (target != DataBuffer.Type.FLOAT && target != DataBuffer.Type.DOUBLE))
+            return null;
+
+        long length = ArrayUtil.prodLong(arrayShape);
+        int elementSize = dtype == DataType.DT_FLOAT ? 4 : 8;
+        if (length <= 1 || tfTensor.getTensorContent().size() != length * elementSize)
+            return null;
+
+        val src = tfTensor.getTensorContent().asReadOnlyByteBuffer().order(ByteOrder.nativeOrder());
+        INDArray array = Nd4j.createUninitialized(ArrayUtil.toLongArray(arrayShape), 'c');
+        val dst = array.data().asNio().order(ByteOrder.nativeOrder());
+        if (dtype == DataType.DT_FLOAT && target == DataBuffer.Type.FLOAT) {
+            dst.asFloatBuffer().put(src.asFloatBuffer());
+        } else if (dtype == DataType.DT_DOUBLE && target == DataBuffer.Type.DOUBLE) {
+            dst.asDoubleBuffer().put(src.asDoubleBuffer());
+        } else if (dtype == DataType.DT_FLOAT) {
+            val fb = src.asFloatBuffer();
+            val db = dst.asDoubleBuffer();
+            for (int e = 0; e < length; e++)
+                db.put(e, fb.get(e));
+        } else {
+            val db = src.asDoubleBuffer();
+            val fb = dst.asFloatBuffer();
+            for (int e = 0; e < length; e++)
+                fb.put(e, (float) db.get(e));
+        }
+        Nd4j.getAffinityManager().tagLocation(array, AffinityManager.Location.HOST);
+        return array;
+    }
+
     @Override
     public long[] getShapeFromTensor(NodeDef tensorProto) {
         if(tensorProto.containsAttr("shape")) {
@@ -204,6 +204,21 @@ public abstract class BaseOp extends DifferentialFunction implements Op {
         numProcessed = 0;
     }
 
+    /**
+     * Drop the references this op holds to its x, y and z arrays.
+     * The arrays are resolved again from the associated {@link org.nd4j.autodiff.samediff.SameDiff}
+     * instance on the next execution. This is used to release intermediate activations
+     * during gradient checkpointing.
+     */
+    public void clearArrays() {
+        this.x = null;
+        this.y = null;
+        this.z = null;
+        //Length is derived from the array shapes, which may differ when the arrays are set again
+        n = 0;
+        numProcessed = 0;
+    }
+
     @Override
     public void setZ(INDArray z) {
         if (z == null) {
@@ -530,6 +530,16 @@ public class DynamicCustomOp extends DifferentialFunction implements CustomOp {
 
     }
 
+    /**
+     * Drop the references this op holds to its input and output arrays.
+     * They are repopulated from the associated {@link SameDiff} instance by
+     * {@link #populateInputsAndOutputsFromSameDiff()} on the next execution.
+     */
+    public void clearArrays() {
+        inputArguments.clear();
+        outputArguments.clear();
+    }
+
     public void updateInputsFromSameDiff() {
         val inputs = sameDiff.getInputsForFunction(this);
 
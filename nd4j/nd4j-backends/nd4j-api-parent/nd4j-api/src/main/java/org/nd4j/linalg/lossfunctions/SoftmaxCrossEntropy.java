@@ -0,0 +1,172 @@
+package org.nd4j.linalg.lossfunctions;
+
+import lombok.NonNull;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.impl.accum.Dot;
+import org.nd4j.linalg.api.ops.impl.accum.LogSumExp;
+import org.nd4j.linalg.api.shape.Shape;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.ops.transforms.Transforms;
+import org.nd4j.linalg.primitives.Pair;
+
+/**
+ * Fused softmax + multi-class cross entropy, used by {@link org.nd4j.linalg.lossfunctions.impl.LossMCXENT} (and
+ * hence {@link org.nd4j.linalg.lossfunctions.impl.LossNegativeLogLikelihood}) when the activation function is softmax.
+ * <br>
+ * The score is computed directly from the pre-output (logits) as {@code logSumExp(z) * sum_i(a_i) - sum_i(a_i * z_i)},
+ * where {@code a = labels * weights}, using only row-wise reductions: no array of size [minibatch, nOut] is allocated
+ * for the softmax output, its log or the per-output scores. The gradient {@code softmax(z) * sum_i(a_i) - a}
+ * is computed in a single array of size [minibatch, nOut].<br>
+ * Clipping of the softmax output (see {@link org.nd4j.linalg.lossfunctions.impl.LossMCXENT#getSoftmaxClipEps()}) is
+ * applied to the score only, as in the non-fused implementation. Only outputs with non-zero labels contribute to the
+ * score: for one-hot labels (and all-zero label rows), the log probability of the labelled class is computed per
+ * example as {@code z_label - logSumExp(z)} and clipped directly. For other labels, the log softmax output is
+ * materialized for the score calculation if any output is outside of the clipping range.<br>
+ * Only per-example masking (column vector mask arrays) is supported.
+ */
+public class SoftmaxCrossEntropy {
+
+    private SoftmaxCrossEntropy() {}
+
+    /**
+     * @param labels    Labels, shape [minibatch, nOut]
+     * @param preOutput Pre-output (logits), shape [minibatch, nOut]. Not modified.
+     * @param weights   Per-output weights (row vector). May be null.
+     * @param mask      Per-example mask (column vector). May be null.
+     * @param clipEps   Softmax clipping epsilon, 0 for no clipping
+     * @return Score for each example, column vector of shape [minibatch, 1]
+     */
+    public static INDArray scoreArray(@NonNull INDArray labels, @NonNull INDArray preOutput, INDArray weights,
+                    INDArray mask, double clipEps) {
+        INDArray lse = logSumExp(preOutput);
+        INDArray score = score(labels, weightedLabels(labels, weights), preOutput, lse, clipEps);
+        if (mask != null)
+            LossUtil.applyMask(score, mask);
+        return score;
+    }
+
+    /**
+     * @param labels    Labels, shape [minibatch, nOut]
+     * @param preOutput Pre-output (logits), shape [minibatch, nOut]. Not modified.
+     * @param weights   Per-output weights (row vector). May be null.
+     * @param mask      Per-example mask (column vector). May be null.
+     * @return Gradient of the score with respect to the pre-output, shape [minibatch, nOut]
+     */
+    public static INDArray gradient(@NonNull INDArray labels, @NonNull INDArray preOutput, INDArray weights,
+                    INDArray mask) {
+        INDArray lse = logSumExp(preOutput);
+        INDArray grad = gradientFromLogSoftmax(labels, weightedLabels(labels, weights), preOutput.subColumnVector(lse),
+                        weights);
+        if (mask != null)
+            LossUtil.applyMask(grad, mask);
+        return grad;
+    }
+
+    /**
+     * Score and gradient in one pass: the log-sum-exp of the pre-output is calculated only once.
+     *
+     * @return Pair of (score for each example, shape [minibatch, 1]; gradient, shape [minibatch, nOut])
+     * @see #scoreArray(INDArray, INDArray, INDArray, INDArray, double)
+     * @see #gradient(INDArray, INDArray, INDArray, INDArray)
+     */
+    public static Pair<INDArray, INDArray> scoreArrayAndGradient(@NonNull INDArray labels,
+                    @NonNull INDArray preOutput, INDArray weights, INDArray mask, double clipEps) {
+        INDArray lse = logSumExp(preOutput);
+        INDArray weightedLabels = weightedLabels(labels, weights);
+        INDArray score = score(labels, weightedLabels, preOutput, lse, clipEps);
+        INDArray grad = gradientFromLogSoftmax(labels, weightedLabels, preOutput.subColumnVector(lse), weights);
+        if (mask != null) {
+            LossUtil.applyMask(score, mask);
+            LossUtil.applyMask(grad, mask);
+        }
+        return new Pair<>(score, grad);
+    }
+
+    private static INDArray weightedLabels(INDArray labels, INDArray weights) {
+        if (weights == null)
+            return labels;
+        if (weights.length() != labels.size(1)) {
+            throw new IllegalStateException("Weights vector (length " + weights.length()
+                            + ") does not match output.size(1)=" + labels.size(1));
+        }
+        return labels.mulRowVector(weights);
+    }
+
+    private static INDArray score(INDArray labels, INDArray weightedLabels, INDArray preOutput, INDArray lse,
+                    double clipEps) {
+        if (clipEps > 0.0 && isOneHot(labels)) {
+            //Only the labelled class contributes to the score: clip its log probability, per example
+            INDArray logProb = rowDot(labels, preOutput).subi(lse);
+            Transforms.max(logProb, Math.log(clipEps), false);
+            Transforms.min(logProb, Math.log(1.0 - clipEps), false);
+            return weightedLabels.sum(1).reshape(lse.shape()).muli(logProb).negi();
+        }
+
+        if (needsClipping(preOutput, lse, clipEps)) {
+            INDArray logSoftmax = preOutput.subColumnVector(lse);
+            Transforms.max(logSoftmax, Math.log(clipEps), false);
+            Transforms.min(logSoftmax, Math.log(1.0 - clipEps), false);
+            return rowDot(weightedLabels, logSoftmax).negi();
+        }
+
+        //-sum_i a_i * (z_i - lse) = lse * sum_i a_i - sum_i a_i * z_i
+        return weightedLabels.sum(1).reshape(lse.shape()).muli(lse).subi(rowDot(weightedLabels, preOutput));
+    }
+
+    /**
+     * @param logSoftmax Log softmax output, converted in-place to the gradient
+     */
+    private static INDArray gradientFromLogSoftmax(INDArray labels, INDArray weightedLabels, INDArray logSoftmax,
+                    INDArray weights) {
+        INDArray grad = Transforms.exp(logSoftmax, false);
+        if (weights == null) {
+            grad.subi(labels);
+        } else {
+            grad.muliColumnVector(weightedLabels.sum(1)).subi(weightedLabels);
+        }
+        return grad;
+    }
+
+    /**
+     * @return True if each row of the labels is either one-hot or all zeros. Uses row-wise reductions only
+     */
+    private static boolean isOneHot(INDArray labels) {
+        if (labels.minNumber().doubleValue() < 0.0)
+            return false;
+        INDArray rowMax = labels.max(1);
+        //Non-negative row with sum == max: at most one non-zero entry. Max of 0 or 1: all zeros or one-hot
+        if (labels.sum(1).subi(rowMax).amaxNumber().doubleValue() != 0.0)
+            return false;
+        return rowMax.rsub(1.0).muli(rowMax).amaxNumber().doubleValue() == 0.0;
+    }
+
+    /**
+     * @return True if any softmax output is outside of [clipEps, 1-clipEps]
+     */
+    private static boolean needsClipping(INDArray preOutput, INDArray lse, double clipEps) {
+        if (clipEps <= 0.0)
+            return false;
+        double minLogSoftmax = preOutput.min(1).reshape(lse.shape()).subi(lse).minNumber().doubleValue();
+        double maxLogSoftmax = preOutput.max(1).reshape(lse.shape()).subi(lse).maxNumber().doubleValue();
+        return minLogSoftmax < Math.log(clipEps) || maxLogSoftmax > Math.log(1.0 - clipEps);
+    }
+
+    private static INDArray logSumExp(INDArray preOutput) {
+        return Nd4j.getExecutioner().exec(new LogSumExp(preOutput), 1).reshape(preOutput.size(0), 1);
+    }
+
+    private static INDArray rowDot(INDArray x, INDArray y) {
+        //Dot along a dimension requires both arrays to have the same dense layout: copy only an array without it
+        char order = hasDefaultLayout(y) ? y.ordering() : (hasDefaultLayout(x) ? x.ordering() : 'c');
+        if (!hasDefaultLayout(x) || x.ordering() != order)
+            x = x.dup(order);
+        if (!hasDefaultLayout(y) || y.ordering() != order)
+            y = y.dup(order);
+        return Nd4j.getExecutioner().exec(new Dot(x, y), 1).reshape(x.size(0), 1);
+    }
+
+    private static boolean hasDefaultLayout(INDArray arr) {
+        //Views such as a range of rows of a 'c' order matrix are fine as-is
+        return !arr.isView() || Shape.hasDefaultStridesForShape(arr);
+    }
+}
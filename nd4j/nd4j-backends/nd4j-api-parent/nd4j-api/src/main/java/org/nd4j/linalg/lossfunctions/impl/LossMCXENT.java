@@ -16,6 +16,7 @@ import org.nd4j.linalg.indexing.BooleanIndexing;
 import org.nd4j.linalg.indexing.conditions.Conditions;
 import org.nd4j.linalg.lossfunctions.ILossFunction;
 import org.nd4j.linalg.lossfunctions.LossUtil;
+import org.nd4j.linalg.lossfunctions.SoftmaxCrossEntropy;
 import org.nd4j.linalg.lossfunctions.serde.RowVectorDeserializer;
 import org.nd4j.linalg.lossfunctions.serde.RowVectorSerializer;
 import org.nd4j.linalg.ops.transforms.Transforms;
@@ -34,7 +35,9 @@ import java.util.Map;
 /**
  *
  * Multi-Class Cross Entropy loss function:<br>
- * L = sum_i actual_i * log( predicted_i )
+ * L = sum_i actual_i * log( predicted_i )<br>
+ * With a softmax activation function, the score and gradient are calculated by {@link SoftmaxCrossEntropy}, directly
+ * from the pre-output: this avoids allocating the softmax output and per-output score arrays.
  *
  * @author Alex Black, Susan Eraly
  * @see LossNegativeLogLikelihood
@@ -85,13 +88,25 @@ public class LossMCXENT extends DifferentialFunction implements ILossFunction {
         this.softmaxClipEps = softmaxClipEps;
     }
 
-    private INDArray scoreArray(INDArray labels, INDArray preOutput, IActivation activationFn, INDArray mask) {
+    private void validateShapes(INDArray labels, INDArray preOutput) {
         if (labels.size(1) != preOutput.size(1)) {
             throw new IllegalArgumentException(
                             "Labels array numColumns (size(1) = " + labels.size(1) + ") does not match output layer"
                                             + " number of outputs (nOut = " + preOutput.size(1) + ") ");
 
         }
+    }
+
+    /**
+     * @return True if the score and gradient can be calculated by {@link SoftmaxCrossEntropy}
+     */
+    private static boolean useFusedSoftmax(INDArray preOutput, IActivation activationFn, INDArray mask) {
+        return activationFn instanceof ActivationSoftmax
+                        && (mask == null || !LossUtil.isPerOutputMasking(preOutput, mask));
+    }
+
+    private INDArray scoreArray(INDArray labels, INDArray preOutput, IActivation activationFn, INDArray mask) {
+        validateShapes(labels, preOutput);
 
         INDArray output = activationFn.getActivation(preOutput.dup(), true);
         if(activationFn instanceof ActivationSoftmax && softmaxClipEps > 0.0){
@@ -118,6 +133,16 @@ public class LossMCXENT extends DifferentialFunction implements ILossFunction {
     @Override
     public double computeScore(INDArray labels, INDArray preOutput, IActivation activationFn, INDArray mask,
                     boolean average) {
+        if (useFusedSoftmax(preOutput, activationFn, mask)) {
+            validateShapes(labels, preOutput);
+            double score = SoftmaxCrossEntropy.scoreArray(labels, preOutput, weights, mask, softmaxClipEps).sumNumber()
+                            .doubleValue();
+            if (average) {
+                score /= preOutput.size(0);
+            }
+            return score;
+        }
+
         INDArray scoreArr = scoreArray(labels, preOutput, activationFn, mask);
 
         double score = -scoreArr.sumNumber().doubleValue();
@@ -131,53 +156,40 @@ public class LossMCXENT extends DifferentialFunction implements ILossFunction {
 
     @Override
     public INDArray computeScoreArray(INDArray labels, INDArray preOutput, IActivation activationFn, INDArray mask) {
+        if (useFusedSoftmax(preOutput, activationFn, mask)) {
+            validateShapes(labels, preOutput);
+            return SoftmaxCrossEntropy.scoreArray(labels, preOutput, weights, mask, softmaxClipEps);
+        }
+
         INDArray scoreArr = scoreArray(labels, preOutput, activationFn, mask);
         return scoreArr.sum(1).muli(-1);
     }
 
     @Override
     public INDArray computeGradient(INDArray labels, INDArray preOutput, IActivation activationFn, INDArray mask) {
-        if (labels.size(1) != preOutput.size(1)) {
-            throw new IllegalArgumentException(
-                            "Labels array numColumns (size(1) = " + labels.size(1) + ") does not match output layer"
-                                            + " number of outputs (nOut = " + preOutput.size(1) + ") ");
+        validateShapes(labels, preOutput);
 
+        if (activationFn instanceof ActivationSoftmax) {
+            if (mask != null && LossUtil.isPerOutputMasking(preOutput, mask)) {
+                throw new UnsupportedOperationException("Per output masking for MCXENT + softmax: not supported");
+            }
+            return SoftmaxCrossEntropy.gradient(labels, preOutput, weights, mask);
         }
-        INDArray grad;
+
         //INDArray output = Nd4j.getExecutioner().execAndReturn(Nd4j.getOpFactory().createTransform(activationFn, preOutput.dup()));
         INDArray output = activationFn.getActivation(preOutput.dup(), true);
 
-        if (activationFn instanceof ActivationSoftmax) {
+        INDArray dLda = output.rdivi(labels).negi();
 
-            if (mask != null && LossUtil.isPerOutputMasking(output, mask)) {
-                throw new UnsupportedOperationException("Per output masking for MCXENT + softmax: not supported");
-            }
+        INDArray grad = activationFn.backprop(preOutput, dLda).getFirst(); //TODO activation function with weights
 
-            //Weighted loss function
-            if (weights != null) {
-                if (weights.length() != output.size(1)) {
-                    throw new IllegalStateException("Weights vector (length " + weights.length()
-                                    + ") does not match output.size(1)=" + output.size(1));
-                }
-                INDArray temp = labels.mulRowVector(weights);
-                INDArray col = temp.sum(1);
-                grad = output.mulColumnVector(col).sub(temp);
-            } else {
-                grad = output.subi(labels);
-            }
-        } else {
-            INDArray dLda = output.rdivi(labels).negi();
-
-            grad = activationFn.backprop(preOutput, dLda).getFirst(); //TODO activation function with weights
-
-            //Weighted loss function
-            if (weights != null) {
-                if (weights.length() != output.size(1)) {
-                    throw new IllegalStateException("Weights vector (length " + weights.length()
-                                    + ") does not match output.size(1)=" + output.size(1));
-                }
-                grad.muliRowVector(weights);
+        //Weighted loss function
+        if (weights != null) {
+            if (weights.length() != output.size(1)) {
+                throw new IllegalStateException("Weights vector (length " + weights.length()
+                                + ") does not match output.size(1)=" + output.size(1));
             }
+            grad.muliRowVector(weights);
         }
 
         //Loss function with masking
@@ -191,7 +203,16 @@ public class LossMCXENT extends DifferentialFunction implements ILossFunction {
     @Override
     public Pair<Double, INDArray> computeGradientAndScore(INDArray labels, INDArray preOutput, IActivation activationFn,
                     INDArray mask, boolean average) {
-        //TODO: probably a more efficient way to do this...
+        if (useFusedSoftmax(preOutput, activationFn, mask)) {
+            validateShapes(labels, preOutput);
+            Pair<INDArray, INDArray> p =
+                            SoftmaxCrossEntropy.scoreArrayAndGradient(labels, preOutput, weights, mask, softmaxClipEps);
+            double score = p.getFirst().sumNumber().doubleValue();
+            if (average) {
+                score /= preOutput.size(0);
+            }
+            return new Pair<>(score, p.getSecond());
+        }
 
         return new Pair<>(computeScore(labels, preOutput, activationFn, mask, average),
                         computeGradient(labels, preOutput, activationFn, mask));
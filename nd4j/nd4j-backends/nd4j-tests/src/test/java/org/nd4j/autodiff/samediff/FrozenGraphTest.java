@@ -0,0 +1,184 @@
+package org.nd4j.autodiff.samediff;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.nd4j.autodiff.opvalidation.BaseOpValidation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.impl.transforms.Sigmoid;
+import org.nd4j.linalg.api.ops.impl.transforms.Tanh;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.factory.Nd4jBackend;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+@RunWith(Parameterized.class)
+public class FrozenGraphTest extends BaseOpValidation {
+
+    public FrozenGraphTest(Nd4jBackend backend) {
+        super(backend);
+    }
+
+    private static SameDiff mlp() {
+        SameDiff sd = SameDiff.create();
+        SDVariable in = sd.var("in", new long[]{-1, 4});
+        SDVariable w0 = sd.var("w0", Nd4j.rand(4, 5));
+        SDVariable b0 = sd.var("b0", Nd4j.rand(1, 5));
+        SDVariable w1 = sd.var("w1", Nd4j.rand(5, 3));
+        SDVariable b1 = sd.var("b1", Nd4j.rand(1, 3));
+        SDVariable h = sd.tanh("h", sd.mmul("mmul0", in, w0).add("z0", b0));
+        sd.sigmoid("out", sd.mmul("mmul1", h, w1).add("z1", b1));
+        return sd;
+    }
+
+    private static INDArray expected(SameDiff sd, INDArray in) {
+        INDArray h = Nd4j.getExecutioner().execAndReturn(new Tanh(
+                in.mmul(sd.getArrForVarName("w0")).addRowVector(sd.getArrForVarName("b0"))));
+        return Nd4j.getExecutioner().execAndReturn(new Sigmoid(
+                h.mmul(sd.getArrForVarName("w1")).addRowVector(sd.getArrForVarName("b1"))));
+    }
+
+    @Test
+    public void testSharedVariables() {
+        SameDiff sd = mlp();
+        FrozenGraph frozen = sd.freeze();
+
+        assertEquals(new HashSet<>(Arrays.asList("w0", "b0", "w1", "b1")), frozen.sharedVariables());
+
+        INDArray in = Nd4j.rand(3, 4);
+        Map<String, INDArray> out = frozen.output(Collections.singletonMap("in", in), "out");
+        assertEquals(expected(sd, in), out.get("out"));
+
+        //Weights are shared by reference, activations are not
+        SameDiff sessionSd = frozen.session().getSameDiff();
+        assertNotSame(sd, sessionSd);
+        for (String s : frozen.sharedVariables()) {
+            assertSame(sd.getArrForVarName(s), sessionSd.getArrForVarName(s));
+        }
+        assertNull(sd.getArrForVarName("out"));
+
+        //Different minibatch size: activation shapes are recalculated, without copying the graph again
+        INDArray in2 = Nd4j.rand(7, 4);
+        INDArray out2 = frozen.output(Collections.singletonMap("in", in2), "out", "h").get("out");
+        assertArrayEquals(new long[]{7, 3}, out2.shape());
+        assertEquals(expected(sd, in2), out2);
+        assertSame(sessionSd, frozen.session().getSameDiff());
+
+        //Earlier outputs are detached
+        assertEquals(expected(sd, in), out.get("out"));
+    }
+
+    @Test
+    public void testChangingMinibatchSize() {
+        SameDiff sd = mlp();
+        FrozenGraph frozen = sd.freeze();
+        InferenceSession session = frozen.newSession();
+
+        SameDiff sessionSd = null;
+        for (int mb : new int[]{3, 3, 1, 5, 3, 1}) {
+            INDArray in = Nd4j.rand(mb, 4);
+            Map<String, INDArray> out = session.output(Collections.singletonMap("in", in), "out", "h");
+            assertArrayEquals(new long[]{mb, 3}, out.get("out").shape());
+            assertArrayEquals(new long[]{mb, 5}, out.get("h").shape());
+            assertEquals(expected(sd, in), out.get("out"));
+
+            if (sessionSd == null)
+                sessionSd = session.getSameDiff();
+            assertSame(sessionSd, session.getSameDiff());
+            for (String s : frozen.sharedVariables()) {
+                assertSame(sd.getArrForVarName(s), sessionSd.getArrForVarName(s));
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentInference() throws Exception {
+        final SameDiff sd = mlp();
+        final FrozenGraph frozen = sd.freeze();
+
+        int nThreads = 4;
+        final int nIter = 20;
+        final List<INDArray> inputs = new ArrayList<>();
+        final List<INDArray> expected = new ArrayList<>();
+        for (int i = 0; i < nIter; i++) {
+            INDArray in = Nd4j.rand(2, 4);
+            inputs.add(in);
+            expected.add(expected(sd, in));
+        }
+
+        ExecutorService exec = Executors.newFixedThreadPool(nThreads);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int t = 0; t < nThreads; t++) {
+            results.add(exec.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    for (int i = 0; i < nIter; i++) {
+                        INDArray out = frozen.output(Collections.singletonMap("in", inputs.get(i)), "out").get("out");
+                        if (!expected.get(i).equals(out))
+                            return false;
+                    }
+                    return true;
+                }
+            }));
+        }
+        exec.shutdown();
+
+        for (Future<Boolean> f : results) {
+            assertTrue(f.get(2, TimeUnit.MINUTES));
+        }
+    }
+
+    @Test
+    public void testCloseReleasesSessions() throws Exception {
+        final SameDiff sd = mlp();
+        final FrozenGraph frozen = sd.freeze();
+        final INDArray in = Nd4j.rand(2, 4);
+        final INDArray exp = expected(sd, in);
+
+        //One session per thread, held until the frozen graph is closed
+        ExecutorService exec = Executors.newFixedThreadPool(3);
+        List<Future<InferenceSession>> results = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            results.add(exec.submit(new Callable<InferenceSession>() {
+                @Override
+                public InferenceSession call() throws Exception {
+                    assertEquals(exp, frozen.output(Collections.singletonMap("in", in), "out").get("out"));
+                    return frozen.session();
+                }
+            }));
+        }
+        Set<InferenceSession> threadSessions = Collections.newSetFromMap(new IdentityHashMap<InferenceSession, Boolean>());
+        for (Future<InferenceSession> f : results) {
+            threadSessions.add(f.get(2, TimeUnit.MINUTES));
+        }
+        exec.shutdown();
+        assertEquals(3, threadSessions.size());
+        assertEquals(3, frozen.numSessions());
+
+        frozen.close();
+        assertEquals(0, frozen.numSessions());
+        for (InferenceSession s : threadSessions) {
+            assertNull(s.getSameDiff());
+        }
+
+        //Still usable after closing: a new session is created
+        assertEquals(exp, frozen.output(Collections.singletonMap("in", in), "out").get("out"));
+        assertEquals(1, frozen.numSessions());
+        assertFalse(threadSessions.contains(frozen.session()));
+        frozen.releaseSession();
+        assertEquals(0, frozen.numSessions());
+
+        //Closed sessions are recreated on the next execution
+        InferenceSession s = frozen.newSession();
+        s.output(Collections.singletonMap("in", in), "out");
+        s.close();
+        assertNull(s.getSameDiff());
+        assertEquals(exp, s.output(Collections.singletonMap("in", in), "out").get("out"));
+        assertEquals(0, frozen.numSessions());
+    }
+}
@@ -0,0 +1,106 @@
+package org.nd4j.autodiff.samediff;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.nd4j.autodiff.opvalidation.BaseOpValidation;
+import org.nd4j.autodiff.samediff.checkpoint.CheckpointPlan;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.exception.ND4JIllegalStateException;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.factory.Nd4jBackend;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+@RunWith(Parameterized.class)
+public class GradientCheckpointingTest extends BaseOpValidation {
+
+    private static final int N_LAYERS = 6;
+
+    public GradientCheckpointingTest(Nd4jBackend backend) {
+        super(backend);
+    }
+
+    private static Map<String, INDArray> arrays() {
+        Nd4j.getRandom().setSeed(12345);
+        Map<String, INDArray> m = new HashMap<>();
+        m.put("in", Nd4j.rand(3, 4));
+        m.put("label", Nd4j.rand(3, 4));
+        for (int i = 0; i < N_LAYERS; i++) {
+            m.put("w" + i, Nd4j.rand(4, 4).subi(0.5));
+            m.put("b" + i, Nd4j.rand(1, 4).subi(0.5));
+        }
+        return m;
+    }
+
+    private static SameDiff deepMlp(Map<String, INDArray> arrays) {
+        SameDiff sd = SameDiff.create();
+        SDVariable current = sd.var("in", arrays.get("in"));
+        SDVariable label = sd.var("label", arrays.get("label"));
+        for (int i = 0; i < N_LAYERS; i++) {
+            SDVariable w = sd.var("w" + i, arrays.get("w" + i));
+            SDVariable b = sd.var("b" + i, arrays.get("b" + i));
+            SDVariable z = sd.mmul("mmul" + i, current, w).add("z" + i, b);
+            current = sd.tanh("a" + i, z);
+        }
+        SDVariable diff = current.sub("diff", label);
+        SDVariable sqDiff = diff.mul("sqdiff", diff);
+        sd.sum("loss", sqDiff, Integer.MAX_VALUE);
+        return sd;
+    }
+
+    @Test
+    public void testCheckpointingGradientsMatch() {
+        Map<String, INDArray> arrays = arrays();
+
+        SameDiff standard = deepMlp(arrays);
+        standard.execBackwards();
+
+        for (boolean autoSelect : new boolean[]{false, true}) {
+            SameDiff checkpointed = deepMlp(arrays());
+            checkpointed.enableGradientCheckpointing();
+            if (autoSelect) {
+                checkpointed.execAndEndResult();
+                List<String> marked = checkpointed.markCheckpointsBySize();
+                assertFalse(marked.isEmpty());
+                assertTrue(marked.size() < 4 * N_LAYERS);
+            } else {
+                checkpointed.markAsCheckpoint("a1", "a3");
+            }
+            checkpointed.execBackwards();
+
+            CheckpointPlan plan = checkpointed.getFunction("grad").getCheckpointPlan();
+            assertNotNull(plan);
+            assertTrue(plan.getNumReleased() > 0);
+            assertTrue(plan.getNumRecomputedFunctions() > 0);
+
+            for (int i = 0; i < N_LAYERS; i++) {
+                for (String s : new String[]{"w" + i, "b" + i}) {
+                    INDArray expGrad = standard.grad(s).getArr();
+                    INDArray actGrad = checkpointed.grad(s).getArr();
+                    assertEquals("Gradient for " + s + ", autoSelect=" + autoSelect, expGrad, actGrad);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCheckpointingDisabledByDefault() {
+        SameDiff sd = deepMlp(arrays());
+        assertFalse(sd.isGradientCheckpointing());
+        sd.execBackwards();
+        assertNull(sd.getFunction("grad").getCheckpointPlan());
+    }
+
+    @Test(expected = ND4JIllegalStateException.class)
+    public void testMarkUnknownCheckpoint() {
+        SameDiff sd = deepMlp(arrays());
+        sd.markAsCheckpoint("doesNotExist");
+    }
+}
@@ -0,0 +1,165 @@
+package org.nd4j.autodiff.samediff;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.nd4j.autodiff.functions.DifferentialFunction;
+import org.nd4j.autodiff.listeners.OpExecutionListener;
+import org.nd4j.autodiff.opvalidation.BaseOpValidation;
+import org.nd4j.autodiff.samediff.amp.LossScaler;
+import org.nd4j.autodiff.samediff.amp.MixedPrecisionConfig;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.factory.Nd4jBackend;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+@RunWith(Parameterized.class)
+public class MixedPrecisionTest extends BaseOpValidation {
+
+    public MixedPrecisionTest(Nd4jBackend backend) {
+        super(backend);
+    }
+
+    private static SameDiff mlp(INDArray in, INDArray w, INDArray b) {
+        SameDiff sd = SameDiff.create();
+        SDVariable input = sd.var("in", in.dup());
+        SDVariable weights = sd.var("w", w.dup());
+        SDVariable bias = sd.var("b", b.dup());
+        SDVariable z = sd.mmul("mmul", input, weights).add("z", bias);
+        sd.sum("loss", sd.tanh("h", z), 0, 1);
+        return sd;
+    }
+
+    private static INDArray toHalfPrecision(INDArray arr) {
+        return Nd4j.getCompressor().decompress(Nd4j.getCompressor().compress(arr, "FLOAT16"));
+    }
+
+    @Test
+    public void testLossScaler() {
+        MixedPrecisionConfig conf = MixedPrecisionConfig.builder()
+                .initialLossScale(1024).growthInterval(2).build();
+        LossScaler scaler = new LossScaler(conf);
+
+        assertTrue(scaler.update(false));
+        assertEquals(1024, scaler.getLossScale(), 0.0);
+        assertTrue(scaler.update(false));
+        assertEquals(2048, scaler.getLossScale(), 0.0);
+
+        assertFalse(scaler.update(true));
+        assertTrue(scaler.isLastStepSkipped());
+        assertEquals(1, scaler.getNumSkippedSteps());
+        assertEquals(1024, scaler.getLossScale(), 0.0);
+        assertEquals(0, scaler.getStepsSinceOverflow());
+
+        INDArray arr = Nd4j.create(new float[]{1, 2, 3});
+        assertFalse(LossScaler.hasOverflow(Collections.singletonList(arr)));
+        arr.putScalar(1, Float.POSITIVE_INFINITY);
+        assertTrue(LossScaler.hasOverflow(Collections.singletonList(arr)));
+    }
+
+    @Test
+    public void testMixedPrecisionForward() {
+        INDArray in = Nd4j.rand(3, 4);
+        INDArray w = Nd4j.rand(4, 5);
+        INDArray b = Nd4j.rand(1, 5);
+
+        SameDiff sd = mlp(in, w, b).enableMixedPrecision();
+        sd.exec();
+
+        //Allow listed op: output is in half precision
+        INDArray mmul = sd.getArrForVarName("mmul");
+        assertEquals(toHalfPrecision(mmul), mmul);
+        assertTrue(in.mmul(w).equalsWithEps(mmul, 1e-2));
+        //Downstream op follows its inputs
+        INDArray z = sd.getArrForVarName("z");
+        assertEquals(toHalfPrecision(z), z);
+        //Variables are kept in full precision
+        assertSame(sd.getArrForVarName("w"), sd.getVariable("w").getArr());
+        assertEquals(w, sd.getArrForVarName("w"));
+    }
+
+    @Test
+    public void testMixedPrecisionGradients() {
+        INDArray in = Nd4j.rand(3, 4);
+        INDArray w = Nd4j.rand(4, 5);
+        INDArray b = Nd4j.rand(1, 5);
+
+        SameDiff reference = mlp(in, w, b);
+        reference.execBackwards();
+
+        for (boolean halfStorage : new boolean[]{false, true}) {
+            SameDiff sd = mlp(in, w, b).enableMixedPrecision(MixedPrecisionConfig.builder()
+                    .halfPrecisionStorage(halfStorage).initialLossScale(256).build());
+            StorageListener storage = new StorageListener("mmul");
+            sd.addListener(storage);
+            sd.execBackwards();
+
+            assertFalse(sd.getLossScaler().isLastStepSkipped());
+            assertEquals(256, sd.getLossScaler().getLossScale(), 0.0);
+            for (String v : new String[]{"in", "w", "b"}) {
+                INDArray exp = reference.grad(v).getArr();
+                INDArray act = sd.grad(v).getArr();
+                assertTrue(v + ": " + exp + " vs " + act, exp.equalsWithEps(act, 1e-2));
+            }
+            //With half precision storage, activations that are not needed for backprop are not retained
+            assertEquals(halfStorage, storage.released);
+
+            //Execute again: the loss scale must be applied once only
+            INDArray first = sd.grad("w").getArr().dup();
+            sd.execBackwards();
+            assertTrue(first.equalsWithEps(sd.grad("w").getArr(), 1e-5));
+        }
+    }
+
+    /**
+     * Records whether the array of the variable was removed (stored as HALF) after it was computed
+     */
+    private static class StorageListener implements OpExecutionListener {
+        private final String varName;
+        private boolean computed;
+        private boolean released;
+
+        private StorageListener(String varName) {
+            this.varName = varName;
+        }
+
+        @Override
+        public void preOpExecution(SameDiff sameDiff, DifferentialFunction function) {
+            boolean present = sameDiff.getArrForVarName(varName) != null;
+            released |= computed && !present;
+            computed |= present;
+        }
+
+        @Override
+        public void postOpExecution(SameDiff sameDiff, DifferentialFunction function) {
+        }
+    }
+
+    @Test
+    public void testOverflowSkipsStep() {
+        INDArray in = Nd4j.rand(3, 4);
+        INDArray w = Nd4j.rand(4, 5);
+        INDArray b = Nd4j.rand(1, 5);
+
+        //Scaled gradients exceed the half precision range
+        SameDiff sd = mlp(in, w, b).enableMixedPrecision(MixedPrecisionConfig.builder()
+                .initialLossScale(1e8).build());
+        sd.execBackwards();
+
+        LossScaler scaler = sd.getLossScaler();
+        assertTrue(scaler.isLastStepSkipped());
+        assertEquals(5e7, scaler.getLossScale(), 0.0);
+        assertEquals(Nd4j.zeros(4, 5), sd.grad("w").getArr());
+
+        sd.disableMixedPrecision();
+        sd.execBackwards();
+        SameDiff reference = mlp(in, w, b);
+        reference.execBackwards();
+        assertEquals(reference.grad("w").getArr(), sd.grad("w").getArr());
+    }
+}
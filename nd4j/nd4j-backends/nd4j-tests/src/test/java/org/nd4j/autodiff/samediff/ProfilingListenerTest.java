@@ -0,0 +1,109 @@
+package org.nd4j.autodiff.samediff;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.nd4j.autodiff.listeners.profiler.OpProfile;
+import org.nd4j.autodiff.listeners.profiler.ProfilingListener;
+import org.nd4j.autodiff.opvalidation.BaseOpValidation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.factory.Nd4jBackend;
+import org.nd4j.shade.jackson.databind.JsonNode;
+import org.nd4j.shade.jackson.databind.ObjectMapper;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+@RunWith(Parameterized.class)
+public class ProfilingListenerTest extends BaseOpValidation {
+
+    public ProfilingListenerTest(Nd4jBackend backend) {
+        super(backend);
+    }
+
+    private static SameDiff mlp() {
+        SameDiff sd = SameDiff.create();
+        SDVariable in = sd.var("in", Nd4j.rand(3, 4));
+        SDVariable w0 = sd.var("w0", Nd4j.rand(4, 5));
+        SDVariable b0 = sd.var("b0", Nd4j.rand(1, 5));
+        SDVariable h = sd.tanh("h", sd.mmul("mmul0", in, w0).add("z0", b0));
+        sd.sum("out", h, 1);
+        return sd;
+    }
+
+    @Test
+    public void testProfileForward() throws Exception {
+        SameDiff sd = mlp();
+        ProfilingListener profiler = new ProfilingListener();
+        sd.addListener(profiler);
+
+        sd.exec();
+        sd.exec();
+
+        List<OpProfile> profiles = profiler.getProfiles();
+        assertEquals(sd.functions().length, profiles.size());
+        for (OpProfile p : profiles) {
+            assertEquals(p.getName(), 2, p.getCount());
+            assertTrue(p.getMinNanos() <= p.getMaxNanos());
+            assertTrue(p.getTotalOutputBytes() > 0);
+        }
+        //h: 3x5 doubles, twice
+        OpProfile h = profiler.getProfile(sd.getVariableOutputFunction("h").getOwnName());
+        assertEquals(2 * 3 * 5 * 8, h.getTotalOutputBytes());
+
+        List<OpProfile> top = profiler.topN(2);
+        assertEquals(2, top.size());
+        assertTrue(top.get(0).getTotalNanos() >= top.get(1).getTotalNanos());
+
+        String summary = profiler.summary(10);
+        log.info("Profile:\n{}", summary);
+        assertTrue(summary.contains(h.getName()));
+
+        JsonNode trace = new ObjectMapper().readTree(profiler.toChromeTrace());
+        JsonNode events = trace.get("traceEvents");
+        assertEquals(2 * profiles.size(), events.size());
+        for (JsonNode e : events) {
+            assertEquals("X", e.get("ph").asText());
+            assertTrue(e.get("dur").asDouble() >= 0);
+            assertNotNull(e.get("name"));
+        }
+
+        profiler.reset();
+        assertTrue(profiler.getProfiles().isEmpty());
+
+        assertTrue(sd.removeListener(profiler));
+        sd.exec();
+        assertTrue(profiler.getProfiles().isEmpty());
+    }
+
+    @Test
+    public void testProfileBackwardAndFrozen() {
+        SameDiff sd = mlp();
+        ProfilingListener profiler = new ProfilingListener(5);
+        sd.addListener(profiler);
+
+        sd.execBackwards();
+        int nForward = sd.functions().length;
+        assertTrue(profiler.getProfiles().size() > nForward);
+
+        //Trace events are limited, aggregate statistics are not
+        assertTrue(profiler.summary(100).contains("dropped"));
+
+        //Frozen graph sessions share the listeners of the original instance
+        profiler.reset();
+        SameDiff sd2 = SameDiff.create();
+        SDVariable in = sd2.var("in", new long[]{-1, 4});
+        SDVariable w = sd2.var("w", Nd4j.rand(4, 2));
+        sd2.tanh("out", sd2.mmul(in, w));
+        sd2.addListener(profiler);
+        FrozenGraph frozen = sd2.freeze();
+        INDArray out = frozen.output(Collections.singletonMap("in", Nd4j.rand(2, 4)), "out").get("out");
+        assertArrayEquals(new long[]{2, 2}, out.shape());
+        assertEquals(2, profiler.getProfiles().size());
+    }
+}
@@ -0,0 +1,167 @@
+package org.nd4j.imports;
+
+import com.github.os72.protobuf351.ByteString;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.nd4j.autodiff.samediff.SameDiff;
+import org.nd4j.imports.graphmapper.tf.TFGraphMapper;
+import org.nd4j.linalg.BaseNd4jTest;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.impl.transforms.Tanh;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.factory.Nd4jBackend;
+import org.tensorflow.framework.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+@RunWith(Parameterized.class)
+public class TFGraphMapperStreamingTests extends BaseNd4jTest {
+
+    @Rule
+    public TemporaryFolder testDir = new TemporaryFolder();
+
+    public TFGraphMapperStreamingTests(Nd4jBackend backend) {
+        super(backend);
+    }
+
+    @Override
+    public char ordering() {
+        return 'c';
+    }
+
+    private static NodeDef constant(String name, INDArray arr) {
+        ByteBuffer bb = ByteBuffer.allocate(4 * (int) arr.length()).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < arr.length(); i++) {
+            bb.putFloat(arr.getFloat(i));
+        }
+        bb.flip();
+
+        TensorShapeProto.Builder shape = TensorShapeProto.newBuilder();
+        for (long d : arr.shape()) {
+            shape.addDim(TensorShapeProto.Dim.newBuilder().setSize(d));
+        }
+        TensorProto tensor = TensorProto.newBuilder()
+                .setDtype(DataType.DT_FLOAT)
+                .setTensorShape(shape)
+                .setTensorContent(ByteString.copyFrom(bb))
+                .build();
+
+        return NodeDef.newBuilder().setName(name).setOp("Const")
+                .putAttr("dtype", AttrValue.newBuilder().setType(DataType.DT_FLOAT).build())
+                .putAttr("value", AttrValue.newBuilder().setTensor(tensor).build())
+                .build();
+    }
+
+    private static NodeDef intConstant(String name, int... values) {
+        ByteBuffer bb = ByteBuffer.allocate(4 * values.length).order(ByteOrder.nativeOrder());
+        for (int v : values) {
+            bb.putInt(v);
+        }
+        bb.flip();
+
+        TensorProto tensor = TensorProto.newBuilder()
+                .setDtype(DataType.DT_INT32)
+                .setTensorShape(TensorShapeProto.newBuilder().addDim(TensorShapeProto.Dim.newBuilder().setSize(values.length)))
+                .setTensorContent(ByteString.copyFrom(bb))
+                .build();
+
+        return NodeDef.newBuilder().setName(name).setOp("Const")
+                .putAttr("dtype", AttrValue.newBuilder().setType(DataType.DT_INT32).build())
+                .putAttr("value", AttrValue.newBuilder().setTensor(tensor).build())
+                .build();
+    }
+
+    private static GraphDef graph(INDArray in, INDArray w) {
+        AttrValue floatType = AttrValue.newBuilder().setType(DataType.DT_FLOAT).build();
+        AttrValue noTranspose = AttrValue.newBuilder().setB(false).build();
+        return GraphDef.newBuilder()
+                .addNode(constant("in", in))
+                .addNode(constant("w", w))
+                .addNode(NodeDef.newBuilder().setName("mm").setOp("MatMul").addInput("in").addInput("w")
+                        .putAttr("T", floatType).putAttr("transpose_a", noTranspose).putAttr("transpose_b", noTranspose))
+                .addNode(NodeDef.newBuilder().setName("out").setOp("Tanh").addInput("mm").putAttr("T", floatType))
+                .setVersions(VersionDef.newBuilder().setProducer(26))
+                .build();
+    }
+
+    @Test
+    public void testStreamingImport() throws Exception {
+        INDArray in = Nd4j.rand(2, 4);
+        INDArray w = Nd4j.rand(4, 3);
+        GraphDef graphDef = graph(in, w);
+        File f = testDir.newFile("graph.pb");
+        FileUtils.writeByteArrayToFile(f, graphDef.toByteArray());
+
+        INDArray exp = Nd4j.getExecutioner().execAndReturn(new Tanh(in.mmul(w)));
+
+        SameDiff regular = TFGraphMapper.getInstance().importGraph(graphDef);
+        //Threshold of 0: all constants are decoded while streaming
+        SameDiff streamed = TFGraphMapper.getInstance().importGraphStreaming(f, 0);
+        SameDiff fromStream = TFGraphMapper.getInstance().importGraphStreaming(
+                new ByteArrayInputStream(graphDef.toByteArray()), 0);
+        //Default threshold: small constants are kept in the graph
+        SameDiff streamedDefault = TFGraphMapper.getInstance().importGraphStreaming(f);
+
+        for (SameDiff sd : new SameDiff[]{regular, streamed, fromStream, streamedDefault}) {
+            assertEquals(in, sd.getArrForVarName("in"));
+            assertEquals(w, sd.getArrForVarName("w"));
+            assertEquals(exp, sd.execAndEndResult());
+        }
+    }
+
+    @Test
+    public void testStreamingImportConstantOpArguments() throws Exception {
+        //Op mappers read the shape and permutation from the constant inputs, which are decoded while streaming
+        INDArray in = Nd4j.linspace(1, 24, 24).reshape('c', 2, 3, 4);
+        AttrValue floatType = AttrValue.newBuilder().setType(DataType.DT_FLOAT).build();
+        AttrValue intType = AttrValue.newBuilder().setType(DataType.DT_INT32).build();
+        GraphDef graphDef = GraphDef.newBuilder()
+                .addNode(constant("in", in))
+                .addNode(intConstant("shape", 4, 6))
+                .addNode(intConstant("perm", 1, 0))
+                .addNode(NodeDef.newBuilder().setName("reshape").setOp("Reshape").addInput("in").addInput("shape")
+                        .putAttr("T", floatType).putAttr("Tshape", intType))
+                .addNode(NodeDef.newBuilder().setName("out").setOp("Transpose").addInput("reshape").addInput("perm")
+                        .putAttr("T", floatType).putAttr("Tperm", intType))
+                .setVersions(VersionDef.newBuilder().setProducer(26))
+                .build();
+        File f = testDir.newFile("graph.pb");
+        FileUtils.writeByteArrayToFile(f, graphDef.toByteArray());
+
+        INDArray exp = in.reshape('c', 4, 6).transpose();
+
+        SameDiff regular = TFGraphMapper.getInstance().importGraph(graphDef);
+        SameDiff streamed = TFGraphMapper.getInstance().importGraphStreaming(f, 0);
+        SameDiff fromStream = TFGraphMapper.getInstance().importGraphStreaming(
+                new ByteArrayInputStream(graphDef.toByteArray()), 0);
+
+        for (SameDiff sd : new SameDiff[]{regular, streamed, fromStream}) {
+            INDArray out = sd.execAndEndResult();
+            assertArrayEquals(new long[]{6, 4}, out.shape());
+            assertEquals(exp, out);
+        }
+    }
+
+    @Test
+    public void testDirectTensorContentDecoding() {
+        //Binary tensor content is copied directly into the array buffer; compare against values set individually
+        val w = Nd4j.linspace(1, 24, 24).reshape('c', 2, 3, 4);
+        val tensor = constant("w", w).getAttrOrThrow("value").getTensor();
+        val decoded = TFGraphMapper.getInstance().mapTensorProto(tensor);
+        assertArrayEquals(new long[]{2, 3, 4}, decoded.shape());
+        assertEquals(Nd4j.dataType(), decoded.data().dataType());
+        assertEquals(w, decoded);
+    }
+}
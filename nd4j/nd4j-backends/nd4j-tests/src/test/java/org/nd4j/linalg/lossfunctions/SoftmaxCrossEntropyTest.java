@@ -0,0 +1,189 @@
+package org.nd4j.linalg.lossfunctions;
+
+import org.junit.Test;
+import org.nd4j.linalg.BaseNd4jTest;
+import org.nd4j.linalg.activations.impl.ActivationSoftmax;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.factory.Nd4jBackend;
+import org.nd4j.linalg.indexing.BooleanIndexing;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.nd4j.linalg.indexing.conditions.Conditions;
+import org.nd4j.linalg.lossfunctions.impl.LossMCXENT;
+import org.nd4j.linalg.lossfunctions.impl.LossNegativeLogLikelihood;
+import org.nd4j.linalg.ops.transforms.Transforms;
+import org.nd4j.linalg.primitives.Pair;
+
+import static org.junit.Assert.*;
+
+public class SoftmaxCrossEntropyTest extends BaseNd4jTest {
+
+    public SoftmaxCrossEntropyTest(Nd4jBackend backend) {
+        super(backend);
+    }
+
+    /**
+     * Reference (non-fused) per-example score: softmax output, clipped, then log
+     */
+    private static INDArray expScoreArray(INDArray labels, INDArray preOut, INDArray weights, INDArray mask,
+                    double clipEps) {
+        INDArray out = Transforms.softmax(preOut, true);
+        if (clipEps > 0) {
+            BooleanIndexing.replaceWhere(out, clipEps, Conditions.lessThan(clipEps));
+            BooleanIndexing.replaceWhere(out, 1.0 - clipEps, Conditions.greaterThan(1.0 - clipEps));
+        }
+        INDArray a = weights == null ? labels : labels.mulRowVector(weights);
+        INDArray score = Transforms.log(out, false).muli(a).sum(1).negi();
+        return mask == null ? score : score.muliColumnVector(mask);
+    }
+
+    /**
+     * Reference (non-fused) gradient: softmax(z) * sum(a) - a
+     */
+    private static INDArray expGradient(INDArray labels, INDArray preOut, INDArray weights, INDArray mask) {
+        INDArray out = Transforms.softmax(preOut, true);
+        INDArray a = weights == null ? labels : labels.mulRowVector(weights);
+        INDArray grad = out.muliColumnVector(a.sum(1)).subi(a);
+        return mask == null ? grad : grad.muliColumnVector(mask);
+    }
+
+    @Test
+    public void testFusedVsReference() {
+        Nd4j.getRandom().setSeed(12345);
+        int mb = 7;
+        int nOut = 11;
+        INDArray labels = Nd4j.zeros(mb, nOut);
+        for (int i = 0; i < mb; i++) {
+            labels.putScalar(i, (3 * i) % nOut, 1.0);
+        }
+        INDArray weights = Nd4j.rand(1, nOut).addi(0.5);
+        INDArray mask = Nd4j.create(new double[] {1, 0, 1, 1, 0, 1, 1}, new int[] {mb, 1});
+
+        for (char order : new char[] {'c', 'f'}) {
+            for (boolean useWeights : new boolean[] {false, true}) {
+                for (boolean useMask : new boolean[] {false, true}) {
+                    INDArray w = useWeights ? weights : null;
+                    INDArray m = useMask ? mask : null;
+                    INDArray preOut = Nd4j.randn(mb, nOut).muli(3).dup(order);
+                    INDArray preOutCopy = preOut.dup();
+                    String msg = order + " - " + useWeights + " - " + useMask;
+
+                    INDArray expScore = expScoreArray(labels, preOut, w, m, 1e-10);
+                    INDArray expGrad = expGradient(labels, preOut, w, m);
+
+                    INDArray score = SoftmaxCrossEntropy.scoreArray(labels, preOut, w, m, 1e-10);
+                    INDArray grad = SoftmaxCrossEntropy.gradient(labels, preOut, w, m);
+                    Pair<INDArray, INDArray> p = SoftmaxCrossEntropy.scoreArrayAndGradient(labels, preOut, w, m, 1e-10);
+
+                    assertArrayEquals(new long[] {mb, 1}, score.shape());
+                    assertTrue(msg, expScore.equalsWithEps(score, 1e-5));
+                    assertTrue(msg, expGrad.equalsWithEps(grad, 1e-5));
+                    assertTrue(msg, expScore.equalsWithEps(p.getFirst(), 1e-5));
+                    assertTrue(msg, expGrad.equalsWithEps(p.getSecond(), 1e-5));
+                    assertEquals(msg, preOutCopy, preOut);
+
+                    //Loss functions: fused path used automatically with softmax
+                    for (LossMCXENT loss : new LossMCXENT[] {new LossMCXENT(w),
+                                    useWeights ? new LossNegativeLogLikelihood(w) : new LossNegativeLogLikelihood()}) {
+                        double expTotal = expScore.sumNumber().doubleValue();
+                        assertEquals(msg, expTotal, loss.computeScore(labels, preOut, new ActivationSoftmax(), m,
+                                        false), 1e-4);
+                        assertEquals(msg, expTotal / mb, loss.computeScore(labels, preOut, new ActivationSoftmax(),
+                                        m, true), 1e-4);
+                        assertTrue(msg, expScore.equalsWithEps(
+                                        loss.computeScoreArray(labels, preOut, new ActivationSoftmax(), m), 1e-5));
+                        assertTrue(msg, expGrad.equalsWithEps(
+                                        loss.computeGradient(labels, preOut, new ActivationSoftmax(), m), 1e-5));
+                        Pair<Double, INDArray> gs = loss.computeGradientAndScore(labels, preOut,
+                                        new ActivationSoftmax(), m, true);
+                        assertEquals(msg, expTotal / mb, gs.getFirst(), 1e-4);
+                        assertTrue(msg, expGrad.equalsWithEps(gs.getSecond(), 1e-5));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testExtremeValuesClipping() {
+        //Large logits: softmax outputs of exactly 0 and 1. Score should be finite, and clipped as in the non-fused
+        // implementation
+        INDArray labels = Nd4j.create(new double[][] {{0, 0, 1}, {1, 0, 0}, {0, 1, 0}});
+        INDArray preOut = Nd4j.create(new double[][] {{1000, 0, -1000}, {5, 2, 1}, {-50, 50, 0}});
+
+        for (double eps : new double[] {1e-10, 1e-5}) {
+            INDArray exp = expScoreArray(labels, preOut, null, null, eps);
+            INDArray act = SoftmaxCrossEntropy.scoreArray(labels, preOut, null, null, eps);
+            assertEquals(-Math.log(eps), act.getDouble(0), 1e-3);
+            assertTrue(exp.equalsWithEps(act, 1e-3));
+        }
+
+        //No clipping: large but finite score, no NaNs in the gradient
+        INDArray act = SoftmaxCrossEntropy.scoreArray(labels, preOut, null, null, 0.0);
+        assertEquals(2000.0, act.getDouble(0), 1e-3);
+        INDArray grad = SoftmaxCrossEntropy.gradient(labels, preOut, null, null);
+        assertTrue(expGradient(labels, preOut, null, null).equalsWithEps(grad, 1e-5));
+        assertFalse(BooleanIndexing.or(grad, Conditions.isNan()));
+    }
+
+    @Test
+    public void testClippingOneHotAndSoftLabels() {
+        //One-hot labels (including an all-zero row): only the labelled class log probability is clipped, per example.
+        // Soft labels: log softmax is materialized and clipped
+        INDArray preOut = Nd4j.create(new double[][] {{100, 0, -100}, {5, 2, 1}, {-50, 50, 0}, {30, -30, 0}});
+        INDArray oneHot = Nd4j.create(new double[][] {{1, 0, 0}, {0, 0, 1}, {0, 0, 0}, {0, 1, 0}});
+        INDArray soft = Nd4j.create(new double[][] {{0.5, 0.5, 0}, {0, 0.2, 0.8}, {0.3, 0.3, 0.4}, {0, 1, 0}});
+        INDArray weights = Nd4j.create(new double[] {0.5, 2.0, 1.5});
+
+        for (INDArray labels : new INDArray[] {oneHot, soft}) {
+            for (INDArray w : new INDArray[] {null, weights}) {
+                for (double eps : new double[] {1e-10, 1e-5}) {
+                    INDArray exp = expScoreArray(labels, preOut, w, null, eps);
+                    INDArray act = SoftmaxCrossEntropy.scoreArray(labels, preOut, w, null, eps);
+                    assertTrue(exp + " vs. " + act, exp.equalsWithEps(act, 1e-3));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testViewsAndMixedOrders() {
+        //Sub-batch views and arrays of different orders give the same results as dense copies
+        Nd4j.getRandom().setSeed(12345);
+        int nOut = 6;
+        INDArray allLabels = Nd4j.zeros(10, nOut);
+        for (int i = 0; i < 10; i++) {
+            allLabels.putScalar(i, i % nOut, 0.7);
+            allLabels.putScalar(i, (i + 2) % nOut, 0.3);
+        }
+        INDArray allPreOut = Nd4j.randn(10, nOut).muli(3);
+
+        INDArray labelsC = allLabels.get(NDArrayIndex.interval(2, 7), NDArrayIndex.all());
+        INDArray labelsF = labelsC.dup('f');
+        INDArray labelsCols = allLabels.transpose().dup('c').transpose()
+                        .get(NDArrayIndex.interval(2, 7), NDArrayIndex.all());
+        INDArray preOutC = allPreOut.get(NDArrayIndex.interval(3, 8), NDArrayIndex.all());
+        INDArray preOutF = preOutC.dup('f');
+
+        INDArray exp = expScoreArray(labelsC.dup(), preOutC.dup(), null, null, 1e-10);
+        for (INDArray labels : new INDArray[] {labelsC, labelsF, labelsCols}) {
+            for (INDArray preOut : new INDArray[] {preOutC, preOutF}) {
+                String msg = labels.ordering() + " " + labels.isView() + " - " + preOut.ordering();
+                INDArray act = SoftmaxCrossEntropy.scoreArray(labels, preOut, null, null, 1e-10);
+                assertTrue(msg, exp.equalsWithEps(act, 1e-5));
+            }
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testPerOutputMaskingGradient() {
+        INDArray labels = Nd4j.create(new double[][] {{0, 1}, {1, 0}});
+        INDArray mask = Nd4j.create(new double[][] {{1, 0}, {1, 1}});
+        new LossMCXENT().computeGradient(labels, Nd4j.rand(2, 2), new ActivationSoftmax(), mask);
+    }
+
+    @Override
+    public char ordering() {
+        return 'c';
+    }
+}